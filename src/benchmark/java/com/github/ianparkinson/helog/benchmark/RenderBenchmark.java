@@ -0,0 +1,84 @@
+package com.github.ianparkinson.helog.benchmark;
+
+import com.github.ianparkinson.helog.app.JsonRenderer;
+import com.github.ianparkinson.helog.app.LogJsonStream;
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import com.github.ianparkinson.helog.app.OrderedWorkerPool;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of parsing and formatting log frames with {@link OrderedWorkerPool}, as the number of worker
+ * threads is increased from one to the number of available processors.
+ *
+ * <p>Run with {@code ./gradlew benchmark}, optionally passing the number of frames to render with
+ * {@code --args=<frames>}.
+ */
+public final class RenderBenchmark {
+    private static final int DEFAULT_FRAMES = 500_000;
+
+    private RenderBenchmark() {}
+
+    public static void main(String... args) throws InterruptedException {
+        int frameCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_FRAMES;
+        List<String> frames = createFrames(frameCount);
+        LogJsonStream stream = new LogJsonStream();
+        JsonRenderer<LogEntry> renderer = new JsonRenderer<>(stream.parser(), entry -> true, stream.formatter());
+        ZonedDateTime dateTime = ZonedDateTime.now();
+
+        // Warm up, so that the first measurement isn't penalized by JIT compilation.
+        run(renderer, dateTime, frames, 1);
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d frames, %d processors%n", frameCount, processors);
+        System.out.printf("%7s %14s %8s%n", "threads", "frames/sec", "speedup");
+        double baseline = 0;
+        for (int threads = 1; threads <= processors; threads = nextThreadCount(threads, processors)) {
+            double rate = run(renderer, dateTime, frames, threads);
+            if (threads == 1) {
+                baseline = rate;
+            }
+            System.out.printf("%7d %14.0f %7.2fx%n", threads, rate, rate / baseline);
+        }
+    }
+
+    /** Doubles the thread count, but always includes the number of processors itself. */
+    private static int nextThreadCount(int threads, int processors) {
+        return (threads < processors && threads * 2 > processors) ? processors : threads * 2;
+    }
+
+    /** Renders every frame, returning the throughput in frames per second. */
+    private static double run(
+            JsonRenderer<LogEntry> renderer, ZonedDateTime dateTime, List<String> frames, int threads)
+            throws InterruptedException {
+        AtomicLong characters = new AtomicLong();
+        long start = System.nanoTime();
+        try (OrderedWorkerPool<String> pool =
+                     new OrderedWorkerPool<>(threads, 64 * threads, line -> characters.addAndGet(line.length()))) {
+            for (String frame : frames) {
+                pool.submit(() -> renderer.render(dateTime, frame));
+            }
+            pool.drain();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (characters.get() == 0) {
+            throw new IllegalStateException("Nothing rendered");
+        }
+        return frames.size() * 1e9 / elapsed;
+    }
+
+    private static List<String> createFrames(int count) {
+        List<String> frames = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = i % 300;
+            frames.add(String.format(
+                    "{\"name\":\"Device %d\",\"msg\":\"Device %d temperature %d.%d C\",\"id\":%d," +
+                            "\"time\":\"2023-04-08 12:58:16.416\",\"type\":\"dev\",\"level\":\"info\"}",
+                    id, id, 15 + i % 10, i % 10, id));
+        }
+        return frames;
+    }
+}
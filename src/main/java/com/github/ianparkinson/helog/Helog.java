@@ -1,15 +1,53 @@
 package com.github.ianparkinson.helog;
 
+import com.github.ianparkinson.helog.app.Aggregator;
+import com.github.ianparkinson.helog.app.AsyncSink;
+import com.github.ianparkinson.helog.app.ArchiveMerger;
+import com.github.ianparkinson.helog.app.DeviceWatchdog;
+import com.github.ianparkinson.helog.app.ElasticsearchBulk;
+import com.github.ianparkinson.helog.app.EntrySource;
+import com.github.ianparkinson.helog.app.EventStateTable;
+import com.github.ianparkinson.helog.app.EventStateTable.State;
+import com.github.ianparkinson.helog.app.EventsJsonStream;
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import com.github.ianparkinson.helog.app.FrameBuffer;
+import com.github.ianparkinson.helog.app.HttpBatchSink;
+import com.github.ianparkinson.helog.app.HubLatency;
+import com.github.ianparkinson.helog.app.InfluxLineProtocol;
 import com.github.ianparkinson.helog.app.JsonRenderer;
 import com.github.ianparkinson.helog.app.JsonStream;
+import com.github.ianparkinson.helog.app.JsonStreamFormatter;
+import com.github.ianparkinson.helog.app.LogArchiveWriter;
+import com.github.ianparkinson.helog.app.LogJsonStream;
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import com.github.ianparkinson.helog.app.LogTemplates;
+import com.github.ianparkinson.helog.app.OtlpLogs;
+import com.github.ianparkinson.helog.app.PartitionedFiles;
+import com.github.ianparkinson.helog.app.Percentiles;
+import com.github.ianparkinson.helog.app.PeriodicReporter;
+import com.github.ianparkinson.helog.app.QueuedSink;
+import com.github.ianparkinson.helog.app.ReorderBuffer;
+import com.github.ianparkinson.helog.app.RepeatCollapser;
+import com.github.ianparkinson.helog.app.SharedParser;
+import com.github.ianparkinson.helog.app.StateFileWriter;
 import com.github.ianparkinson.helog.app.StreamPrinter;
-import com.github.ianparkinson.helog.app.TextWebSocketClient;
+import com.github.ianparkinson.helog.app.StreamPrinter.Streamer;
 import com.github.ianparkinson.helog.app.TextWebSocketClientImpl;
+import com.github.ianparkinson.helog.app.TopSources;
+import com.github.ianparkinson.helog.app.WindowedStats;
+import com.github.ianparkinson.helog.cli.AdvancedOptions;
+import com.github.ianparkinson.helog.cli.ArchiveOptions;
+import com.github.ianparkinson.helog.cli.ExportOptions;
 import com.github.ianparkinson.helog.cli.FilterOptions;
 import com.github.ianparkinson.helog.cli.FormatOptions;
+import com.github.ianparkinson.helog.cli.OutputOptions;
+import com.github.ianparkinson.helog.cli.OutputOptions.Output;
 import com.github.ianparkinson.helog.cli.ParameterValidationException;
+import com.github.ianparkinson.helog.cli.StateOptions;
 import com.github.ianparkinson.helog.cli.Stream;
+import com.github.ianparkinson.helog.cli.SummaryOptions;
 import com.github.ianparkinson.helog.util.Strings;
+import com.github.ianparkinson.helog.util.TemplateMiner;
 import picocli.CommandLine;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Help;
@@ -19,12 +57,27 @@ import picocli.CommandLine.Option;
 import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
+import static com.github.ianparkinson.helog.util.ErrorMessage.errorMessage;
 import static com.github.ianparkinson.helog.util.Strings.csvLine;
 import static java.lang.System.getProperty;
 
@@ -34,7 +87,9 @@ import static java.lang.System.getProperty;
         synopsisHeading = "%nUsage:%n",
         customSynopsis = {
                 "  @|bold helog log|@ @|yellow <host>|@",
-                "  @|bold helog events|@ @|yellow <host>|@"
+                "  @|bold helog events|@ @|yellow <host>|@",
+                "  @|bold helog all|@ @|yellow <host>|@",
+                "  @|bold helog log|@ --replay=@|yellow <file>|@"
         },
         versionProvider = Helog.VersionProvider.class
 )
@@ -46,28 +101,45 @@ public final class Helog implements Callable<Integer> {
 
     public static final String ERROR_PREFIX = "Error: ";
 
+    /** How long to wait to connect to a system to which entries are exported. */
+    private static final Duration EXPORT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /** When merging streams, how often lines are written, and streams checked for failure. */
+    private static final Duration MERGE_INTERVAL = Duration.ofMillis(100);
+
+    /** With {@code --collapse}, how often windows are checked for expiry. */
+    private static final Duration COLLAPSE_INTERVAL = Duration.ofSeconds(1);
+
     @CommandLine.Spec
     private CommandLine.Model.CommandSpec commandSpec;
 
     @Parameters(index = "0", hidden = true)
     private Stream stream;
 
+    /** The first of {@link #hosts}, once they have been validated. */
     private String host;
 
+    /** Saves entries to the file given by {@code --archive}, or {@code null}. */
+    private volatile LogArchiveWriter archiveWriter = null;
+
+    /** The files given by {@code --output}, once the command line has been validated. */
+    private List<Output> outputFiles = List.of();
+
+    /** Parsers shared by the renderers of each type of entry; see {@link #sharedParser}. */
+    private final Map<Class<?>, SharedParser<?>> sharedParsers = new HashMap<>();
+
+    /** Connects to the Hubitat Elevation, once the command line has been validated. */
+    private TextWebSocketClientImpl client = null;
+
     @Parameters(
-            index = "1",
+            index = "1..*",
+            arity = "0..*",
+            paramLabel = "<host>",
             description = "IP address or host name of the Hubitat Elevation. May optionally specify a port, with " +
-                    "the format @|yellow <host>:<port>|@"
+                    "the format @|yellow <host>:<port>|@. If several are given, their entries are merged in the " +
+                    "order in which they were received."
     )
-    public void setHost(String host) {
-        if (Strings.isHostPort(host)) {
-            this.host = host;
-        } else {
-            throw new ParameterException(commandSpec.commandLine(), String.format(
-                    "Invalid value '%s' for host: should be an IP address or hostname, optionally with a port using " +
-                            "the format <host>:<port>", host));
-        }
-    }
+    private List<String> hosts = new ArrayList<>();
 
     @ArgGroup(heading = "Output format:%n",
             exclusive = true)
@@ -77,6 +149,30 @@ public final class Helog implements Callable<Integer> {
             exclusive = false)
     public FilterOptions filter = new FilterOptions();
 
+    @ArgGroup(heading = "Summaries:%n",
+            exclusive = false)
+    public SummaryOptions summary = new SummaryOptions();
+
+    @ArgGroup(heading = "State:%n",
+            exclusive = false)
+    public StateOptions state = new StateOptions();
+
+    @ArgGroup(heading = "Archive:%n",
+            exclusive = false)
+    public ArchiveOptions archive = new ArchiveOptions();
+
+    @ArgGroup(heading = "Output files:%n",
+            exclusive = false)
+    public OutputOptions output = new OutputOptions();
+
+    @ArgGroup(heading = "Export:%n",
+            exclusive = false)
+    public ExportOptions export = new ExportOptions();
+
+    @ArgGroup(heading = "Advanced:%n",
+            exclusive = false)
+    public AdvancedOptions advanced = new AdvancedOptions();
+
     @ArgGroup(heading = "Help:%n")
     public HelpOptions helpOptions = new HelpOptions();
 
@@ -95,39 +191,637 @@ public final class Helog implements Callable<Integer> {
     @Override
     public Integer call() throws URISyntaxException, InterruptedException {
         try {
+            format.validate(stream);
             filter.validate(stream, format);
+            summary.validate(stream, format, advanced);
+            advanced.validate(stream, format, summary);
+            state.validate(stream, format, summary, advanced);
+            archive.validate(stream, format, summary, advanced);
+            output.validate(stream, archive);
+            export.validate(stream, archive);
+            outputFiles = output.parse();
         } catch (ParameterValidationException e) {
             throw new ParameterException(commandSpec.commandLine(), ERROR_PREFIX + e.getMessage());
         }
+        for (String host : hosts) {
+            if (!Strings.isHostPort(host)) {
+                throw new ParameterException(commandSpec.commandLine(), String.format(
+                        "Invalid value '%s' for host: should be an IP address or hostname, optionally with a port " +
+                                "using the format <host>:<port>", host));
+            }
+        }
+        if (archive.replay != null) {
+            if (!hosts.isEmpty()) {
+                throw new ParameterException(commandSpec.commandLine(),
+                        ERROR_PREFIX + "<host> cannot be used with --replay");
+            }
+            return replay(archive.replay);
+        } else if (hosts.isEmpty()) {
+            throw new ParameterException(commandSpec.commandLine(), "Missing required parameter: '<host>'");
+        } else if (hosts.size() > 1 && !merges()) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    ERROR_PREFIX + "Several hosts can only be used with the default output format, or --raw");
+        } else if (hosts.size() > 1 && !outputFiles.isEmpty()) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    ERROR_PREFIX + "Output files cannot be used with several hosts");
+        } else if (hosts.size() > 1 && export.exports()) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    ERROR_PREFIX + "Exports cannot be used with several hosts");
+        } else if (hosts.size() > 1 && advanced.backlog > 0) {
+            throw new ParameterException(commandSpec.commandLine(),
+                    ERROR_PREFIX + "--backlog cannot be used with several hosts");
+        }
+        host = hosts.get(0);
 
-        TextWebSocketClient client = new TextWebSocketClientImpl();
+        client = (advanced.pingInterval == 0) ? new TextWebSocketClientImpl()
+                : new TextWebSocketClientImpl(
+                        Duration.ofSeconds(advanced.pingInterval), Duration.ofSeconds(advanced.pingTimeout));
         Clock clock = Clock.system(ZoneId.systemDefault());
-        StreamPrinter printer = new StreamPrinter(clock, Ansi.AUTO, client);
+        FrameBuffer backlog = (advanced.backlog == 0) ? null : new FrameBuffer(advanced.backlogBytes());
+        StreamPrinter printer =
+                new StreamPrinter(clock, Ansi.AUTO, client, backlog, advanced.maxFrameSize, advanced.threads);
+        if (outputFiles.isEmpty() && !export.exports()) {
+            return connect(printer, clock);
+        }
 
+        List<AsyncSink> sinks = new ArrayList<>();
+        if (!openOutputs(printer, sinks)) {
+            closeOutputs(sinks);
+            return 1;
+        }
+        openExports(printer, sinks);
+        // Helog usually exits when interrupted, so make sure that queued lines are written.
+        Thread closeOnExit = new Thread(() -> closeOutputs(sinks));
+        Runtime.getRuntime().addShutdownHook(closeOnExit);
+        try {
+            return connect(printer, clock);
+        } finally {
+            Runtime.getRuntime().removeShutdownHook(closeOnExit);
+            closeOutputs(sinks);
+        }
+    }
+
+    /** Connects to the Hubitat Elevation, and streams until the connection fails. */
+    private int connect(StreamPrinter printer, Clock clock) throws URISyntaxException, InterruptedException {
+        if (stream == Stream.all || hosts.size() > 1) {
+            return merge(printer, clock);
+        }
         JsonStream<?> jsonStream = stream.jsonStream;
         URI uri = new URI("ws://" + host + "/" + stream.jsonStream.path());
+        if (archive.archive == null) {
+            return stream(printer, uri, clock, jsonStream);
+        }
+        try {
+            archiveWriter = LogArchiveWriter.create(archive.archive, clock.getZone());
+        } catch (IOException e) {
+            errorMessage("Cannot write " + archive.archive, "%s", e.getMessage()).writeToStderr(Ansi.AUTO);
+            return 1;
+        }
+        // Helog usually exits when interrupted, so make sure that buffered entries are written.
+        Thread closeOnExit = new Thread(this::closeArchive);
+        Runtime.getRuntime().addShutdownHook(closeOnExit);
+        try {
+            return stream(printer, uri, clock, jsonStream);
+        } finally {
+            closeArchive();
+            Runtime.getRuntime().removeShutdownHook(closeOnExit);
+        }
+    }
+
+    private int stream(StreamPrinter printer, URI uri, Clock clock, JsonStream<?> jsonStream)
+            throws InterruptedException {
         if (format.raw) {
-            printer.stream(uri, null, (dateTime, text) -> text).waitUntilError();
+            print(printer, uri, null, (dateTime, text) -> text.toString());
+        } else if (summary.window != null) {
+            // Reports are written as each window closes, so check for closed windows every second.
+            summarize(printer, uri, format.csv ? WindowedStats.csvHeader() : null, clock, new EventsJsonStream(),
+                    s -> new WindowedStats(s, summary.window, summary.slide(), format.csv), Duration.ofSeconds(1),
+                    false);
+        } else if (summary.watchdog) {
+            // Devices fall silent at any time, so check for passed deadlines every second.
+            Duration silence = (summary.silentAfter == null) ? null : Duration.ofSeconds(summary.silentAfter);
+            summarize(printer, uri, null, clock, new EventsJsonStream(),
+                    s -> new DeviceWatchdog(s, silence, DeviceWatchdog.DEFAULT_CAPACITY), Duration.ofSeconds(1),
+                    false);
+        } else if (state.tracksState()) {
+            return trackState(printer, uri);
+        } else if (state.collapse != null) {
+            return collapse(printer, uri, clock);
         } else if (format.csv) {
-            printer.stream(uri, csvLine(jsonStream.csvHeader()), createCsvJsonRenderer(jsonStream)).waitUntilError();
+            print(printer, uri, csvLine(jsonStream.csvHeader()), createCsvJsonRenderer(jsonStream));
+        } else if (format.percentiles) {
+            return percentiles(printer, uri, clock);
+        } else if (format.latency) {
+            summarize(printer, uri, null, clock, new LogJsonStream(),
+                    s -> new HubLatency(host, clock.getZone(), client::roundTrips),
+                    Duration.ofSeconds(summary.interval), true);
+        } else if (format.templates) {
+            summarize(printer, uri, null, clock, new LogJsonStream(),
+                    s -> new LogTemplates(s, LogTemplates.DEFAULT_CAPACITY, LogTemplates.DEFAULT_ROWS),
+                    Duration.ofSeconds(summary.interval), true);
+        } else if (format.newTemplates) {
+            print(printer, uri, null, createNewTemplatesJsonRenderer(new LogJsonStream()));
+        } else if (format.top) {
+            summarize(printer, uri, null, clock, jsonStream,
+                    s -> new TopSources<>(s, TopSources.DEFAULT_CAPACITY, TopSources.DEFAULT_ROWS),
+                    Duration.ofSeconds(summary.interval), true);
         } else {
-            printer.stream(uri, null, createHumanReadableJsonRenderer(jsonStream)).waitUntilError();
+            print(printer, uri, null, createHumanReadableJsonRenderer(jsonStream));
+        }
+        return 1;
+    }
+
+    /**
+     * Streams to stdout until the connection fails. With {@code --backlog}, nothing is written until Enter is pressed;
+     * stdout is then attached to the stream, and written the backlog of messages first.
+     */
+    private void print(StreamPrinter printer, URI uri, String header, StreamPrinter.Renderer renderer)
+            throws InterruptedException {
+        if (advanced.backlog == 0) {
+            printer.stream(uri, header, renderer).waitUntilError();
+            return;
+        }
+        Streamer streamer = printer.stream(uri, null, (dateTime, text) -> null);
+        System.err.printf(Ansi.AUTO.string("@|blue Keeping the last %d MB of messages: press Enter to write them|@%n"),
+                advanced.backlog);
+        AtomicBoolean attached = new AtomicBoolean();
+        onEnter(() -> {
+            if (attached.getAndSet(true)) {
+                return;
+            }
+            if (header != null) {
+                System.out.println(header);
+            }
+            int replayed = streamer.attach(renderer, line -> System.out.println(line));
+            System.err.printf(Ansi.AUTO.string("@|blue Replayed %d messages|@%n"), replayed);
+        });
+        streamer.waitUntilError();
+    }
+
+    /**
+     * Opens each {@code --output} file, and adds it to {@code printer} as a sink, with its own queue and renderer.
+     *
+     * @param sinks Receives the sinks opened.
+     * @return Whether every file was opened.
+     */
+    private boolean openOutputs(StreamPrinter printer, List<AsyncSink> sinks) {
+        JsonStream<?> jsonStream = stream.jsonStream;
+        for (Output outputFile : outputFiles) {
+            QueuedSink sink;
+            try {
+                sink = outputFile.bySource ? openBySource(jsonStream, outputFile) : QueuedSink.create(
+                        outputFile.file, output.queue, output.policy, output.spillBudgetBytes(), Ansi.AUTO);
+            } catch (IOException e) {
+                errorMessage("Cannot write " + outputFile.file, "%s", e.getMessage()).writeToStderr(Ansi.AUTO);
+                return false;
+            }
+            sinks.add(sink);
+            if (outputFile.bySource) {
+                printer.addSink(createBySourceRenderer(jsonStream, outputFile.format), sink);
+                continue;
+            }
+            if (outputFile.format == OutputOptions.Format.csv) {
+                sink.write(csvLine(jsonStream.csvHeader()));
+            }
+            printer.addSink(createOutputRenderer(jsonStream, outputFile.format), sink);
+        }
+        return true;
+    }
+
+    /** Opens an {@code --output-by-source} directory, writing to it through a queue. */
+    private QueuedSink openBySource(JsonStream<?> jsonStream, Output outputFile) throws IOException {
+        String header = (outputFile.format == OutputOptions.Format.csv) ? csvLine(jsonStream.csvHeader()) : null;
+        PartitionedFiles files =
+                new PartitionedFiles(outputFile.file, header, output.maxOpenFiles, Clock.systemUTC());
+        return new QueuedSink(files, outputFile.file.toString(), output.queue, output.policy,
+                outputFile.file.toAbsolutePath().resolve(".spill"), output.spillBudgetBytes(), Ansi.AUTO);
+    }
+
+    /**
+     * Creates a renderer for an {@code --output-by-source} directory, which names the file for each entry's device or
+     * app. Entries are shared with stdout, so are parsed only once.
+     */
+    private <T> StreamPrinter.Renderer createBySourceRenderer(JsonStream<T> jsonStream, OutputOptions.Format format) {
+        boolean csv = format == OutputOptions.Format.csv;
+        JsonStreamFormatter<T, String> formatter = csv ? createCsvFormatter(jsonStream) : jsonStream.formatter();
+        String extension = csv ? ".csv" : ".log";
+        return sharedParser(jsonStream).renderer((dateTime, entry) -> {
+            String text = formatter.format(dateTime, entry);
+            return (text == null) ? null : PartitionedFiles.line(jsonStream.source(entry).fileName() + extension, text);
+        });
+    }
+
+    /**
+     * Creates a renderer for an output file. Unlike stdout, output files aren't archived, and raw output isn't
+     * filtered. Entries are shared with stdout, so are parsed only once.
+     */
+    private <T> StreamPrinter.Renderer createOutputRenderer(JsonStream<T> jsonStream, OutputOptions.Format format) {
+        switch (format) {
+            case raw:
+                return (dateTime, text) -> text.toString();
+            case csv:
+                return sharedParser(jsonStream).renderer(createCsvFormatter(jsonStream));
+            case influx:
+                // --output=influx is only supported by the events stream.
+                return createInfluxRenderer((EventsJsonStream) jsonStream);
+            default:
+                return sharedParser(jsonStream).renderer(jsonStream.formatter());
+        }
+    }
+
+    /** Adds a sink to {@code printer} for each system to which entries are exported. */
+    private void openExports(StreamPrinter printer, List<AsyncSink> sinks) {
+        JsonStream<?> jsonStream = stream.jsonStream;
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(EXPORT_CONNECT_TIMEOUT).build();
+        if (export.elasticsearch != null) {
+            String index = (export.index == null) ? "helog-" + stream : export.index;
+            HttpBatchSink sink = new HttpBatchSink(httpClient, ElasticsearchBulk.bulkUri(export.elasticsearch),
+                    ElasticsearchBulk.CONTENT_TYPE, Map.of(), HttpBatchSink.Framing.LINES, export.settings(),
+                    ElasticsearchBulk::rejected, export.elasticsearch.toString(), Ansi.AUTO);
+            sinks.add(sink);
+            printer.addSink(createElasticsearchRenderer(jsonStream, index), sink);
+        }
+        if (export.influxdb != null) {
+            String token = export.influxdbToken;
+            Map<String, String> headers =
+                    (token == null || token.isEmpty()) ? Map.of() : Map.of("Authorization", "Token " + token);
+            HttpBatchSink sink = new HttpBatchSink(httpClient,
+                    InfluxLineProtocol.writeUri(export.influxdb, export.influxdbOrg, export.influxdbBucket),
+                    InfluxLineProtocol.CONTENT_TYPE, headers, HttpBatchSink.Framing.LINES, export.settings(), null,
+                    export.influxdb.toString(), Ansi.AUTO);
+            sinks.add(sink);
+            // --influxdb is only supported by the events stream.
+            printer.addSink(createInfluxRenderer((EventsJsonStream) jsonStream), sink);
+        }
+        if (export.otlp != null) {
+            Map<String, String> headers = (export.otlpHeaders == null) ? Map.of() : export.otlpHeaders;
+            HttpBatchSink sink = new HttpBatchSink(httpClient, OtlpLogs.logsUri(export.otlp), OtlpLogs.CONTENT_TYPE,
+                    headers, OtlpLogs.framing(host), export.settings(), OtlpLogs::rejected, export.otlp.toString(),
+                    Ansi.AUTO);
+            sinks.add(sink);
+            printer.addSink(createOtlpRenderer(), sink);
+        }
+    }
+
+    /** Creates a renderer of bulk API requests, sharing entries with stdout. */
+    private <T> StreamPrinter.Renderer createElasticsearchRenderer(JsonStream<T> jsonStream, String index) {
+        return sharedParser(jsonStream).renderer(ElasticsearchBulk.formatter(index, host));
+    }
+
+    /** Creates a renderer of numeric events as InfluxDB points, sharing entries with stdout. */
+    private StreamPrinter.Renderer createInfluxRenderer(EventsJsonStream jsonStream) {
+        return sharedParser(jsonStream).renderer(InfluxLineProtocol.formatter(host));
+    }
+
+    /** Creates a renderer of OpenTelemetry log records, sharing entries with stdout. */
+    private StreamPrinter.Renderer createOtlpRenderer() {
+        // Exports are not supported by the all stream.
+        if (stream == Stream.log) {
+            return sharedParser((LogJsonStream) stream.jsonStream).renderer(OtlpLogs.logFormatter());
+        }
+        return sharedParser((EventsJsonStream) stream.jsonStream).renderer(OtlpLogs.eventFormatter());
+    }
+
+    /** Writes any lines still queued for output files and exports, and reports any which were dropped. */
+    private static synchronized void closeOutputs(List<AsyncSink> sinks) {
+        for (AsyncSink sink : sinks) {
+            sink.close();
+            if (sink.dropped() > 0) {
+                errorMessage("Incomplete output", "%d lines were not written to %s", sink.dropped(), sink.name())
+                        .writeToStderr(Ansi.AUTO);
+            }
+        }
+        sinks.clear();
+    }
+
+    /** Whether the options allow several streams to be merged: only entries in the default format, or raw, can be. */
+    private boolean merges() {
+        return !format.csv && !format.top && !format.percentiles && !format.latency && !format.templates
+                && !format.newTemplates && summary.window == null && !summary.watchdog && !state.tracksState()
+                && state.collapse == null && archive.archive == null;
+    }
+
+    /**
+     * Streams from several hosts, or both the log and events with {@code all}, writing their entries in the order in
+     * which they were received. Each stream is received on its own thread, so entries pass through a
+     * {@link ReorderBuffer}, which holds them for {@code --lateness} to restore their order. With several hosts, each
+     * line starts with the host it came from.
+     */
+    private int merge(StreamPrinter printer, Clock clock) throws URISyntaxException, InterruptedException {
+        Duration lateness = Duration.ofMillis(advanced.lateness);
+        ReorderBuffer buffer = new ReorderBuffer(lateness, ReorderBuffer.DEFAULT_CAPACITY);
+        List<JsonStream<?>> jsonStreams = (stream == Stream.all)
+                ? List.of(new LogJsonStream(), new EventsJsonStream()) : List.of(stream.jsonStream);
+        try (PeriodicReporter reporter = new PeriodicReporter(buffer, clock, System.out, false)) {
+            reporter.start(MERGE_INTERVAL);
+            List<Streamer> streamers = new ArrayList<>();
+            for (String host : hosts) {
+                String label = (hosts.size() > 1) ? host : null;
+                for (JsonStream<?> jsonStream : jsonStreams) {
+                    streamers.add(printer.stream(new URI("ws://" + host + "/" + jsonStream.path()), null,
+                            createMergingRenderer(jsonStream, label, buffer)));
+                }
+            }
+            waitUntilAnyError(streamers);
+        }
+        return 1;
+    }
+
+    /** Blocks until any of {@code streamers} fails. */
+    private static void waitUntilAnyError(List<Streamer> streamers) throws InterruptedException {
+        Duration timeout = MERGE_INTERVAL.dividedBy(streamers.size());
+        while (true) {
+            for (Streamer streamer : streamers) {
+                if (streamer.waitUntilError(timeout)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Renders entries from one of several streams, in its own format, into {@code buffer}.
+     *
+     * @param label If not {@code null}, written at the start of each line to identify the stream.
+     */
+    private <T> StreamPrinter.Renderer createMergingRenderer(
+            JsonStream<T> jsonStream, String label, ReorderBuffer buffer) {
+        String prefix = (label == null) ? "" : label + " ";
+        if (format.raw) {
+            return (dateTime, text) -> {
+                buffer.add(dateTime, prefix + text);
+                return null;
+            };
+        }
+        JsonStreamFormatter<T, String> formatter = jsonStream.formatter();
+        return createJsonRenderer(jsonStream, (dateTime, entry) -> {
+            buffer.add(dateTime, prefix + formatter.format(dateTime, entry));
+            return null;
+        });
+    }
+
+    /**
+     * Tracks the state of every device and app. With {@code --changes}, writes only those events which change the
+     * state, and writes the state itself on exit, or when Enter is pressed. With {@code --state-file}, keeps the file
+     * up to date with the state.
+     */
+    private int trackState(StreamPrinter printer, URI uri) throws InterruptedException {
+        EventsJsonStream jsonStream = new EventsJsonStream();
+        EventStateTable table = new EventStateTable(jsonStream, EventStateTable.DEFAULT_CAPACITY);
+        JsonStreamFormatter<EventEntry, String> formatter =
+                format.csv ? createCsvFormatter(jsonStream) : jsonStream.formatter();
+        JsonRenderer<EventEntry> renderer = createJsonRenderer(jsonStream, (dateTime, entry) ->
+                (table.update(dateTime, entry) || !state.changes) ? formatter.format(dateTime, entry) : null);
+
+        List<Runnable> onExit = new ArrayList<>();
+        if (state.stateFile != null) {
+            StateFileWriter stateFile = new StateFileWriter(table, jsonStream, state.stateFile, Ansi.AUTO);
+            stateFile.start(Duration.ofSeconds(state.stateInterval));
+            onExit.add(stateFile::close);
+        }
+        if (state.changes) {
+            Runnable writeState = () -> writeState(table, formatter);
+            onEnter(writeState);
+            onExit.add(writeState);
+        }
+        Thread exitHook = new Thread(() -> onExit.forEach(Runnable::run));
+        Runtime.getRuntime().addShutdownHook(exitHook);
+        try {
+            printer.stream(uri, format.csv ? csvLine(jsonStream.csvHeader()) : null, renderer).waitUntilError();
+        } finally {
+            Runtime.getRuntime().removeShutdownHook(exitHook);
+        }
+        onExit.forEach(Runnable::run);
+        return 1;
+    }
+
+    /**
+     * Writes log entries in human-readable format, collapsing repeated entries. Windows are expired every
+     * {@link #COLLAPSE_INTERVAL}, so that each summary is written when its window ends, even if no entry follows.
+     */
+    private int collapse(StreamPrinter printer, URI uri, Clock clock) throws InterruptedException {
+        LogJsonStream jsonStream = new LogJsonStream();
+        RepeatCollapser collapser = createRepeatCollapser(jsonStream);
+        Aggregator<LogEntry> expiry = new Aggregator<>() {
+            @Override
+            public void add(ZonedDateTime dateTime, LogEntry entry) {
+                // Entries are formatted by the collapser itself.
+            }
+
+            @Override
+            public List<String> report(ZonedDateTime now) {
+                return collapser.expire(now);
+            }
+
+            @Override
+            public List<String> finalReport(ZonedDateTime now) {
+                return collapser.flush();
+            }
+        };
+        PeriodicReporter reporter = new PeriodicReporter(expiry, clock, System.out, false);
+        Thread flushOnExit = new Thread(reporter::close);
+        Runtime.getRuntime().addShutdownHook(flushOnExit);
+        try {
+            reporter.start(COLLAPSE_INTERVAL);
+            printer.stream(uri, null, createJsonRenderer(jsonStream, collapser)).waitUntilError();
+        } finally {
+            Runtime.getRuntime().removeShutdownHook(flushOnExit);
+        }
+        reporter.close();
+        return 1;
+    }
+
+    private RepeatCollapser createRepeatCollapser(LogJsonStream jsonStream) {
+        return new RepeatCollapser(
+                jsonStream.formatter(), Duration.ofSeconds(state.collapse), RepeatCollapser.DEFAULT_CAPACITY);
+    }
+
+    private synchronized void writeState(EventStateTable table, JsonStreamFormatter<EventEntry, String> formatter) {
+        List<State> states = table.snapshot();
+        System.err.printf(Ansi.AUTO.string("@|blue Current state: %d values|@%n"), states.size());
+        for (State state : states) {
+            System.out.println(formatter.format(state.changedAt, state.entry));
+        }
+    }
+
+    /** Runs {@code action} each time a line is read from stdin, until stdin is closed. */
+    private static void onEnter(Runnable action) {
+        Thread thread = new Thread(() -> {
+            try {
+                for (int c = System.in.read(); c >= 0; c = System.in.read()) {
+                    if (c == '\n') {
+                        action.run();
+                    }
+                }
+            } catch (IOException e) {
+                // Nothing more can be read.
+            }
+        }, "helog-stdin");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private int percentiles(StreamPrinter printer, URI uri, Clock clock) throws InterruptedException {
+        EventsJsonStream jsonStream = new EventsJsonStream();
+        Percentiles percentiles = new Percentiles(jsonStream);
+        Path sketchFile = summary.sketchFile;
+        if (sketchFile != null && Files.exists(sketchFile)) {
+            try {
+                percentiles.readFrom(sketchFile);
+            } catch (IOException e) {
+                errorMessage("Cannot read " + sketchFile, "%s", e.getMessage()).writeToStderr(Ansi.AUTO);
+                return 1;
+            }
+        }
+        summarize(printer, uri, null, clock, jsonStream, s -> percentiles,
+                Duration.ofSeconds(summary.interval), true);
+        if (sketchFile != null) {
+            try {
+                percentiles.writeTo(sketchFile);
+            } catch (IOException e) {
+                errorMessage("Cannot write " + sketchFile, "%s", e.getMessage()).writeToStderr(Ansi.AUTO);
+            }
         }
         return 1;
     }
 
+    /**
+     * Streams entries into an {@link Aggregator}, writing its report every {@code interval}, and once more when the
+     * stream ends.
+     *
+     * @param header Written once the stream is connected, or {@code null}.
+     * @param redraw Whether each report should replace the previous one on the screen, if the terminal allows.
+     */
+    private <T> void summarize(
+            StreamPrinter printer, URI uri, String header, Clock clock, JsonStream<T> jsonStream,
+            Function<JsonStream<T>, Aggregator<T>> aggregatorFactory, Duration interval, boolean redraw)
+            throws InterruptedException {
+        Aggregator<T> aggregator = aggregatorFactory.apply(jsonStream);
+        JsonRenderer<T> renderer = createJsonRenderer(jsonStream, (dateTime, entry) -> {
+            aggregator.add(dateTime, entry);
+            return null;
+        });
+        try (PeriodicReporter reporter =
+                     new PeriodicReporter(aggregator, clock, System.out, redraw && Ansi.AUTO.enabled())) {
+            reporter.start(interval);
+            printer.stream(uri, header, renderer).waitUntilError();
+        }
+    }
+
+    /**
+     * Reads entries from archives, rather than from the Hubitat Elevation, and writes them to stdout. Several archives
+     * are merged in the order in which their entries were received; each line then starts with the name of the file
+     * it came from, unless written as CSV.
+     */
+    private int replay(List<Path> files) {
+        LogJsonStream jsonStream = new LogJsonStream();
+        Predicate<LogEntry> predicate = filter.createPredicate(jsonStream);
+        RepeatCollapser collapser = (state.collapse != null) ? createRepeatCollapser(jsonStream) : null;
+        JsonStreamFormatter<LogEntry, String> formatter = format.csv ? createCsvFormatter(jsonStream)
+                : format.newTemplates ? createNewTemplatesFormatter(jsonStream)
+                : (collapser != null) ? collapser
+                : jsonStream.formatter();
+        List<String> prefixes = new ArrayList<>();
+        for (Path file : files) {
+            prefixes.add((files.size() == 1 || format.csv) ? "" : file.getFileName() + " ");
+        }
+        try (ArchiveMerger merger = ArchiveMerger.open(files)) {
+            if (format.csv) {
+                System.out.println(csvLine(jsonStream.csvHeader()));
+            }
+            for (LogEntry entry = merger.next(); entry != null; entry = merger.next()) {
+                if (predicate.test(entry)) {
+                    String line = formatter.format(merger.receivedAt(), entry);
+                    if (line != null) {
+                        System.out.println(prefixes.get(merger.source()) + line);
+                    }
+                }
+            }
+            if (collapser != null) {
+                collapser.flush().forEach(System.out::println);
+            }
+        } catch (IOException e) {
+            String names = files.stream().map(Path::toString).collect(Collectors.joining(", "));
+            errorMessage("Cannot read " + names, "%s", e.getMessage()).writeToStderr(Ansi.AUTO);
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Creates a renderer which parses and filters entries, saves them to the archive if one is being written, and
+     * formats them with {@code formatter}.
+     */
+    private <T> JsonRenderer<T> createJsonRenderer(JsonStream<T> jsonStream, JsonStreamFormatter<T, String> formatter) {
+        if (archiveWriter == null) {
+            return sharedParser(jsonStream).renderer(formatter);
+        }
+        return sharedParser(jsonStream).renderer((dateTime, entry) -> {
+            // --archive is only supported by the log stream.
+            archive(dateTime, (LogEntry) entry);
+            return formatter.format(dateTime, entry);
+        });
+    }
+
+    /**
+     * Returns the parser shared by every renderer of entries of the same type, so that each frame is parsed and
+     * filtered once, however many outputs it is written to.
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized <T> SharedParser<T> sharedParser(JsonStream<T> jsonStream) {
+        return (SharedParser<T>) sharedParsers.computeIfAbsent(jsonStream.getClass(),
+                type -> new SharedParser<>(jsonStream.parser(), filter.createPredicate(jsonStream)));
+    }
+
+    private void archive(ZonedDateTime dateTime, LogEntry entry) {
+        LogArchiveWriter writer = archiveWriter;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(dateTime, entry);
+        } catch (IOException e) {
+            errorMessage("Cannot write " + archive.archive, "%s", e.getMessage()).writeToStderr(Ansi.AUTO);
+            closeArchive();
+        }
+    }
+
+    private synchronized void closeArchive() {
+        if (archiveWriter == null) {
+            return;
+        }
+        try {
+            archiveWriter.close();
+        } catch (IOException e) {
+            errorMessage("Cannot write " + archive.archive, "%s", e.getMessage()).writeToStderr(Ansi.AUTO);
+        }
+        archiveWriter = null;
+    }
+
     private <T> JsonRenderer<T> createHumanReadableJsonRenderer(JsonStream<T> jsonStream) {
-        return new JsonRenderer<>(
-                jsonStream.type(),
-                filter.createPredicate(jsonStream),
-                jsonStream.formatter());
+        return createJsonRenderer(jsonStream, jsonStream.formatter());
+    }
+
+    private JsonRenderer<LogEntry> createNewTemplatesJsonRenderer(JsonStream<LogEntry> jsonStream) {
+        return createJsonRenderer(jsonStream, createNewTemplatesFormatter(jsonStream));
     }
 
     private <T> JsonRenderer<T> createCsvJsonRenderer(JsonStream<T> jsonStream) {
-        return new JsonRenderer<>(
-                jsonStream.type(),
-                filter.createPredicate(jsonStream),
-                (dateTime, event) -> csvLine(jsonStream.csvFormatter().format(dateTime, event)));
+        return createJsonRenderer(jsonStream, createCsvFormatter(jsonStream));
+    }
+
+    /** Formats, in human-readable format, only those entries whose message starts a new template. */
+    private static JsonStreamFormatter<LogEntry, String> createNewTemplatesFormatter(JsonStream<LogEntry> jsonStream) {
+        TemplateMiner<EntrySource> miner = new TemplateMiner<>(LogTemplates.DEFAULT_CAPACITY);
+        JsonStreamFormatter<LogEntry, String> formatter = jsonStream.formatter();
+        return (dateTime, entry) -> miner.add(entry.msg, jsonStream.source(entry))
+                ? formatter.format(dateTime, entry)
+                : null;
+    }
+
+    private static <T> JsonStreamFormatter<T, String> createCsvFormatter(JsonStream<T> jsonStream) {
+        JsonStreamFormatter<T, List<String>> csvFormatter = jsonStream.csvFormatter();
+        return (dateTime, event) -> csvLine(csvFormatter.format(dateTime, event));
     }
 
     public static int run(String... args) {
@@ -0,0 +1,25 @@
+package com.github.ianparkinson.helog.app;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Accumulates entries from a stream, and reports a summary of them, instead of writing each entry individually.
+ *
+ * <p>Entries are added on the thread receiving the stream, while reports are requested from another thread, so
+ * implementations must be thread-safe.
+ *
+ * @param <T> Event type representing an entry in the stream.
+ */
+public interface Aggregator<T> {
+    /** Incorporates an entry, received at {@code dateTime}. */
+    void add(ZonedDateTime dateTime, T entry);
+
+    /** Renders a summary of the entries received so far, as lines of text. */
+    List<String> report(ZonedDateTime now);
+
+    /** Renders the summary written when the stream ends. By default, the same as {@link #report}. */
+    default List<String> finalReport(ZonedDateTime now) {
+        return report(now);
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Reads entries from several archives, such as those saved from several hubs, in the order in which they were
+ * received.
+ *
+ * <p>Each archive is already in order of receipt, so this is a k-way merge: the next entry of each archive is held in a
+ * heap, ordered by the time at which it was received, and the earliest is returned. Only one entry from each archive
+ * is held at once, and archives are read through a buffer, so memory use doesn't depend on their size.
+ *
+ * <p>Not thread-safe.
+ */
+public final class ArchiveMerger implements Closeable {
+    private static final Comparator<Cursor> ORDER = Comparator
+            .comparing((Cursor cursor) -> cursor.receivedAt.toInstant())
+            .thenComparingInt(cursor -> cursor.index);
+
+    private final List<LogArchiveReader> readers;
+    private final PriorityQueue<Cursor> heap = new PriorityQueue<>(ORDER);
+    private boolean started = false;
+    private Cursor current = null;
+
+    /** Merges the entries from {@code readers}, taking ownership of them. */
+    public ArchiveMerger(List<LogArchiveReader> readers) {
+        this.readers = List.copyOf(readers);
+    }
+
+    /** Opens each of {@code files}, and reads its archive header. */
+    public static ArchiveMerger open(List<Path> files) throws IOException {
+        List<LogArchiveReader> readers = new ArrayList<>();
+        try {
+            for (Path file : files) {
+                readers.add(LogArchiveReader.open(file));
+            }
+        } catch (IOException e) {
+            for (LogArchiveReader reader : readers) {
+                reader.close();
+            }
+            throw e;
+        }
+        return new ArchiveMerger(readers);
+    }
+
+    /**
+     * Reads the next entry, in order of receipt across every archive. Entries received at the same time are returned
+     * in the order in which their archives were given.
+     *
+     * @return The entry, or {@code null} once every archive has ended.
+     */
+    public LogEntry next() throws IOException {
+        if (!started) {
+            started = true;
+            for (int i = 0; i < readers.size(); i++) {
+                advance(new Cursor(readers.get(i), i));
+            }
+        } else if (current != null) {
+            advance(current);
+        }
+        current = heap.poll();
+        return (current == null) ? null : current.entry;
+    }
+
+    private void advance(Cursor cursor) throws IOException {
+        cursor.entry = cursor.reader.next();
+        if (cursor.entry != null) {
+            cursor.receivedAt = cursor.reader.receivedAt();
+            heap.add(cursor);
+        }
+    }
+
+    /** The time at which the entry most recently returned by {@link #next} was received. */
+    public ZonedDateTime receivedAt() {
+        return current.receivedAt;
+    }
+
+    /** The index, among the archives given, of the archive containing the entry most recently returned. */
+    public int source() {
+        return current.index;
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (LogArchiveReader reader : readers) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Cursor {
+        final LogArchiveReader reader;
+        final int index;
+        LogEntry entry;
+        ZonedDateTime receivedAt;
+
+        Cursor(LogArchiveReader reader, int index) {
+            this.reader = reader;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.ianparkinson.helog.app;
+
+import java.io.Closeable;
+
+/**
+ * {@link Sink} which writes lines on threads of its own, so that a slow destination doesn't hold up the stream. Lines
+ * may not have been written when {@link #write} returns, and may be dropped if the destination can't keep up.
+ */
+public interface AsyncSink extends Sink, Closeable {
+    /** Identifies the destination in messages, such as its file name. */
+    String name();
+
+    /** The number of lines which have been dropped, because the destination couldn't keep up, or failed. */
+    long dropped();
+
+    /** Stops accepting lines, and waits for those already accepted to be written. */
+    @Override
+    void close();
+}
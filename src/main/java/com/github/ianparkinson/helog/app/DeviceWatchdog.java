@@ -0,0 +1,179 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import com.github.ianparkinson.helog.util.TimerWheel;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.ianparkinson.helog.util.DateTimeFormatters.ISO_OFFSET_DATE_TIME_MILLIS;
+
+/**
+ * {@link Aggregator} which watches for devices which have stopped sending events, such as those with flat batteries or
+ * which have dropped off the mesh network. A line is reported when a device falls silent, and another if it sends an
+ * event again.
+ *
+ * <p>A device is silent once it has sent no events for its silence threshold. This is either configured, and the same
+ * for every device, or learned for each device: {@link #LEARNED_FACTOR} times the longest gap seen between its events,
+ * and at least {@link #MINIMUM_LEARNED}. A learned threshold is only used once {@link #LEARNING_GAPS} gaps have been
+ * seen, so devices which have only just been heard from aren't reported. Gaps longer than the threshold are outages,
+ * and aren't learned from.
+ *
+ * <p>Each device's deadline is held in a {@link TimerWheel}, so that it can be moved on each event in constant time,
+ * and only devices whose deadlines have passed are examined by each report.
+ */
+public final class DeviceWatchdog implements Aggregator<EventEntry> {
+    /** The number of devices watched by default. */
+    public static final int DEFAULT_CAPACITY = 10_000;
+    /** The learned threshold, as a multiple of the longest gap between events. */
+    static final int LEARNED_FACTOR = 3;
+    /** The number of gaps between events needed to learn a threshold. */
+    static final int LEARNING_GAPS = 3;
+    /** The shortest learned threshold, so that devices which usually report in bursts aren't reported. */
+    static final Duration MINIMUM_LEARNED = Duration.ofMinutes(5);
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int SLOTS = 4096;
+
+    private final JsonStream<EventEntry> jsonStream;
+    /** The configured threshold, or {@code null} if learned. */
+    private final Long silenceMillis;
+    private final int capacity;
+    private final Map<EntrySource, Device> devices = new HashMap<>();
+    /** Lines reported by the next call to {@link #report}, for devices which have sent events again. */
+    private final List<String> pending = new ArrayList<>();
+    /** Created on the first event, so that the wheel starts at the time of the stream. */
+    private TimerWheel<EntrySource> wheel = null;
+
+    /**
+     * @param silence The silence threshold for every device, or {@code null} to learn a threshold for each device.
+     * @param capacity The maximum number of devices watched; devices first heard from after this are ignored.
+     */
+    public DeviceWatchdog(JsonStream<EventEntry> jsonStream, Duration silence, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.jsonStream = jsonStream;
+        this.silenceMillis = (silence == null) ? null : silence.toMillis();
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void add(ZonedDateTime dateTime, EventEntry entry) {
+        EntrySource source = jsonStream.source(entry);
+        if (!EntrySource.DEVICE.equals(source.type) || source.id == null) {
+            return;
+        }
+        long millis = dateTime.toInstant().toEpochMilli();
+        if (wheel == null) {
+            wheel = new TimerWheel<>(TICK_MILLIS, SLOTS, millis);
+        }
+        Device device = devices.get(source);
+        if (device == null) {
+            if (devices.size() >= capacity) {
+                return;
+            }
+            device = new Device(millis);
+            devices.put(source, device);
+        } else if (millis > device.lastMillis) {
+            // With several threads, events may be rendered slightly out of order; only later events are gaps.
+            long gapMillis = millis - device.lastMillis;
+            Long threshold = threshold(device);
+            // A gap which ends a silence is an outage, not the device's usual pace; learning from it would raise
+            // the threshold so far that the next outage went unreported.
+            if (!device.silent && (threshold == null || gapMillis <= threshold)) {
+                device.maxGapMillis = Math.max(device.maxGapMillis, gapMillis);
+                device.gaps++;
+            }
+            device.lastMillis = millis;
+        }
+        // Devices are renamed occasionally; report the current name.
+        device.source = source;
+
+        if (device.silent) {
+            device.silent = false;
+            pending.add(String.format("%s %s: sending events again after %s",
+                    ISO_OFFSET_DATE_TIME_MILLIS.format(dateTime), source,
+                    formatDuration(millis - device.silentSinceMillis)));
+        }
+        Long threshold = threshold(device);
+        if (threshold != null) {
+            wheel.schedule(source, device.lastMillis + threshold);
+        }
+    }
+
+    /** The silence threshold for {@code device}, or {@code null} if not yet learned. */
+    private Long threshold(Device device) {
+        if (silenceMillis != null) {
+            return silenceMillis;
+        } else if (device.gaps < LEARNING_GAPS) {
+            return null;
+        }
+        return Math.max(MINIMUM_LEARNED.toMillis(), LEARNED_FACTOR * device.maxGapMillis);
+    }
+
+    /** Reports devices which have sent events again, and then devices which have fallen silent by {@code now}. */
+    @Override
+    public synchronized List<String> report(ZonedDateTime now) {
+        List<String> lines = new ArrayList<>(pending);
+        pending.clear();
+        if (wheel == null) {
+            return lines;
+        }
+        long millis = now.toInstant().toEpochMilli();
+        for (EntrySource source : wheel.advance(millis)) {
+            Device device = devices.get(source);
+            device.silent = true;
+            device.silentSinceMillis = device.lastMillis;
+            lines.add(String.format("%s %s: no events for %s",
+                    ISO_OFFSET_DATE_TIME_MILLIS.format(now), device.source,
+                    formatDuration(millis - device.lastMillis)));
+        }
+        return lines;
+    }
+
+    /** Reports as {@link #report}, followed by each device which is still silent. */
+    @Override
+    public synchronized List<String> finalReport(ZonedDateTime now) {
+        List<String> lines = report(now);
+        long millis = now.toInstant().toEpochMilli();
+        for (Device device : devices.values()) {
+            if (device.silent) {
+                lines.add(String.format("%s %s: still silent after %s",
+                        ISO_OFFSET_DATE_TIME_MILLIS.format(now), device.source,
+                        formatDuration(millis - device.lastMillis)));
+            }
+        }
+        return lines;
+    }
+
+    /** Formats a duration in whole seconds or minutes, for example {@code 45s}, {@code 12m} or {@code 3h 05m}. */
+    static String formatDuration(long millis) {
+        long seconds = Math.max(0, millis / 1000);
+        if (seconds < 120) {
+            return seconds + "s";
+        } else if (seconds < 2 * 60 * 60) {
+            return (seconds / 60) + "m";
+        }
+        long minutes = seconds / 60;
+        return String.format("%dh %02dm", minutes / 60, minutes % 60);
+    }
+
+    private static final class Device {
+        EntrySource source;
+        long lastMillis;
+        long maxGapMillis = 0;
+        int gaps = 0;
+        boolean silent = false;
+        /** The time of the last event before the device fell silent. */
+        long silentSinceMillis;
+
+        Device(long lastMillis) {
+            this.lastMillis = lastMillis;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.ianparkinson.helog.app;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.net.URI;
+import java.util.Map;
+
+import static com.github.ianparkinson.helog.app.JsonRenderer.gson;
+import static com.github.ianparkinson.helog.util.DateTimeFormatters.formatMillis;
+
+/**
+ * Formats entries for the bulk API of Elasticsearch or OpenSearch, and interprets its responses.
+ *
+ * <p>Each entry is written as two lines of newline-delimited JSON: an action, indexing the entry into an index, and
+ * the entry itself, as a document with the fields received from the Hubitat Elevation, the time at which it was
+ * received as {@code @timestamp}, and the hub it came from as {@code hub}.
+ */
+public final class ElasticsearchBulk {
+    public static final String CONTENT_TYPE = "application/x-ndjson";
+
+    private ElasticsearchBulk() {}
+
+    /** The URI of the bulk API of the cluster at {@code cluster}. */
+    public static URI bulkUri(URI cluster) {
+        String base = cluster.toString();
+        return URI.create((base.endsWith("/") ? base : base + "/") + "_bulk");
+    }
+
+    /** Formats each entry as an action indexing it into {@code index}, followed by the entry as a document. */
+    public static <T> JsonStreamFormatter<T, String> formatter(String index, String hub) {
+        String action = gson.toJson(Map.of("index", Map.of("_index", index)));
+        return (dateTime, entry) -> {
+            JsonObject document = new JsonObject();
+            document.addProperty("@timestamp", formatMillis(dateTime));
+            document.addProperty("hub", hub);
+            for (Map.Entry<String, JsonElement> field : gson.toJsonTree(entry).getAsJsonObject().entrySet()) {
+                document.add(field.getKey(), field.getValue());
+            }
+            return action + "\n" + gson.toJson(document);
+        };
+    }
+
+    /**
+     * Describes the entries rejected by a bulk request, given the body of its response, or returns {@code null} if none
+     * were. The cluster accepts a bulk request as a whole even when it rejects some of its entries.
+     */
+    public static String rejected(String responseBody) {
+        JsonObject response;
+        try {
+            response = gson.fromJson(responseBody, JsonObject.class);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (response == null || !response.has("errors") || !response.get("errors").getAsBoolean()
+                || !response.has("items")) {
+            return null;
+        }
+        JsonArray items = response.getAsJsonArray("items");
+        int rejected = 0;
+        String reason = null;
+        for (JsonElement item : items) {
+            // Each item is keyed by its action, such as "index".
+            for (Map.Entry<String, JsonElement> action : item.getAsJsonObject().entrySet()) {
+                JsonObject result = action.getValue().getAsJsonObject();
+                if (result.has("error")) {
+                    rejected++;
+                    if (reason == null) {
+                        reason = describe(result.get("error"));
+                    }
+                }
+            }
+        }
+        return (rejected == 0) ? null : String.format("%d of %d entries, such as: %s", rejected, items.size(), reason);
+    }
+
+    private static String describe(JsonElement error) {
+        if (!error.isJsonObject()) {
+            return error.getAsString();
+        }
+        JsonObject object = error.getAsJsonObject();
+        String type = object.has("type") ? object.get("type").getAsString() : "error";
+        return object.has("reason") ? type + " " + object.get("reason").getAsString() : type;
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.ianparkinson.helog.app;
+
+import java.util.Objects;
+
+import static com.github.ianparkinson.helog.util.Strings.emptyIfNull;
+
+/**
+ * Identifies the device or app which emitted an entry in a stream.
+ *
+ * <p>Two {@link EntrySource}s are equal if they have the same type and id; the name is carried for display only, since
+ * devices and apps can be renamed.
+ */
+public final class EntrySource {
+    public static final String DEVICE = "dev";
+    public static final String APP = "app";
+
+    /** The type of source: {@link #DEVICE}, {@link #APP} or, for events, the lower-cased source such as "location". */
+    public final String type;
+    /** The numeric id of the device or app, or {@code null} if there is none. */
+    public final String id;
+    /** The name of the device or app, or {@code null} if not known. */
+    public final String name;
+
+    public EntrySource(String type, String id, String name) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+    }
+
+    /** A short label identifying the source, for example {@code dev 36}. */
+    public String label() {
+        return (id == null) ? emptyIfNull(type) : emptyIfNull(type) + " " + id;
+    }
+
+    /** A name for a file holding the source's entries, for example {@code dev-36}. */
+    public String fileName() {
+        String prefix = (type == null || type.isEmpty()) ? "other" : type;
+        return (id == null) ? prefix : prefix + "-" + id;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof EntrySource)) {
+            return false;
+        }
+        EntrySource that = (EntrySource) other;
+        return Objects.equals(this.type, that.type) && Objects.equals(this.id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, id);
+    }
+
+    @Override
+    public String toString() {
+        return (name == null) ? label() : label() + " " + name;
+    }
+}
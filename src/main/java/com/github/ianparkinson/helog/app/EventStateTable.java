@@ -0,0 +1,140 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.github.ianparkinson.helog.util.Strings.emptyIfNull;
+
+/**
+ * Tracks the current state of each device and app: for each event name, the event which set its current value, and the
+ * time at which it was received.
+ *
+ * <p>Safe for use from multiple threads. Memory is bounded: once {@code capacity} states are held, the state least
+ * recently seen, by an event which changed it or repeated its value, is forgotten to make room for a new one, in
+ * constant time. A forgotten state is treated as unknown, so the next event for it is reported as a change.
+ */
+public final class EventStateTable {
+    /** The number of states held by default. */
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private static final Comparator<State> ORDER = Comparator
+            .comparing((State state) -> emptyIfNull(state.source.type))
+            .thenComparing(state -> emptyIfNull(state.source.id), EventStateTable::compareIds)
+            .thenComparing(state -> emptyIfNull(state.entry.name));
+
+    private final JsonStream<EventEntry> jsonStream;
+    private final int capacity;
+    /** Guarded by {@code this}. In access order, so that the state least recently seen is first. */
+    private final LinkedHashMap<SeriesKey, State> states = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public EventStateTable(JsonStream<EventEntry> jsonStream, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.jsonStream = jsonStream;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Records an event.
+     *
+     * @return Whether the event changed the state: that is, whether its value differs from that of the previous event
+     *         with the same name from the same device or app, or there was no such event.
+     */
+    public boolean update(ZonedDateTime dateTime, EventEntry entry) {
+        EntrySource source = jsonStream.source(entry);
+        SeriesKey key = new SeriesKey(source, entry.name);
+        synchronized (this) {
+            // Moves the state to the end, as the most recently seen.
+            State previous = states.get(key);
+            if (previous != null && Objects.equals(previous.entry.value, entry.value)) {
+                return false;
+            }
+            states.put(key, new State(source, entry, dateTime));
+            if (states.size() > capacity) {
+                Iterator<State> leastRecentlySeen = states.values().iterator();
+                leastRecentlySeen.next();
+                leastRecentlySeen.remove();
+            }
+        }
+        dirty.set(true);
+        return true;
+    }
+
+    /** The number of states held. */
+    public synchronized int size() {
+        return states.size();
+    }
+
+    /** Every state, ordered by device or app, and then by event name. */
+    public List<State> snapshot() {
+        List<State> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(states.values());
+        }
+        snapshot.sort(ORDER);
+        return snapshot;
+    }
+
+    /**
+     * Whether any state has changed since the last call to this method, which clears the flag. Allows the state to be
+     * written out only when it has changed.
+     */
+    public boolean clearDirty() {
+        return dirty.getAndSet(false);
+    }
+
+    /** Sets the flag returned by {@link #clearDirty}, such as when writing the state failed and should be retried. */
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    /** Orders numeric ids numerically, and before any others. */
+    private static int compareIds(String a, String b) {
+        boolean aNumeric = isDigits(a);
+        boolean bNumeric = isDigits(b);
+        if (aNumeric != bNumeric) {
+            return aNumeric ? -1 : 1;
+        }
+        if (aNumeric && a.length() != b.length()) {
+            return Integer.compare(a.length(), b.length());
+        }
+        return a.compareTo(b);
+    }
+
+    private static boolean isDigits(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** The event which set the current value of a given name, for a given device or app. */
+    public static final class State {
+        public final EntrySource source;
+        public final EventEntry entry;
+        /** The time at which {@link #entry} was received. */
+        public final ZonedDateTime changedAt;
+
+        State(EntrySource source, EventEntry entry, ZonedDateTime changedAt) {
+            this.source = source;
+            this.entry = entry;
+            this.changedAt = changedAt;
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package com.github.ianparkinson.helog.app;
 
+import com.github.ianparkinson.helog.util.FlatJsonReader;
+import com.github.ianparkinson.helog.util.StringCache;
 import com.google.gson.reflect.TypeToken;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static com.github.ianparkinson.helog.util.DateTimeFormatters.ISO_OFFSET_DATE_TIME_MILLIS;
+import static com.github.ianparkinson.helog.util.DateTimeFormatters.formatMillis;
 import static com.github.ianparkinson.helog.util.Strings.emptyIfNull;
 import static com.github.ianparkinson.helog.util.Strings.emptyIfNullOrZero;
 import static java.util.Arrays.asList;
@@ -18,6 +21,27 @@ import static java.util.Arrays.asList;
  * {@link JsonStream} encapsulating the Hubitat Elevation's Events stream
  */
 public final class EventsJsonStream implements JsonStream<EventsJsonStream.EventEntry> {
+    private static final String[] FIELDS = {
+            "source",
+            "name",
+            "displayName",
+            "value",
+            "type",
+            "unit",
+            "deviceId",
+            "hubId",
+            "installedAppId",
+            "descriptionText"};
+
+    /** The Elevation sends the literal text "null" for absent values of some fields. */
+    private static final String[] NULL = {"null"};
+
+    /**
+     * Canonicalizes short values which are repeated in many events: sources, device names, event names, types, units
+     * and typical values such as {@code on} or {@code off}.
+     */
+    private static final StringCache VALUES = new StringCache(4096, 64);
+
     @Override
     public String path() {
         return "eventsocket";
@@ -28,6 +52,68 @@ public final class EventsJsonStream implements JsonStream<EventsJsonStream.Event
         return TypeToken.get(EventEntry.class);
     }
 
+    @Override
+    public JsonStreamParser<EventEntry> parser() {
+        return EventsJsonStream::parse;
+    }
+
+    private static EventEntry parse(CharSequence text) {
+        FlatJsonReader reader = new FlatJsonReader(text);
+        if (!reader.beginObject()) {
+            return null;
+        }
+        EventEntry entry = new EventEntry();
+        while (reader.nextField()) {
+            switch (reader.field(FIELDS)) {
+                case 0:
+                    entry.source = reader.stringValue(VALUES);
+                    break;
+                case 1:
+                    entry.name = reader.stringValue(VALUES);
+                    break;
+                case 2:
+                    entry.displayName = reader.stringValue(VALUES);
+                    break;
+                case 3:
+                    entry.value = reader.stringValue(VALUES);
+                    break;
+                case 4:
+                    entry.type = reader.stringValue(VALUES);
+                    break;
+                case 5:
+                    entry.unit = reader.stringValue(VALUES);
+                    break;
+                case 6:
+                    entry.deviceId = reader.idValue();
+                    break;
+                case 7:
+                    entry.hubId = reader.idValue();
+                    break;
+                case 8:
+                    entry.installedAppId = reader.idValue();
+                    break;
+                case 9:
+                    entry.descriptionText = reader.stringValue(NULL);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public EntrySource source(EventEntry entry) {
+        if ("DEVICE".equals(entry.source)) {
+            return new EntrySource(EntrySource.DEVICE, entry.deviceId, entry.displayName);
+        } else if ("APP".equals(entry.source)) {
+            return new EntrySource(EntrySource.APP, entry.installedAppId, entry.displayName);
+        } else {
+            return new EntrySource(
+                    (entry.source == null) ? null : entry.source.toLowerCase(Locale.ROOT), null, entry.displayName);
+        }
+    }
+
     @Override
     public Predicate<EventEntry> device(String device) {
         return entry -> "DEVICE".equals(entry.source) &&
@@ -56,7 +142,7 @@ public final class EventsJsonStream implements JsonStream<EventsJsonStream.Event
 
     private static String format(ZonedDateTime dateTime, EventEntry entry) {
         List<String> prefixParts = Stream.of(
-                ISO_OFFSET_DATE_TIME_MILLIS.format(dateTime),
+                formatMillis(dateTime),
                 String.format("%-6s", emptyIfNull(entry.source)),
                 emptyIfNullOrZero(entry.deviceId),
                 emptyIfNullOrZero(entry.installedAppId),
@@ -92,7 +178,7 @@ public final class EventsJsonStream implements JsonStream<EventsJsonStream.Event
     @Override
     public JsonStreamFormatter<EventEntry, List<String>> csvFormatter() {
         return (zonedDateTime, entry) -> asList(
-                ISO_OFFSET_DATE_TIME_MILLIS.format(zonedDateTime),
+                formatMillis(zonedDateTime),
                 entry.source,
                 entry.name,
                 entry.displayName,
@@ -0,0 +1,49 @@
+package com.github.ianparkinson.helog.app;
+
+import java.time.ZonedDateTime;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A frame received from the stream, as passed by {@link StreamPrinter} to each {@link StreamPrinter.Renderer} in turn.
+ *
+ * <p>Renderers of the same frame can share work, such as parsing, through {@link #shared}; a new frame is created for
+ * each frame received, so nothing is shared between frames.
+ *
+ * <p>Not thread-safe: each frame is rendered by every renderer on a single thread.
+ */
+public final class Frame {
+    /** The time at which the frame was received. */
+    public final ZonedDateTime dateTime;
+    /**
+     * The received payload. May be backed by a buffer which is reused once the frame has been rendered, so must be
+     * copied if it is to be retained.
+     */
+    public final CharSequence text;
+    /** Results shared between renderers, created on first use. */
+    private Map<Object, Object> shared = null;
+
+    public Frame(ZonedDateTime dateTime, CharSequence text) {
+        this.dateTime = dateTime;
+        this.text = text;
+    }
+
+    /**
+     * Returns the result computed for {@code owner}, computing it the first time it is requested for this frame.
+     *
+     * @param owner Identifies the result, such as the {@link SharedParser} which computed it.
+     */
+    @SuppressWarnings("unchecked")
+    <V> V shared(Object owner, Function<Frame, V> compute) {
+        if (shared == null) {
+            shared = new IdentityHashMap<>(4);
+        }
+        Object value = shared.get(owner);
+        if (value == null) {
+            value = compute.apply(this);
+            shared.put(owner, value);
+        }
+        return (V) value;
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.ianparkinson.helog.app;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Ring buffer retaining the most recently received frames, so that they can be replayed to a consumer which attaches
+ * to the stream after they were received.
+ *
+ * <p>Each frame is stored as its UTF-8 encoded text, preceded by its receive time and length, in a single direct
+ * (off-heap) {@link ByteBuffer}. The memory used is therefore bounded by {@code capacityBytes}, however many frames
+ * are held; when space is needed, the oldest frames are discarded.
+ *
+ * <p>Frames which are too large to fit in the buffer are not retained.
+ */
+public final class FrameBuffer {
+    /** Each frame is preceded by its receive time (epoch millis) and the length of its text. */
+    private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private final ByteBuffer buffer;
+
+    /** Offset of the oldest frame. */
+    private int head = 0;
+    /** Number of bytes occupied by frames, starting at {@link #head}. */
+    private int used = 0;
+    /** Number of frames held. */
+    private int count = 0;
+
+    /**
+     * @param capacityBytes The maximum number of bytes used to store frames.
+     */
+    public FrameBuffer(int capacityBytes) {
+        if (capacityBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("capacityBytes too small: " + capacityBytes);
+        }
+        this.buffer = ByteBuffer.allocateDirect(capacityBytes);
+    }
+
+    /** Retains a frame, discarding older frames as necessary. */
+    public synchronized void add(Instant receivedAt, CharSequence text) {
+        byte[] bytes = text.toString().getBytes(UTF_8);
+        int size = HEADER_BYTES + bytes.length;
+        if (size > buffer.capacity()) {
+            return;
+        }
+        while (buffer.capacity() - used < size) {
+            discardOldest();
+        }
+
+        int tail = offset((long) head + used);
+        byte[] header = ByteBuffer.allocate(HEADER_BYTES)
+                .putLong(receivedAt.toEpochMilli())
+                .putInt(bytes.length)
+                .array();
+        write(tail, header);
+        write(offset((long) tail + HEADER_BYTES), bytes);
+        used += size;
+        count++;
+    }
+
+    /** Supplies each retained frame to {@code consumer}, oldest first. */
+    public synchronized void replay(FrameConsumer consumer) {
+        int position = head;
+        for (int i = 0; i < count; i++) {
+            Header header = readHeader(position);
+            byte[] bytes = new byte[header.length];
+            read(offset((long) position + HEADER_BYTES), bytes);
+            consumer.accept(Instant.ofEpochMilli(header.epochMillis), new String(bytes, UTF_8));
+            position = offset((long) position + HEADER_BYTES + header.length);
+        }
+    }
+
+    /** The number of frames currently retained. */
+    public synchronized int size() {
+        return count;
+    }
+
+    /** The number of bytes occupied by retained frames, including per-frame overhead. */
+    public synchronized int usedBytes() {
+        return used;
+    }
+
+    private void discardOldest() {
+        int size = HEADER_BYTES + readHeader(head).length;
+        head = offset((long) head + size);
+        used -= size;
+        count--;
+    }
+
+    private Header readHeader(int position) {
+        byte[] bytes = new byte[HEADER_BYTES];
+        read(position, bytes);
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        return new Header(header.getLong(), header.getInt());
+    }
+
+    private int offset(long position) {
+        return (int) (position % buffer.capacity());
+    }
+
+    /** Writes {@code bytes} starting at {@code position}, wrapping around the end of the buffer if necessary. */
+    private void write(int position, byte[] bytes) {
+        int firstPart = Math.min(bytes.length, buffer.capacity() - position);
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.put(bytes, 0, firstPart);
+        view.position(0);
+        view.put(bytes, firstPart, bytes.length - firstPart);
+    }
+
+    /** Reads into {@code bytes} starting at {@code position}, wrapping around the end of the buffer if necessary. */
+    private void read(int position, byte[] bytes) {
+        int firstPart = Math.min(bytes.length, buffer.capacity() - position);
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(bytes, 0, firstPart);
+        view.position(0);
+        view.get(bytes, firstPart, bytes.length - firstPart);
+    }
+
+    private static final class Header {
+        final long epochMillis;
+        final int length;
+
+        Header(long epochMillis, int length) {
+            this.epochMillis = epochMillis;
+            this.length = length;
+        }
+    }
+
+    /** Receives frames replayed from a {@link FrameBuffer}. */
+    @FunctionalInterface
+    public interface FrameConsumer {
+        void accept(Instant receivedAt, String text);
+    }
+}
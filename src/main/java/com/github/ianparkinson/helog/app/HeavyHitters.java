@@ -0,0 +1,237 @@
+package com.github.ianparkinson.helog.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts occurrences of keys, such as the devices and apps emitting entries in a stream, and measures their recent
+ * rates, in bounded memory.
+ *
+ * <p>Uses the Space-Saving algorithm: at most {@code capacity} keys are tracked. When a new key arrives and every
+ * counter is in use, the key with the lowest count is evicted and the new key inherits its count. The count of any key
+ * is therefore an overestimate by at most {@link Hitter#error}, and every key occurring more than
+ * {@code total / capacity} times is guaranteed to be tracked.
+ *
+ * <p>Counters are grouped into buckets of equal count, held in a list in order of count, as in the Stream-Summary
+ * structure, so that the counter with the lowest count is found, and each counter incremented, in constant time.
+ *
+ * <p>Each tracked key also holds a ring of per-second counts covering the last {@link #LONG_WINDOW_SECONDS} seconds,
+ * from which its rate over sliding windows is measured. A key's window starts afresh when it replaces an evicted key.
+ *
+ * @param <K> Key type. The instance most recently passed to {@link #add} is reported, so keys may carry additional
+ *            information (such as a name) not used by {@link Object#equals}.
+ */
+public final class HeavyHitters<K> {
+    public static final int SHORT_WINDOW_SECONDS = 10;
+    public static final int LONG_WINDOW_SECONDS = 60;
+
+    private final int capacity;
+    private final Map<K, Counter<K>> counters;
+    /** The bucket with the lowest count, or {@code null} if no key has been added. */
+    private Bucket<K> lowest = null;
+    private long total = 0;
+
+    public HeavyHitters(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /** Records an occurrence of {@code key} at {@code epochSecond}. */
+    public synchronized void add(K key, long epochSecond) {
+        total++;
+        Counter<K> counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter<>(epochSecond);
+                if (lowest == null || lowest.count != 0) {
+                    Bucket<K> bucket = new Bucket<>(0);
+                    bucket.next = lowest;
+                    if (lowest != null) {
+                        lowest.previous = bucket;
+                    }
+                    lowest = bucket;
+                }
+                lowest.add(counter);
+            } else {
+                counter = lowest.first;
+                counters.remove(counter.key);
+                counter.error = counter.count;
+                counter.clearWindow(epochSecond);
+            }
+            counters.put(key, counter);
+        }
+        counter.key = key;
+        counter.count++;
+        moveUp(counter);
+        counter.increment(epochSecond);
+    }
+
+    /** Moves {@code counter}, which has just been incremented, to the bucket for its new count. */
+    private void moveUp(Counter<K> counter) {
+        Bucket<K> from = counter.bucket;
+        Bucket<K> to = from.next;
+        if (to == null || to.count != counter.count) {
+            to = new Bucket<>(counter.count);
+            to.previous = from;
+            to.next = from.next;
+            if (from.next != null) {
+                from.next.previous = to;
+            }
+            from.next = to;
+        }
+        from.remove(counter);
+        to.add(counter);
+        if (from.first == null) {
+            if (from.previous != null) {
+                from.previous.next = from.next;
+            } else {
+                lowest = from.next;
+            }
+            from.next.previous = from.previous;
+        }
+    }
+
+    /** The total number of occurrences recorded, of all keys. */
+    public synchronized long total() {
+        return total;
+    }
+
+    /** The number of distinct keys currently tracked; at most {@code capacity}. */
+    public synchronized int tracked() {
+        return counters.size();
+    }
+
+    /**
+     * The {@code limit} keys with the highest rate over the last {@link #LONG_WINDOW_SECONDS} seconds, highest first.
+     * Keys with the same rate are ordered by their overall count.
+     */
+    public synchronized List<Hitter<K>> top(int limit, long nowEpochSecond) {
+        List<Hitter<K>> hitters = new ArrayList<>(counters.size());
+        for (Counter<K> counter : counters.values()) {
+            hitters.add(new Hitter<>(
+                    counter.key,
+                    counter.count,
+                    counter.error,
+                    counter.countInWindow(SHORT_WINDOW_SECONDS, nowEpochSecond),
+                    counter.countInWindow(LONG_WINDOW_SECONDS, nowEpochSecond)));
+        }
+        hitters.sort(Comparator.<Hitter<K>>comparingLong(h -> h.longWindowCount)
+                .thenComparingLong(h -> h.count)
+                .reversed());
+        return hitters.subList(0, Math.min(limit, hitters.size()));
+    }
+
+    /** Counters sharing the same count, in a list of buckets ordered by count. */
+    private static final class Bucket<K> {
+        final long count;
+        Bucket<K> previous;
+        Bucket<K> next;
+        Counter<K> first;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+
+        void add(Counter<K> counter) {
+            counter.bucket = this;
+            counter.previous = null;
+            counter.next = first;
+            if (first != null) {
+                first.previous = counter;
+            }
+            first = counter;
+        }
+
+        void remove(Counter<K> counter) {
+            if (counter.previous != null) {
+                counter.previous.next = counter.next;
+            } else {
+                first = counter.next;
+            }
+            if (counter.next != null) {
+                counter.next.previous = counter.previous;
+            }
+            counter.bucket = null;
+            counter.previous = null;
+            counter.next = null;
+        }
+    }
+
+    private static final class Counter<K> {
+        K key;
+        long count;
+        long error;
+        Bucket<K> bucket;
+        /** The neighbouring counters in {@link #bucket}. */
+        Counter<K> previous;
+        Counter<K> next;
+        final int[] buckets = new int[LONG_WINDOW_SECONDS];
+        /** The latest second represented in {@link #buckets}. */
+        long latestSecond;
+
+        Counter(long epochSecond) {
+            this.latestSecond = epochSecond;
+        }
+
+        void increment(long epochSecond) {
+            if (epochSecond > latestSecond) {
+                long stale = Math.min(epochSecond - latestSecond, LONG_WINDOW_SECONDS);
+                for (long second = epochSecond - stale + 1; second <= epochSecond; second++) {
+                    buckets[bucket(second)] = 0;
+                }
+                latestSecond = epochSecond;
+            } else if (latestSecond - epochSecond >= LONG_WINDOW_SECONDS) {
+                // Too far in the past to be within any window.
+                return;
+            }
+            buckets[bucket(epochSecond)]++;
+        }
+
+        void clearWindow(long epochSecond) {
+            Arrays.fill(buckets, 0);
+            latestSecond = epochSecond;
+        }
+
+        /** The number of occurrences in the {@code seconds} seconds up to and including {@code nowEpochSecond}. */
+        long countInWindow(int seconds, long nowEpochSecond) {
+            long count = 0;
+            long from = Math.max(nowEpochSecond - seconds + 1, latestSecond - LONG_WINDOW_SECONDS + 1);
+            for (long second = from; second <= Math.min(nowEpochSecond, latestSecond); second++) {
+                count += buckets[bucket(second)];
+            }
+            return count;
+        }
+
+        private static int bucket(long epochSecond) {
+            return (int) Math.floorMod(epochSecond, (long) LONG_WINDOW_SECONDS);
+        }
+    }
+
+    /** A snapshot of the counts for one key. */
+    public static final class Hitter<K> {
+        public final K key;
+        /** The number of occurrences of the key; possibly an overestimate, by up to {@link #error}. */
+        public final long count;
+        /** The maximum amount by which {@link #count} may overestimate the true count. */
+        public final long error;
+        /** The number of occurrences in the last {@link #SHORT_WINDOW_SECONDS} seconds. */
+        public final long shortWindowCount;
+        /** The number of occurrences in the last {@link #LONG_WINDOW_SECONDS} seconds. */
+        public final long longWindowCount;
+
+        Hitter(K key, long count, long error, long shortWindowCount, long longWindowCount) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.shortWindowCount = shortWindowCount;
+            this.longWindowCount = longWindowCount;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.github.ianparkinson.helog.app;
+
+import picocli.CommandLine.Help.Ansi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+import static com.github.ianparkinson.helog.util.ErrorMessage.errorMessage;
+
+/**
+ * {@link Sink} which posts lines to an HTTP endpoint in batches, such as the bulk API of a search index.
+ *
+ * <p>Each line is a record. Records are collected into a batch until it holds {@link Settings#maxCount} records or
+ * {@link Settings#maxBytes} bytes, or its first record has waited for {@link Settings#maxDelay}; the batch is then
+ * joined into the body of a request, as given by its {@link Framing}, optionally compressed with gzip, and posted.
+ *
+ * <p>Batches are posted by {@link Settings#maxInFlight} threads, so no more requests than that are in flight at once,
+ * and batches may be accepted out of order. A request which fails, or is refused with a status suggesting that it may
+ * succeed later, is retried after a backoff which doubles with each attempt, up to {@link Settings#maxRetries} times.
+ * A bounded number of batches wait to be posted; if the endpoint can't keep up, further batches are dropped, so memory
+ * use is bounded however long the endpoint is unavailable.
+ */
+public final class HttpBatchSink implements AsyncSink {
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    /** How long {@link #close()} waits for outstanding batches to be posted. */
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+    /** The number of batches which may wait to be posted, for each thread posting them. */
+    private static final int PENDING_PER_SENDER = 2;
+    private static final long POLL_MILLIS = 100;
+
+    /** Limits on the size and latency of each batch, and on how batches are posted. */
+    public static final class Settings {
+        public static final int DEFAULT_MAX_COUNT = 1000;
+        public static final int DEFAULT_MAX_BYTES = 5_000_000;
+        public static final int DEFAULT_MAX_DELAY_MILLIS = 1000;
+        public static final int DEFAULT_MAX_IN_FLIGHT = 2;
+        public static final int DEFAULT_MAX_RETRIES = 5;
+
+        final int maxCount;
+        final int maxBytes;
+        final Duration maxDelay;
+        final int maxInFlight;
+        final int maxRetries;
+        final boolean compress;
+
+        public Settings(
+                int maxCount, int maxBytes, Duration maxDelay, int maxInFlight, int maxRetries, boolean compress) {
+            if (maxCount <= 0 || maxBytes <= 0 || maxDelay.isNegative() || maxDelay.isZero() || maxInFlight <= 0
+                    || maxRetries < 0) {
+                throw new IllegalArgumentException("Invalid batch settings");
+            }
+            this.maxCount = maxCount;
+            this.maxBytes = maxBytes;
+            this.maxDelay = maxDelay;
+            this.maxInFlight = maxInFlight;
+            this.maxRetries = maxRetries;
+            this.compress = compress;
+        }
+    }
+
+    /** How the records in a batch are joined to make the body of a request. */
+    public static final class Framing {
+        /** Each record on a line of its own, as for newline-delimited JSON. */
+        public static final Framing LINES = new Framing("", "\n", "\n");
+
+        final byte[] prefix;
+        final byte[] separator;
+        final byte[] suffix;
+
+        public Framing(String prefix, String separator, String suffix) {
+            this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+            this.separator = separator.getBytes(StandardCharsets.UTF_8);
+            this.suffix = suffix.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private final HttpClient client;
+    private final URI uri;
+    private final String contentType;
+    private final Map<String, String> headers;
+    private final Framing framing;
+    private final Settings settings;
+    private final Function<String, String> responseErrors;
+    private final String name;
+    private final Ansi ansi;
+
+    private final BlockingQueue<Batch> pending;
+    private final List<Thread> senders = new ArrayList<>();
+    private final ScheduledExecutorService timer;
+    private final AtomicLong dropped = new AtomicLong();
+    /** Whether the latest attempt to post failed, so that each outage is reported only once. */
+    private final AtomicBoolean failing = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+
+    /** The batch being collected, or {@code null}. Guarded by {@code this}. */
+    private Batch current = null;
+
+    /**
+     * @param headers Added to each request, such as for authorization.
+     * @param responseErrors Given the body of a successful response, describes any records which were nevertheless
+     *                       rejected, or returns {@code null}. May be {@code null} if responses needn't be checked.
+     * @param name Identifies the endpoint in messages.
+     */
+    public HttpBatchSink(HttpClient client, URI uri, String contentType, Map<String, String> headers, Framing framing,
+            Settings settings, Function<String, String> responseErrors, String name, Ansi ansi) {
+        this.client = client;
+        this.uri = uri;
+        this.contentType = contentType;
+        this.headers = Map.copyOf(headers);
+        this.framing = framing;
+        this.settings = settings;
+        this.responseErrors = responseErrors;
+        this.name = name;
+        this.ansi = ansi;
+        this.pending = new ArrayBlockingQueue<>(PENDING_PER_SENDER * settings.maxInFlight);
+        for (int i = 0; i < settings.maxInFlight; i++) {
+            Thread thread = new Thread(this::run, "helog-export");
+            thread.setDaemon(true);
+            thread.start();
+            senders.add(thread);
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "helog-export-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkMillis = Math.max(1, settings.maxDelay.toMillis() / 2);
+        timer.scheduleAtFixedRate(this::sealIfDue, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void write(String line) {
+        if (closed) {
+            return;
+        }
+        byte[] record = line.getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            if (current != null && current.bytes + framing.separator.length + record.length > settings.maxBytes) {
+                seal();
+            }
+            if (current == null) {
+                current = new Batch(System.nanoTime());
+            }
+            current.add(record, framing.separator.length);
+            if (current.records.size() >= settings.maxCount || current.bytes >= settings.maxBytes) {
+                seal();
+            }
+        }
+    }
+
+    private synchronized void sealIfDue() {
+        if (current != null && System.nanoTime() - current.startedNanos >= settings.maxDelay.toNanos()) {
+            seal();
+        }
+    }
+
+    /** Passes the current batch to be posted, or drops it if too many batches are already waiting. */
+    private synchronized void seal() {
+        if (!pending.offer(current)) {
+            dropped.addAndGet(current.records.size());
+        }
+        current = null;
+    }
+
+    private void run() {
+        while (true) {
+            Batch batch;
+            try {
+                batch = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (batch == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            if (!post(batch)) {
+                dropped.addAndGet(batch.records.size());
+            }
+        }
+    }
+
+    /** Posts a batch, retrying if necessary. Returns whether it was accepted. */
+    private boolean post(Batch batch) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", contentType);
+        if (settings.compress) {
+            builder.header("Content-Encoding", "gzip");
+        }
+        headers.forEach(builder::header);
+        HttpRequest request;
+        try {
+            request = builder.POST(HttpRequest.BodyPublishers.ofByteArray(body(batch))).build();
+        } catch (IOException e) {
+            failed(e.getMessage());
+            return false;
+        }
+
+        long backoffMillis = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 0; ; attempt++) {
+            String failure;
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                int status = response.statusCode();
+                if (status >= 200 && status < 300) {
+                    recovered();
+                    String errors = (responseErrors == null) ? null : responseErrors.apply(response.body());
+                    if (errors != null) {
+                        errorMessage("Export to " + name + " rejected entries", "%s", errors).writeToStderr(ansi);
+                    }
+                    return true;
+                }
+                failure = String.format("HTTP status %d %s", status, response.body());
+                if (status != 408 && status != 429 && status < 500) {
+                    // The request itself is at fault, so would fail again.
+                    failed(failure);
+                    return false;
+                }
+            } catch (IOException e) {
+                failure = (e.getMessage() == null) ? e.getClass().getSimpleName() : e.getMessage();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            failed(failure);
+            if (attempt >= settings.maxRetries) {
+                return false;
+            }
+            try {
+                // Jitter keeps several senders from retrying in step.
+                Thread.sleep(backoffMillis + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoffMillis = Math.min(MAX_BACKOFF_MILLIS, backoffMillis * 2);
+        }
+    }
+
+    private byte[] body(Batch batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(batch.bytes + framing.suffix.length);
+        try (OutputStream out = settings.compress ? new GZIPOutputStream(bytes) : bytes) {
+            out.write(framing.prefix);
+            for (int i = 0; i < batch.records.size(); i++) {
+                if (i > 0) {
+                    out.write(framing.separator);
+                }
+                out.write(batch.records.get(i));
+            }
+            out.write(framing.suffix);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void failed(String failure) {
+        if (failing.compareAndSet(false, true)) {
+            errorMessage("Cannot export to " + name, "%s", failure).writeToStderr(ansi);
+        }
+    }
+
+    private void recovered() {
+        if (failing.compareAndSet(true, false)) {
+            System.err.println(ansi.string("@|blue Export to " + name + " has recovered|@"));
+        }
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Posts the current batch, and waits for outstanding batches to be posted. Gives up after {@link #CLOSE_TIMEOUT},
+     * so that an unavailable endpoint can't prevent helog from exiting; batches not yet posted are then dropped.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            timer.shutdownNow();
+            if (current != null) {
+                try {
+                    if (!pending.offer(current, CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                        dropped.addAndGet(current.records.size());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.addAndGet(current.records.size());
+                }
+                current = null;
+            }
+        }
+        long deadline = System.nanoTime() + CLOSE_TIMEOUT.toNanos();
+        try {
+            for (Thread sender : senders) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining > 0) {
+                    sender.join(remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Thread sender : senders) {
+            sender.interrupt();
+        }
+        List<Batch> abandoned = new ArrayList<>();
+        pending.drainTo(abandoned);
+        for (Batch batch : abandoned) {
+            dropped.addAndGet(batch.records.size());
+        }
+    }
+
+    private static final class Batch {
+        final long startedNanos;
+        final List<byte[]> records = new ArrayList<>();
+        int bytes = 0;
+
+        Batch(long startedNanos) {
+            this.startedNanos = startedNanos;
+        }
+
+        void add(byte[] record, int separatorBytes) {
+            bytes += (records.isEmpty() ? 0 : separatorBytes) + record.length;
+            records.add(record);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import com.github.ianparkinson.helog.util.HubTimeParser;
+import com.github.ianparkinson.helog.util.LatencyHistogram;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static com.github.ianparkinson.helog.util.DateTimeFormatters.ISO_OFFSET_DATE_TIME_MILLIS;
+import static com.github.ianparkinson.helog.util.Strings.formatDecimal;
+
+/**
+ * {@link Aggregator} which measures the latency of log entries: the time at which each entry was received, less the
+ * time recorded by the hub in {@link LogEntry#time}.
+ *
+ * <p>Latency combines the delay in delivering the entry with any offset between the hub's clock and the local clock.
+ * Since the delay is never negative, the smallest latency seen in each minute estimates the clock offset; a change in
+ * that estimate over time indicates that one of the clocks is drifting. Latency above the estimated offset is delay,
+ * so a sustained increase means that the hub is falling behind in delivering its log.
+ */
+public final class HubLatency implements Aggregator<LogEntry> {
+    /** Length of the windows over which the clock offset is estimated. */
+    static final long OFFSET_WINDOW_MILLIS = 60_000;
+    /** Drift is only reported once offsets have been estimated over at least this span. */
+    static final long MIN_DRIFT_SPAN_MILLIS = 10 * 60_000;
+    /** Mean delay, over the current window, above which the hub is reported as backlogged. */
+    static final long BACKLOG_THRESHOLD_MILLIS = 1000;
+
+    private final String hub;
+    private final HubTimeParser parser;
+    private final Supplier<String> roundTrips;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long invalid = 0;
+
+    /** The current offset window, and the minimum and total latency within it. */
+    private long windowStart;
+    private long windowMin = Long.MAX_VALUE;
+    private long windowSum = 0;
+    private long windowCount = 0;
+
+    /** Offset estimates from the first and latest complete windows. */
+    private boolean offsetKnown = false;
+    private long firstOffset;
+    private long firstOffsetAt;
+    private long latestOffset;
+    private long latestOffsetAt;
+
+    /**
+     * @param hub Identifies the hub in reports.
+     * @param hubZone The time zone in which the hub's timestamps are interpreted.
+     */
+    public HubLatency(String hub, ZoneId hubZone) {
+        this(hub, hubZone, () -> null);
+    }
+
+    /**
+     * @param hub Identifies the hub in reports.
+     * @param hubZone The time zone in which the hub's timestamps are interpreted.
+     * @param roundTrips Summarizes the round trip time of pings to the hub, which measures network delay separately
+     *                   from the hub's delay in logging; may return {@code null} if not known.
+     */
+    public HubLatency(String hub, ZoneId hubZone, Supplier<String> roundTrips) {
+        this.hub = hub;
+        this.parser = new HubTimeParser(hubZone);
+        this.roundTrips = roundTrips;
+    }
+
+    @Override
+    public synchronized void add(ZonedDateTime dateTime, LogEntry entry) {
+        long hubTime = parser.parse(entry.time);
+        if (hubTime == HubTimeParser.INVALID) {
+            invalid++;
+            return;
+        }
+        long receivedAt = dateTime.toInstant().toEpochMilli();
+        long latency = receivedAt - hubTime;
+        histogram.record(latency);
+
+        if (windowCount > 0 && receivedAt - windowStart >= OFFSET_WINDOW_MILLIS) {
+            closeWindow();
+        }
+        if (windowCount == 0) {
+            windowStart = receivedAt;
+        }
+        windowMin = Math.min(windowMin, latency);
+        windowSum += latency;
+        windowCount++;
+    }
+
+    private void closeWindow() {
+        if (!offsetKnown) {
+            firstOffset = windowMin;
+            firstOffsetAt = windowStart;
+            offsetKnown = true;
+        }
+        latestOffset = windowMin;
+        latestOffsetAt = windowStart;
+        windowMin = Long.MAX_VALUE;
+        windowSum = 0;
+        windowCount = 0;
+    }
+
+    @Override
+    public synchronized List<String> report(ZonedDateTime now) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%s  %s: %d entries%s",
+                ISO_OFFSET_DATE_TIME_MILLIS.format(now), hub, histogram.count() + invalid,
+                (invalid == 0) ? "" : String.format(" (%d without a valid time)", invalid)));
+        String roundTrip = roundTrips.get();
+        if (roundTrip != null) {
+            lines.add(roundTrip);
+        }
+        if (histogram.count() == 0) {
+            return lines;
+        }
+        lines.add(String.format("latency p50=%d p90=%d p99=%d p99.9=%d min=%d max=%d ms",
+                histogram.percentile(0.5),
+                histogram.percentile(0.9),
+                histogram.percentile(0.99),
+                histogram.percentile(0.999),
+                histogram.min(),
+                histogram.max()));
+
+        // Until a window has closed, the current window gives a provisional estimate.
+        long offset = offsetKnown ? Math.min(latestOffset, windowMin) : windowMin;
+        StringBuilder clock = new StringBuilder(String.format("clock offset=%d ms", offset));
+        if (offsetKnown && latestOffsetAt - firstOffsetAt >= MIN_DRIFT_SPAN_MILLIS) {
+            double hours = (latestOffsetAt - firstOffsetAt) / 3_600_000.0;
+            clock.append(String.format(" drift=%s ms/hour", formatDecimal((latestOffset - firstOffset) / hours)));
+        }
+        lines.add(clock.toString());
+
+        if (windowCount > 0) {
+            long delay = windowSum / windowCount - offset;
+            lines.add(String.format("delay=%d ms%s", delay,
+                    (delay > BACKLOG_THRESHOLD_MILLIS) ? "  BACKLOGGED" : ""));
+        }
+        return lines;
+    }
+}
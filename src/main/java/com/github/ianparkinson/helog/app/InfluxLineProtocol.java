@@ -0,0 +1,126 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static com.github.ianparkinson.helog.util.Strings.emptyIfNull;
+import static com.github.ianparkinson.helog.util.Strings.parseNumber;
+
+/**
+ * Formats numeric events as points in the line protocol of InfluxDB.
+ *
+ * <p>Each point is a line such as {@code temperature,deviceId=34,displayName=Office\ Sensor,hub=hubitat.local
+ * value=21.5 1674910800123000000}: the name of the event is the measurement, the device and the hub are tags, the value
+ * is a field, and the time at which the event was received is the timestamp, in nanoseconds. Events whose values
+ * aren't numbers, such as {@code switch}, have no point.
+ *
+ * <p>Points are written into a buffer held by each thread, escaping names and tags as they are copied, so that
+ * formatting allocates nothing but the line itself.
+ */
+public final class InfluxLineProtocol {
+    public static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+
+    private static final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private InfluxLineProtocol() {}
+
+    /**
+     * The URI of the write API of the InfluxDB server at {@code server}, writing to {@code bucket} with timestamps in
+     * nanoseconds.
+     *
+     * @param org The organization which owns the bucket, or {@code null} for servers, such as InfluxDB 1.8, which
+     *            don't have organizations.
+     */
+    public static URI writeUri(URI server, String org, String bucket) {
+        String base = server.toString();
+        return URI.create((base.endsWith("/") ? base : base + "/") + "api/v2/write?"
+                + ((org == null) ? "" : "org=" + encode(org) + "&")
+                + "bucket=" + encode(bucket) + "&precision=ns");
+    }
+
+    /** Formats each numeric event as a point, tagged with {@code hub}. */
+    public static JsonStreamFormatter<EventEntry, String> formatter(String hub) {
+        return (dateTime, entry) -> format(dateTime.toInstant(), entry, hub);
+    }
+
+    /** Formats {@code entry} as a point, or returns {@code null} if it has no name or numeric value. */
+    static String format(Instant instant, EventEntry entry, String hub) {
+        Double value = parseNumber(entry.value);
+        if (value == null || entry.name == null || entry.name.isEmpty()) {
+            return null;
+        }
+        StringBuilder line = buffer.get();
+        line.setLength(0);
+        escape(line, entry.name, false);
+        // Tags in order of their keys, as InfluxDB prefers.
+        tag(line, "deviceId", entry.deviceId);
+        tag(line, "displayName", entry.displayName);
+        tag(line, "hub", hub);
+        line.append(" value=");
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            line.append(value.longValue());
+        } else {
+            line.append(value.doubleValue());
+        }
+        line.append(' ').append(instant.getEpochSecond() * 1_000_000_000L + instant.getNano());
+        return line.toString();
+    }
+
+    /** Appends a tag, unless its value is missing: InfluxDB doesn't accept empty tags. */
+    private static void tag(StringBuilder line, String key, String value) {
+        String text = emptyIfNull(value);
+        if (text.isEmpty()) {
+            return;
+        }
+        line.append(',').append(key).append('=');
+        escape(line, text, true);
+    }
+
+    /**
+     * Appends {@code text}, escaping the characters which delimit a measurement or, with {@code tag}, a tag. Line
+     * breaks can't be escaped, so are replaced with spaces. A backslash is usually literal, but one before a delimiter,
+     * or at the end, where it would escape the delimiter which follows, is doubled.
+     */
+    private static void escape(StringBuilder line, String text, boolean tag) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    line.append(c);
+                    if (i + 1 == text.length() || isDelimiter(text.charAt(i + 1), tag)) {
+                        line.append(c);
+                    }
+                    break;
+                case ',':
+                case ' ':
+                    line.append('\\').append(c);
+                    break;
+                case '=':
+                    if (tag) {
+                        line.append('\\');
+                    }
+                    line.append(c);
+                    break;
+                case '\n':
+                case '\r':
+                    line.append("\\ ");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+    }
+
+    /** Whether {@link #escape} escapes {@code c}, or replaces it with an escaped space. */
+    private static boolean isDelimiter(char c, boolean tag) {
+        return c == ',' || c == ' ' || c == '\n' || c == '\r' || (tag && c == '=');
+    }
+
+    private static String encode(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+}
@@ -15,19 +15,45 @@ import java.util.function.Predicate;
 public final class JsonRenderer<T> implements Renderer {
     public static final Gson gson = new Gson();
 
-    private final TypeToken<T> jsonTypeToken;
+    private final JsonStreamParser<T> parser;
     private final Predicate<T> filter;
     private final JsonStreamFormatter<T, String> formatter;
+    /** If not {@code null}, parses and filters entries in place of {@link #parser} and {@link #filter}. */
+    private final SharedParser<T> shared;
 
+    /** Creates a {@link JsonRenderer} which parses entries using Gson. */
     public JsonRenderer(TypeToken<T> jsonTypeToken, Predicate<T> filter, JsonStreamFormatter<T, String> formatter) {
-        this.jsonTypeToken = jsonTypeToken;
+        this(text -> gson.fromJson(text.toString(), jsonTypeToken), filter, formatter);
+    }
+
+    public JsonRenderer(JsonStreamParser<T> parser, Predicate<T> filter, JsonStreamFormatter<T, String> formatter) {
+        this.parser = parser;
         this.filter = filter;
         this.formatter = formatter;
+        this.shared = null;
+    }
+
+    /** Creates a {@link JsonRenderer} which shares entries, parsed and filtered once, with other renderers. */
+    public JsonRenderer(SharedParser<T> shared, JsonStreamFormatter<T, String> formatter) {
+        this.parser = null;
+        this.filter = null;
+        this.formatter = formatter;
+        this.shared = shared;
     }
 
     @Override
-    public String render(ZonedDateTime dateTime, String text) {
-        T entry = gson.fromJson(text, jsonTypeToken);
+    public String render(ZonedDateTime dateTime, CharSequence text) {
+        return render(new Frame(dateTime, text));
+    }
+
+    @Override
+    public String render(Frame frame) {
+        ZonedDateTime dateTime = frame.dateTime;
+        if (shared != null) {
+            T entry = shared.parse(frame);
+            return (entry == null) ? null : formatter.format(dateTime, entry);
+        }
+        T entry = parser.parse(frame.text);
         if (entry != null && filter.test(entry)) {
             return formatter.format(dateTime, entry);
         } else {
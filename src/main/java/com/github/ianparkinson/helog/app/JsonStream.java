@@ -23,6 +23,15 @@ public interface JsonStream<T> {
     /** {@link TypeToken} representing an entry in the stream. */
     TypeToken<T> type();
 
+    /**
+     * Parses an entry in the stream directly from its JSON text. Equivalent to parsing with Gson using {@link #type()},
+     * but faster, and with commonly-repeated values sharing a single instance.
+     */
+    JsonStreamParser<T> parser();
+
+    /** Identifies the device or app which emitted an entry. */
+    EntrySource source(T entry);
+
     /**
      * Filter by device.
      *
@@ -0,0 +1,17 @@
+package com.github.ianparkinson.helog.app;
+
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Parses the JSON text of a single entry in the stream.
+ *
+ * @param <T> Event type representing an entry in the stream.
+ */
+@FunctionalInterface
+public interface JsonStreamParser<T> {
+    /**
+     * @return The parsed entry, or {@code null} if the text contains no entry.
+     * @throws JsonSyntaxException If the text is not valid JSON.
+     */
+    T parse(CharSequence text) throws JsonSyntaxException;
+}
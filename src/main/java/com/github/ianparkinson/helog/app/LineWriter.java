@@ -0,0 +1,41 @@
+package com.github.ianparkinson.helog.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Destination to which a {@link QueuedSink} writes lines, on its own thread.
+ */
+public interface LineWriter extends Closeable {
+    /** Writes one line, followed by a line separator. */
+    void write(String line) throws IOException;
+
+    /** Called once every queued line has been written, so that the output can be made visible to its readers. */
+    void flush() throws IOException;
+
+    /** Called periodically while there are no lines to write. */
+    default void idle() throws IOException {
+    }
+
+    /** Writes lines to {@code out}, which is closed when the {@link LineWriter} is closed. */
+    static LineWriter of(Writer out) {
+        return new LineWriter() {
+            @Override
+            public void write(String line) throws IOException {
+                out.write(line);
+                out.write(System.lineSeparator());
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.ianparkinson.helog.app;
+
+/**
+ * Constants describing the archive format written by {@link LogArchiveWriter} and read by {@link LogArchiveReader}.
+ *
+ * <p>An archive begins with a header: {@link #MAGIC} and {@link #VERSION} as 32-bit integers, then the ID of the time
+ * zone in which entries were received, in the format of {@link java.io.DataOutput#writeUTF}. Each entry follows as a
+ * record of unsigned variable-length integers (seven bits per byte, least significant first) and strings (a byte
+ * count, then UTF-8):
+ * <ol>
+ *     <li>The time at which the entry was received, as the zigzag-encoded difference in milliseconds from the previous
+ *         entry.</li>
+ *     <li>{@link LogJsonStream.LogEntry#time}: {@code 0} if absent, {@code 1} followed by a string if it can't be
+ *         parsed, otherwise {@code 2} plus the zigzag-encoded change in the difference between the hub's time and
+ *         the time of receipt, relative to the previous entry. Since that difference is nearly constant, this is
+ *         usually a single byte.</li>
+ *     <li>{@code level}, {@code type}, {@code name} and {@code id}, each as a dictionary reference.</li>
+ *     <li>{@code msg}: the message's template, as a dictionary reference, followed by a value for each variable
+ *         word.</li>
+ * </ol>
+ *
+ * <p>A dictionary reference is {@code 0} for {@code null}, {@code 1} followed by a string for a value not yet in the
+ * dictionary (which is then added, unless the dictionary is full), or {@code 2} plus the index of a value already in
+ * the dictionary. Each field has its own dictionary, built identically by the writer and the reader.
+ *
+ * <p>A message's template is its text with each variable word, being any space-separated word containing a digit,
+ * replaced by {@link #VARIABLE}. Each variable word is written as twice its value, if it's a plain non-negative
+ * integer, or otherwise as one more than twice its length in bytes, followed by its UTF-8 encoding. A message which
+ * itself contains {@link #VARIABLE} is stored as a single variable.
+ */
+final class LogArchive {
+    /** "HLGA" */
+    static final int MAGIC = 0x484c4741;
+    static final int VERSION = 1;
+
+    /** The maximum number of values in each dictionary; further values are written in full each time. */
+    static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    /** Marks the position of each variable word in a template. */
+    static final char VARIABLE = '\u0000';
+
+    static final int NULL = 0;
+    static final int LITERAL = 1;
+    static final int FIRST_INDEX = 2;
+
+    private LogArchive() {}
+}
@@ -0,0 +1,231 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import com.github.ianparkinson.helog.util.HubTimeFormatter;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.ianparkinson.helog.app.LogArchive.FIRST_INDEX;
+import static com.github.ianparkinson.helog.app.LogArchive.LITERAL;
+import static com.github.ianparkinson.helog.app.LogArchive.MAX_DICTIONARY_SIZE;
+import static com.github.ianparkinson.helog.app.LogArchive.NULL;
+import static com.github.ianparkinson.helog.app.LogArchive.VARIABLE;
+
+/**
+ * Reads log entries from an archive written by {@link LogArchiveWriter}.
+ *
+ * <p>Entries are decoded directly from the archive's binary format, without parsing any JSON. Repeated values are
+ * shared: every entry from a given device refers to the same {@link String} instance for its name.
+ *
+ * <p>Not thread-safe.
+ */
+public final class LogArchiveReader implements Closeable {
+    private final InputStream in;
+    private final ZoneId zone;
+    private final HubTimeFormatter hubTimeFormatter;
+
+    private final List<String> levels = new ArrayList<>();
+    private final List<String> types = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> templates = new ArrayList<>();
+
+    private long previousMillis = 0;
+    private long previousHubOffset = 0;
+    private ZonedDateTime receivedAt = null;
+    private byte[] buffer = new byte[256];
+    private final StringBuilder message = new StringBuilder();
+
+    /** Reads the archive header from {@code in}. */
+    public LogArchiveReader(InputStream in) throws IOException {
+        this.in = new BufferedInputStream(in);
+        DataInputStream header = new DataInputStream(this.in);
+        try {
+            if (header.readInt() != LogArchive.MAGIC) {
+                throw new IOException("Not a log archive");
+            }
+            int version = header.readInt();
+            if (version != LogArchive.VERSION) {
+                throw new IOException("Unsupported archive version " + version);
+            }
+            this.zone = ZoneId.of(header.readUTF());
+        } catch (EOFException e) {
+            throw new IOException("Not a log archive", e);
+        } catch (DateTimeException e) {
+            throw new IOException("Invalid time zone in archive", e);
+        }
+        this.hubTimeFormatter = new HubTimeFormatter(zone);
+    }
+
+    /** Opens {@code file}, and reads the archive header from it. */
+    public static LogArchiveReader open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        try {
+            return new LogArchiveReader(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /** The time zone in which the archived entries were received. */
+    public ZoneId zone() {
+        return zone;
+    }
+
+    /**
+     * Reads the next entry.
+     *
+     * @return The entry, or {@code null} at the end of the archive.
+     * @throws EOFException If the archive ends part way through an entry.
+     */
+    public LogEntry next() throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        long millis = previousMillis + unzigzag(readUnsigned(first));
+        previousMillis = millis;
+        receivedAt = Instant.ofEpochMilli(millis).atZone(zone);
+
+        LogEntry entry = new LogEntry();
+        entry.time = readHubTime(millis);
+        entry.level = readReference(levels);
+        entry.type = readReference(types);
+        entry.name = readReference(names);
+        entry.id = readReference(ids);
+        entry.msg = readMessage();
+        return entry;
+    }
+
+    /** The time at which the entry most recently returned by {@link #next} was received. */
+    public ZonedDateTime receivedAt() {
+        return receivedAt;
+    }
+
+    private String readHubTime(long receivedMillis) throws IOException {
+        long code = readUnsigned();
+        if (code == NULL) {
+            return null;
+        } else if (code == LITERAL) {
+            return readString();
+        }
+        long offset = previousHubOffset + unzigzag(code - FIRST_INDEX);
+        previousHubOffset = offset;
+        return hubTimeFormatter.format(receivedMillis + offset);
+    }
+
+    private String readMessage() throws IOException {
+        String template = readReference(templates);
+        if (template == null) {
+            return null;
+        }
+        int variable = template.indexOf(VARIABLE);
+        if (variable < 0) {
+            return template;
+        }
+        message.setLength(0);
+        int start = 0;
+        while (variable >= 0) {
+            message.append(template, start, variable);
+            long value = readUnsigned();
+            if ((value & 1) == 0) {
+                message.append(value >>> 1);
+            } else {
+                message.append(readString(checkedLength(value >>> 1)));
+            }
+            start = variable + 1;
+            variable = template.indexOf(VARIABLE, start);
+        }
+        message.append(template, start, template.length());
+        return message.toString();
+    }
+
+    private String readReference(List<String> dictionary) throws IOException {
+        long code = readUnsigned();
+        if (code == NULL) {
+            return null;
+        } else if (code == LITERAL) {
+            String value = readString();
+            if (dictionary.size() < MAX_DICTIONARY_SIZE) {
+                dictionary.add(value);
+            }
+            return value;
+        }
+        long index = code - FIRST_INDEX;
+        if (index >= dictionary.size()) {
+            throw new IOException("Invalid dictionary reference in archive");
+        }
+        return dictionary.get((int) index);
+    }
+
+    private String readString() throws IOException {
+        return readString(checkedLength(readUnsigned()));
+    }
+
+    private String readString(int length) throws IOException {
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        int read = in.readNBytes(buffer, 0, length);
+        if (read < length) {
+            throw new EOFException("Truncated archive");
+        }
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int checkedLength(long length) throws IOException {
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IOException("Invalid string length in archive");
+        }
+        return (int) length;
+    }
+
+    private long readUnsigned() throws IOException {
+        return readUnsigned(in.read());
+    }
+
+    /** Reads a variable-length integer, of which {@code first} is the first byte. */
+    private long readUnsigned(int first) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b = first;
+        while (true) {
+            if (b < 0) {
+                throw new EOFException("Truncated archive");
+            }
+            if (shift > 63) {
+                throw new IOException("Invalid integer in archive");
+            }
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+            b = in.read();
+        }
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,248 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import com.github.ianparkinson.helog.util.HubTimeFormatter;
+import com.github.ianparkinson.helog.util.HubTimeParser;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.ianparkinson.helog.app.LogArchive.FIRST_INDEX;
+import static com.github.ianparkinson.helog.app.LogArchive.LITERAL;
+import static com.github.ianparkinson.helog.app.LogArchive.MAX_DICTIONARY_SIZE;
+import static com.github.ianparkinson.helog.app.LogArchive.NULL;
+import static com.github.ianparkinson.helog.app.LogArchive.VARIABLE;
+
+/**
+ * Writes log entries to a compact binary archive, which can be read with {@link LogArchiveReader}.
+ *
+ * <p>Repeated values, such as device names and the fixed text of messages, are written once and then referred to by
+ * index, and timestamps are written as small differences, so that a typical entry takes around a tenth of the space of
+ * its JSON text. See {@link LogArchive} for details of the format.
+ *
+ * <p>Thread-safe, but entries are only written in order if {@link #write} is called in order.
+ */
+public final class LogArchiveWriter implements Closeable {
+    /** Limits the number of digits in a word written as an integer, so that twice its value fits in a long. */
+    private static final int MAX_INTEGER_DIGITS = 18;
+
+    private final OutputStream out;
+    private final HubTimeParser hubTimeParser;
+    private final HubTimeFormatter hubTimeFormatter;
+
+    private final Dictionary levels = new Dictionary();
+    private final Dictionary types = new Dictionary();
+    private final Dictionary names = new Dictionary();
+    private final Dictionary ids = new Dictionary();
+    private final Dictionary templates = new Dictionary();
+
+    private long previousMillis = 0;
+    private long previousHubOffset = 0;
+    private final List<String> variables = new ArrayList<>();
+    private final StringBuilder template = new StringBuilder();
+    private boolean closed = false;
+
+    /**
+     * Writes the archive header to {@code out}.
+     *
+     * @param zone The time zone in which entries are received. The hub's timestamps are also interpreted in this
+     *             zone.
+     */
+    public LogArchiveWriter(OutputStream out, ZoneId zone) throws IOException {
+        this.out = new BufferedOutputStream(out);
+        this.hubTimeParser = new HubTimeParser(zone);
+        this.hubTimeFormatter = new HubTimeFormatter(zone);
+
+        DataOutputStream header = new DataOutputStream(this.out);
+        header.writeInt(LogArchive.MAGIC);
+        header.writeInt(LogArchive.VERSION);
+        header.writeUTF(zone.getId());
+    }
+
+    /** Creates, or replaces, {@code file}, and writes the archive header to it. */
+    public static LogArchiveWriter create(Path file, ZoneId zone) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        try {
+            return new LogArchiveWriter(out, zone);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /** Appends an entry to the archive. Does nothing once the archive has been closed. */
+    public synchronized void write(ZonedDateTime receivedAt, LogEntry entry) throws IOException {
+        if (closed) {
+            return;
+        }
+        long millis = receivedAt.toInstant().toEpochMilli();
+        writeSigned(millis - previousMillis);
+        previousMillis = millis;
+
+        writeHubTime(entry.time, millis);
+        writeReference(levels, entry.level);
+        writeReference(types, entry.type);
+        writeReference(names, entry.name);
+        writeReference(ids, entry.id);
+        writeMessage(entry.msg);
+    }
+
+    private void writeHubTime(String time, long receivedMillis) throws IOException {
+        if (time == null) {
+            writeUnsigned(NULL);
+            return;
+        }
+        long hubMillis = hubTimeParser.parse(time);
+        // A time which doesn't survive formatting, such as one skipped by a daylight saving transition, is kept as is.
+        if (hubMillis == HubTimeParser.INVALID || !hubTimeFormatter.format(hubMillis).equals(time)) {
+            writeUnsigned(LITERAL);
+            writeString(time);
+            return;
+        }
+        long offset = hubMillis - receivedMillis;
+        writeUnsigned(FIRST_INDEX + zigzag(offset - previousHubOffset));
+        previousHubOffset = offset;
+    }
+
+    private void writeMessage(String msg) throws IOException {
+        if (msg == null) {
+            writeUnsigned(NULL);
+            return;
+        }
+        template.setLength(0);
+        variables.clear();
+        if (msg.indexOf(VARIABLE) >= 0) {
+            template.append(VARIABLE);
+            variables.add(msg);
+        } else {
+            int start = 0;
+            while (start <= msg.length()) {
+                int end = msg.indexOf(' ', start);
+                if (end < 0) {
+                    end = msg.length();
+                }
+                if (start > 0) {
+                    template.append(' ');
+                }
+                if (hasDigit(msg, start, end)) {
+                    template.append(VARIABLE);
+                    variables.add(msg.substring(start, end));
+                } else {
+                    template.append(msg, start, end);
+                }
+                start = end + 1;
+            }
+        }
+
+        writeReference(templates, template.toString());
+        for (String variable : variables) {
+            if (isPlainInteger(variable)) {
+                writeUnsigned(Long.parseLong(variable) << 1);
+            } else {
+                byte[] bytes = variable.getBytes(StandardCharsets.UTF_8);
+                writeUnsigned(((long) bytes.length << 1) | 1);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static boolean hasDigit(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Whether {@code word} is a non-negative integer without leading zeros, which can be written as a number. */
+    private static boolean isPlainInteger(String word) {
+        int length = word.length();
+        if (length == 0 || length > MAX_INTEGER_DIGITS || (word.charAt(0) == '0' && length > 1)) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeReference(Dictionary dictionary, String value) throws IOException {
+        if (value == null) {
+            writeUnsigned(NULL);
+            return;
+        }
+        Integer index = dictionary.indices.get(value);
+        if (index != null) {
+            writeUnsigned(FIRST_INDEX + (long) index);
+        } else {
+            writeUnsigned(LITERAL);
+            writeString(value);
+            dictionary.add(value);
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeUnsigned(bytes.length);
+        out.write(bytes);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void writeSigned(long value) throws IOException {
+        writeUnsigned(zigzag(value));
+    }
+
+    private void writeUnsigned(long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /** Writes any buffered entries to the underlying stream. */
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    /** Maps each value to its index, in the order in which values were added. */
+    private static final class Dictionary {
+        final Map<String, Integer> indices = new HashMap<>();
+
+        void add(String value) {
+            if (indices.size() < MAX_DICTIONARY_SIZE) {
+                indices.put(value, indices.size());
+            }
+        }
+    }
+}
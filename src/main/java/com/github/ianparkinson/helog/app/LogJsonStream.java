@@ -1,5 +1,7 @@
 package com.github.ianparkinson.helog.app;
 
+import com.github.ianparkinson.helog.util.FlatJsonReader;
+import com.github.ianparkinson.helog.util.StringCache;
 import com.google.gson.reflect.TypeToken;
 
 import java.time.ZonedDateTime;
@@ -7,7 +9,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
 
-import static com.github.ianparkinson.helog.util.DateTimeFormatters.ISO_OFFSET_DATE_TIME_MILLIS;
+import static com.github.ianparkinson.helog.util.DateTimeFormatters.formatMillis;
 import static com.github.ianparkinson.helog.util.Strings.emptyIfNull;
 import static java.util.Arrays.asList;
 
@@ -15,6 +17,12 @@ import static java.util.Arrays.asList;
  * {@link JsonStream} encapsulating the Hubitat Elevation's Log stream
  */
 public final class LogJsonStream implements JsonStream<LogJsonStream.LogEntry> {
+    private static final String[] FIELDS = {"name", "msg", "id", "time", "type", "level"};
+    private static final String[] TYPES = {"dev", "app"};
+    private static final String[] LEVELS = {"error", "warn", "info", "debug", "trace"};
+
+    /** Canonicalizes device and app names, which are repeated in many entries. */
+    private static final StringCache NAMES = new StringCache(1024, 64);
 
     @Override
     public String path() {
@@ -26,6 +34,49 @@ public final class LogJsonStream implements JsonStream<LogJsonStream.LogEntry> {
         return TypeToken.get(LogEntry.class);
     }
 
+    @Override
+    public JsonStreamParser<LogEntry> parser() {
+        return LogJsonStream::parse;
+    }
+
+    private static LogEntry parse(CharSequence text) {
+        FlatJsonReader reader = new FlatJsonReader(text);
+        if (!reader.beginObject()) {
+            return null;
+        }
+        LogEntry entry = new LogEntry();
+        while (reader.nextField()) {
+            switch (reader.field(FIELDS)) {
+                case 0:
+                    entry.name = reader.stringValue(NAMES);
+                    break;
+                case 1:
+                    entry.msg = reader.stringValue();
+                    break;
+                case 2:
+                    entry.id = reader.idValue();
+                    break;
+                case 3:
+                    entry.time = reader.stringValue();
+                    break;
+                case 4:
+                    entry.type = reader.stringValue(TYPES);
+                    break;
+                case 5:
+                    entry.level = reader.stringValue(LEVELS);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public EntrySource source(LogEntry entry) {
+        return new EntrySource(entry.type, entry.id, entry.name);
+    }
+
     @Override
     public Predicate<LogEntry> device(String device) {
         return entry -> "dev".equalsIgnoreCase(entry.type) &&
@@ -55,7 +106,7 @@ public final class LogJsonStream implements JsonStream<LogJsonStream.LogEntry> {
 
     private static String format(ZonedDateTime dateTime, LogEntry entry) {
         return String.format("%s %-5s  %s %s %s  %s",
-                ISO_OFFSET_DATE_TIME_MILLIS.format(dateTime),
+                formatMillis(dateTime),
                 emptyIfNull(entry.level),
                 emptyIfNull(entry.type),
                 emptyIfNull(entry.id),
@@ -71,7 +122,7 @@ public final class LogJsonStream implements JsonStream<LogJsonStream.LogEntry> {
     @Override
     public JsonStreamFormatter<LogEntry, List<String>> csvFormatter() {
         return (dateTime, entry) -> asList(
-                ISO_OFFSET_DATE_TIME_MILLIS.format(dateTime),
+                formatMillis(dateTime),
                 entry.name,
                 entry.msg,
                 entry.id,
@@ -0,0 +1,89 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import com.github.ianparkinson.helog.util.TemplateMiner;
+import com.github.ianparkinson.helog.util.TemplateMiner.Snapshot;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.ianparkinson.helog.util.DateTimeFormatters.ISO_OFFSET_DATE_TIME_MILLIS;
+
+/**
+ * {@link Aggregator} which groups log messages into templates using a {@link TemplateMiner}, and counts the entries
+ * matching each template, both in total and for each device or app.
+ */
+public final class LogTemplates implements Aggregator<LogEntry> {
+    /** The number of templates tracked; beyond this, the least recently seen templates are forgotten. */
+    public static final int DEFAULT_CAPACITY = 1000;
+    /** The number of templates included in each periodic report. */
+    public static final int DEFAULT_ROWS = 20;
+    /** The number of sources listed for each template. */
+    static final int SOURCES_PER_TEMPLATE = 3;
+
+    private final JsonStream<LogEntry> jsonStream;
+    private final TemplateMiner<EntrySource> miner;
+    private final int rows;
+    private long total = 0;
+
+    /**
+     * @param capacity The number of distinct templates to track.
+     * @param rows The number of templates to include in each periodic report. The final report includes every
+     *             template.
+     */
+    public LogTemplates(JsonStream<LogEntry> jsonStream, int capacity, int rows) {
+        this.jsonStream = jsonStream;
+        this.miner = new TemplateMiner<>(capacity);
+        this.rows = rows;
+    }
+
+    @Override
+    public synchronized void add(ZonedDateTime dateTime, LogEntry entry) {
+        total++;
+        miner.add(entry.msg, jsonStream.source(entry));
+    }
+
+    @Override
+    public List<String> report(ZonedDateTime now) {
+        return report(now, rows);
+    }
+
+    @Override
+    public List<String> finalReport(ZonedDateTime now) {
+        return report(now, Integer.MAX_VALUE);
+    }
+
+    private synchronized List<String> report(ZonedDateTime now, int limit) {
+        List<Snapshot<EntrySource>> templates = miner.snapshot();
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%s  %d entries matching %d templates",
+                ISO_OFFSET_DATE_TIME_MILLIS.format(now), total, templates.size()));
+        lines.add(String.format("%10s  %-6s %s", "count", "id", "template"));
+        for (Snapshot<EntrySource> template : templates.subList(0, Math.min(limit, templates.size()))) {
+            lines.add(String.format("%10d  %-6s %s", template.count, "T" + template.id, template.text));
+            lines.add(String.format("%10s  %-6s from %s", "", "", sources(template.countsByKey)));
+        }
+        return lines;
+    }
+
+    /** Lists the sources contributing most to a template, such as {@code dev 36 (900), dev 12 (22) and 2 others}. */
+    private static String sources(Map<EntrySource, Long> countsByKey) {
+        List<Map.Entry<EntrySource, Long>> sorted = new ArrayList<>(countsByKey.entrySet());
+        sorted.sort(Map.Entry.<EntrySource, Long>comparingByValue().reversed());
+        StringBuilder text = new StringBuilder();
+        int shown = Math.min(SOURCES_PER_TEMPLATE, sorted.size());
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(sorted.get(i).getKey()).append(" (").append(sorted.get(i).getValue()).append(')');
+        }
+        int others = sorted.size() - shown;
+        if (others > 0) {
+            text.append(String.format(" and %d other%s", others, (others == 1) ? "" : "s"));
+        }
+        return text.toString();
+    }
+}
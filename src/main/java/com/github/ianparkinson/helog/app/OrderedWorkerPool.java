@@ -0,0 +1,106 @@
+package com.github.ianparkinson.helog.app;
+
+import picocli.CommandLine.Help.Ansi;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.github.ianparkinson.helog.util.ErrorMessage.errorMessage;
+
+/**
+ * Runs tasks in parallel on a pool of worker threads, while delivering their results to a {@link Consumer}, on a
+ * single sequencer thread, in the order in which the tasks were submitted.
+ *
+ * <p>Used to parse, filter and format frames on several cores without reordering the output.
+ *
+ * <p>At most {@code maxPending} tasks may be in flight; beyond that, {@link #submit(Callable)} blocks until the
+ * sequencer catches up, so a slow consumer applies back-pressure to the producer rather than buffering without limit.
+ *
+ * @param <R> Result of each task.
+ */
+public final class OrderedWorkerPool<R> implements AutoCloseable {
+    private final ExecutorService workers;
+    private final BlockingQueue<Future<R>> pending;
+    private final Consumer<R> consumer;
+    private final Thread sequencer;
+
+    private final Object lock = new Object();
+    private long submitted = 0;
+    private long consumed = 0;
+
+    /**
+     * @param threads The number of worker threads.
+     * @param maxPending The maximum number of tasks which may be submitted but not yet consumed.
+     * @param consumer Receives the result of each task, in submission order. Tasks should handle their own errors;
+     *                 if a task does throw, the exception is reported to stderr and there is no result to consume.
+     */
+    public OrderedWorkerPool(int threads, int maxPending, Consumer<R> consumer) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "helog-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = new ArrayBlockingQueue<>(maxPending);
+        this.consumer = consumer;
+        this.sequencer = new Thread(this::sequence, "helog-sequencer");
+        this.sequencer.setDaemon(true);
+        this.sequencer.start();
+    }
+
+    /** Submits a task, blocking if too many tasks are already pending. */
+    public void submit(Callable<R> task) throws InterruptedException {
+        Future<R> future = workers.submit(task);
+        try {
+            pending.put(future);
+        } catch (InterruptedException e) {
+            // Never queued, so never consumed: it mustn't be counted, or drain() would wait for it forever.
+            future.cancel(true);
+            throw e;
+        }
+        synchronized (lock) {
+            submitted++;
+        }
+    }
+
+    /** Blocks until the results of all submitted tasks have been consumed. */
+    public void drain() throws InterruptedException {
+        synchronized (lock) {
+            while (consumed < submitted) {
+                lock.wait();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        sequencer.interrupt();
+        workers.shutdownNow();
+    }
+
+    private void sequence() {
+        try {
+            while (true) {
+                Future<R> next = pending.take();
+                try {
+                    consumer.accept(next.get());
+                } catch (ExecutionException e) {
+                    errorMessage("Worker failed", "%s", e.getCause()).writeToStderr(Ansi.AUTO);
+                }
+                synchronized (lock) {
+                    consumed++;
+                    lock.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed.
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.net.URI;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+
+import static com.github.ianparkinson.helog.app.JsonRenderer.gson;
+import static com.github.ianparkinson.helog.util.Strings.emptyIfNull;
+
+/**
+ * Formats entries as OpenTelemetry log records, for export with OTLP over HTTP, encoded as JSON.
+ *
+ * <p>Each entry is a log record, timestamped with the time at which it was received. Entries in the debug log have
+ * a severity given by their level, the message as their body, and their {@code id}, {@code name} and {@code type} as
+ * attributes. Events have the severity {@code INFO}, their description, or name and value, as their body, and their
+ * other fields as attributes. Records are exported in batches, each a single request sharing one resource which
+ * identifies the hub; {@link #framing(String)} wraps the records of a batch in that request.
+ */
+public final class OtlpLogs {
+    public static final String CONTENT_TYPE = "application/json";
+
+    /** The severity numbers defined by OpenTelemetry for the start of each range. */
+    private static final int SEVERITY_UNSPECIFIED = 0;
+    private static final int SEVERITY_TRACE = 1;
+    private static final int SEVERITY_DEBUG = 5;
+    private static final int SEVERITY_INFO = 9;
+    private static final int SEVERITY_WARN = 13;
+    private static final int SEVERITY_ERROR = 17;
+
+    private OtlpLogs() {}
+
+    /** The URI to which logs are exported, given the base URI of a collector, such as {@code http://host:4318}. */
+    public static URI logsUri(URI collector) {
+        String base = collector.toString();
+        if (base.endsWith("/v1/logs")) {
+            return collector;
+        }
+        return URI.create((base.endsWith("/") ? base : base + "/") + "v1/logs");
+    }
+
+    /** Joins records into an export request, with a resource identifying {@code hub}. */
+    public static HttpBatchSink.Framing framing(String hub) {
+        JsonArray attributes = new JsonArray();
+        attributes.add(attribute("service.name", "hubitat"));
+        attributes.add(attribute("host.name", hub));
+        JsonObject resource = new JsonObject();
+        resource.add("attributes", attributes);
+        JsonObject scope = new JsonObject();
+        scope.addProperty("name", "helog");
+        return new HttpBatchSink.Framing(
+                "{\"resourceLogs\":[{\"resource\":" + gson.toJson(resource)
+                        + ",\"scopeLogs\":[{\"scope\":" + gson.toJson(scope) + ",\"logRecords\":[",
+                ",",
+                "]}]}]}");
+    }
+
+    /** Formats each entry in the debug log as a log record. */
+    public static JsonStreamFormatter<LogEntry, String> logFormatter() {
+        return (dateTime, entry) -> {
+            JsonObject record = record(dateTime, severityNumber(entry.level),
+                    emptyIfNull(entry.level).toUpperCase(Locale.ROOT), emptyIfNull(entry.msg));
+            JsonArray attributes = new JsonArray();
+            addAttribute(attributes, "id", entry.id);
+            addAttribute(attributes, "name", entry.name);
+            addAttribute(attributes, "type", entry.type);
+            record.add("attributes", attributes);
+            return gson.toJson(record);
+        };
+    }
+
+    /** Formats each event as a log record. */
+    public static JsonStreamFormatter<EventEntry, String> eventFormatter() {
+        return (dateTime, entry) -> {
+            String description = emptyIfNull(entry.descriptionText);
+            String body = description.isEmpty()
+                    ? emptyIfNull(entry.name) + " " + emptyIfNull(entry.value)
+                    : description;
+            JsonObject record = record(dateTime, SEVERITY_INFO, "INFO", body);
+            JsonArray attributes = new JsonArray();
+            addAttribute(attributes, "source", entry.source);
+            addAttribute(attributes, "name", entry.name);
+            addAttribute(attributes, "displayName", entry.displayName);
+            addAttribute(attributes, "value", entry.value);
+            addAttribute(attributes, "type", entry.type);
+            addAttribute(attributes, "unit", entry.unit);
+            addAttribute(attributes, "deviceId", entry.deviceId);
+            addAttribute(attributes, "hubId", entry.hubId);
+            addAttribute(attributes, "installedAppId", entry.installedAppId);
+            record.add("attributes", attributes);
+            return gson.toJson(record);
+        };
+    }
+
+    /**
+     * Describes the records rejected by an export request, given the body of its response, or returns {@code null} if
+     * none were. The collector accepts a request as a whole even when it rejects some of its records.
+     */
+    public static String rejected(String responseBody) {
+        JsonObject response;
+        try {
+            response = gson.fromJson(responseBody, JsonObject.class);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (response == null || !response.has("partialSuccess")) {
+            return null;
+        }
+        JsonObject partialSuccess = response.getAsJsonObject("partialSuccess");
+        long rejected = partialSuccess.has("rejectedLogRecords")
+                ? partialSuccess.get("rejectedLogRecords").getAsLong() : 0;
+        if (rejected == 0) {
+            return null;
+        }
+        String message = partialSuccess.has("errorMessage") ? partialSuccess.get("errorMessage").getAsString() : "";
+        return message.isEmpty() ? rejected + " entries" : rejected + " entries: " + message;
+    }
+
+    /** Maps the level of a debug log entry to the OpenTelemetry severity number. */
+    static int severityNumber(String level) {
+        switch (emptyIfNull(level)) {
+            case "trace":
+                return SEVERITY_TRACE;
+            case "debug":
+                return SEVERITY_DEBUG;
+            case "info":
+                return SEVERITY_INFO;
+            case "warn":
+                return SEVERITY_WARN;
+            case "error":
+                return SEVERITY_ERROR;
+            default:
+                return SEVERITY_UNSPECIFIED;
+        }
+    }
+
+    private static JsonObject record(ZonedDateTime dateTime, int severityNumber, String severityText, String body) {
+        Instant instant = dateTime.toInstant();
+        // 64-bit integers are strings in the JSON encoding of OTLP.
+        String nanos = Long.toString(instant.getEpochSecond() * 1_000_000_000L + instant.getNano());
+        JsonObject record = new JsonObject();
+        record.addProperty("timeUnixNano", nanos);
+        record.addProperty("observedTimeUnixNano", nanos);
+        record.addProperty("severityNumber", severityNumber);
+        if (!severityText.isEmpty()) {
+            record.addProperty("severityText", severityText);
+        }
+        record.add("body", stringValue(body));
+        return record;
+    }
+
+    /** Adds an attribute, unless its value is missing. */
+    private static void addAttribute(JsonArray attributes, String key, String value) {
+        String text = emptyIfNull(value);
+        if (!text.isEmpty()) {
+            attributes.add(attribute(key, text));
+        }
+    }
+
+    private static JsonObject attribute(String key, String value) {
+        JsonObject attribute = new JsonObject();
+        attribute.addProperty("key", key);
+        attribute.add("value", stringValue(value));
+        return attribute;
+    }
+
+    private static JsonObject stringValue(String value) {
+        JsonObject anyValue = new JsonObject();
+        anyValue.addProperty("stringValue", value);
+        return anyValue;
+    }
+}
@@ -0,0 +1,185 @@
+package com.github.ianparkinson.helog.app;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link LineWriter} which writes each line to one of many files in a directory, such as a file for each device.
+ *
+ * <p>Each line names its file, as built by {@link #line(String, String)}. Files are appended to, so that they
+ * accumulate entries across runs, and a header, if given, is written to each file which is empty when opened.
+ *
+ * <p>A buffered writer is held open for each file recently written, up to {@code maxOpen}; beyond that, the writer
+ * used least recently is closed, and reopened if needed, so that thousands of files don't exhaust file descriptors.
+ * Rather than flushing every file whenever the queue empties, a file is flushed once no line has been written to it
+ * for {@link #FLUSH_IDLE_MILLIS}, so that busy files are written in large blocks, and quiet files are still up to date
+ * within a few seconds.
+ *
+ * <p>Not thread-safe.
+ */
+public final class PartitionedFiles implements LineWriter {
+    /** The number of files held open by default. */
+    public static final int DEFAULT_MAX_OPEN = 256;
+    /** How long a file must go without a line before it is flushed. */
+    static final long FLUSH_IDLE_MILLIS = 1000;
+
+    /** Separates the name of the file from the line in each line written; can't appear in a file name. */
+    private static final char SEPARATOR = '/';
+
+    private final Path directory;
+    private final String header;
+    private final int maxOpen;
+    private final Clock clock;
+    /** Open files, least recently written first. */
+    private final LinkedHashMap<String, OpenFile> open;
+    /** Open files which have been written since they were last flushed, least recently written first. */
+    private final Set<OpenFile> unflushed = new LinkedHashSet<>();
+    /** When idle files were last flushed. */
+    private long flushedAtMillis = 0;
+
+    /**
+     * @param directory The directory in which files are written, which is created if necessary.
+     * @param header If not {@code null}, written to each file which is empty when opened, such as a CSV header.
+     * @param maxOpen The most files held open at once.
+     */
+    public PartitionedFiles(Path directory, String header, int maxOpen, Clock clock) throws IOException {
+        if (maxOpen <= 0) {
+            throw new IllegalArgumentException("Invalid maximum open files: " + maxOpen);
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.header = header;
+        this.maxOpen = maxOpen;
+        this.clock = clock;
+        this.open = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Builds a line to be written to {@code file}, in the directory. Characters which aren't safe in file names, such
+     * as separators, are replaced, so that lines can't be written outside the directory.
+     */
+    public static String line(String file, String text) {
+        if (file.isEmpty()) {
+            file = "_";
+        }
+        StringBuilder line = new StringBuilder(file.length() + 1 + text.length());
+        for (int i = 0; i < file.length(); i++) {
+            char c = file.charAt(i);
+            boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || (c == '.' && i > 0);
+            line.append(safe ? c : '_');
+        }
+        return line.append(SEPARATOR).append(text).toString();
+    }
+
+    /** The number of files held open. */
+    int openFiles() {
+        return open.size();
+    }
+
+    @Override
+    public void write(String line) throws IOException {
+        int separator = line.indexOf(SEPARATOR);
+        if (separator <= 0) {
+            throw new IOException("Line without a file: " + line);
+        }
+        String name = line.substring(0, separator);
+        OpenFile file = open.get(name);
+        if (file == null) {
+            file = openFile(name);
+        }
+        file.writer.write(line, separator + 1, line.length() - separator - 1);
+        file.writer.write(System.lineSeparator());
+        long now = clock.millis();
+        file.writtenAtMillis = now;
+        // Re-inserted, so that the least recently written remains first.
+        unflushed.remove(file);
+        unflushed.add(file);
+        if (now - flushedAtMillis >= FLUSH_IDLE_MILLIS) {
+            // The queue may never empty while some files are busy, so flush the others as they fall idle.
+            flush();
+        }
+    }
+
+    private OpenFile openFile(String name) throws IOException {
+        if (open.size() >= maxOpen) {
+            Iterator<OpenFile> eldest = open.values().iterator();
+            OpenFile evicted = eldest.next();
+            eldest.remove();
+            unflushed.remove(evicted);
+            evicted.writer.close();
+        }
+        Path path = directory.resolve(name);
+        Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        OpenFile file = new OpenFile(writer);
+        open.put(name, file);
+        if (header != null && Files.size(path) == 0) {
+            writer.write(header);
+            writer.write(System.lineSeparator());
+        }
+        return file;
+    }
+
+    /** Flushes the files which have been idle for {@link #FLUSH_IDLE_MILLIS}. */
+    @Override
+    public void flush() throws IOException {
+        flushedAtMillis = clock.millis();
+        long idleSince = flushedAtMillis - FLUSH_IDLE_MILLIS;
+        Iterator<OpenFile> files = unflushed.iterator();
+        while (files.hasNext()) {
+            OpenFile file = files.next();
+            if (file.writtenAtMillis > idleSince) {
+                // Later files were written more recently still.
+                break;
+            }
+            file.writer.flush();
+            files.remove();
+        }
+    }
+
+    @Override
+    public void idle() throws IOException {
+        flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        List<OpenFile> files = new ArrayList<>(open.values());
+        open.clear();
+        unflushed.clear();
+        for (OpenFile file : files) {
+            try {
+                file.writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class OpenFile {
+        final Writer writer;
+        long writtenAtMillis = 0;
+
+        OpenFile(Writer writer) {
+            this.writer = writer;
+        }
+    }
+}
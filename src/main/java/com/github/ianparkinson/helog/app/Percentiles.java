@@ -0,0 +1,174 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import com.github.ianparkinson.helog.util.TDigest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.ianparkinson.helog.util.DateTimeFormatters.ISO_OFFSET_DATE_TIME_MILLIS;
+import static com.github.ianparkinson.helog.util.Strings.emptyIfNull;
+import static com.github.ianparkinson.helog.util.Strings.formatDecimal;
+import static com.github.ianparkinson.helog.util.Strings.parseNumber;
+
+/**
+ * {@link Aggregator} which estimates percentiles of numeric event values, and of the time between events, for each
+ * device and event name.
+ *
+ * <p>Each series holds a pair of {@link TDigest}s, so memory is bounded however many events are received. The digests
+ * can be saved to a file and merged with those from a later run, or from another hub.
+ */
+public final class Percentiles implements Aggregator<EventEntry> {
+    /** Identifies a file written by {@link #writeTo}: "HLQS". */
+    private static final int FILE_MAGIC = 0x484c5153;
+    private static final int FILE_VERSION = 1;
+
+    private final JsonStream<EventEntry> jsonStream;
+    private final Map<SeriesKey, Series> series = new LinkedHashMap<>();
+
+    public Percentiles(JsonStream<EventEntry> jsonStream) {
+        this.jsonStream = jsonStream;
+    }
+
+    @Override
+    public synchronized void add(ZonedDateTime dateTime, EventEntry entry) {
+        EntrySource source = jsonStream.source(entry);
+        Series s = series.computeIfAbsent(new SeriesKey(source, entry.name), key -> new Series());
+        s.source = source;
+        s.unit = entry.unit;
+        s.events++;
+
+        Double value = parseNumber(entry.value);
+        if (value != null) {
+            s.values.add(value);
+        }
+        long millis = dateTime.toInstant().toEpochMilli();
+        if (s.hasLastMillis) {
+            s.gaps.add((millis - s.lastMillis) / 1000.0);
+        }
+        s.lastMillis = millis;
+        s.hasLastMillis = true;
+    }
+
+    @Override
+    public synchronized List<String> report(ZonedDateTime now) {
+        List<String> lines = new ArrayList<>(series.size() + 1);
+        lines.add(String.format("%s  percentiles for %d series",
+                ISO_OFFSET_DATE_TIME_MILLIS.format(now), series.size()));
+        for (Map.Entry<SeriesKey, Series> entry : series.entrySet()) {
+            Series s = entry.getValue();
+            StringBuilder line = new StringBuilder()
+                    .append(s.source).append(": ").append(emptyIfNull(entry.getKey().name))
+                    .append(" count=").append(s.events);
+            if (s.values.count() > 0) {
+                String unit = emptyIfNull(s.unit);
+                line.append(" value").append(percentiles(s.values, unit.isEmpty() ? "" : " " + unit));
+            }
+            if (s.gaps.count() > 0) {
+                line.append(" gap").append(percentiles(s.gaps, "s"));
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    private static String percentiles(TDigest digest, String unit) {
+        return String.format(" p50=%s p90=%s p99=%s max=%s%s",
+                formatDecimal(digest.quantile(0.5)),
+                formatDecimal(digest.quantile(0.9)),
+                formatDecimal(digest.quantile(0.99)),
+                formatDecimal(digest.max()),
+                unit);
+    }
+
+    /**
+     * Merges the series saved in {@code file}, by an earlier call to {@link #writeTo}, into this {@link Percentiles}.
+     */
+    public synchronized void readFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                throw new IOException("Not a percentiles file");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                EntrySource source = new EntrySource(readString(in), readString(in), readString(in));
+                String name = readString(in);
+                String unit = readString(in);
+                Series s = series.computeIfAbsent(new SeriesKey(source, name), key -> new Series());
+                if (s.source == null) {
+                    s.source = source;
+                    s.unit = unit;
+                }
+                s.events += in.readLong();
+                s.values.merge(TDigest.readFrom(in));
+                s.gaps.merge(TDigest.readFrom(in));
+            }
+        }
+    }
+
+    /**
+     * Saves every series to {@code file}, so that they can be merged into a later run with {@link #readFrom}. The file
+     * is replaced atomically, so it is never left partly written.
+     */
+    public synchronized void writeTo(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(series.size());
+                for (Map.Entry<SeriesKey, Series> entry : series.entrySet()) {
+                    Series s = entry.getValue();
+                    writeString(out, s.source.type);
+                    writeString(out, s.source.id);
+                    writeString(out, s.source.name);
+                    writeString(out, entry.getKey().name);
+                    writeString(out, s.unit);
+                    out.writeLong(s.events);
+                    s.values.writeTo(out);
+                    s.gaps.writeTo(out);
+                }
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static final class Series {
+        /** The most recent source and unit, reported with the series. */
+        EntrySource source;
+        String unit;
+        long events = 0;
+        final TDigest values = new TDigest();
+        /** Seconds between consecutive events. */
+        final TDigest gaps = new TDigest();
+        long lastMillis;
+        boolean hasLastMillis = false;
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.ianparkinson.helog.app;
+
+import java.io.PrintStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the report from an {@link Aggregator} at a regular interval, and once more when the stream ends.
+ */
+public final class PeriodicReporter implements AutoCloseable {
+    /** ANSI escape sequence which moves the cursor to the top-left, and clears the screen. */
+    private static final String CLEAR_SCREEN = "\u001b[H\u001b[2J";
+
+    private final Aggregator<?> aggregator;
+    private final Clock clock;
+    private final PrintStream out;
+    private final boolean redraw;
+    private final ScheduledExecutorService executor;
+    private boolean closed = false;
+
+    /**
+     * @param redraw If {@code true}, the screen is cleared before each report, so that the report is redrawn in
+     *               place. Should only be set if {@code out} is a terminal supporting ANSI escape sequences.
+     */
+    public PeriodicReporter(Aggregator<?> aggregator, Clock clock, PrintStream out, boolean redraw) {
+        this.aggregator = aggregator;
+        this.clock = clock;
+        this.out = out;
+        this.redraw = redraw;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "helog-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Starts writing reports every {@code interval}. */
+    public void start(Duration interval) {
+        executor.scheduleAtFixedRate(
+                () -> report(redraw), interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a report immediately.
+     *
+     * @param clear Whether to clear the screen first.
+     */
+    public synchronized void report(boolean clear) {
+        if (!closed) {
+            write(clear, aggregator.report(ZonedDateTime.now(clock)));
+        }
+    }
+
+    private void write(boolean clear, List<String> lines) {
+        StringBuilder text = new StringBuilder();
+        if (clear) {
+            text.append(CLEAR_SCREEN);
+        }
+        for (String line : lines) {
+            text.append(line).append(System.lineSeparator());
+        }
+        out.print(text);
+        out.flush();
+    }
+
+    /**
+     * Stops writing reports, and writes a final report. The screen isn't cleared, so that any error which ended the
+     * stream remains visible.
+     */
+    @Override
+    public synchronized void close() {
+        executor.shutdownNow();
+        closed = true;
+        write(false, aggregator.finalReport(ZonedDateTime.now(clock)));
+    }
+}
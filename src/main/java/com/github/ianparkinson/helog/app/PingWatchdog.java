@@ -0,0 +1,132 @@
+package com.github.ianparkinson.helog.app;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+/**
+ * Decides when to ping a websocket, and when a missing response means that the connection has failed, since a
+ * half-open connection to a hub which has hung would otherwise never report an error. Also measures the round trip
+ * time of each ping.
+ *
+ * <p>A ping is sent every {@code interval}. The connection has failed if nothing at all, neither a pong nor any other
+ * message, has been received within {@code timeout} of a ping. A busy connection may delay pongs behind other
+ * messages, so any message is evidence that the connection is alive; but the round trip time is only measured from
+ * pongs.
+ *
+ * <p>While a message is being delivered, between {@link #delivering} and {@link #delivered}, the connection can't time
+ * out: a listener blocked by a slow output stops the websocket from reading, so pongs wait behind it, though the hub
+ * is healthy. The timeout starts again once delivery ends.
+ *
+ * <p>Times are given in nanoseconds, as by {@link System#nanoTime()}. Safe for use from multiple threads.
+ */
+public final class PingWatchdog {
+    private final long intervalNanos;
+    private final long timeoutNanos;
+
+    private long sequence = 0;
+    /** Whether a ping has been sent, and not yet answered by a pong. */
+    private boolean pingOutstanding = false;
+    private long pingSentAt;
+    private boolean received = false;
+    private long receivedAt;
+    /** Whether a message is being delivered to the listener. */
+    private boolean delivering = false;
+
+    private long roundTrips = 0;
+    private long lastRoundTrip;
+    private long minRoundTrip = Long.MAX_VALUE;
+    private long maxRoundTrip = 0;
+    private long sumRoundTrip = 0;
+
+    /**
+     * @param interval The interval between pings.
+     * @param timeout How long to wait for a response to a ping, before treating the connection as failed.
+     * @param startNanos The time at which the connection opened.
+     */
+    public PingWatchdog(Duration interval, Duration timeout, long startNanos) {
+        if (interval.isNegative() || interval.isZero() || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Invalid ping interval or timeout: " + interval + ", " + timeout);
+        }
+        this.intervalNanos = interval.toNanos();
+        this.timeoutNanos = timeout.toNanos();
+        // The first ping is sent one interval after the connection opened.
+        this.pingSentAt = startNanos;
+    }
+
+    /** Records that a message, other than a pong, was received at {@code nanos}. */
+    public synchronized void received(long nanos) {
+        received = true;
+        receivedAt = nanos;
+    }
+
+    /** Records that a message, received at {@code nanos}, is being delivered to the listener. */
+    public synchronized void delivering(long nanos) {
+        received(nanos);
+        delivering = true;
+    }
+
+    /** Records that delivery of a message finished at {@code nanos}. */
+    public synchronized void delivered(long nanos) {
+        delivering = false;
+        received(nanos);
+    }
+
+    /**
+     * Returns the payload of a ping to send at {@code nanos}, or {@code null} if none is due. No further ping is sent
+     * while one is outstanding and nothing has been received since, so that {@link #timedOut} can expire.
+     */
+    public synchronized ByteBuffer ping(long nanos) {
+        if (nanos - pingSentAt < intervalNanos || (pingOutstanding && !receivedSince(pingSentAt))) {
+            return null;
+        }
+        sequence++;
+        pingOutstanding = true;
+        pingSentAt = nanos;
+        ByteBuffer payload = ByteBuffer.allocate(Long.BYTES).putLong(0, sequence);
+        return payload.asReadOnlyBuffer();
+    }
+
+    /** Records that a pong was received at {@code nanos}. Pongs which don't answer the latest ping are ignored. */
+    public synchronized void pong(ByteBuffer payload, long nanos) {
+        received(nanos);
+        if (!pingOutstanding || payload.remaining() != Long.BYTES || payload.getLong(payload.position()) != sequence) {
+            return;
+        }
+        pingOutstanding = false;
+        long roundTrip = nanos - pingSentAt;
+        roundTrips++;
+        lastRoundTrip = roundTrip;
+        minRoundTrip = Math.min(minRoundTrip, roundTrip);
+        maxRoundTrip = Math.max(maxRoundTrip, roundTrip);
+        sumRoundTrip += roundTrip;
+    }
+
+    /**
+     * Whether, at {@code nanos}, the outstanding ping has gone unanswered, with nothing received, for the timeout, and
+     * no message is being delivered.
+     */
+    public synchronized boolean timedOut(long nanos) {
+        return pingOutstanding && !delivering && !receivedSince(pingSentAt) && nanos - pingSentAt >= timeoutNanos;
+    }
+
+    private boolean receivedSince(long nanos) {
+        return received && receivedAt - nanos >= 0;
+    }
+
+    /**
+     * Summarizes the round trip times of the pings answered so far, in milliseconds, or returns {@code null} if none
+     * have been.
+     */
+    public synchronized String roundTrips() {
+        if (roundTrips == 0) {
+            return null;
+        }
+        return String.format("ping round trip last=%d min=%d mean=%d max=%d ms (%d pings)",
+                millis(lastRoundTrip), millis(minRoundTrip), millis(sumRoundTrip / roundTrips), millis(maxRoundTrip),
+                roundTrips);
+    }
+
+    private static long millis(long nanos) {
+        return Duration.ofNanos(nanos).toMillis();
+    }
+}
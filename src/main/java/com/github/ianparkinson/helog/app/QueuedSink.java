@@ -0,0 +1,285 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.util.SpillQueue;
+import picocli.CommandLine.Help.Ansi;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.ianparkinson.helog.app.DeviceWatchdog.formatDuration;
+import static com.github.ianparkinson.helog.util.ErrorMessage.errorMessage;
+
+/**
+ * {@link Sink} which writes lines on its own thread, so that a slow destination, such as a file on a busy disk, doesn't
+ * hold up the stream or any other sink.
+ *
+ * <p>Lines are passed to the writing thread through a bounded queue. If the queue is full, the {@link Policy} decides
+ * what happens: the stream waits for the queue to drain, the line is dropped, or the line is spilled to a
+ * {@link SpillQueue} on disk, to be written once the queue has caught up. Spilled lines are always written after those
+ * queued before them, and before those queued after them, so the order of lines is preserved. While lines are spilled,
+ * the size and age of the backlog are reported to stderr every {@link #REPORT_INTERVAL_MILLIS}.
+ *
+ * <p>Spilled lines outlast the process: if it exits before they are written, they are recovered by the next sink with
+ * the same spill directory, and written before any new lines.
+ */
+public final class QueuedSink implements AsyncSink {
+    /** What to do with a line when the queue is full. */
+    public enum Policy {
+        // Lower-case for use as command-line options
+        block, drop, spill
+    }
+
+    /** The number of lines queued by default. */
+    public static final int DEFAULT_CAPACITY = 10_000;
+    /** The disk space which may be used by spilled lines by default, in megabytes. */
+    public static final int DEFAULT_SPILL_BUDGET_MB = 1024;
+    private static final long POLL_MILLIS = 100;
+    private static final long REPORT_INTERVAL_MILLIS = 10_000;
+
+    private final LineWriter out;
+    private final String name;
+    private final Policy policy;
+    private final Path spillDirectory;
+    private final long spillBudgetBytes;
+    private final Ansi ansi;
+    private final BlockingQueue<String> queue;
+    private final Thread thread;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /** Lines which didn't fit in the queue, created when first needed. Guarded by {@code this}. */
+    private SpillQueue spill = null;
+    /** When the backlog of spilled lines was last reported, or zero if it hasn't been since the spill emptied. */
+    private long reportedAtMillis = 0;
+
+    /**
+     * @param out The destination, which is closed when the sink is closed.
+     * @param name Identifies the destination in error messages, such as its file name.
+     * @param spillDirectory With {@link Policy#spill}, where spilled lines are saved, and recovered from if an earlier
+     *                       sink left lines unwritten.
+     * @param spillBudgetBytes With {@link Policy#spill}, the disk space which may be used by spilled lines; once it
+     *                         is used, further lines are dropped.
+     */
+    public QueuedSink(Writer out, String name, int capacity, Policy policy, Path spillDirectory, long spillBudgetBytes,
+            Ansi ansi) {
+        this(LineWriter.of(out), name, capacity, policy, spillDirectory, spillBudgetBytes, ansi);
+    }
+
+    /** As {@link #QueuedSink(Writer, String, int, Policy, Path, long, Ansi)}, but writes to a {@link LineWriter}. */
+    public QueuedSink(LineWriter out, String name, int capacity, Policy policy, Path spillDirectory,
+            long spillBudgetBytes, Ansi ansi) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.out = out;
+        this.name = name;
+        this.policy = policy;
+        this.spillDirectory = spillDirectory;
+        this.spillBudgetBytes = spillBudgetBytes;
+        this.ansi = ansi;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        if (policy == Policy.spill) {
+            recover();
+        }
+        this.thread = new Thread(this::run, "helog-sink");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Opens {@code file} for writing, replacing any existing content, and writes to it through a queue. With
+     * {@link Policy#spill}, if an earlier sink left spilled lines unwritten, the file is appended to instead, so that
+     * they follow the lines written before them.
+     */
+    public static QueuedSink create(Path file, int capacity, Policy policy, long spillBudgetBytes, Ansi ansi)
+            throws IOException {
+        Path spillDirectory = spillDirectory(file);
+        Writer out = (policy == Policy.spill && SpillQueue.exists(spillDirectory))
+                ? Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                : Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        return new QueuedSink(out, file.toString(), capacity, policy, spillDirectory, spillBudgetBytes, ansi);
+    }
+
+    /** The directory in which lines spilled from {@code file} are saved: hidden, alongside it. */
+    public static Path spillDirectory(Path file) {
+        Path absolute = file.toAbsolutePath();
+        return absolute.resolveSibling("." + absolute.getFileName() + ".spill");
+    }
+
+    /** Opens the spill queue, if an earlier sink left lines in it, so that they are written first. */
+    private void recover() {
+        try {
+            if (SpillQueue.exists(spillDirectory)) {
+                spill = new SpillQueue(spillDirectory, SpillQueue.DEFAULT_SEGMENT_BYTES, spillBudgetBytes);
+            }
+        } catch (IOException e) {
+            errorMessage("Cannot recover lines spilled from " + name, "%s", e.getMessage()).writeToStderr(ansi);
+        }
+    }
+
+    @Override
+    public void write(String line) {
+        if (closed) {
+            return;
+        }
+        switch (policy) {
+            case block:
+                try {
+                    queue.put(line);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                }
+                break;
+            case drop:
+                if (!queue.offer(line)) {
+                    dropped.incrementAndGet();
+                }
+                break;
+            case spill:
+                spill(line);
+                break;
+        }
+    }
+
+    private synchronized void spill(String line) {
+        // Once lines have been spilled, later lines follow them, until the writing thread has caught up.
+        if ((spill == null || spill.isEmpty()) && queue.offer(line)) {
+            return;
+        }
+        try {
+            if (spill == null) {
+                spill = new SpillQueue(spillDirectory, SpillQueue.DEFAULT_SEGMENT_BYTES, spillBudgetBytes);
+            }
+            if (!spill.add(line, System.currentTimeMillis())) {
+                dropped.incrementAndGet();
+            }
+        } catch (IOException e) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /** Takes the next line to write, waiting for up to {@link #POLL_MILLIS}; returns {@code null} if there is none. */
+    private String next() throws InterruptedException {
+        String line = queue.poll();
+        if (line != null) {
+            return line;
+        }
+        synchronized (this) {
+            if (spill != null && !spill.isEmpty()) {
+                return spill.remove();
+            }
+        }
+        return queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Reports the backlog of spilled lines, at most every {@link #REPORT_INTERVAL_MILLIS}, and when it clears. */
+    private void reportBacklog() {
+        String report;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (spill == null || spill.isEmpty()) {
+                if (reportedAtMillis == 0) {
+                    return;
+                }
+                reportedAtMillis = 0;
+                report = String.format("Output to %s has caught up", name);
+            } else {
+                if (now - reportedAtMillis < REPORT_INTERVAL_MILLIS) {
+                    return;
+                }
+                reportedAtMillis = now;
+                report = String.format("Output to %s is behind: %d lines (%.1f MB) spilled to disk, oldest %s ago",
+                        name, spill.size(), spill.bytes() / 1_000_000.0, formatDuration(now - spill.oldestMillis()));
+            }
+        }
+        System.err.println(ansi.string("@|blue " + report + "|@"));
+    }
+
+    private void run() {
+        boolean failed = false;
+        while (true) {
+            String line;
+            reportBacklog();
+            try {
+                line = next();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (line == null) {
+                if (closed && isEmpty()) {
+                    break;
+                }
+                if (!failed) {
+                    try {
+                        out.idle();
+                    } catch (IOException e) {
+                        errorMessage("Cannot write " + name, "%s", e.getMessage()).writeToStderr(ansi);
+                        failed = true;
+                    }
+                }
+                continue;
+            }
+            if (failed) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            try {
+                out.write(line);
+                if (isEmpty()) {
+                    // Caught up, so make the output visible to readers of the file.
+                    out.flush();
+                }
+            } catch (IOException e) {
+                errorMessage("Cannot write " + name, "%s", e.getMessage()).writeToStderr(ansi);
+                dropped.incrementAndGet();
+                failed = true;
+            }
+        }
+        synchronized (this) {
+            if (spill != null) {
+                spill.close();
+            }
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (!failed) {
+                errorMessage("Cannot write " + name, "%s", e.getMessage()).writeToStderr(ansi);
+            }
+        }
+    }
+
+    private synchronized boolean isEmpty() {
+        return queue.isEmpty() && (spill == null || spill.isEmpty());
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public long dropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.ianparkinson.helog.app;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * {@link Aggregator} which merges lines rendered from several streams into the order in which their entries were
+ * received.
+ *
+ * <p>Each stream is received on its own thread, so lines may be added slightly out of order. Each line is held until
+ * {@code delay} after it was received, by which time any line received earlier should also have been added, and then
+ * reported in order of receipt. At most {@code capacity} lines are held; beyond that, the earliest lines are reported
+ * without waiting for the delay.
+ */
+public final class ReorderBuffer implements Aggregator<String> {
+    /** How long lines are held by default, in milliseconds. */
+    public static final int DEFAULT_DELAY_MILLIS = 200;
+    /** The number of lines held by default. */
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final long delayMillis;
+    private final int capacity;
+    private final PriorityQueue<Line> lines = new PriorityQueue<>();
+    /** Lines released early, because {@link #capacity} was exceeded, to be reported by the next report. */
+    private final List<String> released = new ArrayList<>();
+    /** Breaks ties between lines received at the same time, keeping them in the order in which they were added. */
+    private long sequence = 0;
+
+    public ReorderBuffer(Duration delay, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.delayMillis = delay.toMillis();
+        this.capacity = capacity;
+    }
+
+    /** Adds a line, rendered from an entry received at {@code dateTime}. */
+    @Override
+    public synchronized void add(ZonedDateTime dateTime, String line) {
+        lines.add(new Line(dateTime.toInstant().toEpochMilli(), sequence++, line));
+        if (lines.size() > capacity) {
+            released.add(lines.remove().text);
+        }
+    }
+
+    /** Reports, in order, the lines received at least {@code delay} before {@code now}. */
+    @Override
+    public synchronized List<String> report(ZonedDateTime now) {
+        List<String> report = new ArrayList<>(released);
+        released.clear();
+        long cutoff = now.toInstant().toEpochMilli() - delayMillis;
+        while (!lines.isEmpty() && lines.peek().millis <= cutoff) {
+            report.add(lines.remove().text);
+        }
+        return report;
+    }
+
+    /** Reports every line held, in order. */
+    @Override
+    public synchronized List<String> finalReport(ZonedDateTime now) {
+        List<String> report = new ArrayList<>(released);
+        released.clear();
+        while (!lines.isEmpty()) {
+            report.add(lines.remove().text);
+        }
+        return report;
+    }
+
+    /** The number of lines held. */
+    public synchronized int size() {
+        return lines.size() + released.size();
+    }
+
+    private static final class Line implements Comparable<Line> {
+        final long millis;
+        final long sequence;
+        final String text;
+
+        Line(long millis, long sequence, String text) {
+            this.millis = millis;
+            this.sequence = sequence;
+            this.text = text;
+        }
+
+        @Override
+        public int compareTo(Line other) {
+            int result = Long.compare(millis, other.millis);
+            return (result != 0) ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
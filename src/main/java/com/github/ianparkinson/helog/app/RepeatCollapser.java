@@ -0,0 +1,180 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Formats log entries, collapsing bursts of identical entries: those with the same source, level and message.
+ *
+ * <p>The first entry of a burst is written as usual, and later entries are counted rather than written, for a fixed
+ * window starting at the first entry. When the window expires, a line is written with the time of the last entry,
+ * noting how many times the entry was repeated within it, and a new window starts, so that an entry which repeats
+ * without pause is summarized once per window rather than never. A window in which the entry wasn't repeated ends the
+ * burst, so the next identical entry is written as usual.
+ *
+ * <p>Windows expire as entries are formatted, and when {@link #expire} is called, which should be done regularly, such
+ * as by a {@link PeriodicReporter}, so that a summary isn't held back until the next entry arrives.
+ *
+ * <p>At most {@code capacity} bursts are tracked; if more are in progress, the one whose window started first is
+ * ended early.
+ */
+public final class RepeatCollapser implements JsonStreamFormatter<LogEntry, String> {
+    /** The number of bursts tracked by default. */
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final JsonStreamFormatter<LogEntry, String> formatter;
+    private final long windowMillis;
+    private final int capacity;
+    /** Bursts in progress, in the order in which their windows started. */
+    private final LinkedHashMap<Key, Burst> bursts = new LinkedHashMap<>();
+
+    public RepeatCollapser(JsonStreamFormatter<LogEntry, String> formatter, Duration window, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.formatter = formatter;
+        this.windowMillis = window.toMillis();
+        this.capacity = capacity;
+    }
+
+    /**
+     * Formats an entry, preceded by a line for each window which has expired.
+     *
+     * @return The formatted lines, or {@code null} if {@code entry} repeats a burst in progress and no window has
+     *         expired.
+     */
+    @Override
+    public synchronized String format(ZonedDateTime dateTime, LogEntry entry) {
+        long millis = dateTime.toInstant().toEpochMilli();
+        List<String> lines = new ArrayList<>();
+        expire(millis, lines);
+
+        Key key = new Key(entry);
+        Burst burst = bursts.get(key);
+        if (burst != null) {
+            burst.repeats++;
+            burst.lastSeen = dateTime;
+        } else {
+            bursts.put(key, new Burst(entry, millis));
+            lines.add(formatter.format(dateTime, entry));
+            if (bursts.size() > capacity) {
+                Iterator<Burst> iterator = bursts.values().iterator();
+                end(iterator.next(), lines);
+                iterator.remove();
+            }
+        }
+        return lines.isEmpty() ? null : String.join(System.lineSeparator(), lines);
+    }
+
+    /** Returns a line for each window which has expired by {@code now}, for bursts which included repeats. */
+    public synchronized List<String> expire(ZonedDateTime now) {
+        List<String> lines = new ArrayList<>();
+        expire(now.toInstant().toEpochMilli(), lines);
+        return lines;
+    }
+
+    private void expire(long millis, List<String> lines) {
+        List<Map.Entry<Key, Burst>> restarted = new ArrayList<>();
+        Iterator<Map.Entry<Key, Burst>> iterator = bursts.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Burst> next = iterator.next();
+            Burst burst = next.getValue();
+            if (millis - burst.windowStartMillis < windowMillis) {
+                break;
+            }
+            iterator.remove();
+            if (burst.repeats > 0) {
+                end(burst, lines);
+                burst.repeats = 0;
+                burst.windowStartMillis = millis;
+                restarted.add(next);
+            }
+        }
+        // Re-inserted, so that the bursts remain in the order in which their windows started.
+        for (Map.Entry<Key, Burst> next : restarted) {
+            bursts.put(next.getKey(), next.getValue());
+        }
+    }
+
+    /** Ends every burst in progress, returning a line for each which included repeats. */
+    public synchronized List<String> flush() {
+        List<String> lines = new ArrayList<>();
+        for (Burst burst : bursts.values()) {
+            end(burst, lines);
+        }
+        bursts.clear();
+        return lines;
+    }
+
+    private void end(Burst burst, List<String> lines) {
+        if (burst.repeats == 0) {
+            return;
+        }
+        LogEntry summary = new LogEntry();
+        summary.name = burst.entry.name;
+        summary.id = burst.entry.id;
+        summary.time = burst.entry.time;
+        summary.type = burst.entry.type;
+        summary.level = burst.entry.level;
+        summary.msg = String.format("%s (repeated %d more time%s)",
+                burst.entry.msg, burst.repeats, (burst.repeats == 1) ? "" : "s");
+        lines.add(formatter.format(burst.lastSeen, summary));
+    }
+
+    private static final class Key {
+        final String type;
+        final String id;
+        final String level;
+        final String msg;
+        final int hash;
+
+        Key(LogEntry entry) {
+            this.type = entry.type;
+            this.id = entry.id;
+            this.level = entry.level;
+            this.msg = entry.msg;
+            this.hash = Objects.hash(type, id, level, msg);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return this.hash == that.hash
+                    && Objects.equals(this.msg, that.msg)
+                    && Objects.equals(this.id, that.id)
+                    && Objects.equals(this.type, that.type)
+                    && Objects.equals(this.level, that.level);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Burst {
+        /** The first entry of the burst. */
+        final LogEntry entry;
+        long windowStartMillis;
+        /** The last repeat in the current window. */
+        ZonedDateTime lastSeen;
+        /** The number of repeats in the current window. */
+        int repeats = 0;
+
+        Burst(LogEntry entry, long windowStartMillis) {
+            this.entry = entry;
+            this.windowStartMillis = windowStartMillis;
+        }
+    }
+}
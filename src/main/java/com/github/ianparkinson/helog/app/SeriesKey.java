@@ -0,0 +1,28 @@
+package com.github.ianparkinson.helog.app;
+
+import java.util.Objects;
+
+/** Identifies a series of events: those with a given name, from a given device or app. */
+final class SeriesKey {
+    final EntrySource source;
+    final String name;
+
+    SeriesKey(EntrySource source, String name) {
+        this.source = source;
+        this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof SeriesKey)) {
+            return false;
+        }
+        SeriesKey that = (SeriesKey) other;
+        return this.source.equals(that.source) && Objects.equals(this.name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * source.hashCode() + Objects.hashCode(name);
+    }
+}
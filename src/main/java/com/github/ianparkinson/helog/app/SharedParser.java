@@ -0,0 +1,60 @@
+package com.github.ianparkinson.helog.app;
+
+import com.google.gson.JsonSyntaxException;
+
+import java.util.function.Predicate;
+
+/**
+ * Parses and filters each frame once, however many renderers it is passed to, such as when a stream is written to
+ * stdout and to {@code --output} files in different formats.
+ *
+ * <p>{@link StreamPrinter} passes the same {@link Frame} to every renderer in turn, so the result is kept with the
+ * frame, and reused while the frame is rendered. Entries are never modified once parsed, so may be shared between
+ * renderers, and between threads.
+ *
+ * @param <T> Event type representing an entry in the stream.
+ */
+public final class SharedParser<T> {
+    private final JsonStreamParser<T> parser;
+    private final Predicate<T> filter;
+
+    public SharedParser(JsonStreamParser<T> parser, Predicate<T> filter) {
+        this.parser = parser;
+        this.filter = filter;
+    }
+
+    /**
+     * Parses and filters {@code frame}, unless it has already been parsed by this parser.
+     *
+     * @return The entry, or {@code null} if the frame contains no entry, or the entry is filtered out.
+     * @throws JsonSyntaxException If the frame is not valid JSON.
+     */
+    public T parse(Frame frame) throws JsonSyntaxException {
+        Parsed<T> parsed = frame.shared(this, this::parseNow);
+        if (parsed.failure != null) {
+            throw parsed.failure;
+        }
+        return parsed.entry;
+    }
+
+    private Parsed<T> parseNow(Frame frame) {
+        Parsed<T> parsed = new Parsed<>();
+        try {
+            T entry = parser.parse(frame.text);
+            parsed.entry = (entry != null && filter.test(entry)) ? entry : null;
+        } catch (JsonSyntaxException e) {
+            parsed.failure = e;
+        }
+        return parsed;
+    }
+
+    /** Creates a renderer which formats the shared entry with {@code formatter}. */
+    public JsonRenderer<T> renderer(JsonStreamFormatter<T, String> formatter) {
+        return new JsonRenderer<>(this, formatter);
+    }
+
+    private static final class Parsed<T> {
+        T entry;
+        JsonSyntaxException failure;
+    }
+}
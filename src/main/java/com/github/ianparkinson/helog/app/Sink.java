@@ -0,0 +1,9 @@
+package com.github.ianparkinson.helog.app;
+
+/**
+ * Destination for rendered lines of output, such as stdout or a file.
+ */
+public interface Sink {
+    /** Writes one line of output. Called from one thread at a time, in the order in which lines are to appear. */
+    void write(String line);
+}
@@ -0,0 +1,130 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventStateTable.State;
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import com.google.gson.stream.JsonWriter;
+import picocli.CommandLine.Help.Ansi;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ianparkinson.helog.util.ErrorMessage.errorMessage;
+import static com.github.ianparkinson.helog.util.Strings.csvLine;
+
+/**
+ * Writes the contents of an {@link EventStateTable} to a file at a regular interval, and once more when the stream
+ * ends, so that other programs can read the current state of every device.
+ *
+ * <p>The file is written in CSV format if its name ends with {@code .csv}, or as a JSON array otherwise. It is only
+ * written if the state has changed, and is replaced atomically, so that readers never see it partly written.
+ */
+public final class StateFileWriter implements AutoCloseable {
+    private final EventStateTable table;
+    private final JsonStream<EventEntry> jsonStream;
+    private final Path file;
+    private final boolean csv;
+    private final Ansi ansi;
+    private final ScheduledExecutorService executor;
+
+    public StateFileWriter(EventStateTable table, JsonStream<EventEntry> jsonStream, Path file, Ansi ansi) {
+        this.table = table;
+        this.jsonStream = jsonStream;
+        this.file = file.toAbsolutePath();
+        this.csv = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+        this.ansi = ansi;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "helog-state");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Starts writing the file every {@code interval}, if the state has changed. */
+    public void start(Duration interval) {
+        executor.scheduleWithFixedDelay(
+                this::writeIfDirty, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the file now, if the state has changed since it was last written. Failures are reported to stderr, and
+     * the write retried next time.
+     */
+    public synchronized void writeIfDirty() {
+        if (!table.clearDirty()) {
+            return;
+        }
+        try {
+            write(table.snapshot());
+        } catch (IOException e) {
+            table.markDirty();
+            errorMessage("Cannot write " + file, "%s", e.getMessage()).writeToStderr(ansi);
+        }
+    }
+
+    private void write(List<State> states) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                if (csv) {
+                    writeCsv(writer, states);
+                } else {
+                    writeJson(writer, states);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void writeCsv(Writer writer, List<State> states) throws IOException {
+        // The same columns as events written with --csv, except that the first is the time at which the value changed.
+        List<String> header = new ArrayList<>(jsonStream.csvHeader());
+        header.set(0, "changedAt");
+        writer.write(csvLine(header));
+        writer.write(System.lineSeparator());
+        JsonStreamFormatter<EventEntry, List<String>> formatter = jsonStream.csvFormatter();
+        for (State state : states) {
+            writer.write(csvLine(formatter.format(state.changedAt, state.entry)));
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    private void writeJson(Writer writer, List<State> states) throws IOException {
+        // Each object has the same fields as a row of the CSV format.
+        List<String> header = jsonStream.csvHeader();
+        JsonStreamFormatter<EventEntry, List<String>> formatter = jsonStream.csvFormatter();
+        JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.beginArray();
+        for (State state : states) {
+            List<String> values = formatter.format(state.changedAt, state.entry);
+            json.beginObject();
+            json.name("changedAt").value(values.get(0));
+            for (int i = 1; i < header.size(); i++) {
+                json.name(header.get(i)).value(values.get(i));
+            }
+            json.endObject();
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    /** Stops writing periodically, and writes the file once more if the state has changed. */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        writeIfDirty();
+    }
+}
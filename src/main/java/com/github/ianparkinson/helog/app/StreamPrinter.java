@@ -6,23 +6,78 @@ import picocli.CommandLine.Help.Ansi;
 
 import java.net.URI;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.ianparkinson.helog.util.ErrorMessage.errorMessage;
 
 /**
- * Reads a stream of events from a URI, filters them, formats them, and writes them to stdout.
+ * Reads a stream of events from a URI, filters them, formats them, and writes them to stdout, and to any additional
+ * {@link Sink sinks}.
+ *
+ * <p>Received frames may be retained in a {@link FrameBuffer}, so that a consumer attached to a running stream with
+ * {@link Streamer#attach(Renderer, Sink)} is first given the frames it missed.
  */
 public final class StreamPrinter {
+    /** Looks up {@link System#out} for each line, so that it may be replaced. */
+    private static final Sink STDOUT = line -> System.out.println(line);
+
     private final Clock clock;
     private final Ansi ansi;
     private final TextWebSocketClient client;
+    private final FrameBuffer backlog;
+    private final int maxFrameSize;
+    private final OrderedWorkerPool<Runnable> workers;
+    private final List<Attachment> sinks = new CopyOnWriteArrayList<>();
+
+    /** Default limit on the size of a frame, in characters. */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;
+
+    /** When rendering in parallel, the number of frames which may be queued for each thread. */
+    private static final int MAX_PENDING_PER_THREAD = 64;
 
     public StreamPrinter(Clock clock, Ansi ansi, TextWebSocketClient client) {
+        this(clock, ansi, client, DEFAULT_MAX_FRAME_SIZE, 1);
+    }
+
+    public StreamPrinter(Clock clock, Ansi ansi, TextWebSocketClient client, int maxFrameSize, int threads) {
+        this(clock, ansi, client, null, maxFrameSize, threads);
+    }
+
+    /**
+     * @param backlog If not {@code null}, received frames are retained in this buffer, and replayed to consumers
+     *                attached with {@link Streamer#attach(Renderer, Sink)}.
+     * @param maxFrameSize Frames longer than this many characters are discarded, rather than buffered, so that a
+     *                     pathological frame can't exhaust the heap.
+     * @param threads The number of threads used to render frames. If more than one, frames are rendered in
+     *                parallel, and the output restored to the order in which frames were received before it is
+     *                written. Renderers must then be safe for use from multiple threads.
+     */
+    public StreamPrinter(
+            Clock clock, Ansi ansi, TextWebSocketClient client, FrameBuffer backlog, int maxFrameSize, int threads) {
         this.clock = clock;
         this.ansi = ansi;
         this.client = client;
+        this.backlog = backlog;
+        this.maxFrameSize = maxFrameSize;
+        this.workers = (threads > 1) ? new OrderedWorkerPool<>(threads, MAX_PENDING_PER_THREAD * threads, Runnable::run)
+                : null;
+    }
+
+    /**
+     * Adds a destination for the output of every stream subsequently started, in addition to stdout.
+     *
+     * @param renderer Filters and formats the raw data received from the server, for this sink alone.
+     * @param sink Destination for the rendered output. If writing may block, the sink should queue lines, so that it
+     *             doesn't hold up the stream.
+     */
+    public void addSink(Renderer renderer, Sink sink) {
+        sinks.add(new Attachment(renderer, sink));
     }
 
     /**
@@ -47,13 +102,23 @@ public final class StreamPrinter {
         private final Renderer renderer;
 
         private final CountDownLatch errorLatch = new CountDownLatch(1);
-        private StringBuilder builder = new StringBuilder();
+        /**
+         * The sinks added before the stream started, and those attached since. Replaced, rather than modified, when a
+         * sink is attached, so that frames already passed to the workers keep the sinks they were received by.
+         * Guarded by {@code this}.
+         */
+        private List<Attachment> attachments;
+
+        /** Accumulates frames which arrive in several fragments. Reused, so it retains its grown capacity. */
+        private final StringBuilder builder = new StringBuilder();
         private ZonedDateTime dateTime = null;
+        private boolean discardingFrame = false;
 
         private Streamer(URI uri, String header, Renderer renderer) {
             this.uri = uri;
             this.header = header;
             this.renderer = renderer;
+            this.attachments = List.copyOf(sinks);
         }
 
         private void run() {
@@ -68,22 +133,31 @@ public final class StreamPrinter {
 
                 @Override
                 public void onText(CharSequence text, boolean last) {
-                    builder.append(text);
                     if (dateTime == null) {
                         dateTime = ZonedDateTime.now(clock);
                     }
-                    if (last) {
-                        try {
-                            String rendered = renderer.render(dateTime, builder.toString());
-                            if (rendered != null) {
-                                System.out.println(rendered);
-                            }
-                        } catch (JsonSyntaxException e) {
-                            errorMessage("Malformed JSON", "%s", e.getMessage()).writeToStderr(ansi);
-                            System.err.println(text);
+                    if (!discardingFrame && builder.length() + text.length() > maxFrameSize) {
+                        errorMessage("Frame too large", "exceeded %d characters, discarded", maxFrameSize)
+                                .writeToStderr(ansi);
+                        discardingFrame = true;
+                    }
+
+                    if (discardingFrame) {
+                        builder.setLength(0);
+                    } else if (last && builder.length() == 0) {
+                        // The whole frame arrived in one fragment: no need to copy it.
+                        deliver(text);
+                    } else {
+                        builder.append(text);
+                        if (last) {
+                            deliver(builder);
                         }
+                    }
+
+                    if (last) {
+                        builder.setLength(0);
                         dateTime = null;
-                        builder = new StringBuilder();
+                        discardingFrame = false;
                     }
                 }
 
@@ -95,11 +169,119 @@ public final class StreamPrinter {
             });
         }
 
+        private synchronized void deliver(CharSequence text) {
+            if (backlog != null) {
+                backlog.add(dateTime.toInstant(), text);
+            }
+            List<Attachment> targets = attachments;
+            if (workers == null) {
+                Frame frame = new Frame(dateTime, text);
+                render(renderer, STDOUT, frame).run();
+                for (Attachment attachment : targets) {
+                    render(attachment.renderer, attachment.out, frame).run();
+                }
+            } else {
+                // The frame's buffer will be reused before the task runs.
+                Frame frame = new Frame(dateTime, text.toString());
+                try {
+                    workers.submit(() -> {
+                        Runnable primary = render(renderer, STDOUT, frame);
+                        if (targets.isEmpty()) {
+                            return primary;
+                        }
+                        List<Runnable> outputs = new ArrayList<>();
+                        outputs.add(primary);
+                        for (Attachment attachment : targets) {
+                            outputs.add(render(attachment.renderer, attachment.out, frame));
+                        }
+                        return () -> outputs.forEach(Runnable::run);
+                    });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * Renders a frame, returning the action which writes the result. Rendering and writing are separated so that
+         * rendering can take place on a worker thread, while writing takes place in order.
+         */
+        private Runnable render(Renderer renderer, Sink out, Frame frame) {
+            try {
+                String rendered = renderer.render(frame);
+                if (rendered != null) {
+                    return () -> out.write(rendered);
+                } else {
+                    return () -> {};
+                }
+            } catch (JsonSyntaxException e) {
+                String text = frame.text.toString();
+                return () -> {
+                    errorMessage("Malformed JSON", "%s", e.getMessage()).writeToStderr(ansi);
+                    System.err.println(text);
+                };
+            }
+        }
+
         /**
-         * Blocks the current thread until the connection fails.
+         * Attaches an additional consumer to the running stream.
+         *
+         * <p>Any frames retained in the backlog are rendered and written to {@code out} first, followed by frames as
+         * they are received. No frame is missed or duplicated between the two.
+         *
+         * @param renderer Filters and formats the raw data received from the server, for this consumer alone.
+         * @param out Destination for the rendered output.
+         * @return The number of frames replayed from the backlog.
+         */
+        public synchronized int attach(Renderer renderer, Sink out) {
+            int[] replayed = {0};
+            if (backlog != null) {
+                backlog.replay((receivedAt, text) -> {
+                    Frame frame = new Frame(ZonedDateTime.ofInstant(receivedAt, clock.getZone()), text);
+                    render(renderer, out, frame).run();
+                    replayed[0]++;
+                });
+            }
+            List<Attachment> updated = new ArrayList<>(attachments);
+            updated.add(new Attachment(renderer, out));
+            attachments = List.copyOf(updated);
+            return replayed[0];
+        }
+
+        /**
+         * Blocks the current thread until the connection fails, and any frames received beforehand have been written.
          */
         public void waitUntilError() throws InterruptedException {
             errorLatch.await();
+            if (workers != null) {
+                workers.drain();
+            }
+        }
+
+        /**
+         * As {@link #waitUntilError()}, but waits at most {@code timeout} for the connection to fail, so that several
+         * streams can be watched in turn.
+         *
+         * @return Whether the connection failed.
+         */
+        public boolean waitUntilError(Duration timeout) throws InterruptedException {
+            if (!errorLatch.await(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            if (workers != null) {
+                workers.drain();
+            }
+            return true;
+        }
+    }
+
+    private static final class Attachment {
+        final Renderer renderer;
+        final Sink out;
+
+        Attachment(Renderer renderer, Sink out) {
+            this.renderer = renderer;
+            this.out = out;
         }
     }
 
@@ -109,10 +291,19 @@ public final class StreamPrinter {
          * Filter and format an event.
          *
          * @param dateTime The time at which the event was received.
-         * @param text The received event payload.
+         * @param text The received event payload. Only valid for the duration of the call: the underlying buffer is
+         *             reused once the call returns, so implementations must copy it if they need to retain it.
          * @return The event as rendered for output, or {@code null} if the event should not be written.
          * @throws JsonSyntaxException If the event failed to parse.
          */
-        String render(ZonedDateTime dateTime, String text) throws JsonSyntaxException;
+        String render(ZonedDateTime dateTime, CharSequence text) throws JsonSyntaxException;
+
+        /**
+         * Filters and formats a frame. When a frame is rendered by several renderers, such as for stdout and each
+         * {@link Sink}, each is passed the same {@link Frame}, so that they can share work with {@link SharedParser}.
+         */
+        default String render(Frame frame) throws JsonSyntaxException {
+            return render(frame.dateTime, frame.text);
+        }
     }
 }
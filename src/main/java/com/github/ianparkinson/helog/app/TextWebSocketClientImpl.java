@@ -1,49 +1,172 @@
 package com.github.ianparkinson.helog.app;
 
+import com.github.ianparkinson.helog.util.ErrorMessage;
+
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static com.github.ianparkinson.helog.util.ErrorMessage.errorMessage;
 
 public final class TextWebSocketClientImpl implements TextWebSocketClient {
+    /** The longest interval between checks of the {@link PingWatchdog}. */
+    private static final long MAX_CHECK_MILLIS = 1000;
+
+    private final Duration pingInterval;
+    private final Duration pingTimeout;
+    /** The watchdog of each open connection, in the order in which they were made. */
+    private final List<PingWatchdog> watchdogs = new CopyOnWriteArrayList<>();
+    /** Shared by every connection, so that several streams from one hub share a connection pool and threads. */
+    private HttpClient httpClient = null;
+
+    /** Creates a client which doesn't ping, and so only learns that a connection has failed if told so. */
+    public TextWebSocketClientImpl() {
+        this(null, null);
+    }
+
+    /**
+     * @param pingInterval The interval between pings, or {@code null} not to ping.
+     * @param pingTimeout How long to wait for a response to a ping, before treating the connection as failed.
+     */
+    public TextWebSocketClientImpl(Duration pingInterval, Duration pingTimeout) {
+        this.pingInterval = pingInterval;
+        this.pingTimeout = pingTimeout;
+    }
+
+    /**
+     * Summarizes the round trip times of pings over each open connection, or returns {@code null} if none have been
+     * answered.
+     */
+    public String roundTrips() {
+        List<String> summaries = new ArrayList<>();
+        for (PingWatchdog watchdog : watchdogs) {
+            String summary = watchdog.roundTrips();
+            if (summary != null) {
+                summaries.add(summary);
+            }
+        }
+        return summaries.isEmpty() ? null : String.join("; ", summaries);
+    }
+
     @Override
     public void connect(URI uri, Listener listener) {
-        HttpClient client = HttpClient.newHttpClient();
+        HttpClient client = httpClient();
+        // Errors may be reported both by the websocket and by the watchdog; only the first is passed on.
+        AtomicBoolean failed = new AtomicBoolean(false);
+        ScheduledExecutorService executor = (pingInterval == null) ? null
+                : Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "helog-ping");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Each connection has its own watchdog, since one client may open several connections.
+        PingWatchdog watchdog = (pingInterval == null) ? null
+                : new PingWatchdog(pingInterval, pingTimeout, System.nanoTime());
+        Consumer<ErrorMessage> fail = error -> {
+            if (executor != null) {
+                executor.shutdownNow();
+                watchdogs.remove(watchdog);
+            }
+            if (failed.compareAndSet(false, true)) {
+                listener.onError(error);
+            }
+        };
+
         client.newWebSocketBuilder().buildAsync(uri, new WebSocket.Listener() {
             @Override
             public void onOpen(WebSocket webSocket) {
                 listener.onOpen();
+                if (executor != null) {
+                    startWatchdog(webSocket, watchdog, executor, fail);
+                }
                 WebSocket.Listener.super.onOpen(webSocket);
             }
 
             @Override
             public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
-                listener.onText(data, last);
+                if (watchdog == null) {
+                    listener.onText(data, last);
+                    return WebSocket.Listener.super.onText(webSocket, data, last);
+                }
+                // The listener may block, such as on a full output queue; pongs can't be read meanwhile.
+                watchdog.delivering(System.nanoTime());
+                try {
+                    listener.onText(data, last);
+                } finally {
+                    watchdog.delivered(System.nanoTime());
+                }
                 return WebSocket.Listener.super.onText(webSocket, data, last);
             }
 
+            @Override
+            public CompletionStage<?> onPong(WebSocket webSocket, ByteBuffer message) {
+                if (watchdog != null) {
+                    watchdog.pong(message, System.nanoTime());
+                }
+                return WebSocket.Listener.super.onPong(webSocket, message);
+            }
+
             @Override
             public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
-                listener.onError(errorMessage(
+                fail.accept(errorMessage(
                         "WebSocket closed", "%d %s", statusCode, reason));
                 return WebSocket.Listener.super.onClose(webSocket, statusCode, reason);
             }
 
             @Override
             public void onError(WebSocket webSocket, Throwable throwable) {
-                listener.onError(errorMessage(
+                fail.accept(errorMessage(
                         "WebSocket reported error", "%s", throwable.getMessage()));
                 WebSocket.Listener.super.onError(webSocket, throwable);
             }
         }).exceptionally(throwable -> {
             if (throwable == null) {
-                listener.onError(errorMessage("Failed to connect"));
+                fail.accept(errorMessage("Failed to connect"));
             } else {
-                listener.onError(errorMessage("Failed to connect", "%s", throwable.getMessage()));
+                fail.accept(errorMessage("Failed to connect", "%s", throwable.getMessage()));
             }
             return null;
         });
     }
+
+    private synchronized HttpClient httpClient() {
+        if (httpClient == null) {
+            httpClient = HttpClient.newHttpClient();
+        }
+        return httpClient;
+    }
+
+    /**
+     * Pings the websocket periodically, and fails the connection, through the normal error path, if a ping goes
+     * unanswered.
+     */
+    private void startWatchdog(WebSocket webSocket, PingWatchdog watchdog, ScheduledExecutorService executor,
+            Consumer<ErrorMessage> fail) {
+        watchdogs.add(watchdog);
+        long checkMillis = Math.max(1, Math.min(MAX_CHECK_MILLIS, Math.min(
+                pingInterval.toMillis(), pingTimeout.toMillis()) / 2));
+        executor.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            if (watchdog.timedOut(now)) {
+                fail.accept(errorMessage("No response to ping", "within %d ms", pingTimeout.toMillis()));
+                webSocket.abort();
+                return;
+            }
+            ByteBuffer ping = watchdog.ping(now);
+            if (ping != null) {
+                webSocket.sendPing(ping);
+            }
+        }, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+    }
 }
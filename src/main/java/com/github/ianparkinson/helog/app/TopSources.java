@@ -0,0 +1,62 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.HeavyHitters.Hitter;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.ianparkinson.helog.app.HeavyHitters.LONG_WINDOW_SECONDS;
+import static com.github.ianparkinson.helog.app.HeavyHitters.SHORT_WINDOW_SECONDS;
+import static com.github.ianparkinson.helog.util.DateTimeFormatters.ISO_OFFSET_DATE_TIME_MILLIS;
+
+/**
+ * {@link Aggregator} which ranks the devices and apps emitting entries by their recent rate, in the manner of
+ * {@code top}.
+ *
+ * @param <T> Event type representing an entry in the stream.
+ */
+public final class TopSources<T> implements Aggregator<T> {
+    /** The number of sources tracked; with more sources than this, only the busiest are reliably reported. */
+    public static final int DEFAULT_CAPACITY = 1000;
+    /** The number of sources included in each report. */
+    public static final int DEFAULT_ROWS = 20;
+
+    private final JsonStream<T> jsonStream;
+    private final HeavyHitters<EntrySource> hitters;
+    private final int rows;
+
+    /**
+     * @param capacity The number of distinct sources to track.
+     * @param rows The number of sources to include in each report.
+     */
+    public TopSources(JsonStream<T> jsonStream, int capacity, int rows) {
+        this.jsonStream = jsonStream;
+        this.hitters = new HeavyHitters<>(capacity);
+        this.rows = rows;
+    }
+
+    @Override
+    public void add(ZonedDateTime dateTime, T entry) {
+        hitters.add(jsonStream.source(entry), dateTime.toEpochSecond());
+    }
+
+    @Override
+    public List<String> report(ZonedDateTime now) {
+        List<Hitter<EntrySource>> top = hitters.top(rows, now.toEpochSecond());
+        List<String> lines = new ArrayList<>(top.size() + 2);
+        lines.add(String.format("%s  %d entries from %d sources",
+                ISO_OFFSET_DATE_TIME_MILLIS.format(now), hitters.total(), hitters.tracked()));
+        lines.add(String.format("%8s %8s %10s  %s",
+                "rate " + SHORT_WINDOW_SECONDS + "s", "rate " + LONG_WINDOW_SECONDS + "s", "total", "source"));
+        for (Hitter<EntrySource> hitter : top) {
+            lines.add(String.format("%8.2f %8.2f %10s  %s",
+                    (double) hitter.shortWindowCount / SHORT_WINDOW_SECONDS,
+                    (double) hitter.longWindowCount / LONG_WINDOW_SECONDS,
+                    // Counts for sources which replaced an evicted source are approximate.
+                    (hitter.error > 0 ? "~" : "") + hitter.count,
+                    hitter.key));
+        }
+        return lines;
+    }
+}
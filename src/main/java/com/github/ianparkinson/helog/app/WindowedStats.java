@@ -0,0 +1,266 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.github.ianparkinson.helog.util.DateTimeFormatters.ISO_OFFSET_DATE_TIME_MILLIS;
+import static com.github.ianparkinson.helog.util.Strings.csvLine;
+import static com.github.ianparkinson.helog.util.Strings.emptyIfNull;
+import static com.github.ianparkinson.helog.util.Strings.formatDecimal;
+import static com.github.ianparkinson.helog.util.Strings.parseNumber;
+import static java.util.Arrays.asList;
+
+/**
+ * {@link Aggregator} which summarizes numeric event values, such as temperature or power readings, over windows of
+ * time: for each device and event name, the count, minimum, maximum, mean and last value in each window.
+ *
+ * <p>Windows are aligned to multiples of {@code slideSeconds}, and a summary is reported each time a window closes.
+ * If {@code slideSeconds} equals {@code windowSeconds}, windows are tumbling: each event falls into exactly one window.
+ * Otherwise they are sliding, and overlap. Internally, each series holds one pane of statistics per slide, so that
+ * sliding windows are merged from a fixed number of panes rather than by retaining samples.
+ *
+ * <p>Windows are based on the time at which events were received. A window closes once its time has passed, when the
+ * next report is requested or, if sooner, when an event for a later pane arrives, so that the event can't overwrite a
+ * pane which hasn't yet been reported. Values which aren't numeric, such as {@code on} or {@code off}, are ignored.
+ */
+public final class WindowedStats implements Aggregator<EventEntry> {
+    private static final List<String> CSV_HEADER = asList(
+            "windowStart", "windowEnd", "sourceType", "id", "displayName", "name",
+            "count", "min", "max", "mean", "last", "unit");
+
+    private final JsonStream<EventEntry> jsonStream;
+    private final long slideSeconds;
+    private final int panesPerWindow;
+    private final boolean csv;
+
+    /** Statistics for each device and event name, in order of first appearance. */
+    private final Map<SeriesKey, Series> series = new LinkedHashMap<>();
+    /** The index of the earliest pane which hasn't yet been closed, or {@code null} if nothing is pending. */
+    private Long openPane = null;
+    /** Summaries of windows closed by {@link #add}, to be returned by the next report. */
+    private final List<String> closed = new ArrayList<>();
+
+    /**
+     * @param windowSeconds The length of each window; must be a multiple of {@code slideSeconds}.
+     * @param slideSeconds The interval at which windows close.
+     * @param csv Whether to report in CSV format, rather than human-readable format.
+     */
+    public WindowedStats(JsonStream<EventEntry> jsonStream, int windowSeconds, int slideSeconds, boolean csv) {
+        if (slideSeconds <= 0 || windowSeconds % slideSeconds != 0) {
+            throw new IllegalArgumentException("Invalid window: " + windowSeconds + "/" + slideSeconds);
+        }
+        this.jsonStream = jsonStream;
+        this.slideSeconds = slideSeconds;
+        this.panesPerWindow = windowSeconds / slideSeconds;
+        this.csv = csv;
+    }
+
+    /** The header row, used with CSV format. */
+    public static String csvHeader() {
+        return csvLine(CSV_HEADER);
+    }
+
+    @Override
+    public synchronized void add(ZonedDateTime dateTime, EventEntry entry) {
+        Double value = parseNumber(entry.value);
+        if (value == null) {
+            return;
+        }
+        long pane = Math.floorDiv(dateTime.toEpochSecond(), slideSeconds);
+        // The ring of panes holds a single window, so windows before this pane must be closed before it is reused.
+        close(pane, dateTime, closed);
+        if (openPane == null) {
+            openPane = pane;
+        }
+        // An event arriving after its pane was reported is counted in the earliest pane still open.
+        pane = Math.max(pane, openPane);
+
+        EntrySource source = jsonStream.source(entry);
+        series.computeIfAbsent(new SeriesKey(source, entry.name), key -> new Series(panesPerWindow))
+                .add(pane, source, value, entry.value, entry.unit);
+    }
+
+    /** Reports each window which has closed by {@code now}. */
+    @Override
+    public synchronized List<String> report(ZonedDateTime now) {
+        List<String> lines = new ArrayList<>(closed);
+        closed.clear();
+        close(Math.floorDiv(now.toEpochSecond(), slideSeconds), now, lines);
+        return lines;
+    }
+
+    /** Closes each window ending before {@code currentPane}, adding its summary to {@code lines}. */
+    private void close(long currentPane, ZonedDateTime now, List<String> lines) {
+        while (openPane != null && openPane < currentPane) {
+            long end = (openPane + 1) * slideSeconds;
+            summarize(openPane, Instant.ofEpochSecond(end).atZone(now.getZone()), now, lines);
+            openPane++;
+            discardIdleSeries();
+        }
+    }
+
+    /** Reports each window which has closed, and then the partial window ending {@code now}. */
+    @Override
+    public synchronized List<String> finalReport(ZonedDateTime now) {
+        List<String> lines = report(now);
+        if (openPane != null) {
+            summarize(openPane, now, now, lines);
+        }
+        return lines;
+    }
+
+    /** Adds a line to {@code lines} for each series with values in the window ending with {@code lastPane}. */
+    private void summarize(long lastPane, ZonedDateTime end, ZonedDateTime now, List<String> lines) {
+        long firstPane = lastPane - panesPerWindow + 1;
+        ZonedDateTime start = Instant.ofEpochSecond(firstPane * slideSeconds).atZone(now.getZone());
+        for (Map.Entry<SeriesKey, Series> entry : series.entrySet()) {
+            Pane merged = entry.getValue().merge(firstPane, lastPane);
+            if (merged.count > 0) {
+                lines.add(format(start, end, entry.getKey().name, entry.getValue(), merged));
+            }
+        }
+    }
+
+    private void discardIdleSeries() {
+        long firstPane = openPane - panesPerWindow + 1;
+        Iterator<Series> iterator = series.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().latestPane < firstPane) {
+                iterator.remove();
+            }
+        }
+        if (series.isEmpty()) {
+            // Nothing to report until the next numeric event, which will open a new pane.
+            openPane = null;
+        }
+    }
+
+    private String format(ZonedDateTime start, ZonedDateTime end, String name, Series series, Pane pane) {
+        String unit = "null".equals(series.unit) ? null : series.unit;
+        if (csv) {
+            return csvLine(asList(
+                    ISO_OFFSET_DATE_TIME_MILLIS.format(start),
+                    ISO_OFFSET_DATE_TIME_MILLIS.format(end),
+                    series.source.type,
+                    series.source.id,
+                    series.source.name,
+                    name,
+                    Long.toString(pane.count),
+                    pane.minText,
+                    pane.maxText,
+                    formatMean(pane),
+                    pane.lastText,
+                    unit));
+        }
+        return String.format("%s %s: %s count=%d min=%s max=%s mean=%s last=%s%s",
+                ISO_OFFSET_DATE_TIME_MILLIS.format(end),
+                series.source,
+                emptyIfNull(name),
+                pane.count,
+                pane.minText,
+                pane.maxText,
+                formatMean(pane),
+                pane.lastText,
+                (unit == null) ? "" : " " + unit);
+    }
+
+    private static String formatMean(Pane pane) {
+        return formatDecimal(pane.sum / pane.count);
+    }
+
+    /** Statistics for one device and event name: a ring of panes, one per slide. */
+    private static final class Series {
+        final Pane[] panes;
+        long latestPane = Long.MIN_VALUE;
+        /** The most recent source and unit, reported with each summary. */
+        EntrySource source;
+        String unit;
+
+        Series(int paneCount) {
+            panes = new Pane[paneCount];
+            for (int i = 0; i < paneCount; i++) {
+                panes[i] = new Pane();
+            }
+        }
+
+        void add(long index, EntrySource source, double value, String text, String unit) {
+            Pane pane = panes[(int) Math.floorMod(index, (long) panes.length)];
+            if (pane.index != index) {
+                pane.reset(index);
+            }
+            pane.add(value, text);
+            latestPane = Math.max(latestPane, index);
+            this.source = source;
+            this.unit = unit;
+        }
+
+        /** Merges the panes from {@code firstPane} to {@code lastPane} inclusive. */
+        Pane merge(long firstPane, long lastPane) {
+            Pane merged = new Pane();
+            for (long index = firstPane; index <= lastPane; index++) {
+                Pane pane = panes[(int) Math.floorMod(index, (long) panes.length)];
+                if (pane.index == index) {
+                    merged.merge(pane);
+                }
+            }
+            return merged;
+        }
+    }
+
+    /** Count, minimum, maximum, sum and last value over one slide. Values are reported as received. */
+    private static final class Pane {
+        long index = Long.MIN_VALUE;
+        long count;
+        double min;
+        double max;
+        double sum;
+        String minText;
+        String maxText;
+        String lastText;
+
+        void reset(long index) {
+            this.index = index;
+            count = 0;
+            sum = 0;
+        }
+
+        void add(double value, String text) {
+            if (count == 0 || value < min) {
+                min = value;
+                minText = text;
+            }
+            if (count == 0 || value > max) {
+                max = value;
+                maxText = text;
+            }
+            count++;
+            sum += value;
+            lastText = text;
+        }
+
+        /** Merges a later pane into this one. */
+        void merge(Pane other) {
+            if (other.count == 0) {
+                return;
+            }
+            if (count == 0 || other.min < min) {
+                min = other.min;
+                minText = other.minText;
+            }
+            if (count == 0 || other.max > max) {
+                max = other.max;
+                maxText = other.maxText;
+            }
+            count += other.count;
+            sum += other.sum;
+            lastText = other.lastText;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.ianparkinson.helog.cli;
+
+import com.github.ianparkinson.helog.app.ReorderBuffer;
+import com.github.ianparkinson.helog.app.StreamPrinter;
+import picocli.CommandLine.Option;
+
+/**
+ * Encapsulates options which tune how the stream is received and processed.
+ */
+public final class AdvancedOptions {
+    @Option(names = "--max-frame-size",
+            paramLabel = "<chars>",
+            description = "Discard any message from the Hubitat Elevation longer than this many characters. " +
+                    "Default: ${DEFAULT-VALUE}.")
+    public int maxFrameSize = StreamPrinter.DEFAULT_MAX_FRAME_SIZE;
+
+    @Option(names = "--threads",
+            paramLabel = "<n>",
+            description = "Number of threads used to parse, filter and format messages. Output is always written in " +
+                    "the order in which messages were received. Default: ${DEFAULT-VALUE}.")
+    public int threads = 1;
+
+    @Option(names = "--ping-interval",
+            paramLabel = "<seconds>",
+            description = "Interval between pings sent to the Hubitat Elevation, to detect a connection which has " +
+                    "silently failed. Zero disables pings. Default: ${DEFAULT-VALUE}.")
+    public int pingInterval = 30;
+
+    @Option(names = "--ping-timeout",
+            paramLabel = "<seconds>",
+            description = "Treat the connection as failed if nothing is received for this long after a ping. " +
+                    "Default: ${DEFAULT-VALUE}.")
+    public int pingTimeout = 10;
+
+    @Option(names = "--lateness",
+            paramLabel = "<millis>",
+            description = "When merging several streams, hold each entry for this long, so that entries received " +
+                    "slightly later on another stream can be written first. Default: ${DEFAULT-VALUE}.")
+    public int lateness = ReorderBuffer.DEFAULT_DELAY_MILLIS;
+
+    @Option(names = "--backlog",
+            paramLabel = "<megabytes>",
+            description = "Write nothing to stdout until Enter is pressed, but keep the most recent messages, using " +
+                    "at most this much memory; then write them, followed by messages as they arrive.")
+    public int backlog = 0;
+
+    /** The largest {@link #backlog}, which is held in a single buffer. */
+    private static final int MAX_BACKLOG_MB = 2047;
+
+    /** The memory used to keep messages for {@code --backlog}, in bytes, or zero if they aren't kept. */
+    public int backlogBytes() {
+        return backlog * 1024 * 1024;
+    }
+
+    public void validate(Stream stream, FormatOptions formatOptions, SummaryOptions summaryOptions)
+            throws ParameterValidationException {
+        if (maxFrameSize <= 0) {
+            throw new ParameterValidationException("--max-frame-size must be positive");
+        }
+        if (threads <= 0) {
+            throw new ParameterValidationException("--threads must be positive");
+        }
+        if (pingInterval < 0) {
+            throw new ParameterValidationException("--ping-interval cannot be negative");
+        }
+        if (pingTimeout <= 0) {
+            throw new ParameterValidationException("--ping-timeout must be positive");
+        }
+        if (lateness < 0) {
+            throw new ParameterValidationException("--lateness cannot be negative");
+        }
+        if (backlog < 0 || backlog > MAX_BACKLOG_MB) {
+            throw new ParameterValidationException("--backlog must be between 0 and " + MAX_BACKLOG_MB);
+        }
+        if (backlog > 0) {
+            if (stream == Stream.all) {
+                throw new ParameterValidationException("--backlog cannot be used with " + stream);
+            }
+            if (formatOptions.top || formatOptions.percentiles || formatOptions.latency || formatOptions.templates
+                    || summaryOptions.window != null || summaryOptions.watchdog) {
+                throw new ParameterValidationException("--backlog cannot be used with summaries");
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.ianparkinson.helog.cli;
+
+import picocli.CommandLine.Option;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Encapsulates options for saving entries to, and reading them from, a compact binary archive.
+ */
+public final class ArchiveOptions {
+    @Option(names = "--archive",
+            paramLabel = "<file>",
+            description = "Also save each entry to this file, in a compact binary format which can be read with " +
+                    "@|yellow --replay|@. Only supported by @|bold log|@.")
+    public Path archive;
+
+    @Option(names = "--replay",
+            paramLabel = "<file>",
+            description = "Instead of connecting to the Hubitat Elevation, read entries from a file written with " +
+                    "@|yellow --archive|@. May be repeated, to merge several files in the order in which their " +
+                    "entries were received. Only supported by @|bold log|@.")
+    public List<Path> replay;
+
+    public void validate(Stream stream, FormatOptions formatOptions, SummaryOptions summaryOptions,
+            AdvancedOptions advancedOptions) throws ParameterValidationException {
+        if (archive != null) {
+            enforce(stream == Stream.log, "--archive cannot be used with " + stream);
+            enforce(!formatOptions.raw, "--archive cannot be used with --raw");
+            enforce(advancedOptions.threads == 1, "--archive cannot be used with --threads");
+            enforce(replay == null, "--archive cannot be used with --replay");
+            // Entries are archived as they are written to stdout, which --backlog withholds.
+            enforce(advancedOptions.backlog == 0, "--archive cannot be used with --backlog");
+        }
+        if (replay != null) {
+            enforce(stream == Stream.log, "--replay cannot be used with " + stream);
+            enforce(!formatOptions.raw, "--replay cannot be used with --raw");
+            enforce(!formatOptions.top && !formatOptions.percentiles && !formatOptions.latency
+                    && !formatOptions.templates && summaryOptions.window == null,
+                    "--replay cannot be used with summaries");
+            enforce(advancedOptions.backlog == 0, "--replay cannot be used with --backlog");
+        }
+    }
+
+    private void enforce(boolean condition, String message) throws ParameterValidationException {
+        if (!condition) {
+            throw new ParameterValidationException(message);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.ianparkinson.helog.cli;
+
+import com.github.ianparkinson.helog.app.HttpBatchSink.Settings;
+import picocli.CommandLine.Option;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Encapsulates options for exporting entries to other systems over HTTP, in addition to writing them to stdout.
+ */
+public final class ExportOptions {
+    public static final String DEFAULT_INFLUXDB_BUCKET = "helog";
+
+    @Option(names = "--elasticsearch",
+            paramLabel = "<url>",
+            description = "Also index entries into the Elasticsearch or OpenSearch cluster at this URL, such as " +
+                    "@|yellow http://localhost:9200|@, through its bulk API. Not supported by @|bold all|@.")
+    public URI elasticsearch;
+
+    @Option(names = "--index",
+            paramLabel = "<name>",
+            description = "With @|yellow --elasticsearch|@, the index into which entries are written. " +
+                    "Default: helog-log or helog-events.")
+    public String index;
+
+    @Option(names = "--influxdb",
+            paramLabel = "<url>",
+            description = "Also write numeric events as points to the InfluxDB server at this URL, such as " +
+                    "@|yellow http://localhost:8086|@, through its write API. Only supported by @|bold events|@.")
+    public URI influxdb;
+
+    @Option(names = "--influxdb-org",
+            paramLabel = "<org>",
+            description = "With @|yellow --influxdb|@, the organization which owns the bucket.")
+    public String influxdbOrg;
+
+    @Option(names = "--influxdb-bucket",
+            paramLabel = "<bucket>",
+            description = "With @|yellow --influxdb|@, the bucket into which points are written. " +
+                    "Default: ${DEFAULT-VALUE}.")
+    public String influxdbBucket = DEFAULT_INFLUXDB_BUCKET;
+
+    @Option(names = "--influxdb-token",
+            paramLabel = "<token>",
+            defaultValue = "${env:INFLUX_TOKEN}",
+            description = "With @|yellow --influxdb|@, the API token with which points are written. " +
+                    "Default: the environment variable INFLUX_TOKEN.")
+    public String influxdbToken;
+
+    @Option(names = "--otlp",
+            paramLabel = "<url>",
+            description = "Also export entries as OpenTelemetry log records to the collector at this URL, such as " +
+                    "@|yellow http://localhost:4318|@, using OTLP over HTTP.")
+    public URI otlp;
+
+    @Option(names = "--otlp-header",
+            paramLabel = "<name>=<value>",
+            description = "With @|yellow --otlp|@, a header added to each request, such as for authorization. " +
+                    "May be repeated.")
+    public Map<String, String> otlpHeaders;
+
+    @Option(names = "--batch-size",
+            paramLabel = "<entries>",
+            description = "Export entries in batches of at most this many. Default: ${DEFAULT-VALUE}.")
+    public int batchSize = Settings.DEFAULT_MAX_COUNT;
+
+    @Option(names = "--batch-bytes",
+            paramLabel = "<bytes>",
+            description = "Export entries in batches of at most this many bytes, before compression. " +
+                    "Default: ${DEFAULT-VALUE}.")
+    public int batchBytes = Settings.DEFAULT_MAX_BYTES;
+
+    @Option(names = "--batch-delay",
+            paramLabel = "<millis>",
+            description = "Export a batch once its first entry has waited this long, even if it isn't full. " +
+                    "Default: ${DEFAULT-VALUE}.")
+    public int batchDelay = Settings.DEFAULT_MAX_DELAY_MILLIS;
+
+    @Option(names = "--max-in-flight",
+            paramLabel = "<requests>",
+            description = "The most export requests outstanding at once. Default: ${DEFAULT-VALUE}.")
+    public int maxInFlight = Settings.DEFAULT_MAX_IN_FLIGHT;
+
+    @Option(names = "--max-retries",
+            paramLabel = "<n>",
+            description = "Retry a failed export request, with increasing delays, at most this many times. " +
+                    "Default: ${DEFAULT-VALUE}.")
+    public int maxRetries = Settings.DEFAULT_MAX_RETRIES;
+
+    @Option(names = "--no-compress",
+            description = "Don't compress export requests with gzip.")
+    public boolean noCompress;
+
+    /** Whether entries are exported anywhere. */
+    public boolean exports() {
+        return elasticsearch != null || influxdb != null || otlp != null;
+    }
+
+    public Settings settings() {
+        return new Settings(batchSize, batchBytes, Duration.ofMillis(batchDelay), maxInFlight, maxRetries, !noCompress);
+    }
+
+    public void validate(Stream stream, ArchiveOptions archiveOptions) throws ParameterValidationException {
+        if (elasticsearch != null) {
+            enforce(isHttp(elasticsearch), "--elasticsearch must be an http or https URL");
+        }
+        if (index != null) {
+            enforce(elasticsearch != null, "--index can only be used with --elasticsearch");
+            enforce(!index.isEmpty() && index.equals(index.toLowerCase(Locale.ROOT)),
+                    "--index must be a lower-case name");
+        }
+        if (influxdb != null) {
+            enforce(isHttp(influxdb), "--influxdb must be an http or https URL");
+            enforce(stream == Stream.events, "--influxdb can only be used with events");
+            enforce(!influxdbBucket.isEmpty(), "--influxdb-bucket cannot be empty");
+        } else {
+            enforce(influxdbOrg == null, "--influxdb-org can only be used with --influxdb");
+            enforce(influxdbBucket.equals(DEFAULT_INFLUXDB_BUCKET),
+                    "--influxdb-bucket can only be used with --influxdb");
+        }
+        if (otlp != null) {
+            enforce(isHttp(otlp), "--otlp must be an http or https URL");
+        }
+        enforce(otlpHeaders == null || otlp != null, "--otlp-header can only be used with --otlp");
+        if (exports()) {
+            enforce(stream != Stream.all, "Exports cannot be used with " + stream);
+            enforce(archiveOptions.replay == null, "Exports cannot be used with --replay");
+        }
+        enforce(batchSize > 0, "--batch-size must be positive");
+        enforce(batchBytes > 0, "--batch-bytes must be positive");
+        enforce(batchDelay > 0, "--batch-delay must be positive");
+        enforce(maxInFlight > 0, "--max-in-flight must be positive");
+        enforce(maxRetries >= 0, "--max-retries cannot be negative");
+    }
+
+    private static boolean isHttp(URI uri) {
+        return ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))
+                && uri.getHost() != null;
+    }
+
+    private void enforce(boolean condition, String message) throws ParameterValidationException {
+        if (!condition) {
+            throw new ParameterValidationException(message);
+        }
+    }
+}
@@ -84,7 +84,13 @@ public final class FilterOptions {
             enforce(excludeName == null, "--xname cannot be used with log");
         }
 
-        if (stream == Stream.events) {
+        if (stream == Stream.all) {
+            // Names are only found in events, and levels only in the log.
+            enforce(name == null && excludeName == null, "--name and --xname cannot be used with all");
+            enforce(level == null && excludeLevel == null, "--level and --xlevel cannot be used with all");
+        }
+
+        if (stream == Stream.events || stream == Stream.all) {
             enforce(stream(app).allMatch(Strings::isInteger),
                     "Events cannot be filtered by app name. Use the numeric id instead.");
             enforce(stream(excludeApp).allMatch(Strings::isInteger),
@@ -13,4 +13,45 @@ public final class FormatOptions {
     @Option(names = "--csv",
             description = "Render the stream in CSV format")
     public boolean csv;
+
+    @Option(names = "--top",
+            description = "Instead of writing each entry, periodically show the devices and apps emitting the most " +
+                    "entries, ranked by their rate over the last minute.")
+    public boolean top;
+
+    @Option(names = "--percentiles",
+            description = "Instead of writing each event, periodically show percentiles of numeric values, and of " +
+                    "the time between events, for each device and event name. Only supported by @|bold events|@.")
+    public boolean percentiles;
+
+    @Option(names = "--latency",
+            description = "Instead of writing each entry, periodically show the delay between the hub logging each " +
+                    "entry and its arrival, and the offset between the hub's clock and the local clock. Only " +
+                    "supported by @|bold log|@.")
+    public boolean latency;
+
+    @Option(names = "--templates",
+            description = "Instead of writing each entry, periodically show the message templates seen so far, such " +
+                    "as @|italic Heater temperature <*> C|@, with the number of entries matching each. Only " +
+                    "supported by @|bold log|@.")
+    public boolean templates;
+
+    @Option(names = "--new-templates",
+            description = "Only write entries whose message doesn't match any template seen before. Only supported " +
+                    "by @|bold log|@.")
+    public boolean newTemplates;
+
+    public void validate(Stream stream) throws ParameterValidationException {
+        if (stream == Stream.all) {
+            // The two streams have different columns, and are summarized differently.
+            enforce(!csv, "--csv cannot be used with all");
+            enforce(!top, "--top cannot be used with all");
+        }
+    }
+
+    private void enforce(boolean condition, String message) throws ParameterValidationException {
+        if (!condition) {
+            throw new ParameterValidationException(message);
+        }
+    }
 }
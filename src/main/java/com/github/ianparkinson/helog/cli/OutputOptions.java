@@ -0,0 +1,142 @@
+package com.github.ianparkinson.helog.cli;
+
+import com.github.ianparkinson.helog.app.PartitionedFiles;
+import com.github.ianparkinson.helog.app.QueuedSink;
+import picocli.CommandLine.Option;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encapsulates options for writing the stream to files, in addition to stdout.
+ */
+public final class OutputOptions {
+    /** The formats in which an output file may be written. */
+    public enum Format {
+        // Lower-case for use as command-line options
+        raw, human, csv, influx
+    }
+
+    @Option(names = "--output",
+            paramLabel = "<format>:<file>",
+            description = "Also write entries to this file, in the format @|yellow raw|@, @|yellow human|@, " +
+                    "@|yellow csv|@ or, for @|bold events|@, InfluxDB line protocol as @|yellow influx|@, " +
+                    "independently of the output to stdout. May be repeated. Not supported by @|bold all|@.")
+    public List<String> outputs;
+
+    @Option(names = "--output-by-source",
+            paramLabel = "<format>:<directory>",
+            description = "Also write entries to a file in this directory for each device or app, such as " +
+                    "@|yellow dev-36.log|@, in the format @|yellow human|@ or @|yellow csv|@, appending to existing " +
+                    "files. May be repeated. Not supported by @|bold all|@.")
+    public List<String> bySource;
+
+    @Option(names = "--max-open-files",
+            paramLabel = "<files>",
+            description = "With @|yellow --output-by-source|@, the most files held open in each directory; the " +
+                    "least recently written are closed beyond this. Default: ${DEFAULT-VALUE}.")
+    public int maxOpenFiles = PartitionedFiles.DEFAULT_MAX_OPEN;
+
+    @Option(names = "--output-policy",
+            paramLabel = "<policy>",
+            description = "What to do when an output file can't keep up with the stream: @|yellow block|@ the " +
+                    "stream until it catches up, @|yellow drop|@ entries, or @|yellow spill|@ them to disk alongside " +
+                    "it, to be written once it catches up, or by the next run if helog exits first. " +
+                    "Default: ${DEFAULT-VALUE}.")
+    public QueuedSink.Policy policy = QueuedSink.Policy.block;
+
+    @Option(names = "--output-queue",
+            paramLabel = "<lines>",
+            description = "Number of lines queued for each output file before @|yellow --output-policy|@ applies. " +
+                    "Default: ${DEFAULT-VALUE}.")
+    public int queue = QueuedSink.DEFAULT_CAPACITY;
+
+    @Option(names = "--spill-budget",
+            paramLabel = "<megabytes>",
+            description = "With @|yellow --output-policy=spill|@, the most disk space used by entries spilled from " +
+                    "each output file; beyond this, entries are dropped. Default: ${DEFAULT-VALUE}.")
+    public int spillBudget = QueuedSink.DEFAULT_SPILL_BUDGET_MB;
+
+    /** An output file, and the format in which it is written. */
+    public static final class Output {
+        public final Format format;
+        /** The file or, if {@link #bySource}, the directory of files. */
+        public final Path file;
+        /** Whether entries are written to a file for each device or app, in the directory {@link #file}. */
+        public final boolean bySource;
+
+        public Output(Format format, Path file, boolean bySource) {
+            this.format = format;
+            this.file = file;
+            this.bySource = bySource;
+        }
+    }
+
+    public void validate(Stream stream, ArchiveOptions archiveOptions) throws ParameterValidationException {
+        if (outputs == null && bySource == null) {
+            return;
+        }
+        String option = (outputs == null) ? "--output-by-source" : "--output";
+        enforce(stream != Stream.all, option + " cannot be used with " + stream);
+        enforce(archiveOptions.replay == null, option + " cannot be used with --replay");
+        enforce(queue > 0, "--output-queue must be positive");
+        enforce(spillBudget > 0, "--spill-budget must be positive");
+        enforce(maxOpenFiles > 0, "--max-open-files must be positive");
+        for (Output output : parse()) {
+            enforce(output.format != Format.influx || stream == Stream.events,
+                    "--output=influx can only be used with events");
+            enforce(!output.bySource || output.format == Format.human || output.format == Format.csv,
+                    "--output-by-source can only be used with the format human or csv");
+        }
+    }
+
+    /** The disk space which may be used by entries spilled from each output file, in bytes. */
+    public long spillBudgetBytes() {
+        return spillBudget * 1024L * 1024L;
+    }
+
+    /** The output files and directories given, once validated. */
+    public List<Output> parse() throws ParameterValidationException {
+        List<Output> result = new ArrayList<>();
+        if (outputs != null) {
+            for (String output : outputs) {
+                result.add(parse("--output", "<file>", output, false));
+            }
+        }
+        if (bySource != null) {
+            for (String output : bySource) {
+                result.add(parse("--output-by-source", "<directory>", output, true));
+            }
+        }
+        return result;
+    }
+
+    private Output parse(String option, String fileLabel, String output, boolean bySource)
+            throws ParameterValidationException {
+        int colon = output.indexOf(':');
+        enforce(colon > 0 && colon < output.length() - 1,
+                "Invalid value '" + output + "' for " + option + ": should have the format <format>:" + fileLabel);
+        String format = output.substring(0, colon);
+        Format parsed = null;
+        for (Format candidate : Format.values()) {
+            if (candidate.name().equals(format)) {
+                parsed = candidate;
+            }
+        }
+        enforce(parsed != null,
+                "Invalid format '" + format + "' for " + option + ": should be raw, human, csv or influx");
+        try {
+            return new Output(parsed, Path.of(output.substring(colon + 1)), bySource);
+        } catch (InvalidPathException e) {
+            throw new ParameterValidationException("Invalid file for " + option + ": " + e.getMessage());
+        }
+    }
+
+    private void enforce(boolean condition, String message) throws ParameterValidationException {
+        if (!condition) {
+            throw new ParameterValidationException(message);
+        }
+    }
+}
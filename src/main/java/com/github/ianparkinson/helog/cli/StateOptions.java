@@ -0,0 +1,75 @@
+package com.github.ianparkinson.helog.cli;
+
+import picocli.CommandLine.Option;
+
+import java.nio.file.Path;
+
+/**
+ * Encapsulates options which remember earlier entries: to track the current state of each device, as reported by the
+ * events stream, or to collapse repeated log entries.
+ */
+public final class StateOptions {
+    @Option(names = "--changes",
+            description = "Only write events whose value differs from the previous event with the same name from " +
+                    "the same device or app. The latest state of each is written on exit, or when @|bold Enter|@ " +
+                    "is pressed. Only supported by @|bold events|@.")
+    public boolean changes;
+
+    @Option(names = "--state-file",
+            paramLabel = "<file>",
+            description = "Keep this file up to date with the latest state of each device and app, in CSV format if " +
+                    "its name ends with @|yellow .csv|@, otherwise in JSON. Only supported by @|bold events|@.")
+    public Path stateFile;
+
+    @Option(names = "--state-interval",
+            paramLabel = "<seconds>",
+            description = "Interval at which @|yellow --state-file|@ is written, if the state has changed. " +
+                    "Default: ${DEFAULT-VALUE}.")
+    public int stateInterval = 10;
+
+    @Option(names = "--collapse",
+            paramLabel = "<seconds>",
+            description = "Write repeated log entries, with the same source, level and message, only once, followed " +
+                    "by a count of repeats this long after the first, and after each further period in which the " +
+                    "entry is repeated. Only supported by @|bold log|@.")
+    public Integer collapse;
+
+    /** Whether the state of each device and app needs to be tracked. */
+    public boolean tracksState() {
+        return changes || stateFile != null;
+    }
+
+    public void validate(Stream stream, FormatOptions formatOptions, SummaryOptions summaryOptions,
+            AdvancedOptions advancedOptions) throws ParameterValidationException {
+        enforce(stateInterval > 0, "--state-interval must be positive");
+        if (tracksState()) {
+            String option = changes ? "--changes" : "--state-file";
+            enforce(stream == Stream.events, option + " cannot be used with " + stream);
+            enforce(!formatOptions.raw, option + " cannot be used with --raw");
+            enforce(!formatOptions.top && !formatOptions.percentiles && summaryOptions.window == null
+                    && !summaryOptions.watchdog,
+                    option + " cannot be used with summaries");
+            // Events must be compared in the order in which they were received.
+            enforce(advancedOptions.threads == 1, option + " cannot be used with --threads");
+            // Replaying the backlog would apply its events to the state a second time.
+            enforce(advancedOptions.backlog == 0, option + " cannot be used with --backlog");
+        }
+        if (collapse != null) {
+            enforce(stream == Stream.log, "--collapse cannot be used with " + stream);
+            enforce(collapse > 0, "--collapse must be positive");
+            enforce(!formatOptions.raw && !formatOptions.csv && !formatOptions.newTemplates,
+                    "--collapse can only be used with the default output format");
+            enforce(!formatOptions.top && !formatOptions.latency && !formatOptions.templates,
+                    "--collapse cannot be used with summaries");
+            // Repeats must be counted in the order in which entries were received.
+            enforce(advancedOptions.threads == 1, "--collapse cannot be used with --threads");
+            enforce(advancedOptions.backlog == 0, "--collapse cannot be used with --backlog");
+        }
+    }
+
+    private void enforce(boolean condition, String message) throws ParameterValidationException {
+        if (!condition) {
+            throw new ParameterValidationException(message);
+        }
+    }
+}
@@ -10,8 +10,11 @@ import com.github.ianparkinson.helog.app.LogJsonStream;
 public enum Stream {
     // Lower-case for use as command-line options
     log(new LogJsonStream()),
-    events(new EventsJsonStream());
+    events(new EventsJsonStream()),
+    /** Both {@link #log} and {@link #events}, merged in the order in which entries were received. */
+    all(null);
 
+    /** Parses and formats the stream, or {@code null} for {@link #all}, which combines the others. */
     public final JsonStream<?> jsonStream;
 
     Stream(JsonStream<?> jsonStream) {
@@ -0,0 +1,101 @@
+package com.github.ianparkinson.helog.cli;
+
+import picocli.CommandLine.Option;
+
+import java.nio.file.Path;
+
+/**
+ * Encapsulates options controlling summaries, such as {@code --top}, which are written periodically instead of
+ * writing each entry.
+ */
+public final class SummaryOptions {
+    @Option(names = "--interval",
+            paramLabel = "<seconds>",
+            description = "Interval between summaries. Default: ${DEFAULT-VALUE}.")
+    public int interval = 5;
+
+    @Option(names = "--window",
+            paramLabel = "<seconds>",
+            description = "Instead of writing each event, summarize numeric values (count, min, max, mean and last) " +
+                    "for each device and event name over windows of this length. Only supported by @|bold events|@.")
+    public Integer window;
+
+    @Option(names = "--slide",
+            paramLabel = "<seconds>",
+            description = "Write a summary for the last @|yellow --window|@ seconds at this interval, so that " +
+                    "windows overlap. Must divide the window length. Default: the window length.")
+    public Integer slide;
+
+    @Option(names = "--watchdog",
+            description = "Instead of writing each event, write a line when a device stops sending events, and when " +
+                    "it starts again. Only supported by @|bold events|@.")
+    public boolean watchdog;
+
+    @Option(names = "--silent-after",
+            paramLabel = "<seconds>",
+            description = "With @|yellow --watchdog|@, treat a device as silent after this long without events. " +
+                    "Default: learned for each device from the gaps between its events.")
+    public Integer silentAfter;
+
+    @Option(names = "--sketch-file",
+            paramLabel = "<file>",
+            description = "With @|yellow --percentiles|@, merge the statistics saved in this file, if it exists, and " +
+                    "save the combined statistics to it on exit.")
+    public Path sketchFile;
+
+    /** The interval at which windows close. */
+    public int slide() {
+        return (slide == null) ? window : slide;
+    }
+
+    public void validate(Stream stream, FormatOptions formatOptions, AdvancedOptions advancedOptions)
+            throws ParameterValidationException {
+        enforce(interval > 0, "--interval must be positive");
+        if (window != null) {
+            enforce(stream == Stream.events, "--window cannot be used with " + stream);
+            enforce(!formatOptions.raw, "--window cannot be used with --raw");
+            enforce(!formatOptions.top, "--window cannot be used with --top");
+            enforce(!formatOptions.latency, "--window cannot be used with --latency");
+            enforce(!formatOptions.templates, "--window cannot be used with --templates");
+            enforce(!formatOptions.newTemplates, "--window cannot be used with --new-templates");
+            enforce(window > 0, "--window must be positive");
+            // The last value in each window must be the one received last.
+            enforce(advancedOptions.threads == 1, "--window cannot be used with --threads");
+        }
+        if (formatOptions.percentiles) {
+            enforce(stream == Stream.events, "--percentiles cannot be used with " + stream);
+            enforce(window == null, "--window cannot be used with --percentiles");
+            // Gaps are measured between events in the order in which they were received.
+            enforce(advancedOptions.threads == 1, "--percentiles cannot be used with --threads");
+        }
+        enforce(!formatOptions.latency || stream == Stream.log, "--latency cannot be used with " + stream);
+        enforce(!formatOptions.templates || stream == Stream.log, "--templates cannot be used with " + stream);
+        enforce(!formatOptions.newTemplates || stream == Stream.log, "--new-templates cannot be used with " + stream);
+        // The first entry seen with each template must be the first received.
+        enforce(!formatOptions.newTemplates || advancedOptions.threads == 1,
+                "--new-templates cannot be used with --threads");
+        if (watchdog) {
+            enforce(stream == Stream.events, "--watchdog cannot be used with " + stream);
+            enforce(!formatOptions.raw && !formatOptions.csv,
+                    "--watchdog can only be used with the default output format");
+            enforce(!formatOptions.top && !formatOptions.percentiles && window == null,
+                    "--watchdog cannot be used with other summaries");
+        }
+        if (silentAfter != null) {
+            enforce(watchdog, "--silent-after can only be used with --watchdog");
+            enforce(silentAfter > 0, "--silent-after must be positive");
+        }
+        enforce(sketchFile == null || formatOptions.percentiles, "--sketch-file can only be used with --percentiles");
+        if (slide != null) {
+            enforce(window != null, "--slide can only be used with --window");
+            enforce(slide > 0, "--slide must be positive");
+            enforce(window % slide == 0, "--slide must divide --window");
+        }
+    }
+
+    private void enforce(boolean condition, String message) throws ParameterValidationException {
+        if (!condition) {
+            throw new ParameterValidationException(message);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.ianparkinson.helog.util;
 
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 
 public final class DateTimeFormatters {
@@ -11,4 +12,30 @@ public final class DateTimeFormatters {
      */
     public static DateTimeFormatter ISO_OFFSET_DATE_TIME_MILLIS =
             DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+    /** The time most recently formatted by {@link #formatMillis} on each thread, and its text. */
+    private static final ThreadLocal<Formatted> latest = new ThreadLocal<>();
+
+    /**
+     * Formats {@code dateTime} with {@link #ISO_OFFSET_DATE_TIME_MILLIS}. An entry written in several formats, such as
+     * to stdout and as CSV, is formatted on one thread with the same time, so the text is computed only once.
+     */
+    public static String formatMillis(ZonedDateTime dateTime) {
+        Formatted formatted = latest.get();
+        if (formatted == null || !formatted.dateTime.equals(dateTime)) {
+            formatted = new Formatted(dateTime, ISO_OFFSET_DATE_TIME_MILLIS.format(dateTime));
+            latest.set(formatted);
+        }
+        return formatted.text;
+    }
+
+    private static final class Formatted {
+        final ZonedDateTime dateTime;
+        final String text;
+
+        Formatted(ZonedDateTime dateTime, String text) {
+            this.dateTime = dateTime;
+            this.text = text;
+        }
+    }
 }
@@ -0,0 +1,380 @@
+package com.github.ianparkinson.helog.util;
+
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Minimal reader for the flat JSON objects published by the Hubitat Elevation's websockets, used to fill entries
+ * directly from the received text without building an intermediate tree or going through reflection.
+ *
+ * <p>Field names are matched against the expected names in place, without allocating a {@link String} for each.
+ * Values can be canonicalized against a vocabulary of known values, so that repeated values share a single instance.
+ * Nested objects and arrays are skipped.
+ *
+ * <p>Typical use:
+ * <pre>
+ *   FlatJsonReader reader = new FlatJsonReader(text);
+ *   if (!reader.beginObject()) {
+ *       return null;
+ *   }
+ *   while (reader.nextField()) {
+ *       switch (reader.field(FIELDS)) {
+ *           case 0:
+ *               entry.name = reader.stringValue();
+ *               break;
+ *           default:
+ *               reader.skipValue();
+ *       }
+ *   }
+ * </pre>
+ *
+ * <p>Errors are reported with {@link JsonSyntaxException}, in common with {@link com.google.gson.Gson}. As with
+ * {@link com.google.gson.Gson#fromJson(String, Class)}, empty input and a literal {@code null} both represent a
+ * {@code null} entry.
+ */
+public final class FlatJsonReader {
+    /** Canonical instances of small non-negative integers, such as device ids. Populated lazily. */
+    private static final String[] SMALL_INTEGERS = new String[4096];
+
+    private final CharSequence text;
+    private int position = 0;
+    private boolean firstField = true;
+
+    /** The source of the current token: either {@link #text} or, if it contained escapes, {@link #unescaped}. */
+    private CharSequence tokenSource;
+    private int tokenStart;
+    private int tokenEnd;
+    private StringBuilder unescaped;
+
+    public FlatJsonReader(CharSequence text) {
+        this.text = text;
+    }
+
+    /**
+     * Consumes the opening brace of the object.
+     *
+     * @return {@code false} if the text is empty or a literal {@code null}, and so contains no object.
+     */
+    public boolean beginObject() {
+        skipWhitespace();
+        if (position == text.length()) {
+            return false;
+        }
+        if (text.charAt(position) == 'n') {
+            expectLiteral("null");
+            expectEnd();
+            return false;
+        }
+        expect('{');
+        return true;
+    }
+
+    /**
+     * Advances to the next field, consuming its name and the following colon.
+     *
+     * @return {@code false} if there are no more fields; the closing brace has been consumed.
+     */
+    public boolean nextField() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '}') {
+            position++;
+            expectEnd();
+            return false;
+        }
+        if (firstField) {
+            firstField = false;
+        } else {
+            expect(',');
+            skipWhitespace();
+        }
+        readString();
+        skipWhitespace();
+        expect(':');
+        return true;
+    }
+
+    /**
+     * Identifies the current field.
+     *
+     * @param names The expected field names.
+     * @return The index within {@code names} of the current field's name, or {@code -1} if it isn't present.
+     */
+    public int field(String[] names) {
+        for (int i = 0; i < names.length; i++) {
+            if (tokenEquals(names[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the current field's value as a {@link String}. Numbers and booleans are returned as their textual
+     * representation.
+     *
+     * @return The value, or {@code null} if the value is a literal {@code null}.
+     */
+    public String stringValue() {
+        return readScalar() ? tokenString() : null;
+    }
+
+    /**
+     * Reads the current field's value as a {@link String}, returning the matching instance from {@code vocabulary}
+     * if there is one.
+     */
+    public String stringValue(String[] vocabulary) {
+        if (!readScalar()) {
+            return null;
+        }
+        for (String word : vocabulary) {
+            if (tokenEquals(word)) {
+                return word;
+            }
+        }
+        return tokenString();
+    }
+
+    /**
+     * Reads the current field's value as a {@link String}, returning the canonical instance from {@code cache}. The
+     * cache is consulted before any {@link String} is allocated.
+     */
+    public String stringValue(StringCache cache) {
+        return readScalar() ? cache.get(tokenSource, tokenStart, tokenEnd) : null;
+    }
+
+    /**
+     * Reads the current field's value, which is expected to be a numeric id, as a {@link String}. Small ids are
+     * returned as canonical instances.
+     */
+    public String idValue() {
+        if (!readScalar()) {
+            return null;
+        }
+        int length = tokenEnd - tokenStart;
+        if (length == 0 || length > 4 || (length > 1 && tokenSource.charAt(tokenStart) == '0')) {
+            return tokenString();
+        }
+        int value = 0;
+        for (int i = tokenStart; i < tokenEnd; i++) {
+            char c = tokenSource.charAt(i);
+            if (c < '0' || c > '9') {
+                return tokenString();
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (value >= SMALL_INTEGERS.length) {
+            return tokenString();
+        }
+        String canonical = SMALL_INTEGERS[value];
+        if (canonical == null) {
+            // Racy, but benign: Strings are immutable, so the worst case is that two instances are created.
+            canonical = Integer.toString(value);
+            SMALL_INTEGERS[value] = canonical;
+        }
+        return canonical;
+    }
+
+    /** Skips the current field's value, including any nested objects or arrays. */
+    public void skipValue() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = peek();
+                if (c == '"') {
+                    readString();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                position++;
+            } while (depth > 0);
+        } else {
+            readScalar();
+        }
+    }
+
+    /**
+     * Reads a string, number or literal value into the current token.
+     *
+     * @return {@code false} if the value was a literal {@code null}.
+     */
+    private boolean readScalar() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '"') {
+            readString();
+            return true;
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            int start = position;
+            while (position < text.length() && isNumberChar(text.charAt(position))) {
+                position++;
+            }
+            setToken(text, start, position);
+            return true;
+        } else if (c == 't') {
+            expectLiteral("true");
+            return true;
+        } else if (c == 'f') {
+            expectLiteral("false");
+            return true;
+        } else if (c == 'n') {
+            expectLiteral("null");
+            return false;
+        } else {
+            throw syntaxError("Expected a value but was '" + c + "'");
+        }
+    }
+
+    private void readString() {
+        expect('"');
+        int start = position;
+        while (true) {
+            char c = peek();
+            if (c == '"') {
+                setToken(text, start, position);
+                position++;
+                return;
+            } else if (c == '\\') {
+                readEscapedString(start);
+                return;
+            }
+            position++;
+        }
+    }
+
+    /** Slow path for strings containing escapes: decodes the string into {@link #unescaped}. */
+    private void readEscapedString(int start) {
+        if (unescaped == null) {
+            unescaped = new StringBuilder();
+        }
+        unescaped.setLength(0);
+        unescaped.append(text, start, position);
+        while (true) {
+            char c = peek();
+            position++;
+            if (c == '"') {
+                setToken(unescaped, 0, unescaped.length());
+                return;
+            } else if (c != '\\') {
+                unescaped.append(c);
+                continue;
+            }
+            char escape = peek();
+            position++;
+            switch (escape) {
+                case '"':
+                case '\\':
+                case '/':
+                    unescaped.append(escape);
+                    break;
+                case 'b':
+                    unescaped.append('\b');
+                    break;
+                case 'f':
+                    unescaped.append('\f');
+                    break;
+                case 'n':
+                    unescaped.append('\n');
+                    break;
+                case 'r':
+                    unescaped.append('\r');
+                    break;
+                case 't':
+                    unescaped.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw syntaxError("Unterminated escape sequence");
+                    }
+                    int codePoint = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(text.charAt(position++), 16);
+                        if (digit < 0) {
+                            throw syntaxError("Malformed unicode escape");
+                        }
+                        codePoint = codePoint * 16 + digit;
+                    }
+                    unescaped.append((char) codePoint);
+                    break;
+                default:
+                    throw syntaxError("Invalid escape sequence");
+            }
+        }
+    }
+
+    private void expectLiteral(String literal) {
+        int start = position;
+        for (int i = 0; i < literal.length(); i++) {
+            expect(literal.charAt(i));
+        }
+        setToken(text, start, position);
+    }
+
+    /** Ensures that nothing but whitespace follows the object. */
+    private void expectEnd() {
+        skipWhitespace();
+        if (position != text.length()) {
+            throw syntaxError("JSON document was not fully consumed.");
+        }
+    }
+
+    private void expect(char expected) {
+        if (peek() != expected) {
+            throw syntaxError("Expected '" + expected + "' but was '" + text.charAt(position) + "'");
+        }
+        position++;
+    }
+
+    private char peek() {
+        if (position >= text.length()) {
+            throw syntaxError("Unexpected end of input");
+        }
+        return text.charAt(position);
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private void setToken(CharSequence source, int start, int end) {
+        tokenSource = source;
+        tokenStart = start;
+        tokenEnd = end;
+    }
+
+    private boolean tokenEquals(String value) {
+        int length = tokenEnd - tokenStart;
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (tokenSource.charAt(tokenStart + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String tokenString() {
+        return tokenSource.subSequence(tokenStart, tokenEnd).toString();
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+    }
+
+    private JsonSyntaxException syntaxError(String message) {
+        return new JsonSyntaxException(message + " at position " + position);
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.ianparkinson.helog.util;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Formats milliseconds since the epoch in the format used by the Hubitat Elevation for timestamps in log entries, such
+ * as {@code 2022-11-05 16:25:52.729}. The inverse of {@link HubTimeParser}.
+ *
+ * <p>As with {@link HubTimeParser}, the text of the most recent hour is cached, so that usually only the minutes,
+ * seconds and milliseconds need to be formatted.
+ *
+ * <p>Thread-safe.
+ */
+public final class HubTimeFormatter {
+    private static final long HOUR_MILLIS = 3_600_000;
+
+    private final ZoneId zone;
+    private volatile CachedHour cachedHour = null;
+
+    public HubTimeFormatter(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    public String format(long epochMillis) {
+        CachedHour hour = cachedHour;
+        if (hour == null || epochMillis < hour.epochMillis || epochMillis >= hour.epochMillis + HOUR_MILLIS) {
+            hour = formatHour(epochMillis);
+            cachedHour = hour;
+        }
+        int offset = (int) (epochMillis - hour.epochMillis);
+        char[] text = new char[hour.prefix.length() + 10];
+        hour.prefix.getChars(0, hour.prefix.length(), text, 0);
+        int i = hour.prefix.length();
+        text[i++] = ':';
+        i = digits(text, i, offset / 60_000, 2);
+        text[i++] = ':';
+        i = digits(text, i, offset / 1000 % 60, 2);
+        text[i++] = '.';
+        digits(text, i, offset % 1000, 3);
+        return new String(text);
+    }
+
+    private CachedHour formatHour(long epochMillis) {
+        ZonedDateTime start = Instant.ofEpochMilli(epochMillis).atZone(zone).truncatedTo(ChronoUnit.HOURS);
+        char[] prefix = new char[13];
+        digits(prefix, 0, start.getYear(), 4);
+        prefix[4] = '-';
+        digits(prefix, 5, start.getMonthValue(), 2);
+        prefix[7] = '-';
+        digits(prefix, 8, start.getDayOfMonth(), 2);
+        prefix[10] = ' ';
+        digits(prefix, 11, start.getHour(), 2);
+        return new CachedHour(new String(prefix), start.toInstant().toEpochMilli());
+    }
+
+    /** Writes {@code count} decimal digits of {@code value} at {@code start}, returning the index following them. */
+    private static int digits(char[] text, int start, int value, int count) {
+        for (int i = start + count - 1; i >= start; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return start + count;
+    }
+
+    private static final class CachedHour {
+        final String prefix;
+        final long epochMillis;
+
+        CachedHour(String prefix, long epochMillis) {
+            this.prefix = prefix;
+            this.epochMillis = epochMillis;
+        }
+    }
+}
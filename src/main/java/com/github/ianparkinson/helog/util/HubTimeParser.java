@@ -0,0 +1,111 @@
+package com.github.ianparkinson.helog.util;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Parses the timestamps included in log entries by the Hubitat Elevation, such as {@code 2022-11-05 16:25:52.729}, to
+ * milliseconds since the epoch.
+ *
+ * <p>The timestamps don't include a time zone; they're interpreted in the zone given to the constructor.
+ *
+ * <p>Entries arrive in time order, so consecutive timestamps almost always fall within the same hour. The start of the
+ * most recent hour is cached, keyed by its text, so that usually only the minutes, seconds and milliseconds need to be
+ * parsed, without allocation. The cache is rebuilt, using {@link java.time}, when the hour changes; keying on the
+ * hour, rather than the day, means that daylight saving transitions are respected. (The hour which is repeated when
+ * clocks go back is ambiguous, and is taken to be the earlier of the two.)
+ *
+ * <p>Thread-safe.
+ */
+public final class HubTimeParser {
+    /** {@code yyyy-MM-dd HH:mm:ss.SSS} */
+    private static final int LENGTH = 23;
+    /** {@code yyyy-MM-dd HH} */
+    private static final int HOUR_PREFIX_LENGTH = 13;
+
+    /** Returned by {@link #parse} if the text isn't a valid timestamp. */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private final ZoneId zone;
+    private volatile CachedHour cachedHour = null;
+
+    public HubTimeParser(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /** Parses {@code text}, returning milliseconds since the epoch, or {@link #INVALID}. */
+    public long parse(CharSequence text) {
+        if (text == null || text.length() != LENGTH
+                || text.charAt(13) != ':' || text.charAt(16) != ':' || text.charAt(19) != '.') {
+            return INVALID;
+        }
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        int millis = digits(text, 20, 3);
+        if (minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return INVALID;
+        }
+
+        CachedHour hour = cachedHour;
+        if (hour == null || !hour.matches(text)) {
+            hour = parseHour(text);
+            if (hour == null) {
+                return INVALID;
+            }
+            cachedHour = hour;
+        }
+        return hour.epochMillis + minute * 60_000L + second * 1000L + millis;
+    }
+
+    private CachedHour parseHour(CharSequence text) {
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != ' ') {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        if (year < 0 || month < 0 || day < 0 || hour < 0) {
+            return null;
+        }
+        try {
+            long epochMillis = LocalDateTime.of(year, month, day, hour, 0).atZone(zone).toInstant().toEpochMilli();
+            return new CachedHour(text.subSequence(0, HOUR_PREFIX_LENGTH).toString(), epochMillis);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /** Parses {@code count} decimal digits starting at {@code start}, returning -1 if any aren't digits. */
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static final class CachedHour {
+        final String prefix;
+        final long epochMillis;
+
+        CachedHour(String prefix, long epochMillis) {
+            this.prefix = prefix;
+            this.epochMillis = epochMillis;
+        }
+
+        boolean matches(CharSequence text) {
+            for (int i = 0; i < HOUR_PREFIX_LENGTH; i++) {
+                if (text.charAt(i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.ianparkinson.helog.util;
+
+/**
+ * Histogram of integer values, such as latencies in milliseconds, from which percentiles can be read, in fixed memory.
+ *
+ * <p>Buckets are log-linear, in the manner of an HDR histogram: values below {@code 256} are recorded exactly, and
+ * larger values in buckets no wider than 1/128th of their magnitude, so every percentile is accurate to within 1%.
+ * Negative values are recorded in a second set of buckets, by magnitude. Values beyond {@link #MAX_MAGNITUDE} are
+ * clamped.
+ *
+ * <p>Not thread-safe.
+ */
+public final class LatencyHistogram {
+    /** The largest magnitude recorded without clamping: a little over two years, in milliseconds. */
+    public static final long MAX_MAGNITUDE = (1L << 36) - 1;
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Values below this are recorded exactly. */
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = index(MAX_MAGNITUDE) + 1;
+
+    private final long[] positive = new long[BUCKETS];
+    private final long[] negative = new long[BUCKETS];
+    private long count = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void record(long value) {
+        long clamped = Math.max(-MAX_MAGNITUDE, Math.min(MAX_MAGNITUDE, value));
+        if (clamped >= 0) {
+            positive[index(clamped)]++;
+        } else {
+            negative[index(-clamped)]++;
+        }
+        count++;
+        min = Math.min(min, clamped);
+        max = Math.max(max, clamped);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /** The smallest value recorded. Undefined if no values have been recorded. */
+    public long min() {
+        return min;
+    }
+
+    /** The largest value recorded. Undefined if no values have been recorded. */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * The value below which a fraction {@code q} of recorded values lie; the midpoint of the bucket containing that
+     * value, limited to the recorded minimum and maximum. Undefined if no values have been recorded.
+     */
+    public long percentile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Invalid percentile: " + q);
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        // Negative values, from the largest magnitude down.
+        for (int i = BUCKETS - 1; i >= 0; i--) {
+            seen += negative[i];
+            if (seen >= rank) {
+                return clamp(-midpoint(i));
+            }
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += positive[i];
+            if (seen >= rank) {
+                return clamp(midpoint(i));
+            }
+        }
+        return max;
+    }
+
+    private long clamp(long value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /** The bucket holding a non-negative value. */
+    private static int index(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >> shift) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /** A representative value for the bucket at {@code index}. */
+    private static long midpoint(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        long lowest = subBucket << shift;
+        return lowest + ((1L << shift) - 1) / 2;
+    }
+}
@@ -0,0 +1,373 @@
+package com.github.ianparkinson.helog.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * First-in, first-out queue of lines, held on disk rather than in memory, for output which can't be written as fast
+ * as it arrives.
+ *
+ * <p>Lines are appended to segments: files of a fixed size, each memory-mapped, so that appending and reading are
+ * copies to and from the page cache, with no system call for each line. No more than {@code budgetBytes} of segments
+ * are held at once; beyond that, lines are refused.
+ *
+ * <p>Once every line in a segment has been read, the segment is kept, and reused for later lines, rather than deleted.
+ * The space used by a deleted file isn't returned until the file is unmapped, which Java leaves to the garbage
+ * collector, so deleting segments as the queue drained would let disk use exceed the budget. Disk space grows to the
+ * largest backlog, up to the budget, and is returned once the queue is closed empty.
+ *
+ * <p>The queue survives the process: each line is marked in its segment once read, and lines which haven't been read
+ * are recovered by the next queue opened on the same directory, ahead of any added to it. A segment is forced to disk
+ * once it is full, and when the queue is closed, so a failure of the system itself, rather than of the process, can
+ * lose only lines in the segment being written.
+ *
+ * <p>Each line is stored with the time at which it was added, so that the age of the backlog can be reported.
+ *
+ * <p>Not thread-safe, and a directory may be used by only one queue at a time.
+ */
+public final class SpillQueue implements Closeable {
+    /** The size of each segment by default. */
+    public static final int DEFAULT_SEGMENT_BYTES = 8 * 1024 * 1024;
+
+    /** Each segment starts with its position in the queue, so that segments can be recovered in order. */
+    private static final int SEGMENT_HEADER_BYTES = Long.BYTES;
+    /** Each line is preceded by its length, in bytes, and the time at which it was added. */
+    private static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    /** In place of a length, marks the end of the lines in a segment. */
+    private static final int END = -1;
+    private static final String SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long budgetBytes;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    /** Segments which have been drained, to be reused. */
+    private final Deque<Segment> free = new ArrayDeque<>();
+    /** The number given to the next segment file created. */
+    private long nextFile = 0;
+    /** The position in the queue given to the next segment taken into use. */
+    private long sequence = 0;
+    private long allocatedBytes = 0;
+    private long size = 0;
+    private long bytes = 0;
+
+    /**
+     * Opens the queue held in {@code directory}, recovering any lines left unread by an earlier queue.
+     *
+     * @param directory Holds the segments; created once a line is first added, and deleted once the queue is closed
+     *                  empty.
+     * @param segmentBytes The size of each segment. Lines longer than this are given a segment of their own.
+     * @param budgetBytes The most disk space which may be used by segments.
+     * @throws IOException If existing segments can't be read.
+     */
+    public SpillQueue(Path directory, int segmentBytes, long budgetBytes) throws IOException {
+        if (segmentBytes <= SEGMENT_HEADER_BYTES + HEADER_BYTES || budgetBytes <= 0) {
+            throw new IllegalArgumentException("Invalid spill queue: " + segmentBytes + " x " + budgetBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = (int) Math.min(segmentBytes, budgetBytes);
+        this.budgetBytes = budgetBytes;
+        recover();
+    }
+
+    /** Whether {@code directory} holds segments left by an earlier queue, which may contain unread lines. */
+    public static boolean exists(Path directory) throws IOException {
+        return !segmentFiles(directory).isEmpty();
+    }
+
+    /**
+     * Adds a line to the end of the queue.
+     *
+     * @param millis The time at which the line was added, in milliseconds since the epoch.
+     * @return Whether the line was added, or refused because the queue would exceed its budget.
+     */
+    public boolean add(String line, long millis) throws IOException {
+        byte[] encoded = line.getBytes(StandardCharsets.UTF_8);
+        int recordBytes = HEADER_BYTES + encoded.length;
+        Segment tail = segments.peekLast();
+        if (tail == null || tail.buffer.capacity() - tail.writePosition < recordBytes) {
+            Segment next = segment(recordBytes);
+            if (next == null) {
+                return false;
+            }
+            if (tail != null) {
+                // Nothing more is written to the full segment, so make it durable.
+                tail.buffer.force();
+            }
+            segments.addLast(next);
+            tail = next;
+        }
+        int position = tail.writePosition;
+        tail.buffer.putLong(position + Integer.BYTES, millis);
+        tail.buffer.position(position + HEADER_BYTES);
+        tail.buffer.put(encoded);
+        tail.writePosition += recordBytes;
+        tail.markEnd();
+        // Written last, so that the line is only recovered once complete.
+        tail.buffer.putInt(position, encoded.length);
+        size++;
+        bytes += recordBytes;
+        return true;
+    }
+
+    /** Removes the line at the head of the queue, or returns {@code null} if the queue is empty. */
+    public String remove() {
+        Segment head = segments.peekFirst();
+        if (head == null || head.readPosition == head.writePosition) {
+            return null;
+        }
+        int length = head.buffer.getInt(head.readPosition);
+        byte[] encoded = new byte[length];
+        head.buffer.position(head.readPosition + HEADER_BYTES);
+        head.buffer.get(encoded);
+        head.buffer.putInt(head.readPosition, read(length));
+        head.readPosition += HEADER_BYTES + length;
+        size--;
+        bytes -= HEADER_BYTES + length;
+        if (head.readPosition == head.writePosition) {
+            if (segments.size() > 1) {
+                // Later lines are in later segments, so this one is finished with.
+                segments.removeFirst();
+                free.addLast(head);
+            } else {
+                // Empty: keep the segment, and write to it again from the start.
+                head.reset();
+            }
+        }
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** The number of lines in the queue. */
+    public long size() {
+        return size;
+    }
+
+    /** The number of bytes occupied by the lines in the queue. */
+    public long bytes() {
+        return bytes;
+    }
+
+    /** The time at which the line at the head of the queue was added, or {@code null} if the queue is empty. */
+    public Long oldestMillis() {
+        Segment head = segments.peekFirst();
+        if (head == null || head.readPosition == head.writePosition) {
+            return null;
+        }
+        return head.buffer.getLong(head.readPosition + Integer.BYTES);
+    }
+
+    /**
+     * Closes the queue. If it is empty, the segments and directory are deleted; otherwise, the segments are forced to
+     * disk and kept, to be recovered by the next queue opened on the directory.
+     */
+    @Override
+    public void close() {
+        if (size > 0) {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+        } else {
+            for (Segment segment : segments) {
+                delete(segment);
+            }
+            for (Segment segment : free) {
+                delete(segment);
+            }
+            try {
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                directory.toFile().deleteOnExit();
+            }
+        }
+        segments.clear();
+        free.clear();
+        size = 0;
+        bytes = 0;
+    }
+
+    /**
+     * Maps each segment left in the directory, queueing those with unread lines in the order they were taken into
+     * use, and keeping the rest to be reused.
+     */
+    private void recover() throws IOException {
+        List<Segment> unread = new ArrayList<>();
+        for (Path file : segmentFiles(directory)) {
+            nextFile = Math.max(nextFile, fileNumber(file) + 1);
+            Segment segment = map(file, (int) Math.min(Files.size(file), Integer.MAX_VALUE), false);
+            if (segment == null) {
+                continue;
+            }
+            segment.scan();
+            sequence = Math.max(sequence, segment.sequence() + 1);
+            if (segment.readPosition == segment.writePosition) {
+                segment.reset();
+                free.addLast(segment);
+            } else {
+                unread.add(segment);
+                for (int position = segment.readPosition; position < segment.writePosition; ) {
+                    int length = segment.buffer.getInt(position);
+                    size++;
+                    bytes += HEADER_BYTES + length;
+                    position += HEADER_BYTES + length;
+                }
+            }
+        }
+        unread.sort(Comparator.comparingLong(Segment::sequence));
+        segments.addAll(unread);
+    }
+
+    /**
+     * Returns an empty segment with room for {@code recordBytes}, reusing a drained segment if one is large enough, or
+     * returns {@code null} if a new segment would exceed the budget.
+     */
+    private Segment segment(int recordBytes) throws IOException {
+        Iterator<Segment> iterator = free.iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next();
+            if (segment.buffer.capacity() - SEGMENT_HEADER_BYTES >= recordBytes) {
+                iterator.remove();
+                segment.reset();
+                segment.buffer.putLong(0, sequence++);
+                return segment;
+            }
+        }
+        int capacity = Math.max(segmentBytes, SEGMENT_HEADER_BYTES + recordBytes);
+        if (allocatedBytes + capacity > budgetBytes) {
+            return null;
+        }
+        Files.createDirectories(directory);
+        Path file = directory.resolve(String.format("%08d%s", nextFile++, SUFFIX));
+        Segment segment = map(file, capacity, true);
+        segment.markEnd();
+        segment.buffer.putLong(0, sequence++);
+        // A new file is zero-filled, which would read as empty lines if the end mark were lost.
+        segment.buffer.force();
+        return segment;
+    }
+
+    /** Maps {@code file}, or returns {@code null} if an existing file is too short to be a segment. */
+    private Segment map(Path file, int capacity, boolean create) throws IOException {
+        if (capacity < SEGMENT_HEADER_BYTES + Integer.BYTES) {
+            return null;
+        }
+        try (FileChannel channel = create
+                ? FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping remains valid once the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            allocatedBytes += capacity;
+            return new Segment(file, buffer);
+        }
+    }
+
+    private void delete(Segment segment) {
+        allocatedBytes -= segment.buffer.capacity();
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            // Some platforms can't delete a file while it's mapped; it's unmapped once garbage collected.
+            segment.file.toFile().deleteOnExit();
+        }
+    }
+
+    private static List<Path> segmentFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("\\d+" + Pattern.quote(SUFFIX)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static long fileNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    /** In place of a line's length, marks the line as read, while still giving its length. */
+    private static int read(int length) {
+        return -2 - length;
+    }
+
+    private static final class Segment {
+        final Path file;
+        final MappedByteBuffer buffer;
+        int readPosition = SEGMENT_HEADER_BYTES;
+        int writePosition = SEGMENT_HEADER_BYTES;
+
+        Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        long sequence() {
+            return buffer.getLong(0);
+        }
+
+        /** Marks the end of the lines written, if there is room for another. */
+        void markEnd() {
+            if (buffer.capacity() - writePosition >= Integer.BYTES) {
+                buffer.putInt(writePosition, END);
+            }
+        }
+
+        void reset() {
+            readPosition = SEGMENT_HEADER_BYTES;
+            writePosition = SEGMENT_HEADER_BYTES;
+            markEnd();
+        }
+
+        /**
+         * Finds the lines left in a recovered segment: skips those marked as read, and stops at the end mark, or at a
+         * line which doesn't fit, as left by a failure part-way through writing it.
+         */
+        void scan() {
+            int position = SEGMENT_HEADER_BYTES;
+            boolean unread = false;
+            while (buffer.capacity() - position >= HEADER_BYTES) {
+                int value = buffer.getInt(position);
+                if (value == END) {
+                    break;
+                }
+                int length = (value >= 0) ? value : -2 - value;
+                if (length > buffer.capacity() - position - HEADER_BYTES) {
+                    break;
+                }
+                if (value < 0 && unread) {
+                    // Lines are read in order, so a read line can't follow an unread one.
+                    break;
+                }
+                if (value >= 0 && !unread) {
+                    unread = true;
+                    readPosition = position;
+                }
+                position += HEADER_BYTES + length;
+            }
+            writePosition = position;
+            if (!unread) {
+                readPosition = position;
+            }
+        }
+    }
+}
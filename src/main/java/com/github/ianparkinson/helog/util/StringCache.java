@@ -0,0 +1,91 @@
+package com.github.ianparkinson.helog.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free cache which canonicalizes frequently-repeated strings, such as device and event names, so that
+ * each distinct value is held by a single {@link String} instance.
+ *
+ * <p>Lookups are keyed on a range of characters, so a value that is already cached can be found without allocating a
+ * {@link String} for it. The cache is two-way set associative: each value can occupy one of a pair of slots, chosen
+ * by its hash. The most recently used value of each pair is kept in its first slot, so a new value evicts the less
+ * recently used of the two. Memory use is therefore bounded by the number of slots, and the most recently seen
+ * values win.
+ *
+ * <p>Safe for use from multiple threads without locking. A race between threads can at worst evict a value early or
+ * produce two equal instances; the value returned is always correct.
+ */
+public final class StringCache {
+    private final AtomicReferenceArray<String> slots;
+    private final int shift;
+    private final int maxLength;
+
+    /**
+     * @param capacity The number of slots, rounded up to a power of two (and at least two).
+     * @param maxLength Strings longer than this are never cached.
+     */
+    public StringCache(int capacity, int maxLength) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int size = Math.max(2, Integer.highestOneBit(capacity));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.shift = Integer.numberOfLeadingZeros(size) + 1;
+        this.maxLength = maxLength;
+    }
+
+    /** Returns the canonical instance of the characters of {@code source} between {@code start} and {@code end}. */
+    public String get(CharSequence source, int start, int end) {
+        int length = end - start;
+        if (length > maxLength) {
+            return source.subSequence(start, end).toString();
+        }
+
+        // Same algorithm as String.hashCode(), whose result is cached by each String instance.
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        // Fibonacci hashing spreads the similar hash codes of short strings across the table.
+        int first = ((hash * 0x9E3779B9) >>> shift) & ~1;
+        int second = first + 1;
+
+        String cached = slots.get(first);
+        if (matches(cached, hash, source, start, length)) {
+            return cached;
+        }
+        String previous = cached;
+        cached = slots.get(second);
+        if (matches(cached, hash, source, start, length)) {
+            // Promote, so that the pair's least-recently-used value is evicted next.
+            slots.lazySet(second, previous);
+            slots.lazySet(first, cached);
+            return cached;
+        }
+
+        String value = source.subSequence(start, end).toString();
+        slots.lazySet(second, previous);
+        slots.lazySet(first, value);
+        return value;
+    }
+
+    /** Returns the canonical instance of {@code value}. */
+    public String get(String value) {
+        return (value == null) ? null : get(value, 0, value.length());
+    }
+
+    private static boolean matches(String cached, int hash, CharSequence source, int start, int length) {
+        if (cached == null || cached.hashCode() != hash || cached.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (cached.charAt(i) != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,5 +1,7 @@
 package com.github.ianparkinson.helog.util;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -47,6 +49,35 @@ public final class Strings {
         }
     }
 
+    /**
+     * Parses a number, such as a numeric event value.
+     *
+     * @return The value, or {@code null} if the input isn't a finite number.
+     */
+    public static Double parseNumber(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        char first = text.charAt(0);
+        if (!(first == '-' || first == '+' || first == '.' || (first >= '0' && first <= '9'))) {
+            return null;
+        }
+        try {
+            double value = Double.parseDouble(text);
+            return Double.isFinite(value) ? value : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Renders a number rounded to at most three decimal places, without trailing zeros or an exponent; for example
+     * {@code 14.167} or {@code 20}.
+     */
+    public static String formatDecimal(double value) {
+        return BigDecimal.valueOf(value).setScale(3, RoundingMode.HALF_EVEN).stripTrailingZeros().toPlainString();
+    }
+
     /**
      * Renders a list of strings as a line of CSV, absent a trailing newline.
      */
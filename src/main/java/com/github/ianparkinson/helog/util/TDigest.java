@@ -0,0 +1,256 @@
+package com.github.ianparkinson.helog.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming estimate of the distribution of a series of values, from which quantiles such as the median or 99th
+ * percentile can be read, in bounded memory.
+ *
+ * <p>A merging t-digest: values are summarized as a sorted list of centroids (a mean and a weight), whose size is
+ * limited so that centroids near the extremes represent few values and centroids near the median represent many. The
+ * number of centroids is bounded by roughly {@code compression}, however many values are added. Quantiles near 0 or
+ * 1 are therefore estimated precisely, while those near the median are estimated to within a small fraction of the
+ * range.
+ *
+ * <p>Incoming values are buffered, and merged into the centroids when the buffer fills. Digests can be merged with
+ * each other, so digests gathered separately (for example, in different runs, or from different hubs) can be
+ * combined, and can be written to and read from a compact binary form.
+ *
+ * <p>Not thread-safe.
+ */
+public final class TDigest {
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+
+    /** Merged centroids, sorted by mean. */
+    private double[] means;
+    private double[] weights;
+    private int centroids = 0;
+
+    /** Values not yet merged into the centroids. */
+    private final double[] bufferMeans;
+    private final double[] bufferWeights;
+    private int buffered = 0;
+
+    private double totalWeight = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public TDigest(double compression) {
+        if (!(compression >= 10)) {
+            throw new IllegalArgumentException("Invalid compression: " + compression);
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) * 2;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.bufferMeans = new double[capacity * 4];
+        this.bufferWeights = new double[capacity * 4];
+    }
+
+    /** Adds a single value. Non-finite values are ignored. */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    private void add(double mean, double weight) {
+        if (!Double.isFinite(mean)) {
+            return;
+        }
+        if (buffered == bufferMeans.length) {
+            compress();
+        }
+        bufferMeans[buffered] = mean;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        totalWeight += weight;
+        min = Math.min(min, mean);
+        max = Math.max(max, mean);
+    }
+
+    /** Adds every value summarized by {@code other} to this digest. {@code other} is unchanged. */
+    public void merge(TDigest other) {
+        other.compress();
+        double otherMin = other.min;
+        double otherMax = other.max;
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        // Centroid means lie inside the range of the values they summarize, so carry over the true extremes.
+        min = Math.min(min, otherMin);
+        max = Math.max(max, otherMax);
+    }
+
+    /** The number of values added. */
+    public long count() {
+        return Math.round(totalWeight);
+    }
+
+    /** The smallest value added, or {@code NaN} if none. */
+    public double min() {
+        return (totalWeight == 0) ? Double.NaN : min;
+    }
+
+    /** The largest value added, or {@code NaN} if none. */
+    public double max() {
+        return (totalWeight == 0) ? Double.NaN : max;
+    }
+
+    /**
+     * Estimates the value below which a fraction {@code q} of the values lie.
+     *
+     * @param q Between 0 and 1 inclusive.
+     * @return The estimate, or {@code NaN} if no values have been added.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Invalid quantile: " + q);
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+
+        double target = q * totalWeight;
+        // Each centroid is treated as centered on its mean, with half its weight either side.
+        double firstHalf = weights[0] / 2;
+        if (target < firstHalf) {
+            return interpolate(min, means[0], target / firstHalf);
+        }
+        double cumulative = firstHalf;
+        for (int i = 0; i < centroids - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (cumulative + step >= target) {
+                return interpolate(means[i], means[i + 1], (target - cumulative) / step);
+            }
+            cumulative += step;
+        }
+        double lastHalf = weights[centroids - 1] / 2;
+        return interpolate(means[centroids - 1], max, Math.min(1, (target - cumulative) / lastHalf));
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    /** Merges buffered values into the centroids. */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        int total = centroids + buffered;
+        double[] allMeans = Arrays.copyOf(means, total);
+        double[] allWeights = Arrays.copyOf(weights, total);
+        System.arraycopy(bufferMeans, 0, allMeans, centroids, buffered);
+        System.arraycopy(bufferWeights, 0, allWeights, centroids, buffered);
+        buffered = 0;
+
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(allMeans[a], allMeans[b]));
+
+        centroids = 0;
+        double weightSoFar = 0;
+        double currentMean = allMeans[order[0]];
+        double currentWeight = allWeights[order[0]];
+        double limit = weightLimit(0);
+        for (int i = 1; i < total; i++) {
+            double mean = allMeans[order[i]];
+            double weight = allWeights[order[i]];
+            if (weightSoFar + currentWeight + weight <= limit) {
+                currentWeight += weight;
+                currentMean += (mean - currentMean) * weight / currentWeight;
+            } else {
+                appendCentroid(currentMean, currentWeight);
+                weightSoFar += currentWeight;
+                limit = weightLimit(weightSoFar);
+                currentMean = mean;
+                currentWeight = weight;
+            }
+        }
+        appendCentroid(currentMean, currentWeight);
+    }
+
+    /**
+     * The cumulative weight up to which a centroid starting at {@code weightSoFar} may grow: a centroid may span at
+     * most one unit of the scale function {@code k(q) = compression / (2 * pi) * asin(2q - 1)}.
+     */
+    private double weightLimit(double weightSoFar) {
+        double q = weightSoFar / totalWeight;
+        double k = compression / (2 * Math.PI) * Math.asin(2 * q - 1) + 1;
+        if (k >= compression / 4) {
+            return totalWeight;
+        }
+        return totalWeight * (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    private void appendCentroid(double mean, double weight) {
+        if (centroids == means.length) {
+            means = Arrays.copyOf(means, centroids * 2);
+            weights = Arrays.copyOf(weights, centroids * 2);
+        }
+        means[centroids] = mean;
+        weights[centroids] = weight;
+        centroids++;
+    }
+
+    /** Writes this digest in a compact binary form, which can be read with {@link #readFrom}. */
+    public void writeTo(DataOutput out) throws IOException {
+        compress();
+        out.writeDouble(compression);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeInt(centroids);
+        for (int i = 0; i < centroids; i++) {
+            out.writeDouble(means[i]);
+            out.writeDouble(weights[i]);
+        }
+    }
+
+    /** Reads a digest written by {@link #writeTo}. */
+    public static TDigest readFrom(DataInput in) throws IOException {
+        double compression = in.readDouble();
+        if (!(compression >= 10 && compression <= 10_000)) {
+            throw new IOException("Invalid digest");
+        }
+        TDigest digest = new TDigest(compression);
+        double min = in.readDouble();
+        double max = in.readDouble();
+        int count = in.readInt();
+        if (count < 0 || count > compression * 10) {
+            throw new IOException("Invalid digest");
+        }
+        for (int i = 0; i < count; i++) {
+            double mean = in.readDouble();
+            double weight = in.readDouble();
+            if (!(weight > 0)) {
+                throw new IOException("Invalid digest");
+            }
+            digest.add(mean, weight);
+        }
+        if (count > 0) {
+            digest.min = min;
+            digest.max = max;
+        }
+        return digest;
+    }
+}
@@ -0,0 +1,239 @@
+package com.github.ianparkinson.helog.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups messages which differ only in their variable parts, such as {@code Heater temperature 20 C} and
+ * {@code Heater temperature 21 C}, into templates such as {@code Heater temperature <*> C}.
+ *
+ * <p>Based on the Drain algorithm: messages are split into whitespace-separated tokens, and tokens containing digits
+ * are assumed to be variable. Each message is routed through a fixed-depth tree, first by its number of tokens and
+ * then by its leading tokens, to a short list of candidate templates. The message joins the most similar candidate if
+ * enough of their tokens match, and any differing tokens in the template become {@code <*>}; otherwise, it starts a
+ * new template.
+ *
+ * <p>Memory is bounded: each tree node below the first level has at most {@code MAX_CHILDREN} children, beyond which
+ * tokens are routed to a wildcard child, and at most {@code maxTemplates} templates are kept, the least recently
+ * matched being discarded to make room for new ones.
+ *
+ * <p>Counts are also kept for each template by key, such as the device emitting the message.
+ *
+ * @param <K> Key under which occurrences of each template are counted.
+ */
+public final class TemplateMiner<K> {
+    public static final String WILDCARD = "<*>";
+
+    /** Number of leading tokens used to route messages, in addition to the number of tokens. */
+    private static final int ROUTING_TOKENS = 2;
+    private static final int MAX_CHILDREN = 100;
+    /** Fraction of tokens which must match for a message to join a template. */
+    private static final double SIMILARITY_THRESHOLD = 0.5;
+
+    private final int maxTemplates;
+    private final Node<K> root = new Node<>(null, null);
+    /** Every template, least recently matched first. */
+    private final LinkedHashMap<Integer, Template<K>> templates = new LinkedHashMap<>(16, 0.75f, true);
+    private int nextId = 1;
+
+    public TemplateMiner(int maxTemplates) {
+        if (maxTemplates <= 0) {
+            throw new IllegalArgumentException("Invalid maxTemplates: " + maxTemplates);
+        }
+        this.maxTemplates = maxTemplates;
+    }
+
+    /**
+     * Adds a message, counting it against {@code key}.
+     *
+     * @return Whether the message started a new template, rather than matching an existing one.
+     */
+    public synchronized boolean add(String message, K key) {
+        String[] tokens = tokenize(message);
+        Node<K> leaf = leaf(tokens);
+
+        Template<K> template = bestMatch(leaf.templates, tokens);
+        boolean created = (template == null);
+        if (created) {
+            template = new Template<>(nextId++, tokens, leaf);
+            leaf.templates.add(template);
+            templates.put(template.id, template);
+            evictIfFull();
+        } else {
+            template.generalize(tokens);
+            // Marks the template as recently matched.
+            templates.get(template.id);
+        }
+        template.count++;
+        template.countsByKey.merge(key, 1L, Long::sum);
+        return created;
+    }
+
+    /** Snapshots of every template, most frequent first. */
+    public synchronized List<Snapshot<K>> snapshot() {
+        List<Snapshot<K>> snapshots = new ArrayList<>(templates.size());
+        for (Template<K> template : templates.values()) {
+            snapshots.add(new Snapshot<>(template.id, template.text(), template.count,
+                    new LinkedHashMap<>(template.countsByKey)));
+        }
+        snapshots.sort(Comparator.comparingLong((Snapshot<K> s) -> s.count).reversed()
+                .thenComparingInt(s -> s.id));
+        return snapshots;
+    }
+
+    /** The number of templates currently held. */
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    private static String[] tokenize(String message) {
+        String trimmed = (message == null) ? "" : message.trim();
+        String[] tokens = trimmed.isEmpty() ? new String[0] : trimmed.split("\\s+");
+        for (int i = 0; i < tokens.length; i++) {
+            if (hasDigit(tokens[i])) {
+                tokens[i] = WILDCARD;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean hasDigit(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Finds, or creates, the leaf of the tree to which {@code tokens} are routed. */
+    private Node<K> leaf(String[] tokens) {
+        // Never routed to the wildcard, since templates can only match messages of the same length. The number of
+        // lengths is bounded by the number of templates, since empty nodes are pruned.
+        String length = Integer.toString(tokens.length);
+        Node<K> node = root.children.computeIfAbsent(length, k -> new Node<>(root, k));
+        for (int i = 0; i < Math.min(ROUTING_TOKENS, tokens.length); i++) {
+            node = node.child(tokens[i]);
+        }
+        return node;
+    }
+
+    private Template<K> bestMatch(List<Template<K>> candidates, String[] tokens) {
+        Template<K> best = null;
+        int bestSimilarity = -1;
+        int bestWildcards = -1;
+        for (Template<K> candidate : candidates) {
+            int similarity = 0;
+            int wildcards = 0;
+            for (int i = 0; i < tokens.length; i++) {
+                if (candidate.tokens[i].equals(WILDCARD)) {
+                    wildcards++;
+                } else if (candidate.tokens[i].equals(tokens[i])) {
+                    similarity++;
+                }
+            }
+            if (similarity > bestSimilarity || (similarity == bestSimilarity && wildcards > bestWildcards)) {
+                best = candidate;
+                bestSimilarity = similarity;
+                bestWildcards = wildcards;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        // A message consisting only of variable tokens matches any template of the same shape.
+        int comparable = tokens.length - bestWildcards;
+        return (comparable == 0 || bestSimilarity >= SIMILARITY_THRESHOLD * comparable) ? best : null;
+    }
+
+    private void evictIfFull() {
+        if (templates.size() <= maxTemplates) {
+            return;
+        }
+        Iterator<Template<K>> eldest = templates.values().iterator();
+        Template<K> evicted = eldest.next();
+        eldest.remove();
+        evicted.leaf.templates.remove(evicted);
+        evicted.leaf.pruneIfEmpty();
+    }
+
+    private static final class Node<K> {
+        final Node<K> parent;
+        final String key;
+        final Map<String, Node<K>> children = new HashMap<>();
+        final List<Template<K>> templates = new ArrayList<>(1);
+
+        Node(Node<K> parent, String key) {
+            this.parent = parent;
+            this.key = key;
+        }
+
+        Node<K> child(String token) {
+            Node<K> child = children.get(token);
+            if (child != null) {
+                return child;
+            }
+            String key = (children.size() < MAX_CHILDREN) ? token : WILDCARD;
+            return children.computeIfAbsent(key, k -> new Node<>(this, k));
+        }
+
+        /** Removes this node, and any ancestors which then become empty, from the tree. */
+        void pruneIfEmpty() {
+            Node<K> node = this;
+            while (node.parent != null && node.children.isEmpty() && node.templates.isEmpty()) {
+                node.parent.children.remove(node.key);
+                node = node.parent;
+            }
+        }
+    }
+
+    /** A template, and the number of messages which have matched it. */
+    private static final class Template<K> {
+        final int id;
+        final String[] tokens;
+        final Node<K> leaf;
+        long count = 0;
+        final Map<K, Long> countsByKey = new LinkedHashMap<>();
+
+        Template(int id, String[] tokens, Node<K> leaf) {
+            this.id = id;
+            this.tokens = tokens;
+            this.leaf = leaf;
+        }
+
+        void generalize(String[] message) {
+            for (int i = 0; i < tokens.length; i++) {
+                if (!tokens[i].equals(message[i])) {
+                    tokens[i] = WILDCARD;
+                }
+            }
+        }
+
+        /** The template's text, with variable tokens replaced by {@link #WILDCARD}. */
+        String text() {
+            return String.join(" ", tokens);
+        }
+    }
+
+    /** An immutable snapshot of a template, and the number of messages which have matched it. */
+    public static final class Snapshot<K> {
+        public final int id;
+        public final String text;
+        public final long count;
+        /** Counts by key, in order of first occurrence. */
+        public final Map<K, Long> countsByKey;
+
+        private Snapshot(int id, String text, long count, Map<K, Long> countsByKey) {
+            this.id = id;
+            this.text = text;
+            this.count = count;
+            this.countsByKey = countsByKey;
+        }
+    }
+}
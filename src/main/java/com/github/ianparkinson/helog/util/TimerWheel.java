@@ -0,0 +1,135 @@
+package com.github.ianparkinson.helog.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timer wheel, holding at most one timer for each key.
+ *
+ * <p>Time is divided into ticks, and the wheel into a ring of slots, one per tick. A timer is placed in the slot for
+ * the tick at which it expires, modulo the number of slots; timers further in the future than one turn of the wheel
+ * share slots with nearer ones, and are skipped until their turn comes. Scheduling, rescheduling and cancelling are
+ * therefore constant-time, however many timers are held, which suits rescheduling a timer on every event.
+ *
+ * <p>Not thread-safe.
+ *
+ * @param <K> Identifies each timer.
+ */
+public final class TimerWheel<K> {
+    private final long tickMillis;
+    private final int mask;
+    /** The first timer in each slot, each being the head of a doubly-linked list. */
+    private final Timer<K>[] slots;
+    private final Map<K, Timer<K>> timers = new HashMap<>();
+    /** Timers expiring at or before this tick have been returned by {@link #advance}. */
+    private long currentTick;
+
+    /**
+     * @param tickMillis The resolution of the wheel: timers expire at the first tick on or after their deadline.
+     * @param slotCount The number of slots, rounded up to a power of two.
+     * @param startMillis The time at which the wheel starts.
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int slotCount, long startMillis) {
+        if (tickMillis <= 0 || slotCount <= 0 || slotCount > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid wheel: " + tickMillis + "ms x " + slotCount);
+        }
+        int size = Integer.highestOneBit(slotCount);
+        if (size < slotCount) {
+            size <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.slots = (Timer<K>[]) new Timer<?>[size];
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /** Schedules the timer for {@code key} to expire at {@code deadlineMillis}, replacing any existing timer. */
+    public void schedule(K key, long deadlineMillis) {
+        Timer<K> timer = timers.get(key);
+        if (timer == null) {
+            timer = new Timer<>(key);
+            timers.put(key, timer);
+        } else {
+            unlink(timer);
+        }
+        // A deadline which has already passed expires at the next tick.
+        timer.tick = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        link(timer);
+    }
+
+    /** Cancels the timer for {@code key}, if any. */
+    public void cancel(K key) {
+        Timer<K> timer = timers.remove(key);
+        if (timer != null) {
+            unlink(timer);
+        }
+    }
+
+    /** The number of timers scheduled. */
+    public int size() {
+        return timers.size();
+    }
+
+    /** Advances the wheel to {@code nowMillis}, removing the timers which have expired, and returning their keys. */
+    public List<K> advance(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+        long nowTick = Math.floorDiv(nowMillis, tickMillis);
+        // After a whole turn, every slot has been visited, so later ticks need not be visited individually.
+        long lastTick = Math.min(nowTick, currentTick + slots.length);
+        for (long tick = currentTick + 1; tick <= lastTick; tick++) {
+            Timer<K> timer = slots[(int) (tick & mask)];
+            while (timer != null) {
+                Timer<K> next = timer.next;
+                if (timer.tick <= nowTick) {
+                    unlink(timer);
+                    timers.remove(timer.key);
+                    expired.add(timer.key);
+                }
+                timer = next;
+            }
+        }
+        currentTick = Math.max(currentTick, nowTick);
+        return expired;
+    }
+
+    private void link(Timer<K> timer) {
+        int slot = (int) (timer.tick & mask);
+        timer.prev = null;
+        timer.next = slots[slot];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        slots[slot] = timer;
+    }
+
+    private void unlink(Timer<K> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            slots[(int) (timer.tick & mask)] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    private static final class Timer<K> {
+        final K key;
+        long tick;
+        Timer<K> prev;
+        Timer<K> next;
+
+        Timer(K key) {
+            this.key = key;
+        }
+    }
+}
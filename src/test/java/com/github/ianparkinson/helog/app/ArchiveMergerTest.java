@@ -0,0 +1,88 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class ArchiveMergerTest {
+    private static final ZonedDateTime START = ZonedDateTime.parse("2023-01-28T13:00:00.000Z");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void mergesInOrderOfReceipt() throws IOException {
+        Path a = archive("a.hla", 0, 3, 4, 10);
+        Path b = archive("b.hla", 1, 2, 5);
+        Path c = archive("c.hla");
+
+        List<String> merged = new ArrayList<>();
+        try (ArchiveMerger merger = ArchiveMerger.open(List.of(a, b, c))) {
+            for (LogEntry entry = merger.next(); entry != null; entry = merger.next()) {
+                merged.add(merger.source() + ":" + entry.msg + "@" + merger.receivedAt().toEpochSecond() % 60);
+            }
+            assertThat(merger.next()).isNull();
+        }
+        assertThat(merged).containsExactly(
+                "0:0@0", "1:1@1", "1:2@2", "0:3@3", "0:4@4", "1:5@5", "0:10@10").inOrder();
+    }
+
+    @Test
+    void simultaneousEntriesInOrderOfArchives() throws IOException {
+        Path a = archive("a.hla", 1);
+        Path b = archive("b.hla", 1);
+
+        try (ArchiveMerger merger = ArchiveMerger.open(List.of(b, a))) {
+            merger.next();
+            assertThat(merger.source()).isEqualTo(0);
+            merger.next();
+            assertThat(merger.source()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void noArchives() throws IOException {
+        try (ArchiveMerger merger = ArchiveMerger.open(List.of())) {
+            assertThat(merger.next()).isNull();
+        }
+    }
+
+    @Test
+    void invalidArchive() throws IOException {
+        Path a = archive("a.hla", 1);
+        Path invalid = tempDir.resolve("invalid.hla");
+        Files.writeString(invalid, "not an archive");
+
+        assertThrows(IOException.class, () -> ArchiveMerger.open(List.of(a, invalid)));
+    }
+
+    /** Writes an archive with an entry received at each of {@code seconds} after {@link #START}. */
+    private Path archive(String name, int... seconds) throws IOException {
+        Path file = tempDir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(file);
+             LogArchiveWriter writer = new LogArchiveWriter(out, ZoneOffset.UTC)) {
+            for (int second : seconds) {
+                LogEntry entry = new LogEntry();
+                entry.name = "Heater";
+                entry.id = "36";
+                entry.type = "dev";
+                entry.level = "info";
+                entry.msg = Integer.toString(second);
+                writer.write(START.plusSeconds(second), entry);
+            }
+        }
+        return file;
+    }
+}
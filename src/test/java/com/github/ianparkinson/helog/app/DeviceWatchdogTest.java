@@ -0,0 +1,177 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class DeviceWatchdogTest {
+    private static final ZonedDateTime START = ZonedDateTime.parse("2023-01-28T13:00:00.000Z");
+
+    private final EventsJsonStream eventsJsonStream = new EventsJsonStream();
+
+    @Test
+    void configuredSilence() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, Duration.ofMinutes(10), 100);
+        watchdog.add(START, event("36", "Heater"));
+        watchdog.add(START.plusMinutes(5), event("36", "Heater"));
+
+        assertThat(watchdog.report(START.plusMinutes(14))).isEmpty();
+        assertThat(watchdog.report(START.plusMinutes(15))).containsExactly(
+                "2023-01-28T13:15:00.000Z dev 36 Heater: no events for 10m");
+        assertThat(watchdog.report(START.plusMinutes(30))).isEmpty();
+    }
+
+    @Test
+    void sendingAgain() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, Duration.ofMinutes(10), 100);
+        watchdog.add(START, event("36", "Heater"));
+        watchdog.report(START.plusMinutes(10));
+        watchdog.add(START.plusHours(3).plusMinutes(20), event("36", "Heater"));
+
+        assertThat(watchdog.report(START.plusHours(3).plusMinutes(20))).containsExactly(
+                "2023-01-28T16:20:00.000Z dev 36 Heater: sending events again after 3h 20m");
+        // The device is watched once more.
+        assertThat(watchdog.report(START.plusHours(3).plusMinutes(30))).containsExactly(
+                "2023-01-28T16:30:00.000Z dev 36 Heater: no events for 10m");
+    }
+
+    @Test
+    void learnedSilence() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, null, 100);
+        for (int i = 0; i <= DeviceWatchdog.LEARNING_GAPS; i++) {
+            watchdog.add(START.plusMinutes(10L * i), event("36", "Heater"));
+        }
+        ZonedDateTime last = START.plusMinutes(10L * DeviceWatchdog.LEARNING_GAPS);
+
+        assertThat(watchdog.report(last.plusMinutes(29))).isEmpty();
+        assertThat(watchdog.report(last.plusMinutes(30))).containsExactly(
+                "2023-01-28T14:00:00.000Z dev 36 Heater: no events for 30m");
+    }
+
+    @Test
+    void outagesAreNotLearned() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, null, 100);
+        for (int i = 0; i <= DeviceWatchdog.LEARNING_GAPS; i++) {
+            watchdog.add(START.plusMinutes(10L * i), event("36", "Heater"));
+        }
+        ZonedDateTime last = START.plusMinutes(10L * DeviceWatchdog.LEARNING_GAPS);
+        // Silent for a day, whether or not a report saw it.
+        watchdog.add(last.plusDays(1), event("36", "Heater"));
+        watchdog.add(last.plusDays(1).plusMinutes(10), event("36", "Heater"));
+        ZonedDateTime back = last.plusDays(1).plusMinutes(10);
+
+        assertThat(watchdog.report(back.plusMinutes(29))).isEmpty();
+        assertThat(watchdog.report(back.plusMinutes(30))).containsExactly(
+                "2023-01-29T14:10:00.000Z dev 36 Heater: no events for 30m");
+    }
+
+    @Test
+    void reportedOutagesAreNotLearned() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, null, 100);
+        for (int i = 0; i <= DeviceWatchdog.LEARNING_GAPS; i++) {
+            watchdog.add(START.plusMinutes(10L * i), event("36", "Heater"));
+        }
+        ZonedDateTime last = START.plusMinutes(10L * DeviceWatchdog.LEARNING_GAPS);
+        watchdog.report(last.plusMinutes(30));
+        watchdog.add(last.plusMinutes(40), event("36", "Heater"));
+        watchdog.report(last.plusMinutes(40));
+
+        assertThat(watchdog.report(last.plusMinutes(70))).containsExactly(
+                "2023-01-28T14:40:00.000Z dev 36 Heater: no events for 30m");
+    }
+
+    @Test
+    void learnedSilenceHasMinimum() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, null, 100);
+        for (int i = 0; i <= DeviceWatchdog.LEARNING_GAPS; i++) {
+            watchdog.add(START.plusSeconds(i), event("36", "Heater"));
+        }
+        ZonedDateTime last = START.plusSeconds(DeviceWatchdog.LEARNING_GAPS);
+
+        assertThat(watchdog.report(last.plusMinutes(4))).isEmpty();
+        assertThat(watchdog.report(last.plus(DeviceWatchdog.MINIMUM_LEARNED))).hasSize(1);
+    }
+
+    @Test
+    void notWatchedUntilLearned() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, null, 100);
+        watchdog.add(START, event("36", "Heater"));
+        watchdog.add(START.plusMinutes(1), event("36", "Heater"));
+
+        assertThat(watchdog.report(START.plusDays(1))).isEmpty();
+    }
+
+    @Test
+    void ignoresAppsAndLocation() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, Duration.ofMinutes(10), 100);
+        EventEntry app = event("12", "Rule");
+        app.source = "APP";
+        EventEntry location = event(null, "Home");
+        location.source = "LOCATION";
+        watchdog.add(START, app);
+        watchdog.add(START, location);
+
+        assertThat(watchdog.report(START.plusHours(1))).isEmpty();
+    }
+
+    @Test
+    void reportsCurrentName() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, Duration.ofMinutes(10), 100);
+        watchdog.add(START, event("36", "Heater"));
+        watchdog.add(START.plusMinutes(1), event("36", "Radiator"));
+
+        assertThat(watchdog.report(START.plusMinutes(11))).containsExactly(
+                "2023-01-28T13:11:00.000Z dev 36 Radiator: no events for 10m");
+    }
+
+    @Test
+    void finalReportListsSilentDevices() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, Duration.ofMinutes(10), 100);
+        watchdog.add(START, event("36", "Heater"));
+        watchdog.add(START, event("34", "Lamp"));
+        watchdog.report(START.plusMinutes(10));
+        watchdog.add(START.plusMinutes(20), event("34", "Lamp"));
+
+        assertThat(watchdog.finalReport(START.plusMinutes(25))).containsExactly(
+                "2023-01-28T13:20:00.000Z dev 34 Lamp: sending events again after 20m",
+                "2023-01-28T13:25:00.000Z dev 36 Heater: still silent after 25m").inOrder();
+    }
+
+    @Test
+    void capacity() {
+        DeviceWatchdog watchdog = new DeviceWatchdog(eventsJsonStream, Duration.ofMinutes(10), 1);
+        watchdog.add(START, event("36", "Heater"));
+        watchdog.add(START, event("34", "Lamp"));
+
+        assertThat(watchdog.report(START.plusMinutes(10))).containsExactly(
+                "2023-01-28T13:10:00.000Z dev 36 Heater: no events for 10m");
+    }
+
+    @Test
+    void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new DeviceWatchdog(eventsJsonStream, null, 0));
+    }
+
+    @Test
+    void formatDuration() {
+        assertThat(DeviceWatchdog.formatDuration(45_000)).isEqualTo("45s");
+        assertThat(DeviceWatchdog.formatDuration(119_999)).isEqualTo("119s");
+        assertThat(DeviceWatchdog.formatDuration(12 * 60_000)).isEqualTo("12m");
+        assertThat(DeviceWatchdog.formatDuration(185 * 60_000)).isEqualTo("3h 05m");
+    }
+
+    private static EventEntry event(String deviceId, String displayName) {
+        EventEntry entry = new EventEntry();
+        entry.source = "DEVICE";
+        entry.deviceId = deviceId;
+        entry.displayName = displayName;
+        entry.name = "power";
+        entry.value = "10";
+        return entry;
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.ZonedDateTime;
+
+import static com.github.ianparkinson.helog.testing.TestStrings.splitLines;
+import static com.google.common.truth.Truth.assertThat;
+
+final class ElasticsearchBulkTest {
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse("2023-01-28T13:00:00.123Z");
+
+    @Test
+    void bulkUri() {
+        assertThat(ElasticsearchBulk.bulkUri(URI.create("http://localhost:9200")))
+                .isEqualTo(URI.create("http://localhost:9200/_bulk"));
+        assertThat(ElasticsearchBulk.bulkUri(URI.create("https://search.example.com/cluster/")))
+                .isEqualTo(URI.create("https://search.example.com/cluster/_bulk"));
+    }
+
+    @Test
+    void formatter() {
+        LogEntry entry = new LogEntry();
+        entry.name = "Christmas Tree";
+        entry.msg = "setSysinfo: [led:off]";
+        entry.id = "34";
+        entry.type = "dev";
+
+        String formatted = ElasticsearchBulk.<LogEntry>formatter("helog-log", "hubitat.local").format(DATE_TIME, entry);
+
+        assertThat(splitLines(formatted)).containsExactly(
+                "{\"index\":{\"_index\":\"helog-log\"}}",
+                "{\"@timestamp\":\"2023-01-28T13:00:00.123Z\",\"hub\":\"hubitat.local\"," +
+                        "\"name\":\"Christmas Tree\",\"msg\":\"setSysinfo: [led:off]\",\"id\":\"34\",\"type\":\"dev\"}")
+                .inOrder();
+    }
+
+    @Test
+    void formatter_escapesMultiLineMessage() {
+        LogEntry entry = new LogEntry();
+        entry.msg = "one\ntwo";
+
+        String formatted = ElasticsearchBulk.<LogEntry>formatter("helog-log", "hub").format(DATE_TIME, entry);
+
+        assertThat(splitLines(formatted)).hasSize(2);
+    }
+
+    @Test
+    void rejected_none() {
+        assertThat(ElasticsearchBulk.rejected("{\"took\":3,\"errors\":false,\"items\":[]}")).isNull();
+    }
+
+    @Test
+    void rejected_notJson() {
+        assertThat(ElasticsearchBulk.rejected("<html>")).isNull();
+    }
+
+    @Test
+    void rejected_describesFirstError() {
+        String response = "{\"took\":3,\"errors\":true,\"items\":[" +
+                "{\"index\":{\"_index\":\"helog-log\",\"status\":201}}," +
+                "{\"index\":{\"_index\":\"helog-log\",\"status\":400,\"error\":" +
+                "{\"type\":\"mapper_parsing_exception\",\"reason\":\"failed to parse field [id]\"}}}," +
+                "{\"index\":{\"_index\":\"helog-log\",\"status\":400,\"error\":" +
+                "{\"type\":\"illegal_argument_exception\",\"reason\":\"other\"}}}]}";
+
+        assertThat(ElasticsearchBulk.rejected(response))
+                .isEqualTo("2 of 3 entries, such as: mapper_parsing_exception failed to parse field [id]");
+    }
+}
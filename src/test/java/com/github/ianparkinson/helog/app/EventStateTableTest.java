@@ -0,0 +1,110 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventStateTable.State;
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class EventStateTableTest {
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse("2023-01-28T13:00:00.000Z");
+
+    private final EventStateTable table = new EventStateTable(new EventsJsonStream(), 100);
+
+    @Test
+    void firstEventIsChange() {
+        assertThat(table.update(DATE_TIME, event("36", "switch", "on"))).isTrue();
+    }
+
+    @Test
+    void repeatedValueIsNotChange() {
+        table.update(DATE_TIME, event("36", "switch", "on"));
+        assertThat(table.update(DATE_TIME, event("36", "switch", "on"))).isFalse();
+        assertThat(table.update(DATE_TIME, event("36", "switch", "off"))).isTrue();
+        assertThat(table.update(DATE_TIME, event("36", "switch", null))).isTrue();
+        assertThat(table.update(DATE_TIME, event("36", "switch", null))).isFalse();
+    }
+
+    @Test
+    void keyedByDeviceAndName() {
+        table.update(DATE_TIME, event("36", "switch", "on"));
+        assertThat(table.update(DATE_TIME, event("37", "switch", "on"))).isTrue();
+        assertThat(table.update(DATE_TIME, event("36", "level", "on"))).isTrue();
+        assertThat(table.size()).isEqualTo(3);
+    }
+
+    @Test
+    void snapshotKeepsEventWhichSetValue() {
+        EventEntry first = event("36", "switch", "on");
+        table.update(DATE_TIME, first);
+        table.update(DATE_TIME.plusSeconds(5), event("36", "switch", "on"));
+
+        List<State> snapshot = table.snapshot();
+        assertThat(snapshot).hasSize(1);
+        assertThat(snapshot.get(0).entry).isSameInstanceAs(first);
+        assertThat(snapshot.get(0).changedAt).isEqualTo(DATE_TIME);
+        assertThat(snapshot.get(0).source.label()).isEqualTo("dev 36");
+    }
+
+    @Test
+    void snapshotOrderedByDeviceThenName() {
+        table.update(DATE_TIME, event("100", "switch", "on"));
+        table.update(DATE_TIME, event("36", "switch", "on"));
+        table.update(DATE_TIME, event("36", "level", "50"));
+
+        List<State> snapshot = table.snapshot();
+        assertThat(snapshot.get(0).entry.name).isEqualTo("level");
+        assertThat(snapshot.get(1).source.id).isEqualTo("36");
+        assertThat(snapshot.get(2).source.id).isEqualTo("100");
+    }
+
+    @Test
+    void dirtyOnlyAfterChange() {
+        assertThat(table.clearDirty()).isFalse();
+        table.update(DATE_TIME, event("36", "switch", "on"));
+        assertThat(table.clearDirty()).isTrue();
+        assertThat(table.clearDirty()).isFalse();
+        table.update(DATE_TIME, event("36", "switch", "on"));
+        assertThat(table.clearDirty()).isFalse();
+        table.markDirty();
+        assertThat(table.clearDirty()).isTrue();
+    }
+
+    @Test
+    void evictsLeastRecentlyChanged() {
+        EventStateTable small = new EventStateTable(new EventsJsonStream(), 2);
+        small.update(DATE_TIME, event("1", "switch", "on"));
+        small.update(DATE_TIME.plusSeconds(1), event("2", "switch", "on"));
+        small.update(DATE_TIME.plusSeconds(2), event("3", "switch", "on"));
+
+        assertThat(small.size()).isEqualTo(2);
+        // The forgotten state is unknown, so is reported as changed.
+        assertThat(small.update(DATE_TIME.plusSeconds(3), event("1", "switch", "on"))).isTrue();
+    }
+
+    @Test
+    void evictsLeastRecentlySeen() {
+        EventStateTable small = new EventStateTable(new EventsJsonStream(), 2);
+        small.update(DATE_TIME, event("1", "switch", "on"));
+        small.update(DATE_TIME.plusSeconds(1), event("2", "switch", "on"));
+        // Unchanged, but still seen more recently than the state of device 2.
+        small.update(DATE_TIME.plusSeconds(2), event("1", "switch", "on"));
+        small.update(DATE_TIME.plusSeconds(3), event("3", "switch", "on"));
+
+        assertThat(small.update(DATE_TIME.plusSeconds(4), event("1", "switch", "on"))).isFalse();
+        assertThat(small.update(DATE_TIME.plusSeconds(5), event("2", "switch", "on"))).isTrue();
+    }
+
+    private static EventEntry event(String deviceId, String name, String value) {
+        EventEntry entry = new EventEntry();
+        entry.source = "DEVICE";
+        entry.deviceId = deviceId;
+        entry.displayName = "Device " + deviceId;
+        entry.name = name;
+        entry.value = value;
+        return entry;
+    }
+}
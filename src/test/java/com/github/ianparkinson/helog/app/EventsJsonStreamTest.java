@@ -1,6 +1,7 @@
 package com.github.ianparkinson.helog.app;
 
 import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import com.google.gson.JsonSyntaxException;
 import org.junit.jupiter.api.Test;
 
 import java.time.ZonedDateTime;
@@ -15,6 +16,83 @@ final class EventsJsonStreamTest {
 
     private final EventsJsonStream eventsJsonStream = new EventsJsonStream();
 
+    @Test
+    void parser() {
+        EventEntry entry = eventsJsonStream.parser().parse("{ \"source\":\"DEVICE\",\"name\":\"switch\"," +
+                "\"displayName\" : \"Christmas Tree\", \"value\" : \"off\", \"type\" : \"digital\", " +
+                "\"unit\":\"null\",\"deviceId\":34,\"hubId\":0,\"installedAppId\":0," +
+                "\"descriptionText\" : \"null\"}");
+        assertThat(entry.source).isEqualTo("DEVICE");
+        assertThat(entry.name).isEqualTo("switch");
+        assertThat(entry.displayName).isEqualTo("Christmas Tree");
+        assertThat(entry.value).isEqualTo("off");
+        assertThat(entry.type).isEqualTo("digital");
+        assertThat(entry.unit).isEqualTo("null");
+        assertThat(entry.deviceId).isEqualTo("34");
+        assertThat(entry.hubId).isEqualTo("0");
+        assertThat(entry.installedAppId).isEqualTo("0");
+        assertThat(entry.descriptionText).isEqualTo("null");
+    }
+
+    @Test
+    void parser_sharesRepeatedValues() {
+        String json = "{\"source\":\"DEVICE\",\"name\":\"switch\",\"displayName\":\"Lamp\",\"value\":\"on\"," +
+                "\"type\":\"physical\",\"unit\":\"null\",\"deviceId\":34,\"hubId\":0,\"installedAppId\":0," +
+                "\"descriptionText\":\"null\"}";
+        EventEntry first = eventsJsonStream.parser().parse(json);
+        EventEntry second = eventsJsonStream.parser().parse(json);
+        assertThat(second.source).isSameInstanceAs(first.source);
+        assertThat(second.name).isSameInstanceAs(first.name);
+        assertThat(second.displayName).isSameInstanceAs(first.displayName);
+        assertThat(second.value).isSameInstanceAs(first.value);
+        assertThat(second.type).isSameInstanceAs(first.type);
+        assertThat(second.unit).isSameInstanceAs(first.unit);
+        assertThat(second.deviceId).isSameInstanceAs(first.deviceId);
+        assertThat(second.hubId).isSameInstanceAs(first.hubId);
+        assertThat(second.installedAppId).isSameInstanceAs(first.installedAppId);
+        assertThat(second.descriptionText).isSameInstanceAs(first.descriptionText);
+    }
+
+    @Test
+    void parser_empty() {
+        assertThat(eventsJsonStream.parser().parse("")).isNull();
+    }
+
+    @Test
+    void parser_malformed() {
+        assertThrows(JsonSyntaxException.class, () -> eventsJsonStream.parser().parse("{\"source\" \"DEVICE\"}"));
+    }
+
+    @Test
+    void source_device() {
+        EventEntry entry = new EventEntry();
+        entry.source = "DEVICE";
+        entry.displayName = "dn";
+        entry.deviceId = "42";
+        entry.installedAppId = "0";
+        EntrySource source = eventsJsonStream.source(entry);
+        assertThat(source.label()).isEqualTo("dev 42");
+        assertThat(source.name).isEqualTo("dn");
+    }
+
+    @Test
+    void source_app() {
+        EventEntry entry = new EventEntry();
+        entry.source = "APP";
+        entry.deviceId = "0";
+        entry.installedAppId = "3";
+        assertThat(eventsJsonStream.source(entry).label()).isEqualTo("app 3");
+    }
+
+    @Test
+    void source_other() {
+        EventEntry entry = new EventEntry();
+        entry.source = "LOCATION";
+        entry.deviceId = "0";
+        entry.installedAppId = "0";
+        assertThat(eventsJsonStream.source(entry).label()).isEqualTo("location");
+    }
+
     @Test
     void device_numericIdMatches() {
         EventEntry entry = new EventEntry();
@@ -0,0 +1,111 @@
+package com.github.ianparkinson.helog.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class FrameBufferTest {
+    private static final Instant INSTANT = Instant.parse("2023-01-28T13:00:00Z");
+
+    /** Size of a frame containing a single ASCII character, including the per-frame overhead. */
+    private static final int ONE_CHAR_FRAME = 13;
+
+    @Test
+    void replaysInOrder() {
+        FrameBuffer buffer = new FrameBuffer(1024);
+        buffer.add(INSTANT, "first");
+        buffer.add(INSTANT.plusSeconds(1), "second");
+
+        assertThat(replay(buffer))
+                .containsExactly(INSTANT + " first", INSTANT.plusSeconds(1) + " second")
+                .inOrder();
+    }
+
+    @Test
+    void empty() {
+        FrameBuffer buffer = new FrameBuffer(1024);
+        assertThat(replay(buffer)).isEmpty();
+        assertThat(buffer.size()).isEqualTo(0);
+        assertThat(buffer.usedBytes()).isEqualTo(0);
+    }
+
+    @Test
+    void replayDoesNotConsume() {
+        FrameBuffer buffer = new FrameBuffer(1024);
+        buffer.add(INSTANT, "text");
+
+        assertThat(replay(buffer)).hasSize(1);
+        assertThat(replay(buffer)).hasSize(1);
+    }
+
+    @Test
+    void discardsOldestWhenFull() {
+        FrameBuffer buffer = new FrameBuffer(3 * ONE_CHAR_FRAME);
+        buffer.add(INSTANT, "a");
+        buffer.add(INSTANT, "b");
+        buffer.add(INSTANT, "c");
+        buffer.add(INSTANT, "d");
+
+        assertThat(replay(buffer))
+                .containsExactly(INSTANT + " b", INSTANT + " c", INSTANT + " d")
+                .inOrder();
+        assertThat(buffer.usedBytes()).isEqualTo(3 * ONE_CHAR_FRAME);
+    }
+
+    @Test
+    void discardsSeveralFramesToMakeRoomForLargeFrame() {
+        FrameBuffer buffer = new FrameBuffer(4 * ONE_CHAR_FRAME);
+        buffer.add(INSTANT, "a");
+        buffer.add(INSTANT, "b");
+        buffer.add(INSTANT, "c");
+        buffer.add(INSTANT, "d".repeat(20));
+
+        assertThat(replay(buffer))
+                .containsExactly(INSTANT + " c", INSTANT + " " + "d".repeat(20))
+                .inOrder();
+    }
+
+    @Test
+    void framesWrapAroundEndOfBuffer() {
+        // Capacity isn't a multiple of the frame size, so frames will straddle the end of the buffer.
+        FrameBuffer buffer = new FrameBuffer(2 * ONE_CHAR_FRAME + 5);
+        for (char c = 'a'; c <= 'z'; c++) {
+            buffer.add(INSTANT, String.valueOf(c));
+        }
+
+        assertThat(replay(buffer)).containsExactly(INSTANT + " y", INSTANT + " z").inOrder();
+    }
+
+    @Test
+    void ignoresFrameLargerThanCapacity() {
+        FrameBuffer buffer = new FrameBuffer(2 * ONE_CHAR_FRAME);
+        buffer.add(INSTANT, "a");
+        buffer.add(INSTANT, "this frame is too large");
+
+        assertThat(replay(buffer)).containsExactly(INSTANT + " a");
+    }
+
+    @Test
+    void multiByteCharacters() {
+        FrameBuffer buffer = new FrameBuffer(1024);
+        buffer.add(INSTANT, "temp\u00e9rature 20 \u00b0C");
+
+        assertThat(replay(buffer)).containsExactly(INSTANT + " temp\u00e9rature 20 \u00b0C");
+    }
+
+    @Test
+    void rejectsTinyCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new FrameBuffer(12));
+    }
+
+    private static List<String> replay(FrameBuffer buffer) {
+        List<String> frames = new ArrayList<>();
+        buffer.replay((receivedAt, text) -> frames.add(receivedAt + " " + text));
+        return frames;
+    }
+}
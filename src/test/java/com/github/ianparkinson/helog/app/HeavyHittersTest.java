@@ -0,0 +1,164 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.HeavyHitters.Hitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class HeavyHittersTest {
+    private static final long NOW = 1_680_000_000L;
+
+    @Test
+    void countsKeys() {
+        HeavyHitters<String> hitters = new HeavyHitters<>(10);
+        hitters.add("a", NOW);
+        hitters.add("b", NOW);
+        hitters.add("a", NOW);
+
+        List<Hitter<String>> top = hitters.top(10, NOW);
+        assertThat(keys(top)).containsExactly("a", "b").inOrder();
+        assertThat(top.get(0).count).isEqualTo(2);
+        assertThat(top.get(0).error).isEqualTo(0);
+        assertThat(hitters.total()).isEqualTo(3);
+        assertThat(hitters.tracked()).isEqualTo(2);
+    }
+
+    @Test
+    void limitsResults() {
+        HeavyHitters<String> hitters = new HeavyHitters<>(10);
+        hitters.add("a", NOW);
+        hitters.add("b", NOW);
+        hitters.add("c", NOW);
+
+        assertThat(hitters.top(2, NOW)).hasSize(2);
+    }
+
+    @Test
+    void evictsLowestCountWhenFull() {
+        HeavyHitters<String> hitters = new HeavyHitters<>(2);
+        for (int i = 0; i < 5; i++) {
+            hitters.add("a", NOW);
+        }
+        hitters.add("b", NOW);
+        hitters.add("c", NOW);
+
+        List<Hitter<String>> top = hitters.top(10, NOW);
+        assertThat(keys(top)).containsExactly("a", "c");
+        Hitter<String> c = top.stream().filter(h -> h.key.equals("c")).findFirst().orElseThrow();
+        assertThat(c.count).isEqualTo(2);
+        assertThat(c.error).isEqualTo(1);
+        assertThat(hitters.tracked()).isEqualTo(2);
+        assertThat(hitters.total()).isEqualTo(7);
+    }
+
+    @Test
+    void frequentKeysSurviveManyRareKeys() {
+        HeavyHitters<String> hitters = new HeavyHitters<>(10);
+        for (int i = 0; i < 1000; i++) {
+            hitters.add("frequent", NOW);
+            hitters.add("rare" + i, NOW);
+        }
+
+        assertThat(hitters.top(1, NOW).get(0).key).isEqualTo("frequent");
+        assertThat(hitters.top(1, NOW).get(0).count).isEqualTo(1000);
+    }
+
+    @Test
+    void countsBoundTrueCounts() {
+        HeavyHitters<Integer> hitters = new HeavyHitters<>(16);
+        Map<Integer, Long> trueCounts = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            // Skewed, so that some keys are frequent and many are rare.
+            int key = (int) Math.floor(Math.pow(random.nextDouble(), 3) * 200);
+            hitters.add(key, NOW);
+            trueCounts.merge(key, 1L, Long::sum);
+        }
+
+        long sum = 0;
+        for (Hitter<Integer> hitter : hitters.top(16, NOW)) {
+            long trueCount = trueCounts.get(hitter.key);
+            assertThat(hitter.count).isAtLeast(trueCount);
+            assertThat(hitter.count - hitter.error).isAtMost(trueCount);
+            sum += hitter.count;
+        }
+        // Every occurrence is counted by exactly one counter, once every counter is in use.
+        assertThat(sum).isEqualTo(10_000);
+        assertThat(hitters.tracked()).isEqualTo(16);
+    }
+
+    @Test
+    void reportsLatestKeyInstance() {
+        HeavyHitters<EntrySource> hitters = new HeavyHitters<>(10);
+        hitters.add(new EntrySource("dev", "1", "Old name"), NOW);
+        hitters.add(new EntrySource("dev", "1", "New name"), NOW);
+
+        List<Hitter<EntrySource>> top = hitters.top(10, NOW);
+        assertThat(top).hasSize(1);
+        assertThat(top.get(0).key.name).isEqualTo("New name");
+    }
+
+    @Test
+    void slidingWindows() {
+        HeavyHitters<String> hitters = new HeavyHitters<>(10);
+        hitters.add("a", NOW - 30);
+        hitters.add("a", NOW - 5);
+        hitters.add("a", NOW);
+
+        Hitter<String> a = hitters.top(1, NOW).get(0);
+        assertThat(a.shortWindowCount).isEqualTo(2);
+        assertThat(a.longWindowCount).isEqualTo(3);
+        assertThat(a.count).isEqualTo(3);
+    }
+
+    @Test
+    void windowsExpireWithTime() {
+        HeavyHitters<String> hitters = new HeavyHitters<>(10);
+        hitters.add("a", NOW);
+
+        Hitter<String> a = hitters.top(1, NOW + 30).get(0);
+        assertThat(a.shortWindowCount).isEqualTo(0);
+        assertThat(a.longWindowCount).isEqualTo(1);
+
+        a = hitters.top(1, NOW + 60).get(0);
+        assertThat(a.longWindowCount).isEqualTo(0);
+        assertThat(a.count).isEqualTo(1);
+    }
+
+    @Test
+    void bucketsReusedAfterWindowPasses() {
+        HeavyHitters<String> hitters = new HeavyHitters<>(10);
+        hitters.add("a", NOW);
+        hitters.add("a", NOW + 60);
+
+        assertThat(hitters.top(1, NOW + 60).get(0).longWindowCount).isEqualTo(1);
+    }
+
+    @Test
+    void ranksByRecentRate() {
+        HeavyHitters<String> hitters = new HeavyHitters<>(10);
+        for (int i = 0; i < 10; i++) {
+            hitters.add("busyEarlier", NOW - 120);
+        }
+        hitters.add("busyNow", NOW);
+        hitters.add("busyNow", NOW);
+
+        assertThat(keys(hitters.top(10, NOW))).containsExactly("busyNow", "busyEarlier").inOrder();
+    }
+
+    @Test
+    void rejectsInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitters<String>(0));
+    }
+
+    private static List<String> keys(List<Hitter<String>> hitters) {
+        return hitters.stream().map(h -> h.key).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,270 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.HttpBatchSink.Framing;
+import com.github.ianparkinson.helog.app.HttpBatchSink.Settings;
+import com.github.ianparkinson.helog.testing.StdErrExtension;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import picocli.CommandLine.Help.Ansi;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static com.github.ianparkinson.helog.testing.TestStrings.splitLines;
+import static com.google.common.truth.Truth.assertThat;
+
+final class HttpBatchSinkTest {
+    @RegisterExtension
+    final StdErrExtension err = new StdErrExtension();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    /** The status returned for each request in turn; once exhausted, requests succeed. */
+    private final List<Integer> statuses = new CopyOnWriteArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private URI uri;
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private volatile String responseBody = "{}";
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/bulk");
+    }
+
+    @AfterEach
+    void stopServer() {
+        gate.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readAllBytes();
+        }
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = in.readAllBytes();
+            }
+        }
+        requests.add(new Request(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                exchange.getRequestHeaders().getFirst("Content-Type"),
+                exchange.getRequestHeaders().getFirst("Content-Encoding"),
+                exchange.getRequestHeaders().getFirst("Authorization"),
+                new String(body, StandardCharsets.UTF_8)));
+        int status = statuses.isEmpty() ? 200 : statuses.remove(0);
+        byte[] response = responseBody.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+        inFlight.decrementAndGet();
+    }
+
+    private HttpBatchSink sink(Settings settings) {
+        return new HttpBatchSink(client, uri, "application/x-ndjson", Map.of("Authorization", "ApiKey secret"),
+                Framing.LINES, settings, body -> body.contains("rejected") ? "1 entry" : null, "test", Ansi.OFF);
+    }
+
+    private static Settings settings(int maxCount, int maxBytes, int maxDelayMillis, int maxInFlight, boolean gzip) {
+        return new Settings(maxCount, maxBytes, Duration.ofMillis(maxDelayMillis), maxInFlight, 1, gzip);
+    }
+
+    @Test
+    void postsBatch() {
+        HttpBatchSink sink = sink(settings(10, 1000, 10_000, 1, false));
+        sink.write("{\"a\":1}");
+        sink.write("{\"b\":2}");
+        sink.close();
+
+        assertThat(requests).hasSize(1);
+        Request request = requests.get(0);
+        assertThat(request.method).isEqualTo("POST");
+        assertThat(request.path).isEqualTo("/bulk");
+        assertThat(request.contentType).isEqualTo("application/x-ndjson");
+        assertThat(request.authorization).isEqualTo("ApiKey secret");
+        assertThat(request.contentEncoding).isNull();
+        assertThat(request.body).isEqualTo("{\"a\":1}\n{\"b\":2}\n");
+        assertThat(sink.dropped()).isEqualTo(0);
+    }
+
+    @Test
+    void batchesByCount() {
+        HttpBatchSink sink = sink(settings(3, 1000, 10_000, 1, false));
+        for (int i = 0; i < 7; i++) {
+            sink.write("line " + i);
+        }
+        sink.close();
+
+        assertThat(requests).hasSize(3);
+        assertThat(splitLines(requests.get(0).body)).containsExactly("line 0", "line 1", "line 2").inOrder();
+        assertThat(splitLines(requests.get(1).body)).containsExactly("line 3", "line 4", "line 5").inOrder();
+        assertThat(splitLines(requests.get(2).body)).containsExactly("line 6");
+    }
+
+    @Test
+    void batchesByBytes() {
+        HttpBatchSink sink = sink(settings(1000, 10, 10_000, 1, false));
+        sink.write("12345");
+        sink.write("1234");
+        sink.write("123");
+        sink.close();
+
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(0).body).isEqualTo("12345\n1234\n");
+        assertThat(requests.get(1).body).isEqualTo("123\n");
+    }
+
+    @Test
+    void batchesByDelay() throws InterruptedException {
+        HttpBatchSink sink = sink(settings(1000, 1000, 50, 1, false));
+        sink.write("early");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).body).isEqualTo("early\n");
+        sink.close();
+    }
+
+    @Test
+    void compresses() {
+        HttpBatchSink sink = sink(settings(10, 1000, 10_000, 1, true));
+        sink.write("caf\u00e9");
+        sink.close();
+
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).contentEncoding).isEqualTo("gzip");
+        assertThat(requests.get(0).body).isEqualTo("caf\u00e9\n");
+    }
+
+    @Test
+    void framesRecords() {
+        HttpBatchSink sink = new HttpBatchSink(client, uri, "application/json", Map.of(),
+                new Framing("[", ",", "]"), settings(10, 1000, 10_000, 1, false), null, "test", Ansi.OFF);
+        sink.write("1");
+        sink.write("2");
+        sink.close();
+
+        assertThat(requests.get(0).body).isEqualTo("[1,2]");
+    }
+
+    @Test
+    void retriesServerError() {
+        statuses.add(503);
+        HttpBatchSink sink = sink(settings(10, 1000, 10_000, 1, false));
+        sink.write("line");
+        sink.close();
+
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(1).body).isEqualTo("line\n");
+        assertThat(sink.dropped()).isEqualTo(0);
+        assertThat(splitLines(err.getContent())).containsExactly(
+                "Cannot export to test: HTTP status 503 {}", "Export to test has recovered").inOrder();
+    }
+
+    @Test
+    void givesUpAfterRetries() {
+        statuses.addAll(List.of(500, 500, 500));
+        HttpBatchSink sink = sink(settings(10, 1000, 10_000, 1, false));
+        sink.write("line");
+        sink.close();
+
+        // One attempt, and one retry.
+        assertThat(requests).hasSize(2);
+        assertThat(sink.dropped()).isEqualTo(1);
+        assertThat(splitLines(err.getContent())).containsExactly("Cannot export to test: HTTP status 500 {}");
+    }
+
+    @Test
+    void doesNotRetryClientError() {
+        statuses.add(400);
+        HttpBatchSink sink = sink(settings(10, 1000, 10_000, 1, false));
+        sink.write("line");
+        sink.close();
+
+        assertThat(requests).hasSize(1);
+        assertThat(sink.dropped()).isEqualTo(1);
+    }
+
+    @Test
+    void reportsRejectedEntries() {
+        responseBody = "{\"rejected\": true}";
+        HttpBatchSink sink = sink(settings(10, 1000, 10_000, 1, false));
+        sink.write("line");
+        sink.close();
+
+        assertThat(splitLines(err.getContent())).containsExactly("Export to test rejected entries: 1 entry");
+    }
+
+    @Test
+    void boundsRequestsInFlight() {
+        gate = new CountDownLatch(1);
+        HttpBatchSink sink = sink(settings(1, 1000, 10_000, 2, false));
+        for (int i = 0; i < 20; i++) {
+            sink.write("line " + i);
+        }
+        gate.countDown();
+        sink.close();
+
+        assertThat(maxInFlight.get()).isAtMost(2);
+        // Two batches in flight, and four waiting; the rest are dropped rather than held in memory.
+        assertThat(requests.size()).isAtMost(7);
+        assertThat(requests.size() + sink.dropped()).isEqualTo(20);
+    }
+
+    private static final class Request {
+        final String method;
+        final String path;
+        final String contentType;
+        final String contentEncoding;
+        final String authorization;
+        final String body;
+
+        Request(String method, String path, String contentType, String contentEncoding, String authorization,
+                String body) {
+            this.method = method;
+            this.path = path;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.authorization = authorization;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class HubLatencyTest {
+    private static final String DATE_TIME_STRING = "2023-01-28T13:00:00.000Z";
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse(DATE_TIME_STRING);
+
+    private static final DateTimeFormatter HUB_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    private final HubLatency latency = new HubLatency("hub", ZoneOffset.UTC);
+
+    @Test
+    void report() {
+        latency.add(DATE_TIME.plusNanos(100_000_000), entry("2023-01-28 13:00:00.000"));
+        latency.add(DATE_TIME.plusNanos(150_000_000), entry("2023-01-28 13:00:00.100"));
+        latency.add(DATE_TIME.plusNanos(300_000_000), entry("2023-01-28 13:00:00.100"));
+
+        assertThat(latency.report(DATE_TIME)).containsExactly(
+                DATE_TIME_STRING + "  hub: 3 entries",
+                "latency p50=100 p90=200 p99=200 p99.9=200 min=50 max=200 ms",
+                "clock offset=50 ms",
+                "delay=66 ms").inOrder();
+    }
+
+    @Test
+    void reportEmpty() {
+        assertThat(latency.report(DATE_TIME)).containsExactly(DATE_TIME_STRING + "  hub: 0 entries");
+    }
+
+    @Test
+    void reportsRoundTrips() {
+        HubLatency latency = new HubLatency("hub", ZoneOffset.UTC, () -> "ping round trip last=5 ms");
+        assertThat(latency.report(DATE_TIME)).containsExactly(
+                DATE_TIME_STRING + "  hub: 0 entries",
+                "ping round trip last=5 ms").inOrder();
+    }
+
+    @Test
+    void countsInvalidTimes() {
+        latency.add(DATE_TIME, entry("2023-01-28 13:00:00.000"));
+        latency.add(DATE_TIME, entry(null));
+        assertThat(latency.report(DATE_TIME).get(0))
+                .isEqualTo(DATE_TIME_STRING + "  hub: 2 entries (1 without a valid time)");
+    }
+
+    @Test
+    void negativeOffsetWhenHubClockAhead() {
+        latency.add(DATE_TIME, entry("2023-01-28 13:00:02.000"));
+        assertThat(latency.report(DATE_TIME)).contains("clock offset=-2000 ms");
+    }
+
+    @Test
+    void detectsDrift() {
+        // The hub's clock loses 100ms every minute, relative to the local clock.
+        for (int minute = 0; minute <= 20; minute++) {
+            ZonedDateTime receivedAt = DATE_TIME.plusMinutes(minute);
+            latency.add(receivedAt, entry(hubTime(receivedAt.minusNanos(100_000_000L * minute))));
+        }
+        assertThat(latency.report(DATE_TIME)).contains("clock offset=1900 ms drift=6000 ms/hour");
+    }
+
+    @Test
+    void reportsBacklog() {
+        latency.add(DATE_TIME, entry("2023-01-28 13:00:00.000"));
+        latency.add(DATE_TIME.plusSeconds(10), entry("2023-01-28 13:00:00.100"));
+        assertThat(latency.report(DATE_TIME)).contains("delay=4950 ms  BACKLOGGED");
+    }
+
+    private static String hubTime(ZonedDateTime dateTime) {
+        return HUB_TIME_FORMAT.format(dateTime);
+    }
+
+    private static LogEntry entry(String time) {
+        LogEntry entry = new LogEntry();
+        entry.time = time;
+        return entry;
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.ZonedDateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class InfluxLineProtocolTest {
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse("2023-01-28T13:00:00.123Z");
+
+    private final JsonStreamFormatter<EventEntry, String> formatter = InfluxLineProtocol.formatter("hubitat.local");
+
+    @Test
+    void formatsPoint() {
+        EventEntry entry = event("temperature", "21.5");
+        assertThat(formatter.format(DATE_TIME, entry)).isEqualTo(
+                "temperature,deviceId=34,displayName=Office\\ Sensor,hub=hubitat.local value=21.5 1674910800123000000");
+    }
+
+    @Test
+    void formatsWholeNumber() {
+        assertThat(formatter.format(DATE_TIME, event("power", "120.0"))).contains(" value=120 ");
+        assertThat(formatter.format(DATE_TIME, event("power", "-3"))).contains(" value=-3 ");
+    }
+
+    @Test
+    void formatsLargeNumber() {
+        assertThat(formatter.format(DATE_TIME, event("energy", "1e20"))).contains(" value=1.0E20 ");
+    }
+
+    @Test
+    void skipsNonNumericValue() {
+        assertThat(formatter.format(DATE_TIME, event("switch", "on"))).isNull();
+        assertThat(formatter.format(DATE_TIME, event("switch", null))).isNull();
+        assertThat(formatter.format(DATE_TIME, event("level", "NaN"))).isNull();
+    }
+
+    @Test
+    void skipsUnnamedEvent() {
+        assertThat(formatter.format(DATE_TIME, event(null, "1"))).isNull();
+    }
+
+    @Test
+    void omitsMissingTags() {
+        EventEntry entry = event("temperature", "20");
+        entry.deviceId = null;
+        entry.displayName = "null";
+        assertThat(formatter.format(DATE_TIME, entry))
+                .isEqualTo("temperature,hub=hubitat.local value=20 1674910800123000000");
+    }
+
+    @Test
+    void escapesMeasurementAndTags() {
+        EventEntry entry = event("air quality,index", "42");
+        entry.displayName = "a=b, c\nd";
+        assertThat(formatter.format(DATE_TIME, entry)).isEqualTo(
+                "air\\ quality\\,index,deviceId=34,displayName=a\\=b\\,\\ c\\ d,hub=hubitat.local value=42 "
+                        + "1674910800123000000");
+    }
+
+    @Test
+    void doublesBackslashBeforeDelimiter() {
+        EventEntry entry = event("path\\", "1");
+        entry.displayName = "C:\\ a\\,b\\=c\\d\\";
+        assertThat(formatter.format(DATE_TIME, entry)).isEqualTo(
+                "path\\\\,deviceId=34,displayName=C:\\\\\\ a\\\\\\,b\\\\\\=c\\d\\\\,hub=hubitat.local value=1 "
+                        + "1674910800123000000");
+    }
+
+    @Test
+    void keepsMeasurementEquals() {
+        assertThat(formatter.format(DATE_TIME, event("a=b", "1"))).startsWith("a=b,");
+    }
+
+    @Test
+    void reusesBufferBetweenPoints() {
+        String first = formatter.format(DATE_TIME, event("a-much-longer-measurement-name", "1"));
+        String second = formatter.format(DATE_TIME, event("b", "2"));
+        assertThat(first).startsWith("a-much-longer-measurement-name,");
+        assertThat(second).isEqualTo("b,deviceId=34,displayName=Office\\ Sensor,hub=hubitat.local value=2 "
+                + "1674910800123000000");
+    }
+
+    @Test
+    void writeUri() {
+        assertThat(InfluxLineProtocol.writeUri(URI.create("http://localhost:8086"), "my home", "hubitat"))
+                .isEqualTo(URI.create("http://localhost:8086/api/v2/write?org=my+home&bucket=hubitat&precision=ns"));
+        assertThat(InfluxLineProtocol.writeUri(URI.create("http://localhost:8086/"), null, "hubitat"))
+                .isEqualTo(URI.create("http://localhost:8086/api/v2/write?bucket=hubitat&precision=ns"));
+    }
+
+    private static EventEntry event(String name, String value) {
+        EventEntry entry = new EventEntry();
+        entry.name = name;
+        entry.value = value;
+        entry.deviceId = "34";
+        entry.displayName = "Office Sensor";
+        return entry;
+    }
+}
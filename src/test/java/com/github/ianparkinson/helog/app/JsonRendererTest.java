@@ -29,6 +29,25 @@ final class JsonRendererTest {
         assertThat(renderer.render(DATE_TIME, "{\"name\": \"foo\", \"value\": 43}")).isNull();
     }
 
+    @Test
+    void usesParser() {
+        JsonRenderer<TestEntry> renderer = new JsonRenderer<>(
+                text -> {
+                    TestEntry entry = new TestEntry();
+                    entry.name = text.toString();
+                    return entry;
+                },
+                entry -> true,
+                TestEntry::format);
+        assertThat(renderer.render(DATE_TIME, "foo")).isEqualTo("2023-01-28T13:00Z foo 0");
+    }
+
+    @Test
+    void parserReturnsNull() {
+        JsonRenderer<TestEntry> renderer = new JsonRenderer<>(text -> null, entry -> true, TestEntry::format);
+        assertThat(renderer.render(DATE_TIME, "")).isNull();
+    }
+
     @Test
     void jsonSyntaxException() {
         JsonRenderer<TestEntry> renderer =
@@ -0,0 +1,158 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class LogArchiveTest {
+    private static final ZoneId ZONE = ZoneId.of("Europe/London");
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse("2023-01-28T13:00:00.000Z")
+            .withZoneSameInstant(ZONE);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTrip() throws IOException {
+        List<LogEntry> entries = Arrays.asList(
+                entry("Heater", "Heater temperature 20 C", "36", "2023-01-28 13:00:00.900", "dev", "info"),
+                entry("Heater", "Heater temperature 21.5 C", "36", "2023-01-28 13:00:01.950", "dev", "info"),
+                entry("Lamp", "setLevel 007 of 18446744073709551615", "4", "2023-01-28 13:00:02.000", "dev", "debug"),
+                entry("Lamp", "  double  spaced 1  ", "4", "2023-01-28 12:59:59.999", "dev", "trace"),
+                entry("HPM", "Caf\u00e9 \u2013 2 \u00e9t\u00e9s", "12", "not a time", "app", "warn"),
+                entry("HPM", "contains \u0000 marker 3", "12", null, "app", "error"),
+                entry(null, null, null, null, null, null),
+                entry("", "", "", "2023-01-28 13:00:03.000", "", ""));
+
+        List<LogEntry> read = new ArrayList<>();
+        List<ZonedDateTime> times = new ArrayList<>();
+        try (LogArchiveReader reader = new LogArchiveReader(new ByteArrayInputStream(write(entries)))) {
+            assertThat(reader.zone()).isEqualTo(ZONE);
+            for (LogEntry entry = reader.next(); entry != null; entry = reader.next()) {
+                read.add(entry);
+                times.add(reader.receivedAt());
+            }
+        }
+
+        assertThat(read).hasSize(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEntryEquals(read.get(i), entries.get(i));
+            assertThat(times.get(i)).isEqualTo(DATE_TIME.plusSeconds(i));
+        }
+    }
+
+    @Test
+    void sharesRepeatedValues() throws IOException {
+        List<LogEntry> entries = Arrays.asList(
+                entry("Heater", "Heater temperature 20 C", "36", "2023-01-28 13:00:00.900", "dev", "info"),
+                entry("Heater", "Heater temperature 21 C", "36", "2023-01-28 13:00:01.950", "dev", "info"));
+        try (LogArchiveReader reader = new LogArchiveReader(new ByteArrayInputStream(write(entries)))) {
+            LogEntry first = reader.next();
+            LogEntry second = reader.next();
+            assertThat(second.name).isSameInstanceAs(first.name);
+            assertThat(second.level).isSameInstanceAs(first.level);
+        }
+    }
+
+    @Test
+    void muchSmallerThanJson() throws IOException {
+        String[] devices = {"Underfloor Heating", "Kitchen Lamp", "Hall Motion Sensor", "Front Door"};
+        List<LogEntry> entries = new ArrayList<>();
+        long jsonBytes = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int device = i % devices.length;
+            String msg = String.format("%s %s %d", devices[device],
+                    (device == 0) ? "temperature is" : "level set to", 15 + i % 20);
+            String time = String.format("2023-01-28 13:%02d:%02d.%03d", i / 600 % 60, i / 10 % 60, i % 10 * 100);
+            entries.add(entry(devices[device], msg, Integer.toString(30 + device), time, "dev", "info"));
+            jsonBytes += JsonRenderer.gson.toJson(entries.get(i)).getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        assertThat((long) write(entries).length * 10).isLessThan(jsonBytes);
+    }
+
+    @Test
+    void file() throws IOException {
+        Path file = tempDir.resolve("log.hla");
+        LogEntry entry = entry("Heater", "Heater temperature 20 C", "36", "2023-01-28 13:00:00.900", "dev", "info");
+        try (LogArchiveWriter writer = LogArchiveWriter.create(file, ZONE)) {
+            writer.write(DATE_TIME, entry);
+        }
+        try (LogArchiveReader reader = LogArchiveReader.open(file)) {
+            assertEntryEquals(reader.next(), entry);
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void writeAfterCloseIgnored() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LogArchiveWriter writer = new LogArchiveWriter(out, ZONE);
+        writer.close();
+        int size = out.size();
+        writer.write(DATE_TIME, entry("Heater", "msg", "36", null, "dev", "info"));
+        assertThat(out.size()).isEqualTo(size);
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        byte[] bytes = "{\"name\":\"Heater\"}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> new LogArchiveReader(new ByteArrayInputStream(bytes)));
+        assertThrows(IOException.class, () -> new LogArchiveReader(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    void truncated() throws IOException {
+        byte[] bytes = write(List.of(
+                entry("Heater", "Heater temperature 20 C", "36", "2023-01-28 13:00:00.900", "dev", "info")));
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 2);
+        try (LogArchiveReader reader = new LogArchiveReader(new ByteArrayInputStream(truncated))) {
+            assertThrows(EOFException.class, reader::next);
+        }
+    }
+
+    /** Writes {@code entries} to an archive, received a second apart starting from {@link #DATE_TIME}. */
+    private static byte[] write(List<LogEntry> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (LogArchiveWriter writer = new LogArchiveWriter(out, ZONE)) {
+            for (int i = 0; i < entries.size(); i++) {
+                writer.write(DATE_TIME.plusSeconds(i), entries.get(i));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertEntryEquals(LogEntry actual, LogEntry expected) {
+        assertThat(actual.name).isEqualTo(expected.name);
+        assertThat(actual.msg).isEqualTo(expected.msg);
+        assertThat(actual.id).isEqualTo(expected.id);
+        assertThat(actual.time).isEqualTo(expected.time);
+        assertThat(actual.type).isEqualTo(expected.type);
+        assertThat(actual.level).isEqualTo(expected.level);
+    }
+
+    private static LogEntry entry(String name, String msg, String id, String time, String type, String level) {
+        LogEntry entry = new LogEntry();
+        entry.name = name;
+        entry.msg = msg;
+        entry.id = id;
+        entry.time = time;
+        entry.type = type;
+        entry.level = level;
+        return entry;
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.ianparkinson.helog.app;
 
 import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import com.google.gson.JsonSyntaxException;
 import org.junit.jupiter.api.Test;
 
 import java.time.ZonedDateTime;
@@ -15,6 +16,67 @@ final class LogJsonStreamTest {
 
     private final LogJsonStream logJsonStream = new LogJsonStream();
 
+    @Test
+    void parser() {
+        LogEntry entry = logJsonStream.parser().parse("{\"name\":\"Christmas Tree\"," +
+                "\"msg\":\"setSysinfo: [led:off]\",\"id\":34," +
+                "\"time\":\"2022-11-05 16:25:52.729\",\"type\":\"dev\",\"level\":\"info\"}");
+        assertThat(entry.name).isEqualTo("Christmas Tree");
+        assertThat(entry.msg).isEqualTo("setSysinfo: [led:off]");
+        assertThat(entry.id).isEqualTo("34");
+        assertThat(entry.time).isEqualTo("2022-11-05 16:25:52.729");
+        assertThat(entry.type).isEqualTo("dev");
+        assertThat(entry.level).isEqualTo("info");
+    }
+
+    @Test
+    void parser_sharesRepeatedValues() {
+        String json =
+                "{\"name\":\"n\",\"msg\":\"m\",\"id\":34,\"time\":\"t\",\"type\":\"dev\",\"level\":\"info\"}";
+        LogEntry first = logJsonStream.parser().parse(json);
+        LogEntry second = logJsonStream.parser().parse(json);
+        assertThat(second.name).isSameInstanceAs(first.name);
+        assertThat(second.id).isSameInstanceAs(first.id);
+        assertThat(second.type).isSameInstanceAs(first.type);
+        assertThat(second.level).isSameInstanceAs(first.level);
+    }
+
+    @Test
+    void parser_unknownVocabulary() {
+        LogEntry entry = logJsonStream.parser().parse("{\"type\":\"other\",\"level\":\"fatal\"}");
+        assertThat(entry.type).isEqualTo("other");
+        assertThat(entry.level).isEqualTo("fatal");
+    }
+
+    @Test
+    void parser_missingFields() {
+        LogEntry entry = logJsonStream.parser().parse("{\"name\":\"n\"}");
+        assertThat(entry.name).isEqualTo("n");
+        assertThat(entry.id).isNull();
+        assertThat(entry.level).isNull();
+    }
+
+    @Test
+    void parser_empty() {
+        assertThat(logJsonStream.parser().parse("")).isNull();
+    }
+
+    @Test
+    void parser_malformed() {
+        assertThrows(JsonSyntaxException.class, () -> logJsonStream.parser().parse("{\"name\":"));
+    }
+
+    @Test
+    void source() {
+        LogEntry entry = new LogEntry();
+        entry.type = "app";
+        entry.name = "n";
+        entry.id = "42";
+        EntrySource source = logJsonStream.source(entry);
+        assertThat(source.label()).isEqualTo("app 42");
+        assertThat(source.name).isEqualTo("n");
+    }
+
     @Test
     void device_numericIdMatches() {
         LogEntry entry = new LogEntry();
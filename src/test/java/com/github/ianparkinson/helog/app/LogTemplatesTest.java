@@ -0,0 +1,57 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class LogTemplatesTest {
+    private static final String DATE_TIME_STRING = "2023-01-28T13:00:00.000Z";
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse(DATE_TIME_STRING);
+
+    private final LogTemplates templates = new LogTemplates(new LogJsonStream(), 100, 1);
+
+    @Test
+    void report() {
+        templates.add(DATE_TIME, entry("36", "Heater", "Heater temperature 20 C"));
+        templates.add(DATE_TIME, entry("36", "Heater", "Heater temperature 21 C"));
+        templates.add(DATE_TIME, entry("12", "Office", "Office temperature 19 C"));
+        templates.add(DATE_TIME, entry("12", "Office", "Office switch is on"));
+
+        assertThat(templates.report(DATE_TIME)).containsExactly(
+                DATE_TIME_STRING + "  4 entries matching 3 templates",
+                "     count  id     template",
+                "         2  T1     Heater temperature <*> C",
+                "                   from dev 36 Heater (2)").inOrder();
+    }
+
+    @Test
+    void finalReportIncludesEveryTemplate() {
+        templates.add(DATE_TIME, entry("36", "Heater", "Heater temperature 20 C"));
+        templates.add(DATE_TIME, entry("12", "Office", "Office switch is on"));
+
+        assertThat(templates.finalReport(DATE_TIME)).hasSize(6);
+    }
+
+    @Test
+    void listsBusiestSources() {
+        for (int id = 1; id <= 5; id++) {
+            for (int i = 0; i < id; i++) {
+                templates.add(DATE_TIME, entry(Integer.toString(id), "Lamp", "Lamp level " + i));
+            }
+        }
+        assertThat(templates.report(DATE_TIME)).contains(
+                "                   from dev 5 Lamp (5), dev 4 Lamp (4), dev 3 Lamp (3) and 2 others");
+    }
+
+    private static LogEntry entry(String id, String name, String msg) {
+        LogEntry entry = new LogEntry();
+        entry.type = "dev";
+        entry.id = id;
+        entry.name = name;
+        entry.msg = msg;
+        return entry;
+    }
+}
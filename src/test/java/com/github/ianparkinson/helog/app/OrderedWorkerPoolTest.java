@@ -0,0 +1,119 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.testing.StdErrExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class OrderedWorkerPoolTest {
+    @RegisterExtension
+    final StdErrExtension err = new StdErrExtension();
+
+    @Test
+    void consumesInSubmissionOrder() throws InterruptedException {
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> expected = new ArrayList<>();
+        try (OrderedWorkerPool<Integer> pool = new OrderedWorkerPool<>(4, 8, results::add)) {
+            for (int i = 0; i < 50; i++) {
+                int value = i;
+                pool.submit(() -> {
+                    // Vary the time taken, so that tasks complete out of order.
+                    Thread.sleep((value % 5) * 2L);
+                    return value;
+                });
+                expected.add(value);
+            }
+            pool.drain();
+        }
+        assertThat(results).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    void runsTasksOnSeveralThreads() throws InterruptedException {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        try (OrderedWorkerPool<String> pool = new OrderedWorkerPool<>(4, 16, result -> {})) {
+            for (int i = 0; i < 16; i++) {
+                pool.submit(() -> {
+                    Thread.sleep(20);
+                    threads.add(Thread.currentThread().getName());
+                    return "";
+                });
+            }
+            pool.drain();
+        }
+        assertThat(threads.size()).isGreaterThan(1);
+    }
+
+    @Test
+    void consumesOnSingleThread() throws InterruptedException {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        try (OrderedWorkerPool<Integer> pool = new OrderedWorkerPool<>(
+                4, 16, result -> threads.add(Thread.currentThread().getName()))) {
+            for (int i = 0; i < 16; i++) {
+                int value = i;
+                pool.submit(() -> value);
+            }
+            pool.drain();
+        }
+        assertThat(threads).hasSize(1);
+    }
+
+    @Test
+    void continuesAfterFailedTask() throws InterruptedException {
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        try (OrderedWorkerPool<Integer> pool = new OrderedWorkerPool<>(2, 4, results::add)) {
+            pool.submit(() -> 1);
+            pool.submit(() -> {
+                throw new IllegalStateException("test");
+            });
+            pool.submit(() -> 3);
+            pool.drain();
+        }
+        assertThat(results).containsExactly(1, 3).inOrder();
+        assertThat(err.getContent()).contains("Worker failed");
+    }
+
+    @Test
+    void drainWithNothingSubmitted() throws InterruptedException {
+        try (OrderedWorkerPool<Integer> pool = new OrderedWorkerPool<>(2, 4, result -> {})) {
+            pool.drain();
+        }
+    }
+
+    @Test
+    void drainAfterInterruptedSubmit() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        try (OrderedWorkerPool<Integer> pool = new OrderedWorkerPool<>(2, 1, result -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })) {
+            pool.submit(() -> 1);
+            Thread.currentThread().interrupt();
+            assertThrows(InterruptedException.class, () -> pool.submit(() -> 2));
+            release.countDown();
+
+            Thread drain = new Thread(() -> {
+                try {
+                    pool.drain();
+                } catch (InterruptedException e) {
+                    // Abandoned.
+                }
+            });
+            drain.start();
+            drain.join(5000);
+            assertThat(drain.isAlive()).isFalse();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import com.github.ianparkinson.helog.app.HttpBatchSink.Settings;
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine.Help.Ansi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.github.ianparkinson.helog.app.JsonRenderer.gson;
+import static com.google.common.truth.Truth.assertThat;
+
+final class OtlpLogsTest {
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse("2023-01-28T13:00:00.123Z");
+
+    @Test
+    void logsUri() {
+        assertThat(OtlpLogs.logsUri(URI.create("http://localhost:4318")))
+                .isEqualTo(URI.create("http://localhost:4318/v1/logs"));
+        assertThat(OtlpLogs.logsUri(URI.create("https://collector.example.com/otlp/")))
+                .isEqualTo(URI.create("https://collector.example.com/otlp/v1/logs"));
+        assertThat(OtlpLogs.logsUri(URI.create("http://localhost:4318/v1/logs")))
+                .isEqualTo(URI.create("http://localhost:4318/v1/logs"));
+    }
+
+    @Test
+    void logFormatter() {
+        LogEntry entry = new LogEntry();
+        entry.name = "Christmas Tree";
+        entry.msg = "setSysinfo: [led:off]";
+        entry.id = "34";
+        entry.type = "dev";
+        entry.level = "warn";
+
+        assertThat(OtlpLogs.logFormatter().format(DATE_TIME, entry)).isEqualTo("{"
+                + "\"timeUnixNano\":\"1674910800123000000\",\"observedTimeUnixNano\":\"1674910800123000000\","
+                + "\"severityNumber\":13,\"severityText\":\"WARN\","
+                + "\"body\":{\"stringValue\":\"setSysinfo: [led:off]\"},"
+                + "\"attributes\":["
+                + "{\"key\":\"id\",\"value\":{\"stringValue\":\"34\"}},"
+                + "{\"key\":\"name\",\"value\":{\"stringValue\":\"Christmas Tree\"}},"
+                + "{\"key\":\"type\",\"value\":{\"stringValue\":\"dev\"}}]}");
+    }
+
+    @Test
+    void logFormatter_unknownLevel() {
+        LogEntry entry = new LogEntry();
+        entry.msg = "m";
+
+        JsonObject record = gson.fromJson(OtlpLogs.logFormatter().format(DATE_TIME, entry), JsonObject.class);
+        assertThat(record.get("severityNumber").getAsInt()).isEqualTo(0);
+        assertThat(record.has("severityText")).isFalse();
+        assertThat(record.getAsJsonArray("attributes").size()).isEqualTo(0);
+    }
+
+    @Test
+    void severityNumber() {
+        assertThat(OtlpLogs.severityNumber("trace")).isEqualTo(1);
+        assertThat(OtlpLogs.severityNumber("debug")).isEqualTo(5);
+        assertThat(OtlpLogs.severityNumber("info")).isEqualTo(9);
+        assertThat(OtlpLogs.severityNumber("warn")).isEqualTo(13);
+        assertThat(OtlpLogs.severityNumber("error")).isEqualTo(17);
+        assertThat(OtlpLogs.severityNumber(null)).isEqualTo(0);
+    }
+
+    @Test
+    void eventFormatter() {
+        EventEntry entry = new EventEntry();
+        entry.source = "DEVICE";
+        entry.name = "switch";
+        entry.displayName = "Christmas Tree";
+        entry.value = "off";
+        entry.type = "digital";
+        entry.unit = "null";
+        entry.deviceId = "34";
+        entry.descriptionText = "null";
+
+        JsonObject record = gson.fromJson(OtlpLogs.eventFormatter().format(DATE_TIME, entry), JsonObject.class);
+        assertThat(record.get("severityNumber").getAsInt()).isEqualTo(9);
+        assertThat(record.getAsJsonObject("body").get("stringValue").getAsString()).isEqualTo("switch off");
+        JsonArray attributes = record.getAsJsonArray("attributes");
+        assertThat(attributes.size()).isEqualTo(6);
+        assertThat(attributes.get(0).getAsJsonObject().get("key").getAsString()).isEqualTo("source");
+        assertThat(attributes.get(5).getAsJsonObject().get("key").getAsString()).isEqualTo("deviceId");
+    }
+
+    @Test
+    void eventFormatter_description() {
+        EventEntry entry = new EventEntry();
+        entry.name = "temperature";
+        entry.value = "21.5";
+        entry.descriptionText = "Office Sensor temperature is 21.5\u00b0C";
+
+        JsonObject record = gson.fromJson(OtlpLogs.eventFormatter().format(DATE_TIME, entry), JsonObject.class);
+        assertThat(record.getAsJsonObject("body").get("stringValue").getAsString())
+                .isEqualTo("Office Sensor temperature is 21.5\u00b0C");
+    }
+
+    @Test
+    void rejected() {
+        assertThat(OtlpLogs.rejected("{}")).isNull();
+        assertThat(OtlpLogs.rejected("")).isNull();
+        assertThat(OtlpLogs.rejected("{\"partialSuccess\":{}}")).isNull();
+        assertThat(OtlpLogs.rejected("{\"partialSuccess\":{\"rejectedLogRecords\":\"2\"}}")).isEqualTo("2 entries");
+        assertThat(OtlpLogs.rejected(
+                "{\"partialSuccess\":{\"rejectedLogRecords\":\"2\",\"errorMessage\":\"too old\"}}"))
+                .isEqualTo("2 entries: too old");
+    }
+
+    @Test
+    void exportsToCollector() throws IOException {
+        List<String> bodies = new CopyOnWriteArrayList<>();
+        HttpServer collector = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        collector.createContext("/v1/logs", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                bodies.add(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        collector.start();
+        try {
+            URI uri = OtlpLogs.logsUri(URI.create("http://127.0.0.1:" + collector.getAddress().getPort()));
+            HttpBatchSink sink = new HttpBatchSink(HttpClient.newHttpClient(), uri, OtlpLogs.CONTENT_TYPE, Map.of(),
+                    OtlpLogs.framing("hubitat.local"), new Settings(10, 100_000, Duration.ofSeconds(10), 1, 0, false),
+                    OtlpLogs::rejected, "collector", Ansi.OFF);
+            LogEntry entry = new LogEntry();
+            entry.level = "info";
+            entry.msg = "one";
+            sink.write(OtlpLogs.logFormatter().format(DATE_TIME, entry));
+            entry.msg = "two";
+            sink.write(OtlpLogs.logFormatter().format(DATE_TIME, entry));
+            sink.close();
+        } finally {
+            collector.stop(0);
+        }
+
+        assertThat(bodies).hasSize(1);
+        JsonObject request = gson.fromJson(bodies.get(0), JsonObject.class);
+        JsonObject resourceLogs = request.getAsJsonArray("resourceLogs").get(0).getAsJsonObject();
+        JsonArray resourceAttributes = resourceLogs.getAsJsonObject("resource").getAsJsonArray("attributes");
+        assertThat(resourceAttributes.get(1).getAsJsonObject().get("key").getAsString()).isEqualTo("host.name");
+        assertThat(resourceAttributes.get(1).getAsJsonObject().getAsJsonObject("value").get("stringValue")
+                .getAsString()).isEqualTo("hubitat.local");
+        JsonObject scopeLogs = resourceLogs.getAsJsonArray("scopeLogs").get(0).getAsJsonObject();
+        assertThat(scopeLogs.getAsJsonObject("scope").get("name").getAsString()).isEqualTo("helog");
+        JsonArray records = scopeLogs.getAsJsonArray("logRecords");
+        assertThat(records.size()).isEqualTo(2);
+        assertThat(records.get(1).getAsJsonObject().getAsJsonObject("body").get("stringValue").getAsString())
+                .isEqualTo("two");
+    }
+}
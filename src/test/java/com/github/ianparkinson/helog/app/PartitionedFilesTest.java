@@ -0,0 +1,167 @@
+package com.github.ianparkinson.helog.app;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class PartitionedFilesTest {
+    @TempDir
+    Path tempDir;
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void line() {
+        assertThat(PartitionedFiles.line("dev-36.log", "text")).isEqualTo("dev-36.log/text");
+    }
+
+    @Test
+    void line_replacesUnsafeCharacters() {
+        assertThat(PartitionedFiles.line("../etc/passwd", "text")).isEqualTo("_._etc_passwd/text");
+        assertThat(PartitionedFiles.line("a b\\c:d", "text")).isEqualTo("a_b_c_d/text");
+        assertThat(PartitionedFiles.line("", "text")).isEqualTo("_/text");
+    }
+
+    @Test
+    void writesFilePerPartition() throws IOException {
+        PartitionedFiles files = new PartitionedFiles(tempDir.resolve("out"), null, 10, clock);
+        files.write(PartitionedFiles.line("dev-36.log", "one"));
+        files.write(PartitionedFiles.line("app-12.log", "two"));
+        files.write(PartitionedFiles.line("dev-36.log", "three/four"));
+        files.close();
+
+        assertThat(Files.readAllLines(tempDir.resolve("out/dev-36.log"))).containsExactly("one", "three/four")
+                .inOrder();
+        assertThat(Files.readAllLines(tempDir.resolve("out/app-12.log"))).containsExactly("two");
+    }
+
+    @Test
+    void limitsOpenFiles() throws IOException {
+        PartitionedFiles files = new PartitionedFiles(tempDir, null, 2, clock);
+        files.write(PartitionedFiles.line("a", "1"));
+        files.write(PartitionedFiles.line("b", "2"));
+        files.write(PartitionedFiles.line("a", "3"));
+        // Closes b, the least recently written.
+        files.write(PartitionedFiles.line("c", "4"));
+        assertThat(files.openFiles()).isEqualTo(2);
+        assertThat(Files.readAllLines(tempDir.resolve("b"))).containsExactly("2");
+        assertThat(Files.readAllLines(tempDir.resolve("a"))).isEmpty();
+
+        // Reopens b, closing a.
+        files.write(PartitionedFiles.line("b", "5"));
+        assertThat(files.openFiles()).isEqualTo(2);
+        assertThat(Files.readAllLines(tempDir.resolve("a"))).containsExactly("1", "3").inOrder();
+        files.close();
+
+        assertThat(Files.readAllLines(tempDir.resolve("b"))).containsExactly("2", "5").inOrder();
+        assertThat(Files.readAllLines(tempDir.resolve("c"))).containsExactly("4");
+    }
+
+    @Test
+    void appendsToExistingFiles() throws IOException {
+        Files.writeString(tempDir.resolve("a.csv"), "h\nold\n");
+        PartitionedFiles files = new PartitionedFiles(tempDir, "h", 10, clock);
+        files.write(PartitionedFiles.line("a.csv", "new"));
+        files.write(PartitionedFiles.line("b.csv", "first"));
+        files.close();
+
+        assertThat(Files.readAllLines(tempDir.resolve("a.csv"))).containsExactly("h", "old", "new").inOrder();
+        assertThat(Files.readAllLines(tempDir.resolve("b.csv"))).containsExactly("h", "first").inOrder();
+    }
+
+    @Test
+    void writesHeaderOnceWhenReopened() throws IOException {
+        PartitionedFiles files = new PartitionedFiles(tempDir, "h", 1, clock);
+        files.write(PartitionedFiles.line("a.csv", "1"));
+        files.write(PartitionedFiles.line("b.csv", "2"));
+        files.write(PartitionedFiles.line("a.csv", "3"));
+        files.close();
+
+        assertThat(Files.readAllLines(tempDir.resolve("a.csv"))).containsExactly("h", "1", "3").inOrder();
+    }
+
+    @Test
+    void flushesIdleFiles() throws IOException {
+        PartitionedFiles files = new PartitionedFiles(tempDir, null, 10, clock);
+        files.write(PartitionedFiles.line("quiet", "1"));
+        clock.advance(600);
+        files.write(PartitionedFiles.line("busy", "2"));
+
+        files.flush();
+        assertThat(Files.readAllLines(tempDir.resolve("quiet"))).isEmpty();
+
+        clock.advance(400);
+        files.idle();
+        assertThat(Files.readAllLines(tempDir.resolve("quiet"))).containsExactly("1");
+        assertThat(Files.readAllLines(tempDir.resolve("busy"))).isEmpty();
+
+        clock.advance(600);
+        files.idle();
+        assertThat(Files.readAllLines(tempDir.resolve("busy"))).containsExactly("2");
+        files.close();
+    }
+
+    @Test
+    void flushesIdleFilesWhileOthersAreBusy() throws IOException {
+        PartitionedFiles files = new PartitionedFiles(tempDir, null, 10, clock);
+        files.write(PartitionedFiles.line("quiet", "1"));
+        for (int i = 0; i < 20; i++) {
+            clock.advance(100);
+            files.write(PartitionedFiles.line("busy", Integer.toString(i)));
+        }
+
+        assertThat(Files.readAllLines(tempDir.resolve("quiet"))).containsExactly("1");
+        files.close();
+    }
+
+    @Test
+    void createsDirectory() throws IOException {
+        Path directory = tempDir.resolve("a/b");
+        new PartitionedFiles(directory, null, 10, clock).close();
+        assertThat(Files.isDirectory(directory)).isTrue();
+        try (Stream<Path> contents = Files.list(directory)) {
+            assertThat(contents.count()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    void rejectsLineWithoutFile() throws IOException {
+        PartitionedFiles files = new PartitionedFiles(tempDir, null, 10, clock);
+        assertThrows(IOException.class, () -> files.write("text"));
+        files.close();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant = Instant.parse("2023-01-28T13:00:00Z");
+
+        void advance(long millis) {
+            instant = instant.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class PercentilesTest {
+    private static final String DATE_TIME_STRING = "2023-01-28T13:00:00.000Z";
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse(DATE_TIME_STRING);
+
+    @TempDir
+    Path tempDir;
+
+    private final EventsJsonStream eventsJsonStream = new EventsJsonStream();
+
+    @Test
+    void report() {
+        Percentiles percentiles = new Percentiles(eventsJsonStream);
+        for (int i = 1; i <= 3; i++) {
+            percentiles.add(DATE_TIME.plusSeconds(2L * i), event("36", "Heater", "power", Integer.toString(i), "W"));
+        }
+
+        assertThat(percentiles.report(DATE_TIME)).containsExactly(
+                DATE_TIME_STRING + "  percentiles for 1 series",
+                "dev 36 Heater: power count=3 value p50=2 p90=3 p99=3 max=3 W gap p50=2 p90=2 p99=2 max=2s").inOrder();
+    }
+
+    @Test
+    void reportNonNumericValues() {
+        Percentiles percentiles = new Percentiles(eventsJsonStream);
+        percentiles.add(DATE_TIME, event("34", "Lamp", "switch", "on", "null"));
+        percentiles.add(DATE_TIME.plusSeconds(30), event("34", "Lamp", "switch", "off", "null"));
+
+        assertThat(percentiles.report(DATE_TIME)).contains(
+                "dev 34 Lamp: switch count=2 gap p50=30 p90=30 p99=30 max=30s");
+    }
+
+    @Test
+    void reportSingleEvent() {
+        Percentiles percentiles = new Percentiles(eventsJsonStream);
+        percentiles.add(DATE_TIME, event("34", "Lamp", "level", "50", "%"));
+
+        assertThat(percentiles.report(DATE_TIME)).contains(
+                "dev 34 Lamp: level count=1 value p50=50 p90=50 p99=50 max=50 %");
+    }
+
+    @Test
+    void separateSeriesForEachDeviceAndName() {
+        Percentiles percentiles = new Percentiles(eventsJsonStream);
+        percentiles.add(DATE_TIME, event("36", "Heater", "power", "10", "W"));
+        percentiles.add(DATE_TIME, event("36", "Heater", "temperature", "20", "C"));
+        percentiles.add(DATE_TIME, event("34", "Lamp", "power", "5", "W"));
+
+        assertThat(percentiles.report(DATE_TIME)).hasSize(4);
+    }
+
+    @Test
+    void saveAndMerge() throws IOException {
+        Path file = tempDir.resolve("sketch");
+        Percentiles first = new Percentiles(eventsJsonStream);
+        first.add(DATE_TIME, event("36", "Heater", "power", "10", "W"));
+        first.add(DATE_TIME.plusSeconds(1), event("36", "Heater", "power", "20", "W"));
+        first.writeTo(file);
+
+        Percentiles second = new Percentiles(eventsJsonStream);
+        second.readFrom(file);
+        second.add(DATE_TIME, event("36", "Heater", "power", "30", "W"));
+        second.add(DATE_TIME, event("34", "Lamp", "level", "50", "%"));
+
+        assertThat(second.report(DATE_TIME)).containsExactly(
+                DATE_TIME_STRING + "  percentiles for 2 series",
+                "dev 36 Heater: power count=3 value p50=20 p90=30 p99=30 max=30 W gap p50=1 p90=1 p99=1 max=1s",
+                "dev 34 Lamp: level count=1 value p50=50 p90=50 p99=50 max=50 %").inOrder();
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void readRejectsOtherFiles() throws IOException {
+        Path file = tempDir.resolve("other");
+        Files.writeString(file, "not a sketch file");
+        Percentiles percentiles = new Percentiles(eventsJsonStream);
+        assertThrows(IOException.class, () -> percentiles.readFrom(file));
+    }
+
+    private static EventEntry event(String deviceId, String displayName, String name, String value, String unit) {
+        EventEntry entry = new EventEntry();
+        entry.source = "DEVICE";
+        entry.deviceId = deviceId;
+        entry.displayName = displayName;
+        entry.name = name;
+        entry.value = value;
+        entry.unit = unit;
+        return entry;
+    }
+}
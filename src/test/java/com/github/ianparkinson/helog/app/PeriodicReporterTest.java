@@ -0,0 +1,59 @@
+package com.github.ianparkinson.helog.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class PeriodicReporterTest {
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2023-01-28T13:00:00Z"), ZoneOffset.UTC);
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(bytes, true);
+
+    private final Aggregator<String> aggregator = new Aggregator<>() {
+        @Override
+        public void add(ZonedDateTime dateTime, String entry) {}
+
+        @Override
+        public List<String> report(ZonedDateTime now) {
+            return List.of("report at " + now.toInstant());
+        }
+    };
+
+    @Test
+    void report() {
+        new PeriodicReporter(aggregator, CLOCK, out, false).report(false);
+        assertThat(bytes.toString()).isEqualTo("report at 2023-01-28T13:00:00Z" + System.lineSeparator());
+    }
+
+    @Test
+    void reportClearsScreen() {
+        new PeriodicReporter(aggregator, CLOCK, out, true).report(true);
+        assertThat(bytes.toString()).startsWith("\u001b[H\u001b[2J");
+    }
+
+    @Test
+    void closeWritesFinalReportWithoutClearing() {
+        PeriodicReporter reporter = new PeriodicReporter(aggregator, CLOCK, out, true);
+        reporter.close();
+        assertThat(bytes.toString()).isEqualTo("report at 2023-01-28T13:00:00Z" + System.lineSeparator());
+    }
+
+    @Test
+    void reportsPeriodically() throws InterruptedException {
+        try (PeriodicReporter reporter = new PeriodicReporter(aggregator, CLOCK, out, false)) {
+            reporter.start(Duration.ofMillis(10));
+            Thread.sleep(100);
+        }
+        assertThat(bytes.toString().split(System.lineSeparator()).length).isGreaterThan(2);
+    }
+}
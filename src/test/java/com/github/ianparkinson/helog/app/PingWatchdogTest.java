@@ -0,0 +1,115 @@
+package com.github.ianparkinson.helog.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class PingWatchdogTest {
+    private static final long SECOND = 1_000_000_000L;
+    private static final long MILLISECOND = 1_000_000L;
+    private static final long START = 12_345 * SECOND;
+
+    private final PingWatchdog watchdog = new PingWatchdog(Duration.ofSeconds(30), Duration.ofSeconds(10), START);
+
+    @Test
+    void pingsEveryInterval() {
+        assertThat(watchdog.ping(START + 29 * SECOND)).isNull();
+        ByteBuffer first = watchdog.ping(START + 30 * SECOND);
+        assertThat(first).isNotNull();
+        watchdog.pong(first, START + 30 * SECOND + 5 * MILLISECOND);
+
+        assertThat(watchdog.ping(START + 59 * SECOND)).isNull();
+        ByteBuffer second = watchdog.ping(START + 60 * SECOND);
+        assertThat(second).isNotNull();
+        assertThat(second).isNotEqualTo(first);
+    }
+
+    @Test
+    void timesOutWithoutPong() {
+        watchdog.ping(START + 30 * SECOND);
+
+        assertThat(watchdog.timedOut(START + 39 * SECOND)).isFalse();
+        assertThat(watchdog.timedOut(START + 40 * SECOND)).isTrue();
+    }
+
+    @Test
+    void noFurtherPingWhileUnanswered() {
+        watchdog.ping(START + 30 * SECOND);
+
+        // Otherwise, with a timeout longer than the interval, each ping would postpone the timeout.
+        assertThat(watchdog.ping(START + 60 * SECOND)).isNull();
+    }
+
+    @Test
+    void pongPreventsTimeout() {
+        ByteBuffer ping = watchdog.ping(START + 30 * SECOND);
+        watchdog.pong(ping, START + 31 * SECOND);
+
+        assertThat(watchdog.timedOut(START + 45 * SECOND)).isFalse();
+    }
+
+    @Test
+    void otherMessagesPreventTimeout() {
+        watchdog.ping(START + 30 * SECOND);
+        watchdog.received(START + 31 * SECOND);
+
+        assertThat(watchdog.timedOut(START + 45 * SECOND)).isFalse();
+        // With traffic flowing, pings continue.
+        assertThat(watchdog.ping(START + 60 * SECOND)).isNotNull();
+    }
+
+    @Test
+    void noTimeoutWhileDelivering() {
+        watchdog.delivering(START + 29 * SECOND);
+        watchdog.ping(START + 30 * SECOND);
+
+        // The listener is blocked, so the pong can't be read.
+        assertThat(watchdog.timedOut(START + 120 * SECOND)).isFalse();
+        watchdog.delivered(START + 120 * SECOND);
+        assertThat(watchdog.timedOut(START + 125 * SECOND)).isFalse();
+        // The next ping restarts the timeout.
+        watchdog.ping(START + 150 * SECOND);
+        assertThat(watchdog.timedOut(START + 160 * SECOND)).isTrue();
+    }
+
+    @Test
+    void noTimeoutBeforeFirstPing() {
+        assertThat(watchdog.timedOut(START + 29 * SECOND)).isFalse();
+    }
+
+    @Test
+    void ignoresStalePong() {
+        ByteBuffer first = watchdog.ping(START + 30 * SECOND);
+        watchdog.received(START + 31 * SECOND);
+        watchdog.ping(START + 60 * SECOND);
+        watchdog.pong(first, START + 61 * SECOND);
+
+        assertThat(watchdog.roundTrips()).isNull();
+    }
+
+    @Test
+    void roundTrips() {
+        assertThat(watchdog.roundTrips()).isNull();
+
+        ByteBuffer ping = watchdog.ping(START + 30 * SECOND);
+        watchdog.pong(ping, START + 30 * SECOND + 10 * MILLISECOND);
+        ping = watchdog.ping(START + 60 * SECOND);
+        watchdog.pong(ping, START + 60 * SECOND + 30 * MILLISECOND);
+        ping = watchdog.ping(START + 90 * SECOND);
+        watchdog.pong(ping, START + 90 * SECOND + 20 * MILLISECOND);
+
+        assertThat(watchdog.roundTrips()).isEqualTo("ping round trip last=20 min=10 mean=20 max=30 ms (3 pings)");
+    }
+
+    @Test
+    void invalidDurations() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PingWatchdog(Duration.ZERO, Duration.ofSeconds(10), START));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PingWatchdog(Duration.ofSeconds(30), Duration.ZERO, START));
+    }
+}
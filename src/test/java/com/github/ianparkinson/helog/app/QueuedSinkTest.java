@@ -0,0 +1,306 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.QueuedSink.Policy;
+import com.github.ianparkinson.helog.testing.StdErrExtension;
+import com.github.ianparkinson.helog.util.SpillQueue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine.Help.Ansi;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.ianparkinson.helog.testing.TestStrings.splitLines;
+import static com.google.common.truth.Truth.assertThat;
+
+final class QueuedSinkTest {
+    private static final long BUDGET = 1024 * 1024;
+
+    @RegisterExtension
+    final StdErrExtension err = new StdErrExtension();
+
+    @TempDir
+    Path tempDir;
+
+    private final GatedWriter writer = new GatedWriter();
+
+    @Test
+    void writesLines() {
+        QueuedSink sink = new QueuedSink(writer, "test", 10, Policy.block, tempDir, BUDGET, Ansi.OFF);
+        writer.open();
+        sink.write("one");
+        sink.write("two");
+        sink.close();
+
+        assertThat(splitLines(writer.toString())).containsExactly("one", "two").inOrder();
+        assertThat(writer.closed).isTrue();
+        assertThat(sink.dropped()).isEqualTo(0);
+    }
+
+    @Test
+    void writesFile() throws IOException {
+        Path file = tempDir.resolve("out.log");
+        QueuedSink sink = QueuedSink.create(file, 10, Policy.block, BUDGET, Ansi.OFF);
+        sink.write("caf\u00e9");
+        sink.close();
+
+        assertThat(Files.readAllLines(file)).containsExactly("caf\u00e9");
+    }
+
+    @Test
+    void dropPolicy_dropsWhenFull() {
+        QueuedSink sink = new QueuedSink(writer, "test", 2, Policy.drop, tempDir, BUDGET, Ansi.OFF);
+        List<String> lines = lines(10);
+        lines.forEach(sink::write);
+        writer.open();
+        sink.close();
+
+        // The writing thread may have taken one line from the queue before blocking.
+        assertThat(splitLines(writer.toString()).size()).isAtMost(3);
+        assertThat(sink.dropped()).isEqualTo(10 - splitLines(writer.toString()).size());
+    }
+
+    @Test
+    void spillPolicy_preservesOrder() throws IOException {
+        QueuedSink sink = new QueuedSink(writer, "test", 2, Policy.spill, spillDirectory(), BUDGET, Ansi.OFF);
+        List<String> lines = lines(100);
+        lines.forEach(sink::write);
+        writer.open();
+        sink.close();
+
+        assertThat(splitLines(writer.toString())).containsExactlyElementsIn(lines).inOrder();
+        assertThat(sink.dropped()).isEqualTo(0);
+        assertThat(Files.exists(spillDirectory())).isFalse();
+    }
+
+    @Test
+    void spillPolicy_resumesQueueingAfterCatchingUp() {
+        QueuedSink sink = new QueuedSink(writer, "test", 2, Policy.spill, spillDirectory(), BUDGET, Ansi.OFF);
+        List<String> lines = lines(20);
+        lines.subList(0, 10).forEach(sink::write);
+        writer.open();
+        lines.subList(10, 20).forEach(sink::write);
+        sink.close();
+
+        assertThat(splitLines(writer.toString())).containsExactlyElementsIn(lines).inOrder();
+    }
+
+    @Test
+    void spillPolicy_dropsBeyondBudget() {
+        QueuedSink sink = new QueuedSink(writer, "test", 2, Policy.spill, spillDirectory(), 100, Ansi.OFF);
+        List<String> lines = lines(100);
+        lines.forEach(sink::write);
+        writer.open();
+        sink.close();
+
+        List<String> written = splitLines(writer.toString());
+        assertThat(sink.dropped()).isGreaterThan(0);
+        assertThat(written.size() + sink.dropped()).isEqualTo(100);
+        for (int i = 1; i < written.size(); i++) {
+            assertThat(number(written.get(i))).isGreaterThan(number(written.get(i - 1)));
+        }
+    }
+
+    @Test
+    void spillPolicy_reportsBacklog() {
+        QueuedSink sink = new QueuedSink(writer, "test", 2, Policy.spill, spillDirectory(), BUDGET, Ansi.OFF);
+        lines(100).forEach(sink::write);
+        writer.open();
+        sink.close();
+
+        List<String> reports = splitLines(err.getContent());
+        assertThat(reports).hasSize(2);
+        assertThat(reports.get(0)).matches("Output to test is behind: \\d+ lines \\(0\\.0 MB\\) spilled to disk, "
+                + "oldest \\d+s ago");
+        assertThat(reports.get(1)).isEqualTo("Output to test has caught up");
+    }
+
+    @Test
+    void spillPolicy_keepsLineBreaks() {
+        QueuedSink sink = new QueuedSink(writer, "test", 1, Policy.spill, spillDirectory(), BUDGET, Ansi.OFF);
+        sink.write("first");
+        sink.write("second");
+        sink.write("multi\nline");
+        writer.open();
+        sink.close();
+
+        assertThat(splitLines(writer.toString())).containsExactly("first", "second", "multi", "line").inOrder();
+    }
+
+    @Test
+    void spillPolicy_recoversEarlierBacklog() throws IOException {
+        SpillQueue earlier = new SpillQueue(spillDirectory(), SpillQueue.DEFAULT_SEGMENT_BYTES, BUDGET);
+        earlier.add("old 1", 0);
+        earlier.add("old 2", 0);
+        earlier.close();
+
+        QueuedSink sink = new QueuedSink(writer, "test", 10, Policy.spill, spillDirectory(), BUDGET, Ansi.OFF);
+        sink.write("new");
+        writer.open();
+        sink.close();
+
+        assertThat(splitLines(writer.toString())).containsExactly("old 1", "old 2", "new").inOrder();
+        assertThat(Files.exists(spillDirectory())).isFalse();
+    }
+
+    @Test
+    void spillPolicy_appendsRecoveredBacklogToFile() throws IOException {
+        Path file = tempDir.resolve("out.log");
+        Files.write(file, List.of("before"));
+        SpillQueue earlier =
+                new SpillQueue(QueuedSink.spillDirectory(file), SpillQueue.DEFAULT_SEGMENT_BYTES, BUDGET);
+        earlier.add("spilled", 0);
+        earlier.close();
+
+        QueuedSink sink = QueuedSink.create(file, 10, Policy.spill, BUDGET, Ansi.OFF);
+        sink.write("after");
+        sink.close();
+
+        assertThat(Files.readAllLines(file)).containsExactly("before", "spilled", "after").inOrder();
+    }
+
+    @Test
+    void blockPolicy_replacesFileDespiteBacklog() throws IOException {
+        Path file = tempDir.resolve("out.log");
+        Files.write(file, List.of("before"));
+        SpillQueue earlier =
+                new SpillQueue(QueuedSink.spillDirectory(file), SpillQueue.DEFAULT_SEGMENT_BYTES, BUDGET);
+        earlier.add("spilled", 0);
+        earlier.close();
+
+        QueuedSink sink = QueuedSink.create(file, 10, Policy.block, BUDGET, Ansi.OFF);
+        sink.write("after");
+        sink.close();
+
+        assertThat(Files.readAllLines(file)).containsExactly("after");
+    }
+
+    @Test
+    void reportsWriteFailureOnce() {
+        Writer failing = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("disk full");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        QueuedSink sink = new QueuedSink(failing, "out.log", 10, Policy.block, tempDir, BUDGET, Ansi.OFF);
+        sink.write("one");
+        sink.write("two");
+        sink.close();
+
+        assertThat(splitLines(err.getContent())).containsExactly("Cannot write out.log: disk full");
+        assertThat(sink.dropped()).isEqualTo(2);
+    }
+
+    @Test
+    void notifiesLineWriterWhenIdle() throws InterruptedException {
+        CountDownLatch idle = new CountDownLatch(1);
+        List<String> written = new ArrayList<>();
+        LineWriter lineWriter = new LineWriter() {
+            @Override
+            public void write(String line) {
+                written.add(line);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void idle() {
+                idle.countDown();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        QueuedSink sink = new QueuedSink(lineWriter, "test", 10, Policy.block, tempDir, BUDGET, Ansi.OFF);
+        sink.write("one");
+
+        assertThat(idle.await(5, TimeUnit.SECONDS)).isTrue();
+        sink.close();
+        assertThat(written).containsExactly("one");
+    }
+
+    @Test
+    void ignoresLinesAfterClose() {
+        QueuedSink sink = new QueuedSink(writer, "test", 10, Policy.block, tempDir, BUDGET, Ansi.OFF);
+        writer.open();
+        sink.close();
+        sink.write("late");
+
+        assertThat(writer.toString()).isEmpty();
+    }
+
+    private Path spillDirectory() {
+        return tempDir.resolve("spill");
+    }
+
+    private static int number(String line) {
+        return Integer.parseInt(line.substring("line ".length()));
+    }
+
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            lines.add("line " + i);
+        }
+        return lines;
+    }
+
+    /** Writer which blocks until opened, simulating a slow destination. */
+    private static final class GatedWriter extends Writer {
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final StringWriter content = new StringWriter();
+        volatile boolean closed = false;
+
+        void open() {
+            gate.countDown();
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            synchronized (content) {
+                content.write(buffer, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public String toString() {
+            synchronized (content) {
+                return content.toString();
+            }
+        }
+    }
+}
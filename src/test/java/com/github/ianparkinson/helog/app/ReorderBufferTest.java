@@ -0,0 +1,70 @@
+package com.github.ianparkinson.helog.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class ReorderBufferTest {
+    private static final ZonedDateTime START = ZonedDateTime.parse("2023-01-28T13:00:00.000Z");
+
+    private final ReorderBuffer buffer = new ReorderBuffer(Duration.ofMillis(200), 100);
+
+    @Test
+    void reportsInOrderOfReceipt() {
+        buffer.add(START.plusNanos(20_000_000), "b");
+        buffer.add(START, "a");
+        buffer.add(START.plusNanos(30_000_000), "c");
+
+        assertThat(buffer.report(START.plusNanos(230_000_000))).containsExactly("a", "b", "c").inOrder();
+        assertThat(buffer.size()).isEqualTo(0);
+    }
+
+    @Test
+    void holdsLinesForDelay() {
+        buffer.add(START, "a");
+        buffer.add(START.plusNanos(100_000_000), "b");
+
+        assertThat(buffer.report(START.plusNanos(199_000_000))).isEmpty();
+        assertThat(buffer.report(START.plusNanos(200_000_000))).containsExactly("a");
+        assertThat(buffer.report(START.plusNanos(300_000_000))).containsExactly("b");
+    }
+
+    @Test
+    void simultaneousLinesKeepOrderAdded() {
+        buffer.add(START, "a");
+        buffer.add(START, "b");
+        buffer.add(START, "c");
+
+        assertThat(buffer.report(START.plusSeconds(1))).containsExactly("a", "b", "c").inOrder();
+    }
+
+    @Test
+    void releasesEarliestBeyondCapacity() {
+        ReorderBuffer small = new ReorderBuffer(Duration.ofMillis(200), 2);
+        small.add(START.plusNanos(10_000_000), "b");
+        small.add(START, "a");
+        small.add(START.plusNanos(20_000_000), "c");
+
+        assertThat(small.size()).isEqualTo(3);
+        assertThat(small.report(START)).containsExactly("a");
+        assertThat(small.report(START.plusSeconds(1))).containsExactly("b", "c").inOrder();
+    }
+
+    @Test
+    void finalReportReportsEverything() {
+        buffer.add(START.plusNanos(10_000_000), "b");
+        buffer.add(START, "a");
+
+        assertThat(buffer.finalReport(START)).containsExactly("a", "b").inOrder();
+        assertThat(buffer.size()).isEqualTo(0);
+    }
+
+    @Test
+    void invalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ReorderBuffer(Duration.ofMillis(200), 0));
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class RepeatCollapserTest {
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse("2023-01-28T13:00:00.000Z");
+
+    private final RepeatCollapser collapser = new RepeatCollapser(
+            (dateTime, entry) -> dateTime.getSecond() + " " + entry.msg, Duration.ofSeconds(10), 100);
+
+    @Test
+    void writesFirstEntry() {
+        assertThat(collapser.format(DATE_TIME, entry("36", "info", "hello"))).isEqualTo("0 hello");
+    }
+
+    @Test
+    void suppressesRepeats() {
+        collapser.format(DATE_TIME, entry("36", "info", "hello"));
+        assertThat(collapser.format(DATE_TIME.plusSeconds(1), entry("36", "info", "hello"))).isNull();
+        assertThat(collapser.format(DATE_TIME.plusSeconds(2), entry("36", "info", "hello"))).isNull();
+    }
+
+    @Test
+    void distinguishesSourceLevelAndMessage() {
+        collapser.format(DATE_TIME, entry("36", "info", "hello"));
+        assertThat(collapser.format(DATE_TIME, entry("37", "info", "hello"))).isNotNull();
+        assertThat(collapser.format(DATE_TIME, entry("36", "warn", "hello"))).isNotNull();
+        assertThat(collapser.format(DATE_TIME, entry("36", "info", "goodbye"))).isNotNull();
+    }
+
+    @Test
+    void summarizesWhenWindowExpires() {
+        collapser.format(DATE_TIME, entry("36", "info", "hello"));
+        collapser.format(DATE_TIME.plusSeconds(5), entry("36", "info", "hello"));
+        collapser.format(DATE_TIME.plusSeconds(9), entry("36", "info", "hello"));
+
+        // The window starts at the first entry, however recent the last repeat.
+        assertThat(collapser.format(DATE_TIME.plusSeconds(10), entry("36", "info", "other")))
+                .isEqualTo("9 hello (repeated 2 more times)" + System.lineSeparator() + "10 other");
+    }
+
+    @Test
+    void summarizesContinuousRepeatsOncePerWindow() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i <= 30; i += 2) {
+            String line = collapser.format(DATE_TIME.plusSeconds(i), entry("36", "info", "hello"));
+            if (line != null) {
+                lines.add(line);
+            }
+        }
+        assertThat(lines).containsExactly(
+                "0 hello",
+                "8 hello (repeated 4 more times)",
+                "18 hello (repeated 5 more times)",
+                "28 hello (repeated 5 more times)").inOrder();
+    }
+
+    @Test
+    void expiresWithoutFurtherEntries() {
+        collapser.format(DATE_TIME, entry("36", "info", "hello"));
+        collapser.format(DATE_TIME.plusSeconds(3), entry("36", "info", "hello"));
+
+        assertThat(collapser.expire(DATE_TIME.plusSeconds(9))).isEmpty();
+        assertThat(collapser.expire(DATE_TIME.plusSeconds(10))).containsExactly("3 hello (repeated 1 more time)");
+        assertThat(collapser.expire(DATE_TIME.plusSeconds(20))).isEmpty();
+    }
+
+    @Test
+    void repeatAfterQuietWindowStartsNewBurst() {
+        collapser.format(DATE_TIME, entry("36", "info", "hello"));
+        collapser.format(DATE_TIME.plusSeconds(1), entry("36", "info", "hello"));
+        assertThat(collapser.expire(DATE_TIME.plusSeconds(10))).containsExactly("1 hello (repeated 1 more time)");
+        // No repeats in the next window, so the burst ends.
+        assertThat(collapser.expire(DATE_TIME.plusSeconds(20))).isEmpty();
+
+        assertThat(collapser.format(DATE_TIME.plusSeconds(25), entry("36", "info", "hello"))).isEqualTo("25 hello");
+    }
+
+    @Test
+    void singleEntryEndsQuietly() {
+        collapser.format(DATE_TIME, entry("36", "info", "hello"));
+        assertThat(collapser.expire(DATE_TIME.plusSeconds(10))).isEmpty();
+        assertThat(collapser.format(DATE_TIME.plusSeconds(11), entry("36", "info", "hello"))).isEqualTo("11 hello");
+    }
+
+    @Test
+    void flush() {
+        collapser.format(DATE_TIME, entry("36", "info", "hello"));
+        collapser.format(DATE_TIME.plusSeconds(1), entry("36", "info", "hello"));
+        collapser.format(DATE_TIME, entry("36", "info", "single"));
+
+        assertThat(collapser.flush()).containsExactly("1 hello (repeated 1 more time)");
+        assertThat(collapser.flush()).isEmpty();
+        assertThat(collapser.format(DATE_TIME.plusSeconds(2), entry("36", "info", "hello"))).isEqualTo("2 hello");
+    }
+
+    @Test
+    void boundedCapacity() {
+        RepeatCollapser small = new RepeatCollapser((dateTime, entry) -> entry.msg, Duration.ofSeconds(10), 2);
+        small.format(DATE_TIME, entry("36", "info", "a"));
+        small.format(DATE_TIME, entry("36", "info", "a"));
+        small.format(DATE_TIME, entry("36", "info", "b"));
+
+        assertThat(small.format(DATE_TIME, entry("36", "info", "c")))
+                .isEqualTo("c" + System.lineSeparator() + "a (repeated 1 more time)");
+        assertThat(small.format(DATE_TIME, entry("36", "info", "a"))).isNotNull();
+    }
+
+    private static LogEntry entry(String id, String level, String msg) {
+        LogEntry entry = new LogEntry();
+        entry.type = "dev";
+        entry.id = id;
+        entry.name = "Device " + id;
+        entry.level = level;
+        entry.msg = msg;
+        return entry;
+    }
+}
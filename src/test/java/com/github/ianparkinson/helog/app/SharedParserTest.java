@@ -0,0 +1,69 @@
+package com.github.ianparkinson.helog.app;
+
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+final class SharedParserTest {
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse("2023-01-28T13:00Z");
+
+    private int parses = 0;
+
+    private final SharedParser<String> parser = new SharedParser<>(text -> {
+        parses++;
+        if (text.toString().equals("bad")) {
+            throw new JsonSyntaxException("test exception");
+        }
+        return text.toString();
+    }, entry -> !entry.startsWith("x"));
+
+    @Test
+    void parsesOncePerFrame() {
+        Frame frame = new Frame(DATE_TIME, new StringBuilder("one"));
+        JsonRenderer<String> upper = parser.renderer((dateTime, entry) -> entry.toUpperCase());
+        JsonRenderer<String> quoted = parser.renderer((dateTime, entry) -> "'" + entry + "'");
+
+        assertThat(upper.render(frame)).isEqualTo("ONE");
+        assertThat(quoted.render(frame)).isEqualTo("'one'");
+        assertThat(parses).isEqualTo(1);
+    }
+
+    @Test
+    void parsesEachFrameInReusedBuffer() {
+        StringBuilder buffer = new StringBuilder("one");
+        assertThat(parser.parse(new Frame(DATE_TIME, buffer))).isEqualTo("one");
+        buffer.setLength(0);
+        buffer.append("two");
+        // Same time and buffer, but a different frame.
+        assertThat(parser.parse(new Frame(DATE_TIME, buffer))).isEqualTo("two");
+        assertThat(parses).isEqualTo(2);
+    }
+
+    @Test
+    void separateParsersDontShare() {
+        SharedParser<String> other = new SharedParser<>(text -> "other " + text, entry -> true);
+        Frame frame = new Frame(DATE_TIME, "one");
+        assertThat(parser.parse(frame)).isEqualTo("one");
+        assertThat(other.parse(frame)).isEqualTo("other one");
+    }
+
+    @Test
+    void filters() {
+        Frame frame = new Frame(DATE_TIME, "xyz");
+        assertThat(parser.parse(frame)).isNull();
+        assertThat(parser.renderer((dateTime, entry) -> entry).render(frame)).isNull();
+        assertThat(parses).isEqualTo(1);
+    }
+
+    @Test
+    void rethrowsSyntaxErrorForEachRenderer() {
+        Frame frame = new Frame(DATE_TIME, "bad");
+        assertThrows(JsonSyntaxException.class, () -> parser.parse(frame));
+        assertThrows(JsonSyntaxException.class, () -> parser.parse(frame));
+        assertThat(parses).isEqualTo(1);
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine.Help.Ansi;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class StateFileWriterTest {
+    private static final String DATE_TIME_STRING = "2023-01-28T13:00:00.000Z";
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse(DATE_TIME_STRING);
+
+    @TempDir
+    Path tempDir;
+
+    private final EventsJsonStream jsonStream = new EventsJsonStream();
+    private final EventStateTable table = new EventStateTable(jsonStream, 100);
+
+    @Test
+    void writesJson() throws IOException {
+        Path file = tempDir.resolve("state.json");
+        table.update(DATE_TIME, event("36", "switch", "on"));
+        new StateFileWriter(table, jsonStream, file, Ansi.OFF).writeIfDirty();
+
+        JsonArray array = JsonRenderer.gson.fromJson(Files.readString(file), JsonArray.class);
+        assertThat(array.size()).isEqualTo(1);
+        JsonObject object = array.get(0).getAsJsonObject();
+        assertThat(object.get("changedAt").getAsString()).isEqualTo(DATE_TIME_STRING);
+        assertThat(object.get("deviceId").getAsString()).isEqualTo("36");
+        assertThat(object.get("value").getAsString()).isEqualTo("on");
+        assertThat(object.get("unit").isJsonNull()).isTrue();
+    }
+
+    @Test
+    void writesCsv() throws IOException {
+        Path file = tempDir.resolve("state.CSV");
+        table.update(DATE_TIME, event("36", "switch", "on"));
+        new StateFileWriter(table, jsonStream, file, Ansi.OFF).writeIfDirty();
+
+        assertThat(Files.readAllLines(file)).containsExactly(
+                "changedAt,source,name,displayName,value,type,unit,deviceId,hubId,installedAppId,descriptionText",
+                DATE_TIME_STRING + ",DEVICE,switch,Device 36,on,,,36,,,").inOrder();
+    }
+
+    @Test
+    void onlyWritesWhenChanged() throws IOException {
+        Path file = tempDir.resolve("state.json");
+        StateFileWriter writer = new StateFileWriter(table, jsonStream, file, Ansi.OFF);
+        writer.writeIfDirty();
+        assertThat(Files.exists(file)).isFalse();
+
+        table.update(DATE_TIME, event("36", "switch", "on"));
+        writer.writeIfDirty();
+        Files.delete(file);
+        table.update(DATE_TIME, event("36", "switch", "on"));
+        writer.close();
+        assertThat(Files.exists(file)).isFalse();
+
+        table.update(DATE_TIME, event("36", "switch", "off"));
+        writer.writeIfDirty();
+        assertThat(Files.exists(file)).isTrue();
+    }
+
+    @Test
+    void leavesNoTemporaryFiles() throws IOException {
+        Path file = tempDir.resolve("state.json");
+        table.update(DATE_TIME, event("36", "switch", "on"));
+        StateFileWriter writer = new StateFileWriter(table, jsonStream, file, Ansi.OFF);
+        writer.writeIfDirty();
+        table.update(DATE_TIME, event("36", "switch", "off"));
+        writer.writeIfDirty();
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+
+    private static EventEntry event(String deviceId, String name, String value) {
+        EventEntry entry = new EventEntry();
+        entry.source = "DEVICE";
+        entry.deviceId = deviceId;
+        entry.displayName = "Device " + deviceId;
+        entry.name = name;
+        entry.value = value;
+        return entry;
+    }
+}
@@ -14,6 +14,8 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalUnit;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.github.ianparkinson.helog.testing.TestStrings.splitLines;
 import static com.github.ianparkinson.helog.util.ErrorMessage.errorMessage;
@@ -34,40 +36,40 @@ final class StreamPrinterTest {
 
     @Test
     void connectsToUri() {
-        printer.stream(uri, null, (dateTime, text) -> text);
+        printer.stream(uri, null, (dateTime, text) -> text.toString());
         assertThat(client.uri).isEqualTo(uri);
     }
 
     @Test
     void signalsConnected() {
-        printer.stream(uri, null, (dateTime, text) -> text);
+        printer.stream(uri, null, (dateTime, text) -> text.toString());
         client.listener.onOpen();
         assertThat(splitLines(err.getContent())).containsExactly("Connected to " + uri);
     }
 
     @Test
     void noHeader() {
-        printer.stream(uri, null, (dateTime, text) -> text);
+        printer.stream(uri, null, (dateTime, text) -> text.toString());
         client.listener.onOpen();
         assertThat(out.getContent()).isEmpty();
     }
 
     @Test
     void noHeaderBeforeConnected() {
-        printer.stream(uri, "Some Header", (dateTime, text) -> text);
+        printer.stream(uri, "Some Header", (dateTime, text) -> text.toString());
         assertThat(out.getContent()).isEmpty();
     }
 
     @Test
     void writesHeaderWhenConnected() {
-        printer.stream(uri, "Some Header", (dateTime, text) -> text);
+        printer.stream(uri, "Some Header", (dateTime, text) -> text.toString());
         client.listener.onOpen();
         assertThat(splitLines(out.getContent())).containsExactly("Some Header");
     }
 
     @Test
     void formatsText() {
-        printer.stream(uri, null, (dateTime, text) -> text.toUpperCase());
+        printer.stream(uri, null, (dateTime, text) -> text.toString().toUpperCase());
         client.listener.onOpen();
         client.listener.onText("some text", true);
 
@@ -76,7 +78,7 @@ final class StreamPrinterTest {
 
     @Test
     void combinesPartialTextEvents() {
-        printer.stream(uri, null, (dateTime, text) -> text.toUpperCase());
+        printer.stream(uri, null, (dateTime, text) -> text.toString().toUpperCase());
         client.listener.onOpen();
         client.listener.onText("some ", false);
         client.listener.onText("text", true);
@@ -86,7 +88,7 @@ final class StreamPrinterTest {
 
     @Test
     void multipleTextEvents() {
-        printer.stream(uri, null, (dateTime, text) -> text.toUpperCase());
+        printer.stream(uri, null, (dateTime, text) -> text.toString().toUpperCase());
         client.listener.onOpen();
         client.listener.onText("some", true);
         client.listener.onText("text", true);
@@ -96,7 +98,7 @@ final class StreamPrinterTest {
 
     @Test
     void textEventFollowingSplitText() {
-        printer.stream(uri, null, (dateTime, text) -> text.toUpperCase());
+        printer.stream(uri, null, (dateTime, text) -> text.toString().toUpperCase());
         client.listener.onOpen();
         client.listener.onText("some ", false);
         client.listener.onText("text", true);
@@ -108,10 +110,10 @@ final class StreamPrinterTest {
     @Test
     void filtersEvent() {
         StreamPrinter.Renderer renderer = (dateTime, text) -> {
-            if (text.contains("no")) {
+            if (text.toString().contains("no")) {
                 return null;
             } else {
-                return text;
+                return text.toString();
             }
         };
         printer.stream(uri, null, renderer);
@@ -161,10 +163,10 @@ final class StreamPrinterTest {
     @Test
     void reportsJsonSyntaxException() {
         StreamPrinter.Renderer renderer = (dateTime, text) -> {
-            if (text.contains("bad")) {
+            if (text.toString().contains("bad")) {
                 throw new JsonSyntaxException("test exception");
             } else {
-                return text;
+                return text.toString();
             }
         };
         printer.stream(uri, null, renderer);
@@ -182,9 +184,116 @@ final class StreamPrinterTest {
                 .inOrder();
     }
 
+    @Test
+    void reportsWholeFrameOnJsonSyntaxException() {
+        printer.stream(uri, null, (dateTime, text) -> {
+            throw new JsonSyntaxException("test exception");
+        });
+
+        client.listener.onOpen();
+        client.listener.onText("bad ", false);
+        client.listener.onText("text", true);
+
+        assertThat(splitLines(err.getContent())).containsExactly(
+                        "Connected to " + uri,
+                        "Malformed JSON: test exception",
+                        "bad text")
+                .inOrder();
+    }
+
+    @Test
+    void passesSingleFragmentWithoutCopying() {
+        CharSequence fragment = new StringBuilder("some text");
+        CharSequence[] received = new CharSequence[1];
+        printer.stream(uri, null, (dateTime, text) -> {
+            received[0] = text;
+            return null;
+        });
+        client.listener.onOpen();
+        client.listener.onText(fragment, true);
+
+        assertThat(received[0]).isSameInstanceAs(fragment);
+    }
+
+    @Test
+    void discardsOversizedFrame() {
+        StreamPrinter printer = new StreamPrinter(clock, CommandLine.Help.Ansi.OFF, client, 8, 1);
+        printer.stream(uri, null, (dateTime, text) -> text.toString());
+        client.listener.onOpen();
+        client.listener.onText("short", true);
+        client.listener.onText("very ", false);
+        client.listener.onText("long ", false);
+        client.listener.onText("text", true);
+        client.listener.onText("also", false);
+        client.listener.onText("fine", true);
+
+        assertThat(splitLines(out.getContent())).containsExactly("short", "alsofine").inOrder();
+        assertThat(splitLines(err.getContent())).containsExactly(
+                        "Connected to " + uri,
+                        "Frame too large: exceeded 8 characters, discarded")
+                .inOrder();
+    }
+
+    @Test
+    void discardsOversizedSingleFragment() {
+        StreamPrinter printer = new StreamPrinter(clock, CommandLine.Help.Ansi.OFF, client, 8, 1);
+        printer.stream(uri, null, (dateTime, text) -> text.toString());
+        client.listener.onOpen();
+        client.listener.onText("very long text", true);
+        client.listener.onText("short", true);
+
+        assertThat(splitLines(out.getContent())).containsExactly("short");
+    }
+
+    @Test
+    void parallelRenderingPreservesOrder() throws InterruptedException {
+        StreamPrinter printer = new StreamPrinter(clock, CommandLine.Help.Ansi.OFF, client, 1024, 4);
+        StreamPrinter.Streamer streamer = printer.stream(uri, null, (dateTime, text) -> {
+            // Earlier frames take longer to render, so would finish last if the output weren't re-ordered.
+            int value = Integer.parseInt(text.toString());
+            try {
+                Thread.sleep((20 - value) * 2L);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            return text.toString();
+        });
+        client.listener.onOpen();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            client.listener.onText(Integer.toString(i), true);
+            expected.add(Integer.toString(i));
+        }
+        client.listener.onError(errorMessage("closed"));
+        streamer.waitUntilError();
+
+        assertThat(splitLines(out.getContent())).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    void parallelRenderingReportsJsonSyntaxException() throws InterruptedException {
+        StreamPrinter printer = new StreamPrinter(clock, CommandLine.Help.Ansi.OFF, client, 1024, 2);
+        StreamPrinter.Streamer streamer = printer.stream(uri, null, (dateTime, text) -> {
+            if (text.toString().contains("bad")) {
+                throw new JsonSyntaxException("test exception");
+            }
+            return text.toString();
+        });
+        client.listener.onOpen();
+        client.listener.onText("bad ", false);
+        client.listener.onText("text", true);
+        client.listener.onText("good text", true);
+        client.listener.onError(errorMessage("closed"));
+        streamer.waitUntilError();
+
+        assertThat(splitLines(out.getContent())).containsExactly("good text");
+        assertThat(splitLines(err.getContent())).containsAtLeast("Malformed JSON: test exception", "bad text")
+                .inOrder();
+    }
+
     @Test
     void reportsConnectionError() {
-        printer.stream(uri, null, (dateTime, text) -> text);
+        printer.stream(uri, null, (dateTime, text) -> text.toString());
         client.listener.onError(errorMessage("test error"));
         assertThat(splitLines(out.getContent())).isEmpty();
         assertThat(splitLines(err.getContent())).containsExactly("test error");
@@ -192,13 +301,144 @@ final class StreamPrinterTest {
 
     @Test
     void reportsErrorAfterConnection() {
-        printer.stream(uri, null, (dateTime, text) -> text);
+        printer.stream(uri, null, (dateTime, text) -> text.toString());
         client.listener.onOpen();
         client.listener.onError(errorMessage("test error"));
         assertThat(splitLines(out.getContent())).isEmpty();
         assertThat(splitLines(err.getContent())).containsExactly("Connected to " + uri, "test error").inOrder();
     }
 
+    @Test
+    void sinksRenderIndependently() {
+        List<String> upper = new ArrayList<>();
+        List<String> filtered = new ArrayList<>();
+        printer.addSink((dateTime, text) -> text.toString().toUpperCase(), upper::add);
+        printer.addSink((dateTime, text) -> text.toString().equals("yes") ? "filtered " + text : null, filtered::add);
+        printer.stream(uri, null, (dateTime, text) -> text.toString());
+        client.listener.onOpen();
+        client.listener.onText("yes", true);
+        client.listener.onText("no", true);
+
+        assertThat(splitLines(out.getContent())).containsExactly("yes", "no").inOrder();
+        assertThat(upper).containsExactly("YES", "NO").inOrder();
+        assertThat(filtered).containsExactly("filtered yes");
+    }
+
+    @Test
+    void sinksShareEachParse() {
+        List<String> parsed = new ArrayList<>();
+        SharedParser<String> shared = new SharedParser<>(text -> {
+            parsed.add(text.toString());
+            return text.toString();
+        }, entry -> true);
+        List<String> sink = new ArrayList<>();
+        printer.addSink(shared.renderer((dateTime, entry) -> entry.toUpperCase()), sink::add);
+        printer.stream(uri, null, shared.renderer((dateTime, entry) -> entry));
+        client.listener.onOpen();
+        client.listener.onText("one", true);
+        client.listener.onText("one", true);
+
+        assertThat(splitLines(out.getContent())).containsExactly("one", "one");
+        assertThat(sink).containsExactly("ONE", "ONE");
+        // Once per frame, even though the frames are identical.
+        assertThat(parsed).hasSize(2);
+    }
+
+    @Test
+    void sinksWithParallelRendering() throws InterruptedException {
+        StreamPrinter printer = new StreamPrinter(clock, CommandLine.Help.Ansi.OFF, client, 1024, 4);
+        List<String> sink = new ArrayList<>();
+        printer.addSink((dateTime, text) -> text.toString().toUpperCase(), sink::add);
+        StreamPrinter.Streamer streamer = printer.stream(uri, null, (dateTime, text) -> text.toString());
+        client.listener.onOpen();
+        for (int i = 0; i < 100; i++) {
+            client.listener.onText("frame" + i, true);
+        }
+        client.listener.onError(errorMessage("done"));
+        streamer.waitUntilError();
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add("FRAME" + i);
+        }
+        assertThat(sink).containsExactlyElementsIn(expected).inOrder();
+    }
+
+    @Test
+    void attachWithoutBacklog() {
+        StreamPrinter.Streamer streamer = printer.stream(uri, null, (dateTime, text) -> text.toString());
+        client.listener.onOpen();
+        client.listener.onText("before", true);
+
+        List<String> attached = new ArrayList<>();
+        assertThat(streamer.attach((dateTime, text) -> text.toString().toUpperCase(), attached::add)).isEqualTo(0);
+        client.listener.onText("after", true);
+
+        assertThat(splitLines(out.getContent())).containsExactly("before", "after").inOrder();
+        assertThat(attached).containsExactly("AFTER");
+    }
+
+    @Test
+    void attachReplaysBacklog() {
+        StreamPrinter printer =
+                new StreamPrinter(clock, CommandLine.Help.Ansi.OFF, client, new FrameBuffer(1024), 1024, 1);
+        StreamPrinter.Streamer streamer = printer.stream(uri, null, (dateTime, text) -> null);
+        client.listener.onOpen();
+        client.listener.onText("first", true);
+        clock.advance(1, ChronoUnit.MINUTES);
+        client.listener.onText("sec", false);
+        client.listener.onText("ond", true);
+
+        List<String> attached = new ArrayList<>();
+        assertThat(streamer.attach((dateTime, text) -> dateTime + " " + text, attached::add)).isEqualTo(2);
+        clock.advance(1, ChronoUnit.MINUTES);
+        client.listener.onText("third", true);
+
+        assertThat(attached)
+                .containsExactly("2023-01-28T13:00Z first", "2023-01-28T13:01Z second", "2023-01-28T13:02Z third")
+                .inOrder();
+        assertThat(out.getContent()).isEmpty();
+    }
+
+    @Test
+    void attachRendersBacklogThroughRenderer() {
+        StreamPrinter printer =
+                new StreamPrinter(clock, CommandLine.Help.Ansi.OFF, client, new FrameBuffer(1024), 1024, 1);
+        StreamPrinter.Streamer streamer = printer.stream(uri, null, (dateTime, text) -> null);
+        client.listener.onOpen();
+        client.listener.onText("yes", true);
+        client.listener.onText("no", true);
+
+        List<String> attached = new ArrayList<>();
+        streamer.attach((dateTime, text) -> text.toString().equals("yes") ? text.toString() : null, attached::add);
+
+        assertThat(attached).containsExactly("yes");
+    }
+
+    @Test
+    void attachWithParallelRendering() throws InterruptedException {
+        StreamPrinter printer =
+                new StreamPrinter(clock, CommandLine.Help.Ansi.OFF, client, new FrameBuffer(64 * 1024), 1024, 4);
+        StreamPrinter.Streamer streamer = printer.stream(uri, null, (dateTime, text) -> null);
+        client.listener.onOpen();
+        List<String> attached = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i == 50) {
+                streamer.attach((dateTime, text) -> text.toString(), attached::add);
+            }
+            client.listener.onText("frame" + i, true);
+        }
+        client.listener.onError(errorMessage("done"));
+        streamer.waitUntilError();
+
+        // Each frame once, whether replayed or rendered as it arrived.
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            expected.add("frame" + i);
+        }
+        assertThat(attached).containsExactlyElementsIn(expected).inOrder();
+    }
+
     private static final class FakeClient implements TextWebSocketClient {
         public URI uri;
         public Listener listener;
@@ -3,13 +3,21 @@ package com.github.ianparkinson.helog.app;
 import com.github.ianparkinson.helog.app.TextWebSocketClient.Listener;
 import com.github.ianparkinson.helog.testing.WebSocketServerExtension;
 import com.github.ianparkinson.helog.util.ErrorMessage;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
 import java.io.IOException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -40,6 +48,82 @@ final class TextWebSocketClientImplTest {
         assertThat(listener.event(1).text).isEqualTo("foo");
     }
 
+    @Test
+    void pingingClientReportsDataAndClose() throws InterruptedException {
+        TextWebSocketClientImpl pingingClient =
+                new TextWebSocketClientImpl(Duration.ofMillis(10), Duration.ofSeconds(5));
+        webServer.content.add("foo");
+        pingingClient.connect(uri(), listener);
+        assertThat(listener.event(1).text).isEqualTo("foo");
+        assertThat(listener.event(2).eventType).isEqualTo(EventType.ERROR);
+    }
+
+    @Test
+    void pingingClientKeepsSeveralConnectionsAlive() throws InterruptedException, IOException {
+        // Unlike webServer, keeps each connection open, and answers pings.
+        try (MockWebServer server = new MockWebServer()) {
+            CountDownLatch opened = new CountDownLatch(2);
+            WebSocketListener serverListener = new WebSocketListener() {
+                @Override
+                public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
+                    opened.countDown();
+                }
+            };
+            server.enqueue(new MockResponse().withWebSocketUpgrade(serverListener));
+            server.enqueue(new MockResponse().withWebSocketUpgrade(serverListener));
+            server.start();
+            URI uri = URI.create("ws://" + server.getHostName() + ":" + server.getPort());
+            TextWebSocketClientImpl pingingClient =
+                    new TextWebSocketClientImpl(Duration.ofMillis(20), Duration.ofMillis(200));
+            RecordingListener first = new RecordingListener();
+            RecordingListener second = new RecordingListener();
+
+            pingingClient.connect(uri, first);
+            pingingClient.connect(uri, second);
+            assertThat(opened.await(5, TimeUnit.SECONDS)).isTrue();
+            // Many times the ping interval and timeout: a connection whose pongs went unnoticed would have failed.
+            Thread.sleep(1000);
+
+            assertThat(first.failed()).isFalse();
+            assertThat(second.failed()).isFalse();
+            assertThat(pingingClient.roundTrips()).contains("; ");
+        }
+    }
+
+    @Test
+    void pingingClientToleratesBlockedListener() throws InterruptedException, IOException {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+                @Override
+                public void onOpen(@NotNull WebSocket webSocket, @NotNull Response response) {
+                    webSocket.send("slow");
+                    webSocket.send("after");
+                }
+            }));
+            server.start();
+            URI uri = URI.create("ws://" + server.getHostName() + ":" + server.getPort());
+            TextWebSocketClientImpl pingingClient =
+                    new TextWebSocketClientImpl(Duration.ofMillis(20), Duration.ofMillis(200));
+            CountDownLatch after = new CountDownLatch(1);
+            RecordingListener blocking = new RecordingListener() {
+                @Override
+                public void onText(CharSequence text, boolean last) {
+                    if (text.toString().equals("slow")) {
+                        // Like a stalled output, for many times the ping timeout.
+                        sleep(1000);
+                    } else {
+                        after.countDown();
+                    }
+                    super.onText(text, last);
+                }
+            };
+
+            pingingClient.connect(uri, blocking);
+            assertThat(after.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(blocking.failed()).isFalse();
+        }
+    }
+
     @Test
     void reportsConnectionFailure() throws InterruptedException, IOException {
         webServer.close();
@@ -51,7 +135,7 @@ final class TextWebSocketClientImplTest {
         return URI.create("ws://" + webServer.getHostAndPort());
     }
 
-    private static final class RecordingListener implements Listener {
+    private static class RecordingListener implements Listener {
         private final ArrayList<RecordedEvent> events = new ArrayList<>();
         private final CountDownLatch latch = new CountDownLatch(1);
         private StringBuilder stringBuilder = new StringBuilder();
@@ -76,12 +160,24 @@ final class TextWebSocketClientImplTest {
             latch.countDown();
         }
 
+        public boolean failed() {
+            return latch.getCount() == 0;
+        }
+
         public RecordedEvent event(int index) throws InterruptedException {
             latch.await();
             return events.get(index);
         }
     }
 
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private enum EventType { OPEN, TEXT, ERROR }
 
     private static final class RecordedEvent {
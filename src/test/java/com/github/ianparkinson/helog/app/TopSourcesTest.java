@@ -0,0 +1,54 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.LogJsonStream.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class TopSourcesTest {
+    private static final String DATE_TIME_STRING = "2023-01-28T13:00:00.000Z";
+    private static final ZonedDateTime DATE_TIME = ZonedDateTime.parse(DATE_TIME_STRING);
+
+    @Test
+    void report() {
+        TopSources<LogEntry> top = new TopSources<>(new LogJsonStream(), 10, 10);
+        for (int i = 0; i < 6; i++) {
+            top.add(DATE_TIME, entry("36", "Underfloor Heating"));
+        }
+        top.add(DATE_TIME, entry("34", "Lamp"));
+
+        assertThat(top.report(DATE_TIME)).containsExactly(
+                DATE_TIME_STRING + "  7 entries from 2 sources",
+                "rate 10s rate 60s      total  source",
+                "    0.60     0.10          6  dev 36 Underfloor Heating",
+                "    0.10     0.02          1  dev 34 Lamp").inOrder();
+    }
+
+    @Test
+    void reportMarksApproximateCounts() {
+        TopSources<LogEntry> top = new TopSources<>(new LogJsonStream(), 1, 10);
+        top.add(DATE_TIME, entry("36", "Underfloor Heating"));
+        top.add(DATE_TIME, entry("34", "Lamp"));
+
+        assertThat(top.report(DATE_TIME)).contains("    0.10     0.02         ~2  dev 34 Lamp");
+    }
+
+    @Test
+    void reportLimitsRows() {
+        TopSources<LogEntry> top = new TopSources<>(new LogJsonStream(), 10, 1);
+        top.add(DATE_TIME, entry("36", "Underfloor Heating"));
+        top.add(DATE_TIME, entry("34", "Lamp"));
+
+        assertThat(top.report(DATE_TIME)).hasSize(3);
+    }
+
+    private static LogEntry entry(String id, String name) {
+        LogEntry entry = new LogEntry();
+        entry.type = "dev";
+        entry.id = id;
+        entry.name = name;
+        return entry;
+    }
+}
@@ -0,0 +1,161 @@
+package com.github.ianparkinson.helog.app;
+
+import com.github.ianparkinson.helog.app.EventsJsonStream.EventEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class WindowedStatsTest {
+    private static final ZonedDateTime START = ZonedDateTime.parse("2023-01-28T13:00:00.000Z");
+
+    private final EventsJsonStream eventsJsonStream = new EventsJsonStream();
+
+    @Test
+    void tumblingWindow() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 60, 60, false);
+        stats.add(START.plusSeconds(1), event("36", "Heater", "power", "10.5", "W"));
+        stats.add(START.plusSeconds(20), event("36", "Heater", "power", "20", "W"));
+        stats.add(START.plusSeconds(40), event("36", "Heater", "power", "12", "W"));
+
+        assertThat(stats.report(START.plusSeconds(59))).isEmpty();
+        assertThat(stats.report(START.plusSeconds(60))).containsExactly(
+                "2023-01-28T13:01:00.000Z dev 36 Heater: power count=3 min=10.5 max=20 mean=14.167 last=12 W");
+        assertThat(stats.report(START.plusSeconds(120))).isEmpty();
+    }
+
+    @Test
+    void eventAfterWindowEndsBeforeReport() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 60, 60, false);
+        for (int i = 0; i < 60; i++) {
+            stats.add(START.plusSeconds(i), event("36", "Heater", "power", "10", "W"));
+        }
+        stats.add(START.plus(Duration.ofMillis(60_100)), event("36", "Heater", "power", "20", "W"));
+
+        assertThat(stats.report(START.plus(Duration.ofMillis(60_500)))).containsExactly(
+                "2023-01-28T13:01:00.000Z dev 36 Heater: power count=60 min=10 max=10 mean=10 last=10 W");
+        assertThat(stats.report(START.plusSeconds(120))).containsExactly(
+                "2023-01-28T13:02:00.000Z dev 36 Heater: power count=1 min=20 max=20 mean=20 last=20 W");
+    }
+
+    @Test
+    void eventSeveralSlidesAheadOfReport() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 20, 10, false);
+        stats.add(START, event("36", "Heater", "power", "10", "W"));
+        stats.add(START.plusSeconds(10), event("36", "Heater", "power", "20", "W"));
+        stats.add(START.plusSeconds(25), event("36", "Heater", "power", "30", "W"));
+
+        assertThat(stats.report(START.plusSeconds(25))).containsExactly(
+                "2023-01-28T13:00:10.000Z dev 36 Heater: power count=1 min=10 max=10 mean=10 last=10 W",
+                "2023-01-28T13:00:20.000Z dev 36 Heater: power count=2 min=10 max=20 mean=15 last=20 W").inOrder();
+    }
+
+    @Test
+    void separateSeriesForEachDeviceAndName() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 60, 60, false);
+        stats.add(START, event("36", "Heater", "power", "10", "W"));
+        stats.add(START, event("36", "Heater", "temperature", "20", "C"));
+        stats.add(START, event("34", "Lamp", "power", "5", "W"));
+
+        assertThat(stats.report(START.plusSeconds(60))).containsExactly(
+                "2023-01-28T13:01:00.000Z dev 36 Heater: power count=1 min=10 max=10 mean=10 last=10 W",
+                "2023-01-28T13:01:00.000Z dev 36 Heater: temperature count=1 min=20 max=20 mean=20 last=20 C",
+                "2023-01-28T13:01:00.000Z dev 34 Lamp: power count=1 min=5 max=5 mean=5 last=5 W").inOrder();
+    }
+
+    @Test
+    void ignoresNonNumericValues() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 60, 60, false);
+        stats.add(START, event("34", "Lamp", "switch", "on", "null"));
+        stats.add(START, event("34", "Lamp", "level", "NaN", "null"));
+
+        assertThat(stats.report(START.plusSeconds(60))).isEmpty();
+        assertThat(stats.finalReport(START.plusSeconds(60))).isEmpty();
+    }
+
+    @Test
+    void omitsNullUnit() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 60, 60, false);
+        stats.add(START, event("34", "Lamp", "level", "50", "null"));
+
+        assertThat(stats.report(START.plusSeconds(60))).containsExactly(
+                "2023-01-28T13:01:00.000Z dev 34 Lamp: level count=1 min=50 max=50 mean=50 last=50");
+    }
+
+    @Test
+    void slidingWindow() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 30, 10, false);
+        stats.add(START.plusSeconds(5), event("36", "Heater", "power", "10", "W"));
+        stats.add(START.plusSeconds(15), event("36", "Heater", "power", "20", "W"));
+
+        assertThat(stats.report(START.plusSeconds(20))).containsExactly(
+                "2023-01-28T13:00:10.000Z dev 36 Heater: power count=1 min=10 max=10 mean=10 last=10 W",
+                "2023-01-28T13:00:20.000Z dev 36 Heater: power count=2 min=10 max=20 mean=15 last=20 W").inOrder();
+        assertThat(stats.report(START.plusSeconds(40))).containsExactly(
+                "2023-01-28T13:00:30.000Z dev 36 Heater: power count=2 min=10 max=20 mean=15 last=20 W",
+                "2023-01-28T13:00:40.000Z dev 36 Heater: power count=1 min=20 max=20 mean=20 last=20 W").inOrder();
+        assertThat(stats.report(START.plusSeconds(100))).isEmpty();
+    }
+
+    @Test
+    void idleGapsAreSkipped() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 60, 60, false);
+        stats.add(START, event("36", "Heater", "power", "10", "W"));
+        stats.report(START.plusSeconds(60));
+        stats.add(START.plusSeconds(3600), event("36", "Heater", "power", "30", "W"));
+
+        assertThat(stats.report(START.plusSeconds(3660))).containsExactly(
+                "2023-01-28T14:01:00.000Z dev 36 Heater: power count=1 min=30 max=30 mean=30 last=30 W");
+    }
+
+    @Test
+    void lateEventCountedInOpenWindow() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 60, 60, false);
+        stats.add(START, event("36", "Heater", "power", "10", "W"));
+        stats.add(START.plusSeconds(61), event("36", "Heater", "power", "20", "W"));
+        stats.report(START.plusSeconds(60));
+        stats.add(START.plusSeconds(59), event("36", "Heater", "power", "30", "W"));
+
+        assertThat(stats.report(START.plusSeconds(120))).containsExactly(
+                "2023-01-28T13:02:00.000Z dev 36 Heater: power count=2 min=20 max=30 mean=25 last=30 W");
+    }
+
+    @Test
+    void finalReportIncludesPartialWindow() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 60, 60, false);
+        stats.add(START.plusSeconds(10), event("36", "Heater", "power", "10", "W"));
+
+        assertThat(stats.finalReport(START.plusSeconds(30))).containsExactly(
+                "2023-01-28T13:00:30.000Z dev 36 Heater: power count=1 min=10 max=10 mean=10 last=10 W");
+    }
+
+    @Test
+    void csv() {
+        WindowedStats stats = new WindowedStats(eventsJsonStream, 60, 60, true);
+        stats.add(START, event("36", "Heater", "power", "10", "W"));
+
+        assertThat(WindowedStats.csvHeader())
+                .isEqualTo("windowStart,windowEnd,sourceType,id,displayName,name,count,min,max,mean,last,unit");
+        assertThat(stats.report(START.plusSeconds(60))).containsExactly(
+                "2023-01-28T13:00:00.000Z,2023-01-28T13:01:00.000Z,dev,36,Heater,power,1,10,10,10,10,W");
+    }
+
+    @Test
+    void rejectsWindowNotMultipleOfSlide() {
+        assertThrows(IllegalArgumentException.class, () -> new WindowedStats(eventsJsonStream, 60, 25, false));
+    }
+
+    private static EventEntry event(String deviceId, String displayName, String name, String value, String unit) {
+        EventEntry entry = new EventEntry();
+        entry.source = "DEVICE";
+        entry.deviceId = deviceId;
+        entry.displayName = displayName;
+        entry.name = name;
+        entry.value = value;
+        entry.unit = unit;
+        return entry;
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.ianparkinson.helog.cli;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class AdvancedOptionsTest {
+    private final AdvancedOptions advancedOptions = new AdvancedOptions();
+    private final FormatOptions formatOptions = new FormatOptions();
+    private final SummaryOptions summaryOptions = new SummaryOptions();
+
+    @Test
+    void validate_defaults() {
+        assertDoesNotThrow(() -> validate(Stream.all));
+        assertThat(advancedOptions.backlogBytes()).isEqualTo(0);
+    }
+
+    @Test
+    void validate_backlog() {
+        advancedOptions.backlog = 16;
+        assertDoesNotThrow(() -> validate(Stream.log));
+        formatOptions.csv = true;
+        assertDoesNotThrow(() -> validate(Stream.events));
+        assertThat(advancedOptions.backlogBytes()).isEqualTo(16 * 1024 * 1024);
+    }
+
+    @Test
+    void validate_backlogRange() {
+        advancedOptions.backlog = -1;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.log));
+        advancedOptions.backlog = 2048;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.log));
+        advancedOptions.backlog = 2047;
+        assertDoesNotThrow(() -> validate(Stream.log));
+    }
+
+    @Test
+    void validate_backlogDisallowedWithAll() {
+        advancedOptions.backlog = 16;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.all));
+    }
+
+    @Test
+    void validate_backlogDisallowedWithSummaries() {
+        advancedOptions.backlog = 16;
+        formatOptions.top = true;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.log));
+        formatOptions.top = false;
+        summaryOptions.window = 60;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.events));
+    }
+
+    private void validate(Stream stream) throws ParameterValidationException {
+        advancedOptions.validate(stream, formatOptions, summaryOptions);
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.ianparkinson.helog.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class ArchiveOptionsTest {
+    private final ArchiveOptions archiveOptions = new ArchiveOptions();
+    private final FormatOptions formatOptions = new FormatOptions();
+    private final SummaryOptions summaryOptions = new SummaryOptions();
+    private final AdvancedOptions advancedOptions = new AdvancedOptions();
+
+    @Test
+    void validate_defaults() {
+        assertDoesNotThrow(this::validateEvents);
+    }
+
+    @Test
+    void validate_archive() {
+        archiveOptions.archive = Path.of("log.hla");
+        assertDoesNotThrow(this::validateLog);
+        assertThrows(ParameterValidationException.class, this::validateEvents);
+    }
+
+    @Test
+    void validate_archiveDisallowedWithRaw() {
+        archiveOptions.archive = Path.of("log.hla");
+        formatOptions.raw = true;
+        assertThrows(ParameterValidationException.class, this::validateLog);
+    }
+
+    @Test
+    void validate_archiveDisallowedWithBacklog() {
+        archiveOptions.archive = Path.of("log.hla");
+        advancedOptions.backlog = 16;
+        assertThrows(ParameterValidationException.class, this::validateLog);
+    }
+
+    @Test
+    void validate_archiveDisallowedWithThreads() {
+        archiveOptions.archive = Path.of("log.hla");
+        advancedOptions.threads = 2;
+        assertThrows(ParameterValidationException.class, this::validateLog);
+    }
+
+    @Test
+    void validate_archiveDisallowedWithReplay() {
+        archiveOptions.archive = Path.of("log.hla");
+        archiveOptions.replay = List.of(Path.of("other.hla"));
+        assertThrows(ParameterValidationException.class, this::validateLog);
+    }
+
+    @Test
+    void validate_replay() {
+        archiveOptions.replay = List.of(Path.of("log.hla"));
+        formatOptions.csv = true;
+        assertDoesNotThrow(this::validateLog);
+        assertThrows(ParameterValidationException.class, this::validateEvents);
+    }
+
+    @Test
+    void validate_replayDisallowedWithSummaries() {
+        archiveOptions.replay = List.of(Path.of("log.hla"));
+        formatOptions.top = true;
+        assertThrows(ParameterValidationException.class, this::validateLog);
+    }
+
+    private void validateLog() throws ParameterValidationException {
+        archiveOptions.validate(Stream.log, formatOptions, summaryOptions, advancedOptions);
+    }
+
+    private void validateEvents() throws ParameterValidationException {
+        archiveOptions.validate(Stream.events, formatOptions, summaryOptions, advancedOptions);
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.ianparkinson.helog.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class ExportOptionsTest {
+    private final ExportOptions exportOptions = new ExportOptions();
+    private final ArchiveOptions archiveOptions = new ArchiveOptions();
+
+    @Test
+    void validate_defaults() {
+        assertDoesNotThrow(() -> exportOptions.validate(Stream.all, archiveOptions));
+        assertThat(exportOptions.exports()).isFalse();
+    }
+
+    @Test
+    void validate_elasticsearch() {
+        exportOptions.elasticsearch = URI.create("https://localhost:9200");
+        exportOptions.index = "hub-events";
+        assertDoesNotThrow(() -> exportOptions.validate(Stream.events, archiveOptions));
+        assertThat(exportOptions.exports()).isTrue();
+    }
+
+    @Test
+    void validate_elasticsearchNotHttp() {
+        exportOptions.elasticsearch = URI.create("ftp://localhost:9200");
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_elasticsearchWithoutHost() {
+        exportOptions.elasticsearch = URI.create("http:/_bulk");
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_indexWithoutElasticsearch() {
+        exportOptions.index = "helog";
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_indexUpperCase() {
+        exportOptions.elasticsearch = URI.create("http://localhost:9200");
+        exportOptions.index = "Helog";
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_disallowedWithAll() {
+        exportOptions.elasticsearch = URI.create("http://localhost:9200");
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.all, archiveOptions));
+    }
+
+    @Test
+    void validate_disallowedWithReplay() {
+        exportOptions.elasticsearch = URI.create("http://localhost:9200");
+        archiveOptions.replay = List.of(Path.of("log.hlog"));
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_nonPositiveBatchSize() {
+        exportOptions.batchSize = 0;
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_nonPositiveBatchDelay() {
+        exportOptions.batchDelay = 0;
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_negativeRetries() {
+        exportOptions.maxRetries = -1;
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_zeroRetries() {
+        exportOptions.maxRetries = 0;
+        assertDoesNotThrow(() -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_influxdb() {
+        exportOptions.influxdb = URI.create("http://localhost:8086");
+        exportOptions.influxdbOrg = "home";
+        exportOptions.influxdbBucket = "hubitat";
+        assertDoesNotThrow(() -> exportOptions.validate(Stream.events, archiveOptions));
+        assertThat(exportOptions.exports()).isTrue();
+    }
+
+    @Test
+    void validate_influxdbOnlyWithEvents() {
+        exportOptions.influxdb = URI.create("http://localhost:8086");
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_influxdbBucketWithoutInfluxdb() {
+        exportOptions.influxdbBucket = "hubitat";
+        assertThrows(ParameterValidationException.class,
+                () -> exportOptions.validate(Stream.events, archiveOptions));
+    }
+
+    @Test
+    void validate_influxdbEmptyBucket() {
+        exportOptions.influxdb = URI.create("http://localhost:8086");
+        exportOptions.influxdbBucket = "";
+        assertThrows(ParameterValidationException.class,
+                () -> exportOptions.validate(Stream.events, archiveOptions));
+    }
+
+    @Test
+    void validate_otlp() {
+        exportOptions.otlp = URI.create("http://localhost:4318");
+        exportOptions.otlpHeaders = Map.of("Authorization", "Bearer secret");
+        assertDoesNotThrow(() -> exportOptions.validate(Stream.log, archiveOptions));
+        assertThat(exportOptions.exports()).isTrue();
+    }
+
+    @Test
+    void validate_otlpNotHttp() {
+        exportOptions.otlp = URI.create("grpc://localhost:4317");
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_otlpHeaderWithoutOtlp() {
+        exportOptions.otlpHeaders = Map.of("Authorization", "Bearer secret");
+        assertThrows(ParameterValidationException.class, () -> exportOptions.validate(Stream.log, archiveOptions));
+    }
+}
@@ -1,7 +1,9 @@
 package com.github.ianparkinson.helog.cli;
 
+import com.github.ianparkinson.helog.app.EntrySource;
 import com.github.ianparkinson.helog.app.JsonStream;
 import com.github.ianparkinson.helog.app.JsonStreamFormatter;
+import com.github.ianparkinson.helog.app.JsonStreamParser;
 import com.github.ianparkinson.helog.cli.FilterOptions.LogLevel;
 import com.google.gson.reflect.TypeToken;
 import org.junit.jupiter.api.Test;
@@ -23,6 +25,31 @@ final class FilterOptionsTest {
     private final FormatOptions formatOptions = new FormatOptions();
     private final TestJsonStream stream = new TestJsonStream();
 
+    @Test
+    void validate_allAllowsDevice() {
+        filterOptions.device = List.of("42", "Heater");
+        filterOptions.app = List.of("12");
+        assertDoesNotThrow(() -> filterOptions.validate(Stream.all, formatOptions));
+    }
+
+    @Test
+    void validate_allDisallowsAppName() {
+        filterOptions.app = List.of("Rule");
+        assertThrows(ParameterValidationException.class, () -> filterOptions.validate(Stream.all, formatOptions));
+    }
+
+    @Test
+    void validate_allDisallowsName() {
+        filterOptions.name = List.of("switch");
+        assertThrows(ParameterValidationException.class, () -> filterOptions.validate(Stream.all, formatOptions));
+    }
+
+    @Test
+    void validate_allDisallowsLevel() {
+        filterOptions.level = List.of(LogLevel.info);
+        assertThrows(ParameterValidationException.class, () -> filterOptions.validate(Stream.all, formatOptions));
+    }
+
     @Test
     void validate_rawDisallowsDevice() {
         formatOptions.raw = true;
@@ -549,6 +576,16 @@ final class FilterOptionsTest {
             return TypeToken.get(TestEntry.class);
         }
 
+        @Override
+        public JsonStreamParser<TestEntry> parser() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public EntrySource source(TestEntry entry) {
+            throw new UnsupportedOperationException();
+        }
+
         @Override
         public Predicate<TestEntry> device(String device) {
             return entry -> Objects.equals(entry.device, device);
@@ -0,0 +1,34 @@
+package com.github.ianparkinson.helog.cli;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class FormatOptionsTest {
+    private final FormatOptions formatOptions = new FormatOptions();
+
+    @Test
+    void validate_defaults() {
+        assertDoesNotThrow(() -> formatOptions.validate(Stream.all));
+    }
+
+    @Test
+    void validate_allAllowsRaw() {
+        formatOptions.raw = true;
+        assertDoesNotThrow(() -> formatOptions.validate(Stream.all));
+    }
+
+    @Test
+    void validate_allDisallowsCsv() {
+        formatOptions.csv = true;
+        assertThrows(ParameterValidationException.class, () -> formatOptions.validate(Stream.all));
+    }
+
+    @Test
+    void validate_allDisallowsTop() {
+        formatOptions.top = true;
+        assertThrows(ParameterValidationException.class, () -> formatOptions.validate(Stream.all));
+        assertDoesNotThrow(() -> formatOptions.validate(Stream.log));
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.ianparkinson.helog.cli;
+
+import com.github.ianparkinson.helog.cli.OutputOptions.Format;
+import com.github.ianparkinson.helog.cli.OutputOptions.Output;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class OutputOptionsTest {
+    private final OutputOptions outputOptions = new OutputOptions();
+    private final ArchiveOptions archiveOptions = new ArchiveOptions();
+
+    @Test
+    void validate_defaults() throws ParameterValidationException {
+        assertDoesNotThrow(() -> outputOptions.validate(Stream.all, archiveOptions));
+        assertThat(outputOptions.parse()).isEmpty();
+    }
+
+    @Test
+    void parse() throws ParameterValidationException {
+        outputOptions.outputs = List.of("raw:events.json", "human:events.log", "csv:/tmp/events.csv");
+        assertDoesNotThrow(() -> outputOptions.validate(Stream.events, archiveOptions));
+
+        List<Output> outputs = outputOptions.parse();
+        assertThat(outputs).hasSize(3);
+        assertThat(outputs.get(0).format).isEqualTo(Format.raw);
+        assertThat(outputs.get(0).file).isEqualTo(Path.of("events.json"));
+        assertThat(outputs.get(1).format).isEqualTo(Format.human);
+        assertThat(outputs.get(2).format).isEqualTo(Format.csv);
+        assertThat(outputs.get(2).file).isEqualTo(Path.of("/tmp/events.csv"));
+    }
+
+    @Test
+    void validate_missingFile() {
+        outputOptions.outputs = List.of("csv:");
+        assertThrows(ParameterValidationException.class, () -> outputOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_missingFormat() {
+        outputOptions.outputs = List.of("events.log");
+        assertThrows(ParameterValidationException.class, () -> outputOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_unknownFormat() {
+        outputOptions.outputs = List.of("json:events.log");
+        assertThrows(ParameterValidationException.class, () -> outputOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_influx() throws ParameterValidationException {
+        outputOptions.outputs = List.of("influx:events.lp");
+        assertDoesNotThrow(() -> outputOptions.validate(Stream.events, archiveOptions));
+        assertThat(outputOptions.parse().get(0).format).isEqualTo(Format.influx);
+    }
+
+    @Test
+    void validate_influxOnlyWithEvents() {
+        outputOptions.outputs = List.of("influx:log.lp");
+        assertThrows(ParameterValidationException.class, () -> outputOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void parse_bySource() throws ParameterValidationException {
+        outputOptions.outputs = List.of("raw:events.json");
+        outputOptions.bySource = List.of("human:devices");
+        assertDoesNotThrow(() -> outputOptions.validate(Stream.events, archiveOptions));
+
+        List<Output> outputs = outputOptions.parse();
+        assertThat(outputs).hasSize(2);
+        assertThat(outputs.get(0).bySource).isFalse();
+        assertThat(outputs.get(1).bySource).isTrue();
+        assertThat(outputs.get(1).format).isEqualTo(Format.human);
+        assertThat(outputs.get(1).file).isEqualTo(Path.of("devices"));
+    }
+
+    @Test
+    void validate_bySourceRaw() {
+        outputOptions.bySource = List.of("raw:devices");
+        assertThrows(ParameterValidationException.class, () -> outputOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_bySourceDisallowedWithAll() {
+        outputOptions.bySource = List.of("csv:devices");
+        assertThrows(ParameterValidationException.class, () -> outputOptions.validate(Stream.all, archiveOptions));
+    }
+
+    @Test
+    void validate_nonPositiveMaxOpenFiles() {
+        outputOptions.bySource = List.of("csv:devices");
+        outputOptions.maxOpenFiles = 0;
+        assertThrows(ParameterValidationException.class, () -> outputOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_disallowedWithAll() {
+        outputOptions.outputs = List.of("raw:all.json");
+        assertThrows(ParameterValidationException.class, () -> outputOptions.validate(Stream.all, archiveOptions));
+    }
+
+    @Test
+    void validate_disallowedWithReplay() {
+        outputOptions.outputs = List.of("human:log.txt");
+        archiveOptions.replay = List.of(Path.of("log.hla"));
+        assertThrows(ParameterValidationException.class, () -> outputOptions.validate(Stream.log, archiveOptions));
+    }
+
+    @Test
+    void validate_queueMustBePositive() {
+        outputOptions.outputs = List.of("human:log.txt");
+        outputOptions.queue = 0;
+        assertThrows(ParameterValidationException.class, () -> outputOptions.validate(Stream.log, archiveOptions));
+    }
+}
@@ -0,0 +1,113 @@
+package com.github.ianparkinson.helog.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class StateOptionsTest {
+    private final StateOptions stateOptions = new StateOptions();
+    private final FormatOptions formatOptions = new FormatOptions();
+    private final SummaryOptions summaryOptions = new SummaryOptions();
+    private final AdvancedOptions advancedOptions = new AdvancedOptions();
+
+    @Test
+    void validate_defaults() {
+        assertDoesNotThrow(() -> validate(Stream.log));
+    }
+
+    @Test
+    void validate_changes() {
+        stateOptions.changes = true;
+        assertDoesNotThrow(() -> validate(Stream.events));
+        formatOptions.csv = true;
+        assertDoesNotThrow(() -> validate(Stream.events));
+    }
+
+    @Test
+    void validate_changesDisallowedWithLog() {
+        stateOptions.changes = true;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.log));
+    }
+
+    @Test
+    void validate_changesDisallowedWithRaw() {
+        stateOptions.changes = true;
+        formatOptions.raw = true;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.events));
+    }
+
+    @Test
+    void validate_changesDisallowedWithSummaries() {
+        stateOptions.changes = true;
+        summaryOptions.window = 60;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.events));
+    }
+
+    @Test
+    void validate_changesDisallowedWithThreads() {
+        stateOptions.changes = true;
+        advancedOptions.threads = 4;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.events));
+    }
+
+    @Test
+    void validate_changesDisallowedWithBacklog() {
+        stateOptions.changes = true;
+        advancedOptions.backlog = 16;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.events));
+    }
+
+    @Test
+    void validate_stateFile() {
+        stateOptions.stateFile = Path.of("state.json");
+        assertDoesNotThrow(() -> validate(Stream.events));
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.log));
+    }
+
+    @Test
+    void validate_stateFileDisallowedWithThreads() {
+        stateOptions.stateFile = Path.of("state.json");
+        advancedOptions.threads = 4;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.events));
+    }
+
+    @Test
+    void validate_stateIntervalMustBePositive() {
+        stateOptions.stateInterval = 0;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.events));
+    }
+
+    @Test
+    void validate_collapse() {
+        stateOptions.collapse = 10;
+        assertDoesNotThrow(() -> validate(Stream.log));
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.events));
+    }
+
+    @Test
+    void validate_collapseMustBePositive() {
+        stateOptions.collapse = 0;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.log));
+    }
+
+    @Test
+    void validate_collapseDisallowedWithCsv() {
+        stateOptions.collapse = 10;
+        formatOptions.csv = true;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.log));
+    }
+
+    @Test
+    void validate_collapseDisallowedWithThreads() {
+        stateOptions.collapse = 10;
+        advancedOptions.threads = 2;
+        assertThrows(ParameterValidationException.class, () -> validate(Stream.log));
+    }
+
+    private void validate(Stream stream) throws ParameterValidationException {
+        stateOptions.validate(stream, formatOptions, summaryOptions, advancedOptions);
+    }
+}
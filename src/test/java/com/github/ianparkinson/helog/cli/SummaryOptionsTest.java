@@ -0,0 +1,211 @@
+package com.github.ianparkinson.helog.cli;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class SummaryOptionsTest {
+    private final SummaryOptions summaryOptions = new SummaryOptions();
+    private final FormatOptions formatOptions = new FormatOptions();
+    private final AdvancedOptions advancedOptions = new AdvancedOptions();
+
+    @Test
+    void validate_defaults() {
+        assertDoesNotThrow(() -> summaryOptions.validate(Stream.log, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_intervalMustBePositive() {
+        summaryOptions.interval = 0;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.log, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_windowAllowedWithCsv() {
+        summaryOptions.window = 60;
+        formatOptions.csv = true;
+        assertDoesNotThrow(() -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_windowDisallowedWithLog() {
+        summaryOptions.window = 60;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.log, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_windowDisallowedWithRaw() {
+        summaryOptions.window = 60;
+        formatOptions.raw = true;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_windowDisallowedWithTop() {
+        summaryOptions.window = 60;
+        formatOptions.top = true;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_windowMustBePositive() {
+        summaryOptions.window = 0;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_slideRequiresWindow() {
+        summaryOptions.slide = 10;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_slideMustDivideWindow() {
+        summaryOptions.window = 60;
+        summaryOptions.slide = 25;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_percentilesDisallowedWithLog() {
+        formatOptions.percentiles = true;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.log, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_percentilesDisallowedWithWindow() {
+        formatOptions.percentiles = true;
+        summaryOptions.window = 60;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_latencyDisallowedWithEvents() {
+        formatOptions.latency = true;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+        assertDoesNotThrow(() -> summaryOptions.validate(Stream.log, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_templatesDisallowedWithEvents() {
+        formatOptions.templates = true;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+        assertDoesNotThrow(() -> summaryOptions.validate(Stream.log, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_newTemplatesDisallowedWithEvents() {
+        formatOptions.newTemplates = true;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+        assertDoesNotThrow(() -> summaryOptions.validate(Stream.log, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_sketchFileRequiresPercentiles() {
+        summaryOptions.sketchFile = Path.of("sketch");
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+        formatOptions.percentiles = true;
+        assertDoesNotThrow(() -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void slide_defaultsToWindow() {
+        summaryOptions.window = 60;
+        assertThat(summaryOptions.slide()).isEqualTo(60);
+        summaryOptions.slide = 10;
+        assertThat(summaryOptions.slide()).isEqualTo(10);
+    }
+
+    @Test
+    void validate_watchdogAllowedWithEvents() {
+        summaryOptions.watchdog = true;
+        summaryOptions.silentAfter = 600;
+        assertDoesNotThrow(() -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_watchdogDisallowedWithLog() {
+        summaryOptions.watchdog = true;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.log, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_watchdogDisallowedWithCsv() {
+        summaryOptions.watchdog = true;
+        formatOptions.csv = true;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_watchdogDisallowedWithWindow() {
+        summaryOptions.watchdog = true;
+        summaryOptions.window = 60;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_silentAfterRequiresWatchdog() {
+        summaryOptions.silentAfter = 600;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_silentAfterMustBePositive() {
+        summaryOptions.watchdog = true;
+        summaryOptions.silentAfter = 0;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_windowDisallowedWithThreads() {
+        summaryOptions.window = 60;
+        advancedOptions.threads = 2;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_percentilesDisallowedWithThreads() {
+        formatOptions.percentiles = true;
+        advancedOptions.threads = 2;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_newTemplatesDisallowedWithThreads() {
+        formatOptions.newTemplates = true;
+        advancedOptions.threads = 2;
+        assertThrows(ParameterValidationException.class,
+                () -> summaryOptions.validate(Stream.log, formatOptions, advancedOptions));
+    }
+
+    @Test
+    void validate_topAllowedWithThreads() {
+        formatOptions.top = true;
+        advancedOptions.threads = 2;
+        assertDoesNotThrow(() -> summaryOptions.validate(Stream.events, formatOptions, advancedOptions));
+    }
+}
@@ -6,6 +6,7 @@ import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
 
 import static com.github.ianparkinson.helog.util.DateTimeFormatters.ISO_OFFSET_DATE_TIME_MILLIS;
+import static com.github.ianparkinson.helog.util.DateTimeFormatters.formatMillis;
 import static com.google.common.truth.Truth.assertThat;
 
 final class DateTimeFormattersTest {
@@ -78,4 +79,25 @@ final class DateTimeFormattersTest {
         assertThat(ISO_OFFSET_DATE_TIME_MILLIS.format(dateTime))
                 .isEqualTo("2020-01-02T03:04:05.678+01:00");
     }
+
+    @Test
+    void formatMillis_formats() {
+        ZonedDateTime dateTime = ZonedDateTime.parse("2020-01-02T03:04:05.678+01:00[Europe/Paris]");
+        assertThat(formatMillis(dateTime)).isEqualTo("2020-01-02T03:04:05.678+01:00");
+    }
+
+    @Test
+    void formatMillis_reusesTextForSameTime() {
+        ZonedDateTime dateTime = ZonedDateTime.parse("2020-01-02T03:04:05.678Z");
+        String first = formatMillis(dateTime);
+        assertThat(formatMillis(ZonedDateTime.parse("2020-01-02T03:04:05.678Z"))).isSameInstanceAs(first);
+    }
+
+    @Test
+    void formatMillis_formatsChangedTime() {
+        assertThat(formatMillis(ZonedDateTime.parse("2020-01-02T03:04:05.678Z"))).isEqualTo("2020-01-02T03:04:05.678Z");
+        assertThat(formatMillis(ZonedDateTime.parse("2020-01-02T03:04:06.678Z"))).isEqualTo("2020-01-02T03:04:06.678Z");
+        assertThat(formatMillis(ZonedDateTime.parse("2020-01-02T03:04:06.678+01:00")))
+                .isEqualTo("2020-01-02T03:04:06.678+01:00");
+    }
 }
@@ -0,0 +1,194 @@
+package com.github.ianparkinson.helog.util;
+
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class FlatJsonReaderTest {
+    private static final String[] FIELDS = {"a", "b"};
+
+    @Test
+    void readsFields() {
+        assertThat(read("{\"a\": \"x\", \"b\": \"y\"}")).containsExactly("a=x", "b=y").inOrder();
+    }
+
+    @Test
+    void emptyObject() {
+        assertThat(read("{}")).isEmpty();
+        assertThat(read(" { } ")).isEmpty();
+    }
+
+    @Test
+    void emptyInput() {
+        assertThat(new FlatJsonReader("").beginObject()).isFalse();
+        assertThat(new FlatJsonReader("  ").beginObject()).isFalse();
+    }
+
+    @Test
+    void literalNullInput() {
+        assertThat(new FlatJsonReader("null").beginObject()).isFalse();
+    }
+
+    @Test
+    void toleratesWhitespace() {
+        assertThat(read(" {\n\t\"a\" :\r\n\"x\" ,  \"b\":\"y\"  }\n")).containsExactly("a=x", "b=y").inOrder();
+    }
+
+    @Test
+    void numbersAsText() {
+        assertThat(read("{\"a\": 34, \"b\": -1.5e3}")).containsExactly("a=34", "b=-1.5e3").inOrder();
+    }
+
+    @Test
+    void booleansAsText() {
+        assertThat(read("{\"a\": true, \"b\": false}")).containsExactly("a=true", "b=false").inOrder();
+    }
+
+    @Test
+    void nullValue() {
+        assertThat(read("{\"a\": null}")).containsExactly("a=null");
+    }
+
+    @Test
+    void escapes() {
+        assertThat(read("{\"a\": \"q\\\"b\\\\s\\/n\\nt\\tu\\u00e9\"}")).containsExactly("a=q\"b\\s/n\nt\tu\u00e9");
+    }
+
+    @Test
+    void escapeFollowedByUnescapedValue() {
+        assertThat(read("{\"a\": \"\\\"x\\\"\", \"b\": \"y\"}")).containsExactly("a=\"x\"", "b=y").inOrder();
+    }
+
+    @Test
+    void skipsUnknownFields() {
+        assertThat(read("{\"a\": \"x\", \"c\": \"z\", \"b\": \"y\"}")).containsExactly("a=x", "b=y").inOrder();
+    }
+
+    @Test
+    void skipsNestedValues() {
+        assertThat(read("{\"a\": \"x\", \"c\": {\"d\": [1, {\"e\": \"}]\"}]}, \"b\": \"y\"}"))
+                .containsExactly("a=x", "b=y")
+                .inOrder();
+    }
+
+    @Test
+    void fieldNameWithEscape() {
+        assertThat(read("{\"\\u0061\": \"x\"}")).containsExactly("a=x");
+    }
+
+    @Test
+    void vocabularyReturnsCanonicalInstance() {
+        String[] vocabulary = {"info", "debug"};
+        FlatJsonReader reader = new FlatJsonReader("{\"a\": \"debug\", \"b\": \"other\"}");
+        reader.beginObject();
+        reader.nextField();
+        assertThat(reader.stringValue(vocabulary)).isSameInstanceAs(vocabulary[1]);
+        reader.nextField();
+        assertThat(reader.stringValue(vocabulary)).isEqualTo("other");
+    }
+
+    @Test
+    void cachedValueReturnsCanonicalInstance() {
+        StringCache cache = new StringCache(16, 64);
+        FlatJsonReader reader = new FlatJsonReader("{\"a\": \"Lamp\", \"b\": \"Lamp\", \"c\": \"\\u004camp\"}");
+        reader.beginObject();
+        reader.nextField();
+        String first = reader.stringValue(cache);
+        reader.nextField();
+        assertThat(reader.stringValue(cache)).isSameInstanceAs(first);
+        reader.nextField();
+        assertThat(reader.stringValue(cache)).isSameInstanceAs(first);
+    }
+
+    @Test
+    void cachedValueNull() {
+        FlatJsonReader reader = new FlatJsonReader("{\"a\": null}");
+        reader.beginObject();
+        reader.nextField();
+        assertThat(reader.stringValue(new StringCache(16, 64))).isNull();
+    }
+
+    @Test
+    void idValue() {
+        assertThat(firstId("{\"a\": 34}")).isEqualTo("34");
+        assertThat(firstId("{\"a\": \"34\"}")).isEqualTo("34");
+        assertThat(firstId("{\"a\": 0}")).isEqualTo("0");
+        assertThat(firstId("{\"a\": 123456}")).isEqualTo("123456");
+        assertThat(firstId("{\"a\": 034}")).isEqualTo("034");
+        assertThat(firstId("{\"a\": -1}")).isEqualTo("-1");
+        assertThat(firstId("{\"a\": \"abc\"}")).isEqualTo("abc");
+        assertThat(firstId("{\"a\": null}")).isNull();
+    }
+
+    @Test
+    void idValueReturnsCanonicalInstance() {
+        assertThat(firstId("{\"a\": 34}")).isSameInstanceAs(firstId("{\"a\": 34}"));
+    }
+
+    @Test
+    void notJson() {
+        assertThrows(JsonSyntaxException.class, () -> read("this is not a JSON string"));
+    }
+
+    @Test
+    void notAnObject() {
+        assertThrows(JsonSyntaxException.class, () -> read("[1, 2]"));
+    }
+
+    @Test
+    void truncated() {
+        assertThrows(JsonSyntaxException.class, () -> read("{\"a\": \"x"));
+        assertThrows(JsonSyntaxException.class, () -> read("{\"a\": \"x\""));
+        assertThrows(JsonSyntaxException.class, () -> read("{\"a\""));
+    }
+
+    @Test
+    void missingComma() {
+        assertThrows(JsonSyntaxException.class, () -> read("{\"a\": \"x\" \"b\": \"y\"}"));
+    }
+
+    @Test
+    void trailingContent() {
+        assertThrows(JsonSyntaxException.class, () -> read("{\"a\": \"x\"} extra"));
+    }
+
+    @Test
+    void objectWhereStringExpected() {
+        assertThrows(JsonSyntaxException.class, () -> read("{\"a\": {}}"));
+    }
+
+    @Test
+    void invalidEscape() {
+        assertThrows(JsonSyntaxException.class, () -> read("{\"a\": \"\\x\"}"));
+        assertThrows(JsonSyntaxException.class, () -> read("{\"a\": \"\\u00zz\"}"));
+    }
+
+    private static List<String> read(String json) {
+        List<String> fields = new ArrayList<>();
+        FlatJsonReader reader = new FlatJsonReader(json);
+        if (!reader.beginObject()) {
+            return fields;
+        }
+        while (reader.nextField()) {
+            int field = reader.field(FIELDS);
+            if (field < 0) {
+                reader.skipValue();
+            } else {
+                fields.add(FIELDS[field] + "=" + reader.stringValue());
+            }
+        }
+        return fields;
+    }
+
+    private static String firstId(String json) {
+        FlatJsonReader reader = new FlatJsonReader(json);
+        reader.beginObject();
+        reader.nextField();
+        return reader.idValue();
+    }
+}
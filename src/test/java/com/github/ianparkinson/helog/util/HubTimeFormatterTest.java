@@ -0,0 +1,43 @@
+package com.github.ianparkinson.helog.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class HubTimeFormatterTest {
+    private static final ZoneId LONDON = ZoneId.of("Europe/London");
+
+    private final HubTimeFormatter formatter = new HubTimeFormatter(LONDON);
+
+    @Test
+    void format() {
+        long millis = ZonedDateTime.parse("2022-11-05T16:25:52.729Z").toInstant().toEpochMilli();
+        assertThat(formatter.format(millis)).isEqualTo("2022-11-05 16:25:52.729");
+    }
+
+    @Test
+    void formatsSuccessiveHours() {
+        long millis = ZonedDateTime.parse("2022-11-05T16:59:59.999Z").toInstant().toEpochMilli();
+        assertThat(formatter.format(millis)).isEqualTo("2022-11-05 16:59:59.999");
+        assertThat(formatter.format(millis + 1)).isEqualTo("2022-11-05 17:00:00.000");
+        assertThat(formatter.format(millis - 3_600_000)).isEqualTo("2022-11-05 15:59:59.999");
+    }
+
+    @Test
+    void daylightSavingTime() {
+        long millis = ZonedDateTime.parse("2023-06-01T12:00:00.000Z").toInstant().toEpochMilli();
+        assertThat(formatter.format(millis)).isEqualTo("2023-06-01 13:00:00.000");
+    }
+
+    @Test
+    void inverseOfParser() {
+        HubTimeParser parser = new HubTimeParser(LONDON);
+        long start = ZonedDateTime.parse("2023-03-26T00:00:00.000Z").toInstant().toEpochMilli();
+        for (long millis = start; millis < start + 4 * 3_600_000; millis += 59_999) {
+            assertThat(parser.parse(formatter.format(millis))).isEqualTo(millis);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.ianparkinson.helog.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static com.github.ianparkinson.helog.util.HubTimeParser.INVALID;
+import static com.google.common.truth.Truth.assertThat;
+
+final class HubTimeParserTest {
+    private final HubTimeParser utc = new HubTimeParser(ZoneOffset.UTC);
+
+    @Test
+    void parse() {
+        assertThat(utc.parse("2022-11-05 16:25:52.729"))
+                .isEqualTo(Instant.parse("2022-11-05T16:25:52.729Z").toEpochMilli());
+    }
+
+    @Test
+    void parseInZone() {
+        HubTimeParser london = new HubTimeParser(ZoneId.of("Europe/London"));
+        assertThat(london.parse("2023-04-08 12:58:16.416"))
+                .isEqualTo(Instant.parse("2023-04-08T11:58:16.416Z").toEpochMilli());
+    }
+
+    @Test
+    void successiveTimesInDifferentHours() {
+        assertThat(utc.parse("2022-11-05 16:59:59.999"))
+                .isEqualTo(Instant.parse("2022-11-05T16:59:59.999Z").toEpochMilli());
+        assertThat(utc.parse("2022-11-05 17:00:00.000"))
+                .isEqualTo(Instant.parse("2022-11-05T17:00:00.000Z").toEpochMilli());
+        assertThat(utc.parse("2022-11-06 17:00:00.000"))
+                .isEqualTo(Instant.parse("2022-11-06T17:00:00.000Z").toEpochMilli());
+    }
+
+    @Test
+    void daylightSavingTransition() {
+        HubTimeParser london = new HubTimeParser(ZoneId.of("Europe/London"));
+        assertThat(london.parse("2023-03-26 00:59:59.000"))
+                .isEqualTo(Instant.parse("2023-03-26T00:59:59Z").toEpochMilli());
+        // Clocks went forward at 01:00 GMT, to 02:00 BST.
+        assertThat(london.parse("2023-03-26 02:00:01.000"))
+                .isEqualTo(Instant.parse("2023-03-26T01:00:01Z").toEpochMilli());
+    }
+
+    @Test
+    void invalid() {
+        assertThat(utc.parse(null)).isEqualTo(INVALID);
+        assertThat(utc.parse("")).isEqualTo(INVALID);
+        assertThat(utc.parse("2022-11-05T16:25:52.729")).isEqualTo(INVALID);
+        assertThat(utc.parse("2022-11-05 16:25:52")).isEqualTo(INVALID);
+        assertThat(utc.parse("2022-11-05 16:61:52.729")).isEqualTo(INVALID);
+        assertThat(utc.parse("2022-13-05 16:25:52.729")).isEqualTo(INVALID);
+        assertThat(utc.parse("2022-11-05 1x:25:52.729")).isEqualTo(INVALID);
+        assertThat(utc.parse("2022-11-05 16:25:52.7x9")).isEqualTo(INVALID);
+    }
+
+    @Test
+    void invalidAfterValidInSameHour() {
+        utc.parse("2022-11-05 16:25:52.729");
+        assertThat(utc.parse("2022-11-05 16:25:5x.729")).isEqualTo(INVALID);
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.ianparkinson.helog.util;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class LatencyHistogramTest {
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.count()).isEqualTo(100);
+        assertThat(histogram.percentile(0.5)).isEqualTo(50);
+        assertThat(histogram.percentile(0.9)).isEqualTo(90);
+        assertThat(histogram.percentile(1)).isEqualTo(100);
+        assertThat(histogram.min()).isEqualTo(1);
+        assertThat(histogram.max()).isEqualTo(100);
+    }
+
+    @Test
+    void largeValuesWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1_000_000; i++) {
+            histogram.record(i);
+        }
+        assertThat((double) histogram.percentile(0.5)).isWithin(5000).of(500_000);
+        assertThat((double) histogram.percentile(0.99)).isWithin(9900).of(990_000);
+        assertThat(histogram.percentile(1)).isEqualTo(1_000_000);
+    }
+
+    @Test
+    void negativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1000);
+        histogram.record(-10);
+        histogram.record(5);
+        histogram.record(10);
+
+        assertThat((double) histogram.percentile(0.25)).isWithin(10).of(-1000);
+        assertThat(histogram.percentile(0.5)).isEqualTo(-10);
+        assertThat(histogram.percentile(0.75)).isEqualTo(5);
+        assertThat(histogram.min()).isEqualTo(-1000);
+    }
+
+    @Test
+    void percentileLimitedToRecordedRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_001);
+        assertThat(histogram.percentile(0.5)).isEqualTo(1_000_001);
+    }
+
+    @Test
+    void clampsHugeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(Long.MIN_VALUE);
+        assertThat(histogram.max()).isEqualTo(LatencyHistogram.MAX_MAGNITUDE);
+        assertThat(histogram.min()).isEqualTo(-LatencyHistogram.MAX_MAGNITUDE);
+    }
+
+    @Test
+    void rejectsInvalidPercentile() {
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram().percentile(-0.1));
+    }
+}
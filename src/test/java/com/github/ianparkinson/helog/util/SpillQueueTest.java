@@ -0,0 +1,250 @@
+package com.github.ianparkinson.helog.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class SpillQueueTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void empty() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 1024, 4096);
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.size()).isEqualTo(0);
+        assertThat(queue.remove()).isNull();
+        assertThat(queue.oldestMillis()).isNull();
+    }
+
+    @Test
+    void firstInFirstOut() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 1024, 4096);
+        queue.add("one", 1);
+        queue.add("caf\u00e9", 2);
+        queue.add("", 3);
+
+        assertThat(queue.size()).isEqualTo(3);
+        assertThat(queue.remove()).isEqualTo("one");
+        assertThat(queue.remove()).isEqualTo("caf\u00e9");
+        assertThat(queue.remove()).isEqualTo("");
+        assertThat(queue.remove()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void spansSegments() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 64, 64 * 1024);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(queue.add("line " + i, i)).isTrue();
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(queue.remove()).isEqualTo("line " + i);
+        }
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void interleavesAddAndRemove() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 64, 64 * 1024);
+        int added = 0;
+        int removed = 0;
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 7; i++) {
+                queue.add("line " + added++, 0);
+            }
+            for (int i = 0; i < 5; i++) {
+                assertThat(queue.remove()).isEqualTo("line " + removed++);
+            }
+        }
+        assertThat(queue.size()).isEqualTo(added - removed);
+    }
+
+    @Test
+    void lineLongerThanSegment() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 64, 4096);
+        String line = "x".repeat(1000);
+        queue.add("short", 0);
+        queue.add(line, 0);
+        queue.add("after", 0);
+
+        assertThat(queue.remove()).isEqualTo("short");
+        assertThat(queue.remove()).isEqualTo(line);
+        assertThat(queue.remove()).isEqualTo("after");
+    }
+
+    @Test
+    void refusesBeyondBudget() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 64, 128);
+        int added = 0;
+        while (queue.add("line " + added, 0)) {
+            added++;
+        }
+        assertThat(added).isGreaterThan(0);
+        assertThat(queue.size()).isEqualTo(added);
+
+        // Draining the first segment frees space for more.
+        while (queue.size() > added / 2) {
+            queue.remove();
+        }
+        assertThat(queue.add("more", 0)).isTrue();
+    }
+
+    @Test
+    void reportsBacklog() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 1024, 4096);
+        queue.add("one", 1000);
+        queue.add("two", 2000);
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.bytes()).isEqualTo(2 * (12 + 3));
+        assertThat(queue.oldestMillis()).isEqualTo(1000);
+        queue.remove();
+        assertThat(queue.oldestMillis()).isEqualTo(2000);
+        assertThat(queue.bytes()).isEqualTo(12 + 3);
+    }
+
+    @Test
+    void reusesDrainedSegments() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 64, 64 * 1024);
+        for (int i = 0; i < 100; i++) {
+            queue.add(line(i), 0);
+        }
+        Path directory = directory();
+        long segments = count(directory);
+        assertThat(segments).isGreaterThan(2);
+        for (int i = 0; i < 90; i++) {
+            queue.remove();
+        }
+        for (int i = 100; i < 190; i++) {
+            queue.add(line(i), 0);
+        }
+        assertThat(count(directory)).isEqualTo(segments);
+        for (int i = 90; i < 190; i++) {
+            assertThat(queue.remove()).isEqualTo(line(i));
+        }
+    }
+
+    @Test
+    void drainedLongSegmentIsReused() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 64, 1024);
+        String line = "x".repeat(900);
+        queue.add(line, 0);
+        queue.add("after", 0);
+        assertThat(queue.remove()).isEqualTo(line);
+        // The long segment counts against the budget until reused.
+        assertThat(queue.add(line, 0)).isTrue();
+        assertThat(queue.remove()).isEqualTo("after");
+        assertThat(queue.remove()).isEqualTo(line);
+    }
+
+    @Test
+    void closeDeletesFilesOnceEmpty() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 64, 64 * 1024);
+        for (int i = 0; i < 100; i++) {
+            queue.add("line " + i, 0);
+        }
+        while (queue.remove() != null) {
+        }
+        queue.close();
+        assertThat(Files.exists(directory())).isFalse();
+        assertThat(SpillQueue.exists(directory())).isFalse();
+    }
+
+    @Test
+    void closeKeepsUnreadLines() throws IOException {
+        SpillQueue queue = new SpillQueue(directory(), 64, 64 * 1024);
+        for (int i = 0; i < 100; i++) {
+            queue.add("line " + i, i);
+        }
+        for (int i = 0; i < 40; i++) {
+            queue.remove();
+        }
+        queue.close();
+        assertThat(SpillQueue.exists(directory())).isTrue();
+
+        SpillQueue recovered = new SpillQueue(directory(), 64, 64 * 1024);
+        assertThat(recovered.size()).isEqualTo(60);
+        assertThat(recovered.oldestMillis()).isEqualTo(40);
+        for (int i = 40; i < 100; i++) {
+            assertThat(recovered.remove()).isEqualTo("line " + i);
+        }
+        assertThat(recovered.remove()).isNull();
+    }
+
+    @Test
+    void recoversWithoutClose() throws IOException {
+        // As left by a process which exited without closing the queue.
+        SpillQueue abandoned = new SpillQueue(directory(), 1024, 4096);
+        abandoned.add("one", 1000);
+        abandoned.add("", 2000);
+        abandoned.add("caf\u00e9", 3000);
+        abandoned.remove();
+
+        SpillQueue queue = new SpillQueue(directory(), 1024, 4096);
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.bytes()).isEqualTo(2 * 12 + 5);
+        assertThat(queue.oldestMillis()).isEqualTo(2000);
+        queue.add("four", 4000);
+        assertThat(queue.remove()).isEqualTo("");
+        assertThat(queue.remove()).isEqualTo("caf\u00e9");
+        assertThat(queue.remove()).isEqualTo("four");
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void recoversReusedSegmentsInOrder() throws IOException {
+        SpillQueue abandoned = new SpillQueue(directory(), 64, 64 * 1024);
+        for (int i = 0; i < 100; i++) {
+            abandoned.add("line " + i, 0);
+        }
+        for (int i = 0; i < 90; i++) {
+            abandoned.remove();
+        }
+        // Reuses the drained segments, whose files come before those still holding lines.
+        for (int i = 100; i < 190; i++) {
+            abandoned.add("line " + i, 0);
+        }
+
+        SpillQueue queue = new SpillQueue(directory(), 64, 64 * 1024);
+        assertThat(queue.size()).isEqualTo(100);
+        for (int i = 90; i < 190; i++) {
+            assertThat(queue.remove()).isEqualTo("line " + i);
+        }
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void recoveredSegmentsCountAgainstBudget() throws IOException {
+        SpillQueue abandoned = new SpillQueue(directory(), 64, 128);
+        int added = 0;
+        while (abandoned.add("line " + added, 0)) {
+            added++;
+        }
+
+        SpillQueue queue = new SpillQueue(directory(), 64, 128);
+        assertThat(queue.size()).isEqualTo(added);
+        assertThat(queue.add("more", 0)).isFalse();
+    }
+
+    /** Lines of equal length, so that each segment holds as many. */
+    private static String line(int i) {
+        return String.format("line %03d", i);
+    }
+
+    private Path directory() {
+        return tempDir.resolve("spill");
+    }
+
+    private static long count(Path directory) throws IOException {
+        try (Stream<Path> children = Files.list(directory)) {
+            return children.count();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.ianparkinson.helog.util;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class StringCacheTest {
+    @Test
+    void returnsEqualString() {
+        StringCache cache = new StringCache(16, 64);
+        assertThat(cache.get("xxhelloxx", 2, 7)).isEqualTo("hello");
+    }
+
+    @Test
+    void returnsSameInstanceForRepeatedValue() {
+        StringCache cache = new StringCache(16, 64);
+        String first = cache.get(new StringBuilder("hello"), 0, 5);
+        String second = cache.get(new StringBuilder("say hello"), 4, 9);
+        assertThat(second).isSameInstanceAs(first);
+    }
+
+    @Test
+    void getString() {
+        StringCache cache = new StringCache(16, 64);
+        String first = cache.get(new String("hello"));
+        assertThat(cache.get(new String("hello"))).isSameInstanceAs(first);
+    }
+
+    @Test
+    void getNull() {
+        StringCache cache = new StringCache(16, 64);
+        assertThat(cache.get(null)).isNull();
+    }
+
+    @Test
+    void emptyString() {
+        StringCache cache = new StringCache(16, 64);
+        assertThat(cache.get("abc", 1, 1)).isEmpty();
+    }
+
+    @Test
+    void doesNotCacheLongStrings() {
+        StringCache cache = new StringCache(16, 4);
+        String first = cache.get(new String("hello"));
+        String second = cache.get(new String("hello"));
+        assertThat(second).isEqualTo(first);
+        assertThat(second).isNotSameInstanceAs(first);
+    }
+
+    @Test
+    void boundedByCapacity() {
+        // With a single pair of slots, each new value evicts the older of the two before it.
+        StringCache cache = new StringCache(2, 64);
+        String a = cache.get(new String("a"));
+        String b = cache.get(new String("b"));
+        assertThat(cache.get(new String("a"))).isSameInstanceAs(a);
+        cache.get(new String("c"));
+        assertThat(cache.get(new String("a"))).isSameInstanceAs(a);
+        assertThat(cache.get(new String("b"))).isNotSameInstanceAs(b);
+    }
+
+    @Test
+    void collidingValuesAreDistinguished() {
+        // "Aa" and "BB" have the same hash code.
+        StringCache cache = new StringCache(16, 64);
+        cache.get("Aa");
+        assertThat(cache.get("BB")).isEqualTo("BB");
+        assertThat(cache.get("Aa")).isEqualTo("Aa");
+    }
+
+    @Test
+    void rejectsInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new StringCache(0, 64));
+    }
+}
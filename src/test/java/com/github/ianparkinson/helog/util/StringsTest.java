@@ -162,4 +162,24 @@ final class StringsTest {
     void csvLineDoubleQuotesInMiddle() {
         assertThat(Strings.csvLine(List.of("hello\"world"))).isEqualTo("\"hello\"\"world\"");
     }
+
+    @Test
+    void parseNumber() {
+        assertThat(Strings.parseNumber("20")).isEqualTo(20.0);
+        assertThat(Strings.parseNumber("-1.5")).isEqualTo(-1.5);
+        assertThat(Strings.parseNumber("on")).isNull();
+        assertThat(Strings.parseNumber("12abc")).isNull();
+        assertThat(Strings.parseNumber("-Infinity")).isNull();
+        assertThat(Strings.parseNumber("")).isNull();
+        assertThat(Strings.parseNumber(null)).isNull();
+    }
+
+    @Test
+    void formatDecimal() {
+        assertThat(Strings.formatDecimal(20)).isEqualTo("20");
+        assertThat(Strings.formatDecimal(14.1666666)).isEqualTo("14.167");
+        assertThat(Strings.formatDecimal(-0.5)).isEqualTo("-0.5");
+        assertThat(Strings.formatDecimal(1e7)).isEqualTo("10000000");
+        assertThat(Strings.formatDecimal(0.0001)).isEqualTo("0");
+    }
 }
@@ -0,0 +1,126 @@
+package com.github.ianparkinson.helog.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class TDigestTest {
+    @Test
+    void empty() {
+        TDigest digest = new TDigest();
+        assertThat(digest.count()).isEqualTo(0);
+        assertThat(digest.quantile(0.5)).isNaN();
+        assertThat(digest.min()).isNaN();
+        assertThat(digest.max()).isNaN();
+    }
+
+    @Test
+    void singleValue() {
+        TDigest digest = new TDigest();
+        digest.add(42);
+        assertThat(digest.quantile(0)).isEqualTo(42.0);
+        assertThat(digest.quantile(0.5)).isEqualTo(42.0);
+        assertThat(digest.quantile(1)).isEqualTo(42.0);
+    }
+
+    @Test
+    void uniformDistribution() {
+        TDigest digest = new TDigest();
+        for (int i = 1; i <= 100_000; i++) {
+            digest.add(i);
+        }
+        assertThat(digest.count()).isEqualTo(100_000);
+        assertThat(digest.min()).isEqualTo(1.0);
+        assertThat(digest.max()).isEqualTo(100_000.0);
+        assertThat(digest.quantile(0.5)).isWithin(500).of(50_000);
+        assertThat(digest.quantile(0.9)).isWithin(300).of(90_000);
+        assertThat(digest.quantile(0.99)).isWithin(50).of(99_000);
+        assertThat(digest.quantile(0.999)).isWithin(10).of(99_900);
+    }
+
+    @Test
+    void shuffledInput() {
+        TDigest digest = new TDigest();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            digest.add(random.nextDouble());
+        }
+        assertThat(digest.quantile(0.5)).isWithin(0.01).of(0.5);
+        assertThat(digest.quantile(0.99)).isWithin(0.002).of(0.99);
+    }
+
+    @Test
+    void boundedSize() throws IOException {
+        TDigest digest = new TDigest();
+        for (int i = 0; i < 1_000_000; i++) {
+            digest.add(i % 1000);
+        }
+        // Each centroid is written as two doubles.
+        assertThat(serialize(digest).length).isLessThan(16 * 300);
+    }
+
+    @Test
+    void ignoresNonFiniteValues() {
+        TDigest digest = new TDigest();
+        digest.add(Double.NaN);
+        digest.add(Double.POSITIVE_INFINITY);
+        assertThat(digest.count()).isEqualTo(0);
+    }
+
+    @Test
+    void merge() {
+        TDigest low = new TDigest();
+        TDigest high = new TDigest();
+        for (int i = 1; i <= 50_000; i++) {
+            low.add(i);
+            high.add(50_000 + i);
+        }
+        low.merge(high);
+        assertThat(low.count()).isEqualTo(100_000);
+        assertThat(low.min()).isEqualTo(1.0);
+        assertThat(low.max()).isEqualTo(100_000.0);
+        assertThat(low.quantile(0.5)).isWithin(1000).of(50_000);
+        assertThat(low.quantile(0.99)).isWithin(200).of(99_000);
+        assertThat(high.count()).isEqualTo(50_000);
+    }
+
+    @Test
+    void serializationRoundTrip() throws IOException {
+        TDigest digest = new TDigest();
+        for (int i = 1; i <= 10_000; i++) {
+            digest.add(i);
+        }
+        TDigest copy = TDigest.readFrom(new DataInputStream(new ByteArrayInputStream(serialize(digest))));
+        assertThat(copy.count()).isEqualTo(10_000);
+        assertThat(copy.min()).isEqualTo(1.0);
+        assertThat(copy.max()).isEqualTo(10_000.0);
+        assertThat(copy.quantile(0.5)).isWithin(1e-9).of(digest.quantile(0.5));
+        assertThat(copy.quantile(0.99)).isWithin(1e-9).of(digest.quantile(0.99));
+    }
+
+    @Test
+    void readRejectsGarbage() {
+        byte[] garbage = new byte[64];
+        assertThrows(IOException.class,
+                () -> TDigest.readFrom(new DataInputStream(new ByteArrayInputStream(garbage))));
+    }
+
+    @Test
+    void rejectsInvalidQuantile() {
+        assertThrows(IllegalArgumentException.class, () -> new TDigest().quantile(1.5));
+    }
+
+    private static byte[] serialize(TDigest digest) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        digest.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.ianparkinson.helog.util;
+
+import com.github.ianparkinson.helog.util.TemplateMiner.Snapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+
+final class TemplateMinerTest {
+    private final TemplateMiner<String> miner = new TemplateMiner<>(100);
+
+    @Test
+    void numbersAreVariable() {
+        assertThat(miner.add("Heater temperature 20 C", "a")).isTrue();
+        assertThat(miner.add("Heater temperature 21.5 C", "a")).isFalse();
+
+        List<Snapshot<String>> templates = miner.snapshot();
+        assertThat(templates).hasSize(1);
+        assertThat(templates.get(0).text).isEqualTo("Heater temperature <*> C");
+        assertThat(templates.get(0).count).isEqualTo(2);
+    }
+
+    @Test
+    void differingTokensBecomeWildcards() {
+        miner.add("Heater switch is on", "a");
+        assertThat(miner.add("Heater switch is off", "a")).isFalse();
+        assertThat(miner.snapshot().get(0).text).isEqualTo("Heater switch is <*>");
+    }
+
+    @Test
+    void dissimilarMessagesStartNewTemplates() {
+        miner.add("Heater switch is on", "a");
+        assertThat(miner.add("Heater received an unexpected reply", "a")).isTrue();
+        assertThat(miner.add("Lamp switch is on", "a")).isTrue();
+        assertThat(miner.size()).isEqualTo(3);
+    }
+
+    @Test
+    void differentLengthsStartNewTemplates() {
+        miner.add("Heater switch is on", "a");
+        assertThat(miner.add("Heater switch is on now", "a")).isTrue();
+    }
+
+    @Test
+    void manyDistinctLengths() {
+        TemplateMiner<String> large = new TemplateMiner<>(1000);
+        // More lengths than a tree node has children: each must still be kept apart.
+        for (int length = 1; length <= 150; length++) {
+            assertThat(large.add(String.join(" ", Collections.nCopies(length, "word")), "a")).isTrue();
+        }
+        for (int length = 150; length >= 1; length--) {
+            assertThat(large.add(String.join(" ", Collections.nCopies(length, "word")), "a")).isFalse();
+        }
+        assertThat(large.size()).isEqualTo(150);
+    }
+
+    @Test
+    void emptyMessage() {
+        assertThat(miner.add("", "a")).isTrue();
+        assertThat(miner.add(null, "a")).isFalse();
+        assertThat(miner.snapshot().get(0).text).isEmpty();
+    }
+
+    @Test
+    void countsByKey() {
+        miner.add("Heater temperature 20 C", "a");
+        miner.add("Heater temperature 21 C", "b");
+        miner.add("Heater temperature 22 C", "a");
+        assertThat(miner.snapshot().get(0).countsByKey).containsExactly("a", 2L, "b", 1L).inOrder();
+    }
+
+    @Test
+    void snapshotIsMostFrequentFirst() {
+        miner.add("Heater switch is on", "a");
+        miner.add("Lamp level 20", "a");
+        miner.add("Lamp level 30", "a");
+
+        List<Snapshot<String>> templates = miner.snapshot();
+        assertThat(templates.get(0).text).isEqualTo("Lamp level <*>");
+        assertThat(templates.get(1).text).isEqualTo("Heater switch is on");
+        assertThat(templates.get(1).id).isLessThan(templates.get(0).id);
+    }
+
+    @Test
+    void evictsLeastRecentlyMatched() {
+        TemplateMiner<String> small = new TemplateMiner<>(2);
+        small.add("Heater switch is on", "a");
+        small.add("Lamp level 20", "a");
+        small.add("Heater switch is on", "a");
+        small.add("Fan speed is high today", "a");
+
+        assertThat(small.size()).isEqualTo(2);
+        assertThat(small.snapshot().stream().map(s -> s.text).collect(Collectors.toList()))
+                .containsExactly("Heater switch is on", "Fan speed is high today");
+        // The evicted template is forgotten, so starts again.
+        assertThat(small.add("Lamp level 30", "a")).isTrue();
+    }
+
+    @Test
+    void boundedChildren() {
+        for (int i = 0; i < 1000; i++) {
+            miner.add("word" + (char) ('a' + i % 26) + (char) ('a' + i / 26 % 26) + " follows", "a");
+        }
+        // At most 100 distinct first tokens, and one wildcard for the rest.
+        assertThat(miner.size()).isAtMost(101);
+    }
+}
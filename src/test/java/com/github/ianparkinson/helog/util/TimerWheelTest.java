@@ -0,0 +1,106 @@
+package com.github.ianparkinson.helog.util;
+
+import org.junit.jupiter.api.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+final class TimerWheelTest {
+    private static final long START = 1_674_910_800_000L;
+
+    @Test
+    void expiresAtDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 8, START);
+        wheel.schedule("a", START + 3000);
+
+        assertThat(wheel.advance(START + 2999)).isEmpty();
+        assertThat(wheel.advance(START + 3000)).containsExactly("a");
+        assertThat(wheel.size()).isEqualTo(0);
+        assertThat(wheel.advance(START + 10_000)).isEmpty();
+    }
+
+    @Test
+    void deadlineRoundedUpToTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 8, START);
+        wheel.schedule("a", START + 2500);
+
+        assertThat(wheel.advance(START + 2999)).isEmpty();
+        assertThat(wheel.advance(START + 3000)).containsExactly("a");
+    }
+
+    @Test
+    void rescheduleReplacesTimer() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 8, START);
+        wheel.schedule("a", START + 2000);
+        wheel.schedule("a", START + 5000);
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(START + 4000)).isEmpty();
+        assertThat(wheel.advance(START + 5000)).containsExactly("a");
+    }
+
+    @Test
+    void cancel() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 8, START);
+        wheel.schedule("a", START + 2000);
+        wheel.schedule("b", START + 2000);
+        wheel.cancel("a");
+        wheel.cancel("c");
+
+        assertThat(wheel.advance(START + 2000)).containsExactly("b");
+    }
+
+    @Test
+    void deadlinesBeyondOneTurn() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 8, START);
+        // Both timers share a slot, but "b" expires a turn later.
+        wheel.schedule("a", START + 3000);
+        wheel.schedule("b", START + 11_000);
+
+        assertThat(wheel.advance(START + 3000)).containsExactly("a");
+        assertThat(wheel.advance(START + 10_000)).isEmpty();
+        assertThat(wheel.advance(START + 11_000)).containsExactly("b");
+    }
+
+    @Test
+    void advanceManyTurnsAtOnce() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 8, START);
+        wheel.schedule("a", START + 3000);
+        wheel.schedule("b", START + 50_000);
+        wheel.schedule("c", START + 500_000);
+
+        assertThat(wheel.advance(START + 100_000)).containsExactly("a", "b");
+        assertThat(wheel.advance(START + 500_000)).containsExactly("c");
+    }
+
+    @Test
+    void pastDeadlineExpiresAtNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 8, START);
+        wheel.advance(START + 5000);
+        wheel.schedule("a", START + 1000);
+
+        assertThat(wheel.advance(START + 5999)).isEmpty();
+        assertThat(wheel.advance(START + 6000)).containsExactly("a");
+    }
+
+    @Test
+    void manyTimers() {
+        TimerWheel<Integer> wheel = new TimerWheel<>(1000, 64, START);
+        for (int i = 0; i < 1000; i++) {
+            wheel.schedule(i, START + i * 1000L);
+        }
+        // Rescheduling every timer leaves the same number of timers.
+        for (int i = 0; i < 1000; i++) {
+            wheel.schedule(i, START + (1000 + i) * 1000L);
+        }
+        assertThat(wheel.size()).isEqualTo(1000);
+        assertThat(wheel.advance(START + 1_499_000)).hasSize(500);
+        assertThat(wheel.size()).isEqualTo(500);
+    }
+
+    @Test
+    void invalidWheel() {
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel<String>(0, 8, START));
+        assertThrows(IllegalArgumentException.class, () -> new TimerWheel<String>(1000, 0, START));
+    }
+}